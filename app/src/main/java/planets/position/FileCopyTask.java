@@ -36,12 +36,12 @@ import androidx.fragment.app.DialogFragment;
 import androidx.preference.PreferenceManager;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.RandomAccessFile;
 
 import planets.position.database.TimeZoneDB;
+import planets.position.database.TimeZoneData;
+import planets.position.util.AssetInstaller;
 
 public class FileCopyTask extends DialogFragment {
 
@@ -152,7 +152,7 @@ public class FileCopyTask extends DialogFragment {
         @Override
         protected Void doInBackground(Void... params) {
             try {
-                copyFile(TimeZoneDB.DB_NAME);
+                copyFile(TimeZoneDB.ASSET);
             } catch (IOException e) {
                 Log.e("CopyFile error", e.getMessage());
                 e.printStackTrace();
@@ -169,37 +169,52 @@ public class FileCopyTask extends DialogFragment {
         }
     }
 
+    /**
+     * Installs the time zone data from the assets into internal storage with
+     * AssetInstaller. The checksum of the installed data is kept in the
+     * settings, a new version of the asset is installed over it.
+     */
     private void copyFile(String filename) throws IOException {
-        InputStream myInput;
-        OutputStream myOutput;
-        boolean deleted = true;
         String p = getActivity().getApplicationContext().getFilesDir().getAbsolutePath() +
                 File.separator + "databases";
         int version = settings.getInt("timezoneVersion", -1);
+        int checksum = TimeZoneDB.getAssetChecksum(getActivity());
         File dir = new File(p);
         if (dir.mkdirs() || dir.isDirectory()) {
             File f = new File(dir.getAbsolutePath() + File.separator + filename);
-            if (!f.exists() || (TimeZoneDB.DB_VERSION != version)) {
-                if (f.exists())
-                    deleted = f.delete();
-                if (deleted) {
-                    myInput = getActivity().getAssets().open(filename);
-                    myOutput = new FileOutputStream(f);
-                    byte[] buffer = new byte[1024];
-                    int length;
-                    while ((length = myInput.read(buffer)) > 0) {
-                        myOutput.write(buffer, 0, length);
-                    }
-                    // Close the streams
-                    myOutput.flush();
-                    myOutput.close();
-                    myInput.close();
-
-                    SharedPreferences.Editor editor = settings.edit();
-                    editor.putInt("timezoneVersion", TimeZoneDB.DB_VERSION);
-                    editor.apply();
-                }
+            if (!f.exists() || (checksum != version)) {
+                AssetInstaller.install(getActivity().getAssets(), filename, f,
+                        new AssetInstaller.Check() {
+                            @Override
+                            public void check(File file, long length) throws IOException {
+                                checkData(file, length);
+                            }
+                        });
+                TimeZoneDB.clearCache();
+
+                SharedPreferences.Editor editor = settings.edit();
+                editor.putInt("timezoneVersion", checksum);
+                editor.apply();
             }
+            // the SQLite database installed by older versions
+            String[] old = {"timezone.db", "timezone.db-journal", "timezone.db.tmp"};
+            for (String name : old) {
+                File o = new File(dir, name);
+                if (o.exists() && !o.delete())
+                    Log.w("CopyFile", "Can not delete " + o);
+            }
+        }
+    }
+
+    /**
+     * Checks that copied time zone data passes its checksum.
+     */
+    private static void checkData(File file, long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            TimeZoneData.map(raf.getChannel(), 0, length);
+        } finally {
+            raf.close();
         }
     }
 }
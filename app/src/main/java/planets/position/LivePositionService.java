@@ -27,9 +27,13 @@ import android.os.IBinder;
 import android.util.Log;
 
 import java.util.Calendar;
+import java.util.TimeZone;
 
+import planets.position.util.Ephemeris;
+import planets.position.util.EphemerisSession;
 import planets.position.util.JDUTC;
-import planets.position.util.RiseSet;
+import planets.position.util.PositionCache;
+import planets.position.util.RiseSetCache;
 
 public class LivePositionService extends Service {
 
@@ -40,21 +44,20 @@ public class LivePositionService extends Service {
     private final Handler handler = new Handler();
     private Intent intent;
     private JDUTC jdUTC;
-    private RiseSet riseSet;
-
-    // load c library
-    static {
-        System.loadLibrary("planets_swiss");
-    }
-
-    // c function prototype
-    public native static double[] planetLiveData(double d2, int p, double[] loc);
+    private RiseSetCache events;
+    private PositionCache positions;
+    private EphemerisSession session;
+    private final TimeZone zone = TimeZone.getDefault();
+    // tt - ut1 in days, refreshed once a day
+    private double deltaT;
+    private double deltaTUntil = Double.NEGATIVE_INFINITY;
 
     @Override
     public void onCreate() {
         super.onCreate();
         intent = new Intent(BROADCAST_ACTION);
         jdUTC = new JDUTC();
+        session = EphemerisSession.open();
     }
 
     @Override
@@ -64,7 +67,11 @@ public class LivePositionService extends Service {
         g[1] = intent.getDoubleExtra("latitude", 0);
         g[2] = intent.getDoubleExtra("elevation", 0);
         planetNum = intent.getIntExtra("planetNum", 0);
-        riseSet = new RiseSet(g);
+        // search for the events again only for a new planet or location
+        if (events == null || !events.matches(g, planetNum))
+            events = new RiseSetCache(g, planetNum);
+        if (positions == null || !positions.matches(g))
+            positions = new PositionCache(Ephemeris.getEngine(), g);
         handler.removeCallbacks(sendUpdatesToUI);
         handler.postDelayed(sendUpdatesToUI, 1000); // 1 second
         return super.onStartCommand(intent, flags, startId);
@@ -77,56 +84,69 @@ public class LivePositionService extends Service {
         }
     };
 
+    /**
+     * Sends the current position of the planet. The position is
+     * interpolated from the position cache, the set, rise and transit times
+     * are searched for only once they have passed.
+     */
     private void computeLocation() {
-        int m;
-        double[] d, data;
-        double setT, riseT, transitT;
-        Calendar utc = Calendar.getInstance();
-        // convert local time to UTC time
-        m = (int) (offset * 60);
-        utc.add(Calendar.MINUTE, m * -1);
-
-        d = jdUTC.utcjd(utc.get(Calendar.MONTH) + 1,
-                utc.get(Calendar.DAY_OF_MONTH), utc.get(Calendar.YEAR),
-                utc.get(Calendar.HOUR_OF_DAY), utc.get(Calendar.MINUTE),
-                utc.get(Calendar.SECOND));
-        if (d == null) {
-            Log.e("UpdatePosition error", "pos date error");
+        double[] data;
+        // the local wall clock time shifted by the location offset, in whole
+        // seconds, read as UTC
+        long now = System.currentTimeMillis();
+        long utc = (now + zone.getOffset(now) - (int) (offset * 60) * 60000L) / 1000L * 1000L;
+        double dUT = JDUTC.millisToJd(utc);
+
+        if (dUT >= deltaTUntil && !updateDeltaT(utc, dUT))
             return;
-        }
-        // jdTT = d[0];
-        // jdUT = d[1];
 
-        data = planetLiveData(d[1], planetNum, g);
+        data = positions.planetData(dUT + deltaT, dUT, planetNum);
         if (data == null) {
             Log.e("UpdatePosition error", "planetLiveData error");
             return;
         }
-        setT = riseSet.getSet(d[1], planetNum);
-        if (setT < 0) {
-            Log.e("UpdatePosition error", "planetLiveData set error");
-            return;
-        }
-        riseT = riseSet.getRise(d[1], planetNum);
-        if (riseT < 0) {
-            Log.e("UpdatePosition error", "planetLiveData rise error");
-            return;
-        }
-        transitT = riseSet.getTransit(d[1], planetNum);
-        if (riseT < 0) {
-            Log.e("UpdatePosition error", "planetLiveData transit error");
-            return;
+        switch (events.update(dUT)) {
+            case RiseSetCache.SET:
+                Log.e("UpdatePosition error", "planetLiveData set error");
+                return;
+            case RiseSetCache.RISE:
+                Log.e("UpdatePosition error", "planetLiveData rise error");
+                return;
+            case RiseSetCache.TRANSIT:
+                Log.e("UpdatePosition error", "planetLiveData transit error");
+                return;
         }
         intent.putExtra("data", data);
-        intent.putExtra("setT", setT);
-        intent.putExtra("riseT", riseT);
-        intent.putExtra("transit", transitT);
+        intent.putExtra("setT", events.getSet());
+        intent.putExtra("riseT", events.getRise());
+        intent.putExtra("transit", events.getTransit());
         sendBroadcast(intent);
     }
 
+    /**
+     * Gets tt - ut1 from the full date conversion, it changes by well under
+     * a millisecond a day.
+     */
+    private boolean updateDeltaT(long utc, double dUT) {
+        Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        c.setTimeInMillis(utc);
+        double[] d = jdUTC.utcjd(c.get(Calendar.MONTH) + 1,
+                c.get(Calendar.DAY_OF_MONTH), c.get(Calendar.YEAR),
+                c.get(Calendar.HOUR_OF_DAY), c.get(Calendar.MINUTE),
+                c.get(Calendar.SECOND));
+        if (d == null) {
+            Log.e("UpdatePosition error", "pos date error");
+            return false;
+        }
+        deltaT = d[0] - d[1];
+        deltaTUntil = dUT + 1.0;
+        return true;
+    }
+
     @Override
     public void onDestroy() {
         handler.removeCallbacks(sendUpdatesToUI);
+        session.close();
         super.onDestroy();
     }
 
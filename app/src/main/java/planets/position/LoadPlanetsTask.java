@@ -0,0 +1,58 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position;
+
+import android.content.Context;
+import android.os.AsyncTask;
+
+import planets.position.database.PlanetsDatabase;
+import planets.position.database.PlanetsSnapshot;
+
+/**
+ * Reads the last results back from the planets table when the process
+ * was restarted and nothing is held in memory. The snapshot is published,
+ * so the screens showing it are updated by PlanetsSnapshot.Observer.
+ */
+class LoadPlanetsTask extends AsyncTask<Void, Void, PlanetsSnapshot> {
+
+    private final PlanetsDatabase planetsDB;
+    private final long time;
+
+    LoadPlanetsTask(Context context, long time) {
+        planetsDB = new PlanetsDatabase(context);
+        this.time = time;
+    }
+
+    @Override
+    protected PlanetsSnapshot doInBackground(Void... params) {
+        planetsDB.open();
+        PlanetsSnapshot snapshot = planetsDB.loadPlanets(time);
+        planetsDB.close();
+        return snapshot;
+    }
+
+    @Override
+    protected void onPostExecute(PlanetsSnapshot result) {
+        // a calculation may have finished first
+        if (result != null && PlanetsSnapshot.getCurrent() == null)
+            PlanetsSnapshot.publish(result);
+    }
+}
@@ -31,6 +31,7 @@ import android.content.res.Configuration;
 import android.os.Build;
 import android.os.Bundle;
 import android.provider.CalendarContract;
+import android.util.Log;
 import android.view.MenuItem;
 
 import androidx.annotation.NonNull;
@@ -47,11 +48,13 @@ import androidx.preference.PreferenceManager;
 import com.google.android.material.navigation.NavigationView;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Queue;
 
+import planets.position.database.DatabaseManager;
 import planets.position.database.TimeZoneDB;
 import planets.position.location.LocationDialog;
 import planets.position.location.UserLocation;
@@ -59,6 +62,7 @@ import planets.position.lunar.LunarEclipse;
 import planets.position.lunar.LunarOccultation;
 import planets.position.settings.Settings;
 import planets.position.solar.SolarEclipse;
+import planets.position.util.CatalogInstaller;
 
 public class PlanetsMain extends AppCompatActivity
         implements NavigationView.OnNavigationItemSelectedListener, FragmentListener,
@@ -121,6 +125,9 @@ public class PlanetsMain extends AppCompatActivity
 
         loadLocation();
 
+        // answer global eclipse searches from the precomputed catalog
+        CatalogInstaller.install(this);
+
         copyTask = (FileCopyTask) getSupportFragmentManager().findFragmentByTag("copyTask");
 
         if (!settings.contains("timezoneVersion")) {
@@ -194,6 +201,14 @@ public class PlanetsMain extends AppCompatActivity
         isRunning = false;
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // database latencies of the session, for debug builds
+        if (BuildConfig.DEBUG && isFinishing())
+            Log.d("PlanetsMain", DatabaseManager.getStats());
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -299,9 +314,7 @@ public class PlanetsMain extends AppCompatActivity
 
         if (zoneID > 0) {
             // Update GMT offset
-            tzDB.open();
             int off = tzDB.getZoneOffset(zoneID, Calendar.getInstance().getTimeInMillis() / 1000L);
-            tzDB.close();
             offset = off / 3600.0;
 
             SharedPreferences.Editor editor = settings.edit();
@@ -487,15 +500,20 @@ public class PlanetsMain extends AppCompatActivity
     }
 
     /**
-     * Checks to see if the given file exists in internal storage.
+     * Checks to see if the current version of the given file exists in
+     * internal storage.
      *
      * @return true if exists, false otherwise
      */
     private boolean checkFiles() {
-        String p = getApplicationContext().getFilesDir().getAbsolutePath() +
-                File.separator + "databases" + File.separator + TimeZoneDB.DB_NAME;
-        File f = new File(p);
-        return f.exists();
+        File f = TimeZoneDB.getFile(getApplicationContext());
+        try {
+            return f.exists() && settings.getInt("timezoneVersion", -1)
+                    == TimeZoneDB.getAssetChecksum(getApplicationContext());
+        } catch (IOException e) {
+            Log.e("PlanetsMain", "Can not read " + TimeZoneDB.ASSET, e);
+            return false;
+        }
     }
 
     @Override
@@ -23,7 +23,9 @@ package planets.position;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -34,10 +36,12 @@ import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.SeekBar;
 import android.widget.Spinner;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.core.view.ViewCompat;
 import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentTransaction;
@@ -45,22 +49,31 @@ import androidx.preference.PreferenceManager;
 
 import java.text.DateFormat;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.Locale;
 
 import planets.position.database.TimeZoneDB;
+import planets.position.util.Ephemeris;
+import planets.position.util.EphemerisSession;
 import planets.position.util.JDUTC;
 import planets.position.util.PlanetDatePicker;
 import planets.position.util.PlanetTimePicker;
 import planets.position.util.PositionFormat;
+import planets.position.util.PositionTrack;
 import planets.position.util.RiseSet;
 
 public class SkyPosition extends Fragment {
 
     private static final int TIME_DIALOG = 200;
     private static final int DATE_DIALOG = 300;
+    // the slider reaches this many minutes either side of the chosen time
+    private static final int SCRUB_MINUTES = 3 * 1440;
+    // minutes of sky time played per second
+    private static final double PLAY_RATE = 60;
 
-    private Button timeButton, dateButton;
+    private Button timeButton, dateButton, playButton;
+    private SeekBar scrubBar;
     private TextView pRAText, pDecText, pMagText, pRiseText, pSetText;
     private TextView pAzText, pAltText, pBelowText, pDistText, pTransitText;
     private int mHour, mMinute, mDay, mMonth, mYear, zoneID, planetNum = 0;
@@ -68,21 +81,21 @@ public class SkyPosition extends Fragment {
     private double offset;
     private final double[] g = new double[3];
     private JDUTC jdUTC;
-    private RiseSet riseSet;
     private TimeZoneDB tzDB;
     private PlanetDatePicker datePickerFragment;
     private PlanetTimePicker timePickerFragment;
     private FragmentListener mCallbacks;
     private SharedPreferences settings;
     private PositionFormat pf;
-
-    // load c library
-    static {
-        System.loadLibrary("planets_swiss");
-    }
-
-    // c function prototype
-    public native double[] planetPosData(double d1, double d2, int p, double[] loc);
+    private ComputePositionTask positionTask;
+    // a request came in while positionTask was running
+    private boolean rerun;
+    private PositionTrack track;
+    private final double[] scrubData = new double[PositionTrack.VALUES];
+    // ut1 of the chosen time and of the time being shown
+    private double baseUT, playhead;
+    private boolean playing, framePosted;
+    private long lastFrame;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
@@ -93,6 +106,8 @@ public class SkyPosition extends Fragment {
         Spinner planetsSpinner = v.findViewById(R.id.planetsSpinner);
         timeButton = v.findViewById(R.id.timeButton);
         dateButton = v.findViewById(R.id.dateButton);
+        playButton = v.findViewById(R.id.playButton);
+        scrubBar = v.findViewById(R.id.scrubBar);
         pAzText = v.findViewById(R.id.pos_az_text);
         pAltText = v.findViewById(R.id.pos_alt_text);
         pRAText = v.findViewById(R.id.pos_ra_text);
@@ -151,8 +166,43 @@ public class SkyPosition extends Fragment {
             }
         });
 
+        scrubBar.setMax(2 * SCRUB_MINUTES);
+        scrubBar.setProgress(SCRUB_MINUTES);
+        scrubBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                if (fromUser) {
+                    playhead = baseUT + (progress - SCRUB_MINUTES) / 1440.0;
+                    if (track != null)
+                        track.setPlayhead(playhead);
+                    requestFrame();
+                }
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {
+                setPlaying(false);
+            }
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {
+                commitScrub();
+            }
+        });
+
+        playButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                if (playing) {
+                    setPlaying(false);
+                    commitScrub();
+                } else {
+                    setPlaying(true);
+                }
+            }
+        });
+
         loadLocation();
-        riseSet = new RiseSet(g);
 
         if (savedInstanceState == null) {
             // get the current date, time
@@ -194,6 +244,25 @@ public class SkyPosition extends Fragment {
         setRetainInstance(true);
     }
 
+    @Override
+    public void onDestroyView() {
+        playing = false;
+        framePosted = false;
+        scrubBar.removeCallbacks(frame);
+        super.onDestroyView();
+    }
+
+    @Override
+    public void onDestroy() {
+        if (positionTask != null) {
+            rerun = false;
+            positionTask.cancel(false);
+        }
+        if (track != null)
+            track.stop();
+        super.onDestroy();
+    }
+
     @Override
     public void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
         super.onCreateOptionsMenu(menu, inflater);
@@ -285,18 +354,86 @@ public class SkyPosition extends Fragment {
         timeButton.setText(mTimeFormat.format(gc.getTime()));
     }
 
+    /**
+     * Calculates the position for the chosen planet and time on a background
+     * thread. Requests made while a calculation is running are coalesced,
+     * the running one is cancelled and only the latest planet and time are
+     * calculated once it has stopped.
+     */
     private void computeLocation() {
-        if (planetNum >= 0 && planetNum < 10) {
+        setPlaying(false);
+        if (planetNum < 0 || planetNum >= 10)
+            return;
+        if (positionTask != null) {
+            positionTask.cancel(false);
+            rerun = true;
+            return;
+        }
+        rerun = false;
+        positionTask = new ComputePositionTask(planetNum, g, zoneID,
+                new GregorianCalendar(mYear, mMonth, mDay, mHour, mMinute, 0));
+        positionTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    // called on the UI thread when the running calculation has stopped
+    private void positionTaskDone(Position result) {
+        positionTask = null;
+        if (rerun) {
+            computeLocation();
+            return;
+        }
+        if (result == null || getView() == null)
+            return;
+
+        offset = result.offset;
+        resetScrub(result.ut, result.deltaT);
+        showPosition(result.data);
+
+        TextView[] views = {pSetText, pRiseText, pTransitText};
+        Calendar utc = Calendar.getInstance();
+        for (int i = 0; i < views.length; i++) {
+            if (Double.isNaN(result.events[i]))
+                break;
+            utc.setTimeInMillis(jdUTC.jdmills(result.events[i], offset * 60.0));
+            views[i].setText(String.format("%s\n%s", mDateFormat.format(utc.getTime()),
+                    mTimeFormat.format(utc.getTime())));
+        }
+    }
+
+    /**
+     * Position, set, rise and transit of one planet at one time.
+     */
+    private static class Position {
+        double ut, deltaT, offset;
+        double[] data;
+        // set, rise and transit, NaN from the first one that failed
+        final double[] events = {Double.NaN, Double.NaN, Double.NaN};
+    }
+
+    private class ComputePositionTask extends AsyncTask<Void, Void, Position> {
+
+        private final int planet, zone;
+        private final double[] loc;
+        private final RiseSet riseSet;
+        private final Calendar utc;
+
+        // the location is copied, loadLocation changes g on the UI thread
+        ComputePositionTask(int planet, double[] loc, int zone, Calendar local) {
+            this.planet = planet;
+            this.loc = loc.clone();
+            this.zone = zone;
+            this.riseSet = new RiseSet(this.loc);
+            this.utc = local;
+        }
+
+        @Override
+        protected Position doInBackground(Void... params) {
+            Position p = new Position();
             double[] data;
-            double ra, dec, t, d;
-            Calendar utc;
 
-            utc = new GregorianCalendar(mYear, mMonth, mDay, mHour, mMinute, 0);
-            tzDB.open();
-            int off = tzDB.getZoneOffset(zoneID, utc.getTimeInMillis() / 1000L);
-            offset = off / 3600.0;
-            tzDB.close();
-            utc.add(Calendar.MINUTE, (int) (offset * -60));
+            int off = tzDB.getZoneOffset(zone, utc.getTimeInMillis() / 1000L);
+            p.offset = off / 3600.0;
+            utc.add(Calendar.MINUTE, (int) (p.offset * -60));
 
             data = jdUTC.utcjd(utc.get(Calendar.MONTH) + 1,
                     utc.get(Calendar.DAY_OF_MONTH), utc.get(Calendar.YEAR),
@@ -305,68 +442,186 @@ public class SkyPosition extends Fragment {
 
             if (data == null) {
                 Log.e("Date error", "pos date error");
-                return;
+                return null;
             }
             // jdTT = data[0];
             // jdUT = data[1];
-            d = data[1];
+            p.ut = data[1];
+            p.deltaT = data[0] - data[1];
+
+            EphemerisSession session = EphemerisSession.open();
+            try {
+                p.data = Ephemeris.getEngine().planetData(data[0], data[1], planet, loc);
+                if (p.data == null) {
+                    Log.e("Position error", "planetPosData error");
+                    return null;
+                }
 
-            data = planetPosData(data[0], data[1], planetNum, g);
-            if (data == null) {
-                Log.e("Position error", "planetPosData error");
-                return;
-            }
-            ra = data[0];
-            dec = data[1];
-
-            // convert ra to hours
-            ra = ra / 15;
-
-            pRAText.setText(pf.formatRA(ra));
-            pDecText.setText(pf.formatDec(dec));
-            pAzText.setText(pf.formatAZ(data[3]));
-            pAltText.setText(pf.formatALT(data[4]));
-
-            if (planetNum == 1)
-                pDistText.setText(String.format(Locale.getDefault(), "%.4f AU", data[2]));
-            else
-                pDistText.setText(String.format(Locale.getDefault(), "%.2f AU", data[2]));
-            pMagText.setText(String.format(Locale.getDefault(), "%.2f", data[5]));
-
-            t = riseSet.getSet(d, planetNum);
-            if (t < 0) {
-                Log.e("Position error", "planetPosData set error");
-                return;
+                String[] names = {"set", "rise", "transit"};
+                for (int i = 0; i < p.events.length; i++) {
+                    // a newer request is waiting, skip the searches
+                    if (isCancelled())
+                        return null;
+                    double t;
+                    if (i == 0)
+                        t = riseSet.getSet(p.ut, planet);
+                    else if (i == 1)
+                        t = riseSet.getRise(p.ut, planet);
+                    else
+                        t = riseSet.getTransit(p.ut, planet);
+                    if (t < 0) {
+                        Log.e("Position error", "planetPosData " + names[i] + " error");
+                        break;
+                    }
+                    p.events[i] = t;
+                }
+            } finally {
+                session.close();
             }
-            utc.setTimeInMillis(jdUTC.jdmills(t, offset * 60.0));
-            pSetText.setText(String.format("%s\n%s", mDateFormat.format(utc.getTime()),
-                    mTimeFormat.format(utc.getTime())));
+            return p;
+        }
+
+        @Override
+        protected void onPostExecute(Position result) {
+            positionTaskDone(result);
+        }
+
+        @Override
+        protected void onCancelled(Position result) {
+            positionTaskDone(null);
+        }
+    }
+
+    private void showPosition(double[] data) {
+        // convert ra to hours
+        double ra = data[0] / 15;
+
+        pRAText.setText(pf.formatRA(ra));
+        pDecText.setText(pf.formatDec(data[1]));
+        pAzText.setText(pf.formatAZ(data[3]));
+        pAltText.setText(pf.formatALT(data[4]));
+
+        if (planetNum == 1)
+            pDistText.setText(String.format(Locale.getDefault(), "%.4f AU", data[2]));
+        else
+            pDistText.setText(String.format(Locale.getDefault(), "%.2f AU", data[2]));
+        pMagText.setText(String.format(Locale.getDefault(), "%.2f", data[5]));
+
+        if (data[4] <= 0.0) {
+            // below horizon
+            pBelowText.setVisibility(View.VISIBLE);
+        } else {
+            // above horizon
+            pBelowText.setVisibility(View.GONE);
+        }
+    }
 
-            t = riseSet.getRise(d, planetNum);
-            if (t < 0) {
-                Log.e("Position error", "planetPosData rise error");
+    /**
+     * Centers the slider on a newly chosen time. The track of positions is
+     * kept while the planet and location stay the same, it holds samples by
+     * time.
+     */
+    private void resetScrub(double dUT, double deltaT) {
+        baseUT = dUT;
+        playhead = dUT;
+        if (track == null || !track.matches(planetNum, g, dUT)) {
+            if (track != null)
+                track.stop();
+            track = new PositionTrack(Ephemeris.getEngine(), g, planetNum, dUT, deltaT,
+                    1.0 / 1440);
+            track.start();
+        }
+        track.setPlayhead(dUT);
+        scrubBar.setProgress(SCRUB_MINUTES);
+    }
+
+    private void setPlaying(boolean play) {
+        playing = play;
+        playButton.setText(play ? R.string.pos_pause : R.string.pos_play);
+        if (play) {
+            lastFrame = SystemClock.uptimeMillis();
+            requestFrame();
+        }
+    }
+
+    private void requestFrame() {
+        if (!framePosted) {
+            framePosted = true;
+            ViewCompat.postOnAnimation(scrubBar, frame);
+        }
+    }
+
+    /**
+     * Draws the position at the playhead once per display frame while
+     * playing, or until the track has caught up with the slider. Only reads
+     * the track, never the engine.
+     */
+    private final Runnable frame = new Runnable() {
+        @Override
+        public void run() {
+            framePosted = false;
+            if (track == null)
                 return;
+            boolean end = false;
+            if (playing) {
+                long now = SystemClock.uptimeMillis();
+                playhead += (now - lastFrame) / 1000.0 * PLAY_RATE / 1440.0;
+                lastFrame = now;
+                if (playhead >= baseUT + SCRUB_MINUTES / 1440.0) {
+                    playhead = baseUT + SCRUB_MINUTES / 1440.0;
+                    end = true;
+                }
+                scrubBar.setProgress((int) Math.round((playhead - baseUT) * 1440)
+                        + SCRUB_MINUTES);
+                track.setPlayhead(playhead);
             }
-            utc.setTimeInMillis(jdUTC.jdmills(t, offset * 60.0));
-            pRiseText.setText(String.format("%s\n%s", mDateFormat.format(utc.getTime()),
-                    mTimeFormat.format(utc.getTime())));
-
-            t = riseSet.getTransit(d, planetNum);
-            if (t < 0) {
-                Log.e("Position error", "planetPosData transit error");
+            if (track.get(playhead, scrubData)) {
+                showPosition(scrubData);
+                showScrubTime();
+            } else if (track.isFailed()) {
+                Log.e("Position error", "planetPosData track error");
+                setPlaying(false);
                 return;
+            } else if (!playing) {
+                requestFrame();
             }
-            utc.setTimeInMillis(jdUTC.jdmills(t, offset * 60.0));
-            pTransitText.setText(String.format("%s\n%s", mDateFormat.format(utc.getTime()),
-                    mTimeFormat.format(utc.getTime())));
-
-            if (data[4] <= 0.0) {
-                // below horizon
-                pBelowText.setVisibility(View.VISIBLE);
-            } else {
-                // above horizon
-                pBelowText.setVisibility(View.GONE);
+            if (end) {
+                setPlaying(false);
+                commitScrub();
+            } else if (playing) {
+                requestFrame();
             }
         }
+    };
+
+    // wall clock time of the playhead in the location's time zone (zoneID),
+    // as milliseconds that show that time when formatted in the device zone
+    private long scrubMillis() {
+        int off = tzDB.getZoneOffset(zoneID, JDUTC.jdToMillis(playhead) / 1000L);
+        return jdUTC.jdmills(playhead, off / 60.0);
+    }
+
+    private void showScrubTime() {
+        Date date = new Date(scrubMillis());
+        dateButton.setText(mDateFormat.format(date));
+        timeButton.setText(mTimeFormat.format(date));
+    }
+
+    /**
+     * Makes the time shown by the slider the chosen time, which updates the
+     * rise, set and transit times and centers the slider again.
+     */
+    private void commitScrub() {
+        if (playhead == baseUT)
+            return;
+        Calendar c = Calendar.getInstance();
+        c.setTimeInMillis(scrubMillis());
+        mYear = c.get(Calendar.YEAR);
+        mMonth = c.get(Calendar.MONTH);
+        mDay = c.get(Calendar.DAY_OF_MONTH);
+        mHour = c.get(Calendar.HOUR_OF_DAY);
+        mMinute = c.get(Calendar.MINUTE);
+        updateDisplay();
+        computeLocation();
     }
 }
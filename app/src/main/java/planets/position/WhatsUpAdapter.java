@@ -0,0 +1,140 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import java.text.DateFormat;
+import java.util.Calendar;
+
+import planets.position.database.PlanetsSnapshot;
+import planets.position.util.JDUTC;
+import planets.position.util.PositionFormat;
+
+/**
+ * Rows of the What's Up list, read straight from a PlanetsSnapshot.
+ */
+class WhatsUpAdapter extends BaseAdapter {
+
+    private final int[] images = {R.drawable.ic_planet_sun,
+            R.drawable.ic_planet_moon, R.drawable.ic_planet_mercury,
+            R.drawable.ic_planet_venus, R.drawable.ic_planet_mars,
+            R.drawable.ic_planet_jupiter, R.drawable.ic_planet_saturn,
+            R.drawable.ic_planet_uranus, R.drawable.ic_planet_neptune,
+            R.drawable.ic_planet_pluto};
+
+    private final LayoutInflater mInflater;
+    private final PositionFormat pf;
+    private final DateFormat mDateFormat, mTimeFormat;
+    private final JDUTC jdUTC = new JDUTC();
+    private final Calendar c = Calendar.getInstance();
+    private final PlanetsSnapshot snapshot;
+    private final int[] planets;
+    private final double offset;
+
+    /**
+     * @param activity activity of the list
+     * @param snapshot planets to show
+     * @param view     list shown, see PlanetsSnapshot.getPlanets
+     * @param offset   time zone offset in minutes
+     */
+    WhatsUpAdapter(Activity activity, PlanetsSnapshot snapshot, int view, double offset) {
+        Context context = activity.getApplicationContext();
+        this.snapshot = snapshot;
+        this.offset = offset;
+        planets = snapshot.getPlanets(view);
+        mInflater = LayoutInflater.from(activity);
+        pf = new PositionFormat(activity);
+        mDateFormat = android.text.format.DateFormat.getDateFormat(context);
+        mTimeFormat = android.text.format.DateFormat.getTimeFormat(context);
+    }
+
+    @Override
+    public int getCount() {
+        return planets.length;
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return snapshot.getName(planets[position]);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return planets[position];
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        ViewHolder holder;
+        if (convertView == null) {
+            convertView = mInflater.inflate(R.layout.whats_up_row, parent, false);
+            holder = new ViewHolder();
+            holder.rowImage = convertView.findViewById(R.id.rowImage);
+            holder.rowName = convertView.findViewById(R.id.rowName);
+            holder.rowAZ = convertView.findViewById(R.id.rowAZ);
+            holder.rowALT = convertView.findViewById(R.id.rowALT);
+            holder.rowRiseSet = convertView.findViewById(R.id.rowRiseSet);
+            holder.rowRSDate = convertView.findViewById(R.id.rowRSDate);
+            convertView.setTag(holder);
+        } else {
+            holder = (ViewHolder) convertView.getTag();
+        }
+
+        int i = planets[position];
+        holder.rowImage.setImageResource(images[i]);
+        holder.rowName.setText(snapshot.getName(i));
+        holder.rowAZ.setText(pf.formatAZ(snapshot.getAz(i)));
+        holder.rowALT.setText(pf.formatALT(snapshot.getAlt(i)));
+        if (snapshot.getAlt(i) > 0)
+            holder.rowRiseSet.setText(R.string.data_set);
+        else
+            holder.rowRiseSet.setText(R.string.data_rise);
+        double time = snapshot.getNextEvent(i);
+        if (Double.isNaN(time)) {
+            // the ephemeris could not find the event
+            holder.rowRSDate.setText("");
+        } else {
+            c.clear();
+            c.setTimeInMillis(jdUTC.jdmills(time, offset));
+            holder.rowRSDate.setText(String.format("%s %s", mDateFormat.format(c.getTime()),
+                    mTimeFormat.format(c.getTime())));
+        }
+
+        return convertView;
+    }
+
+    static class ViewHolder {
+        ImageView rowImage;
+        TextView rowName;
+        TextView rowAZ;
+        TextView rowALT;
+        TextView rowRiseSet;
+        TextView rowRSDate;
+    }
+}
@@ -34,23 +34,23 @@ import java.text.DateFormat;
 import java.util.Calendar;
 import java.util.Locale;
 
-import planets.position.database.PlanetsDatabase;
+import planets.position.database.PlanetsSnapshot;
 import planets.position.database.TimeZoneDB;
 import planets.position.util.JDUTC;
 import planets.position.util.PositionFormat;
 
-public class WhatsUpData extends Fragment {
+public class WhatsUpData extends Fragment implements PlanetsSnapshot.Observer {
 
     private TextView pRAText, pDecText, pMagText, pSetText, pAzText, pSet;
     private TextView pAltText, pDistText, pNameText, pDate, pTime, pTransitText;
     private long planetNum = 0, lastUpdate = 0;
     private int zoneID;
     private DateFormat mDateFormat, mTimeFormat;
-    private PlanetsDatabase planetsDB;
     private FragmentListener mCallbacks;
     private PositionFormat pf;
     private JDUTC jdUTC;
     private TimeZoneDB tzDB;
+    private boolean loading;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
@@ -70,8 +70,6 @@ public class WhatsUpData extends Fragment {
         pTime = v.findViewById(R.id.data_time_text);
         pTransitText = v.findViewById(R.id.data_transitTime_text);
 
-        planetsDB = new PlanetsDatabase(getActivity().getApplicationContext());
-
         if (mCallbacks != null) {
             mCallbacks.onToolbarTitleChange("Rise / Set", 6);
         }
@@ -106,6 +104,20 @@ public class WhatsUpData extends Fragment {
                 .getTimeFormat(getActivity().getApplicationContext());
         setHasOptionsMenu(true);
         setRetainInstance(true);
+        PlanetsSnapshot.addObserver(this);
+    }
+
+    @Override
+    public void onDestroy() {
+        PlanetsSnapshot.removeObserver(this);
+        super.onDestroy();
+    }
+
+    @Override
+    public void onSnapshot(PlanetsSnapshot snapshot) {
+        loading = false;
+        if (pNameText != null)
+            loadPlanet();
     }
 
     @Override
@@ -136,7 +148,7 @@ public class WhatsUpData extends Fragment {
     }
 
     private void loadPlanet() {
-        Bundle b;
+        PlanetsSnapshot snapshot;
         double alt, offset;
         double time;
         Calendar c = Calendar.getInstance();
@@ -145,45 +157,54 @@ public class WhatsUpData extends Fragment {
         pDate.setText(mDateFormat.format(c.getTime()));
         pTime.setText(mTimeFormat.format(c.getTime()));
 
-        planetsDB.open();
-        b = planetsDB.getPlanet(planetNum);
-        planetsDB.close();
+        snapshot = PlanetsSnapshot.getCurrent();
+        if (snapshot == null) {
+            // the process was restarted while this screen was showing, read
+            // the table in the background, onSnapshot shows the planet
+            if (!loading) {
+                loading = true;
+                new LoadPlanetsTask(getActivity().getApplicationContext(), lastUpdate)
+                        .execute();
+            }
+            return;
+        }
+        int i = (int) planetNum;
 
-        pNameText.setText(b.getString("name"));
-        pRAText.setText(pf.formatRA(b.getDouble("ra")));
-        pDecText.setText(pf.formatDec(b.getDouble("dec")));
-        pAzText.setText(pf.formatAZ(b.getDouble("az")));
-        alt = b.getDouble("alt");
+        pNameText.setText(snapshot.getName(i));
+        pRAText.setText(pf.formatRA(snapshot.getRA(i)));
+        pDecText.setText(pf.formatDec(snapshot.getDec(i)));
+        pAzText.setText(pf.formatAZ(snapshot.getAz(i)));
+        alt = snapshot.getAlt(i);
         pAltText.setText(pf.formatALT(alt));
         if (planetNum == 1)
             pDistText.setText(String.format(Locale.getDefault(), "%.4f AU",
-                    b.getDouble("distance")));
+                    snapshot.getDistance(i)));
         else
             pDistText.setText(String.format(Locale.getDefault(), "%.2f AU",
-                    b.getDouble("distance")));
+                    snapshot.getDistance(i)));
         pMagText.setText(String.format(Locale.getDefault(),
-                "%.2f", b.getDouble("mag")));
+                "%.2f", snapshot.getMag(i)));
 
         if (alt > 0) {
-            time = b.getDouble("setTime");
+            time = snapshot.getSetTime(i);
             pSet.setText(R.string.data_set);
         } else {
-            time = b.getDouble("riseTime");
+            time = snapshot.getRiseTime(i);
             pSet.setText(R.string.data_rise);
         }
-        tzDB.open();
         int off = tzDB.getZoneOffset(zoneID, lastUpdate / 1000L);
-        tzDB.close();
         offset = off / 60.0;
-        c.clear();
-        c.setTimeInMillis(jdUTC.jdmills(time, offset));
-        pSetText.setText(String.format("%s %s", mDateFormat.format(c.getTime()),
-                mTimeFormat.format(c.getTime())));
+        pSetText.setText(formatTime(c, time, offset));
+        pTransitText.setText(formatTime(c, snapshot.getTransit(i), offset));
+    }
 
-        time = b.getDouble("transit");
+    // a time the ephemeris could not find is NaN and shown blank
+    private String formatTime(Calendar c, double time, double offset) {
+        if (Double.isNaN(time))
+            return "";
         c.clear();
         c.setTimeInMillis(jdUTC.jdmills(time, offset));
-        pTransitText.setText(String.format("%s %s", mDateFormat.format(c.getTime()),
-                mTimeFormat.format(c.getTime())));
+        return String.format("%s %s", mDateFormat.format(c.getTime()),
+                mTimeFormat.format(c.getTime()));
     }
 }
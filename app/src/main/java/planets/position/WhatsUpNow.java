@@ -24,7 +24,6 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -35,7 +34,6 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemClickListener;
-import android.widget.ImageView;
 import android.widget.ListView;
 import android.widget.RadioGroup;
 import android.widget.TextView;
@@ -43,7 +41,6 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.widget.AppCompatRadioButton;
-import androidx.cursoradapter.widget.SimpleCursorAdapter;
 import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
@@ -54,13 +51,10 @@ import java.text.DateFormat;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 
-import planets.position.database.PlanetsDatabase;
-import planets.position.database.PlanetsTable;
+import planets.position.database.PlanetsSnapshot;
 import planets.position.database.TimeZoneDB;
-import planets.position.util.JDUTC;
-import planets.position.util.PositionFormat;
 
-public class WhatsUpNow extends Fragment {
+public class WhatsUpNow extends Fragment implements PlanetsSnapshot.Observer {
 
     static final int TASK_FRAGMENT = 10;
     private static final String TASK_FRAGMENT_TAG = "upTask";
@@ -80,13 +74,6 @@ public class WhatsUpNow extends Fragment {
     private ListView planetsList;
     private DateFormat mDateFormat, mTimeFormat;
     private TimeZoneDB tzDB;
-    private PlanetsDatabase planetsDB;
-    private final int[] images = {R.drawable.ic_planet_sun,
-            R.drawable.ic_planet_moon, R.drawable.ic_planet_mercury,
-            R.drawable.ic_planet_venus, R.drawable.ic_planet_mars,
-            R.drawable.ic_planet_jupiter, R.drawable.ic_planet_saturn,
-            R.drawable.ic_planet_uranus, R.drawable.ic_planet_neptune,
-            R.drawable.ic_planet_pluto};
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
@@ -166,7 +153,6 @@ public class WhatsUpNow extends Fragment {
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         tzDB = new TimeZoneDB(getActivity().getApplicationContext());
-        planetsDB = new PlanetsDatabase(getActivity().getApplicationContext());
         mDateFormat = android.text.format.DateFormat
                 .getDateFormat(getActivity().getApplicationContext());
         mTimeFormat = android.text.format.DateFormat
@@ -175,6 +161,13 @@ public class WhatsUpNow extends Fragment {
         lastUpdate = settings.getLong("lastUpdate", 0);
         setHasOptionsMenu(true);
         setRetainInstance(true);
+        PlanetsSnapshot.addObserver(this);
+    }
+
+    @Override
+    public void onDestroy() {
+        PlanetsSnapshot.removeObserver(this);
+        super.onDestroy();
     }
 
     @Override
@@ -204,6 +197,8 @@ public class WhatsUpNow extends Fragment {
             lastUpdate = now;
             planetsList.setVisibility(View.INVISIBLE);
             launchTask(offset);
+        } else if (PlanetsSnapshot.getCurrent() == null && taskFragment == null) {
+            new LoadPlanetsTask(getActivity().getApplicationContext(), lastUpdate).execute();
         }
         super.onResume();
     }
@@ -218,7 +213,7 @@ public class WhatsUpNow extends Fragment {
                     SharedPreferences.Editor editor = settings.edit();
                     editor.putLong("lastUpdate", now);
                     editor.apply();
-                    loadPlanets(viewIndex);
+                    // the list was filled by onSnapshot
                     break;
                 case Activity.RESULT_CANCELED:
                     Log.e(TASK_FRAGMENT_TAG, "Planet computation task canceled.");
@@ -244,9 +239,7 @@ public class WhatsUpNow extends Fragment {
         if (item.getItemId() == R.id.action_refresh) {
             lastUpdate = Calendar.getInstance().getTimeInMillis();
             now = lastUpdate;
-            tzDB.open();
             int off = tzDB.getZoneOffset(zoneID, now / 1000L);
-            tzDB.close();
             offset = off / 60.0;
             planetsList.setVisibility(View.INVISIBLE);
             launchTask(offset);
@@ -276,106 +269,41 @@ public class WhatsUpNow extends Fragment {
         zoneID = settings.getInt("zoneID", 0);
         newLoc = settings.getBoolean("newLocation", true);
 
-        tzDB.open();
         int off = tzDB.getZoneOffset(zoneID, Calendar.getInstance().getTimeInMillis() / 1000L);
-        tzDB.close();
         offset = off / 60.0;
     }
 
+    @Override
+    public void onSnapshot(PlanetsSnapshot snapshot) {
+        if (planetsList != null)
+            loadPlanets(viewIndex);
+    }
+
     private void loadPlanets(int index) {
-        Cursor plCursor;
-        final SimpleCursorAdapter cursorAdapter;
+        PlanetsSnapshot snapshot = PlanetsSnapshot.getCurrent();
         Calendar gc = new GregorianCalendar();
-        final PositionFormat pf = new PositionFormat(getActivity());
-        final JDUTC jdUTC = new JDUTC();
         gc.clear();
         gc.setTimeInMillis(lastUpdate);
-        planetsDB.open();
         switch (index) {
             case 0:
-                plCursor = planetsDB.getPlanetsRise();
                 updateText.setText(String.format("What's rising on %s @ %s",
                         mDateFormat.format(gc.getTime()), mTimeFormat.format(gc.getTime())));
                 riseRadio.setChecked(true);
                 break;
             case 1:
-                plCursor = planetsDB.getPlanetsSet();
                 updateText.setText(String.format("What's setting on %s @ %s",
                         mDateFormat.format(gc.getTime()), mTimeFormat.format(gc.getTime())));
                 setRadio.setChecked(true);
                 break;
             default:
-                plCursor = planetsDB.getPlanetsAll();
                 updateText.setText(String.format("All Planets on %s @ %s",
                         mDateFormat.format(gc.getTime()), mTimeFormat.format(gc.getTime())));
                 allRadio.setChecked(true);
                 break;
         }
-        String[] from = new String[]{PlanetsTable.COLUMN_NUMBER, PlanetsTable.COLUMN_NAME,
-                PlanetsTable.COLUMN_AZ, PlanetsTable.COLUMN_ALT, PlanetsTable.COLUMN_RISE,
-                PlanetsTable.COLUMN_RISE_TIME, PlanetsTable.COLUMN_SET_TIME};
-        int[] to = new int[]{R.id.rowImage, R.id.rowName, R.id.rowAZ, R.id.rowALT, R.id.rowRiseSet,
-                R.id.rowRSDate};
-        cursorAdapter = new SimpleCursorAdapter(getActivity().getApplicationContext(),
-                R.layout.whats_up_row, plCursor, from, to, 0);
-        cursorAdapter.setViewBinder(new SimpleCursorAdapter.ViewBinder() {
-            @Override
-            public boolean setViewValue(View view, Cursor cursor, int column) {
-                Calendar c = Calendar.getInstance();
-                double time;
-                if (column == 0) {// image
-                    ImageView iv = (ImageView) view;
-                    int i = cursor.getInt(cursor.getColumnIndex(PlanetsTable.COLUMN_NUMBER));
-                    iv.setImageResource(images[i]);
-                    return true;
-                }
-                if (column == 1) {// name
-                    TextView tv = (TextView) view;
-                    String name = cursor.getString(cursor
-                            .getColumnIndex(PlanetsTable.COLUMN_NAME));
-                    tv.setText(name);
-                    return true;
-                }
-                if (column == 2) {// Azimuth
-                    TextView tv = (TextView) view;
-                    double az = cursor.getDouble(cursor.getColumnIndex(PlanetsTable.COLUMN_AZ));
-                    tv.setText(pf.formatAZ(az));
-                    return true;
-                }
-                if (column == 3) {// Altitude
-                    TextView tv = (TextView) view;
-                    double alt = cursor.getDouble(cursor.getColumnIndex(PlanetsTable.COLUMN_ALT));
-                    tv.setText(pf.formatALT(alt));
-                    return true;
-                }
-                if (column == 4) {// rise
-                    TextView tv = (TextView) view;
-                    int rise = cursor.getInt(cursor.getColumnIndex(PlanetsTable.COLUMN_RISE));
-                    if (rise > 0) {
-                        tv.setText(R.string.data_set);
-                    } else {
-                        tv.setText(R.string.data_rise);
-                    }
-                    return true;
-                }
-                if (column == 5) {// rise/set date & time
-                    TextView tv = (TextView) view;
-                    int rise = cursor.getInt(cursor.getColumnIndex(PlanetsTable.COLUMN_RISE));
-                    if (rise > 0) {
-                        time = cursor.getDouble(cursor.getColumnIndex(PlanetsTable.COLUMN_SET_TIME));
-                    } else {
-                        time = cursor.getDouble(cursor.getColumnIndex(PlanetsTable.COLUMN_RISE_TIME));
-                    }
-                    c.clear();
-                    c.setTimeInMillis(jdUTC.jdmills(time, offset));
-                    tv.setText(String.format("%s %s", mDateFormat.format(c.getTime()),
-                            mTimeFormat.format(c.getTime())));
-                    return true;
-                }
-                return false;
-            }
-        });
-        planetsList.setAdapter(cursorAdapter);
+        if (snapshot == null)
+            return;
+        planetsList.setAdapter(new WhatsUpAdapter(getActivity(), snapshot, index, offset));
         planetsList.setVisibility(View.VISIBLE);
     }
 }
@@ -21,7 +21,7 @@
 package planets.position;
 
 import android.app.Activity;
-import android.content.ContentValues;
+import android.content.Context;
 import android.content.DialogInterface;
 import android.graphics.Color;
 import android.graphics.PorterDuff;
@@ -39,12 +39,16 @@ import androidx.annotation.NonNull;
 import androidx.fragment.app.DialogFragment;
 
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.List;
 
 import planets.position.database.PlanetsDatabase;
-import planets.position.database.PlanetsTable;
+import planets.position.database.PlanetsSnapshot;
+import planets.position.database.ResultCache;
+import planets.position.util.Ephemeris;
+import planets.position.util.EphemerisEngine;
+import planets.position.util.EphemerisPool;
 import planets.position.util.JDUTC;
-import planets.position.util.RiseSet;
 
 public class WhatsUpTask extends DialogFragment {
 
@@ -56,14 +60,6 @@ public class WhatsUpTask extends DialogFragment {
     private ProgressBar pb;
     private TextView tv;
 
-    // load c library
-    static {
-        System.loadLibrary("planets_swiss");
-    }
-
-    // c function prototypes
-    public native double[] planetUpData(double d1, double d2, int p, double[] loc);
-
     public void setData(ComputePlanetsTask task, double[] loc, double off) {
         mTask = task;
         offset = off;
@@ -132,14 +128,14 @@ public class WhatsUpTask extends DialogFragment {
                     Activity.RESULT_OK, null);
     }
 
-    public class ComputePlanetsTask extends AsyncTask<Void, Integer, Void> {
+    public class ComputePlanetsTask extends AsyncTask<Void, Integer, PlanetsSnapshot> {
 
         WhatsUpTask mFragment;
-        double[] data = null, time;
-        double r, s, ra, transit;
-        PlanetsDatabase planetsDB;
-        private RiseSet riseSet;
-        private ContentValues values;
+        final double[] data = new double[10 * EphemerisEngine.STRIDE];
+        double[] time;
+        long millis;
+        Context context;
+        ResultCache cache;
 
         void setFragment(WhatsUpTask fragment) {
             mFragment = fragment;
@@ -147,10 +143,10 @@ public class WhatsUpTask extends DialogFragment {
 
         @Override
         protected void onPreExecute() {
-            values = new ContentValues();
+            millis = Calendar.getInstance().getTimeInMillis();
             time = jdUTC.getCurrentTime(offset);
-            planetsDB = new PlanetsDatabase(mFragment.getActivity().getApplicationContext());
-            riseSet = new RiseSet(g);
+            context = mFragment.getActivity().getApplicationContext();
+            cache = new ResultCache(context);
         }
 
         protected void onProgressUpdate(Integer... values) {
@@ -159,74 +155,68 @@ public class WhatsUpTask extends DialogFragment {
         }
 
         @Override
-        protected Void doInBackground(Void... params) {
-            planetsDB.open();
-            int rise;
-            for (int i = 0; i < 10; i++) {
-                if (this.isCancelled()) {
-                    if (getTargetFragment() != null) {
-                        getTargetFragment().onActivityResult(0,
-                                Activity.RESULT_CANCELED, null);
-                    }
-                    break;
-                }
-                values.clear();
-                data = planetUpData(time[0], time[1], i, g);
-                if (data == null) {
-                    Log.e("Position error",
-                            "WhatsUpTask - ComputePlanetsTask error");
-                    if (getTargetFragment() != null) {
-                        getTargetFragment().onActivityResult(0, 100, null);
-                    }
-                    break;
-                }
-
-                s = riseSet.getSet(time[1], i);
-                if (s < 0) {
-                    Log.e("Position error", "ComputePlanetsTask set error");
-                    break;
-                }
-
-                r = riseSet.getRise(time[1], i);
-                if (r < 0) {
-                    Log.e("Position error", "ComputePlanetsTask rise error");
-                    break;
+        protected PlanetsSnapshot doInBackground(Void... params) {
+            int n;
+            String key = ResultCache.key(g, time[1]);
+            double[] cached = cache.getPlanets(key, data.length);
+            if (cached != null) {
+                // calculated in this minute for the location before, the
+                // snapshot is published and saved the same way as a new one
+                return new PlanetsSnapshot(millis, planetNames.toArray(new String[0]), cached);
+            }
+            // spread the planets across the ephemeris worker threads
+            try {
+                n = EphemerisPool.planetsData(Ephemeris.getEngine(), time[0], time[1],
+                        EphemerisEngine.ALL_PLANETS, g, data, new EphemerisPool.Listener() {
+                            int done = 0;
+
+                            @Override
+                            public void onPlanet(int planet) {
+                                publishProgress(++done, planet);
+                            }
+
+                            @Override
+                            public boolean isCancelled() {
+                                return ComputePlanetsTask.this.isCancelled();
+                            }
+                        });
+            } catch (InterruptedException e) {
+                n = -1;
+            }
+            if (n < 0) {
+                Log.e("Position error",
+                        "WhatsUpTask - ComputePlanetsTask error");
+                if (getTargetFragment() != null) {
+                    getTargetFragment().onActivityResult(0, 100, null);
                 }
-
-                transit = riseSet.getTransit(time[1], i);
-                if (transit < 0) {
-                    Log.e("Position error", "ComputePlanetsTask transit error");
-                    break;
+                return null;
+            } else if (this.isCancelled()) {
+                if (getTargetFragment() != null) {
+                    getTargetFragment().onActivityResult(0,
+                            Activity.RESULT_CANCELED, null);
                 }
-
-                ra = data[0];
-                // convert ra to hours
-                ra = ra / 15;
-
-                rise = (data[4] > 0) ? 1 : -1;
-
-                values.put(PlanetsTable.COLUMN_NAME, planetNames.get(i));
-                values.put(PlanetsTable.COLUMN_NUMBER, i);
-                values.put(PlanetsTable.COLUMN_RISE, rise);
-                values.put(PlanetsTable.COLUMN_RA, ra);
-                values.put(PlanetsTable.COLUMN_DEC, data[1]);
-                values.put(PlanetsTable.COLUMN_AZ, data[3]);
-                values.put(PlanetsTable.COLUMN_ALT, data[4]);
-                values.put(PlanetsTable.COLUMN_DISTANCE, data[2]);
-                values.put(PlanetsTable.COLUMN_MAGNITUDE, data[5]);
-                values.put(PlanetsTable.COLUMN_SET_TIME, s);
-                values.put(PlanetsTable.COLUMN_RISE_TIME, r);
-                values.put(PlanetsTable.COLUMN_TRANSIT, transit);
-
-                planetsDB.addPlanet(values, i);
-                publishProgress(i + 1, i);
+                return null;
             }
-            planetsDB.close();
-            return null;
+            cache.putPlanets(key, data);
+            return new PlanetsSnapshot(millis, planetNames.toArray(new String[0]), data);
         }
 
         @Override
-        protected void onPostExecute(Void result) {
+        protected void onPostExecute(final PlanetsSnapshot result) {
+            if (result != null) {
+                PlanetsSnapshot.publish(result);
+                // keep a copy for when the process is restarted, the serial
+                // executor keeps the writes in order
+                AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        PlanetsDatabase planetsDB = new PlanetsDatabase(context);
+                        planetsDB.open();
+                        planetsDB.savePlanets(result);
+                        planetsDB.close();
+                    }
+                });
+            }
             if (mFragment == null)
                 return;
             mFragment.taskFinished();
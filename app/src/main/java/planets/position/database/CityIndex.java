@@ -0,0 +1,130 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Type-ahead index over the city names of a TimeZoneData file. The names are
+ * folded to lower case without accents and sorted once, a search is a binary
+ * search for the first name with the prefix followed by a scan of the
+ * matches.
+ */
+public final class CityIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final TimeZoneData data;
+    private final String[] keys;
+    private final int[] rows;
+
+    /**
+     * Builds the index, this takes a few milliseconds and should not be done
+     * on the main thread.
+     *
+     * @param data time zone data
+     */
+    public CityIndex(TimeZoneData data) {
+        this.data = data;
+        int n = data.getCityCount();
+        final String[] names = new String[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = fold(data.getCityName(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int cmp = names[a].compareTo(names[b]);
+                return (cmp != 0) ? cmp : a - b;
+            }
+        });
+        keys = new String[n];
+        rows = new int[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = order[i];
+            keys[i] = names[order[i]];
+        }
+    }
+
+    /**
+     * Folds a name for searching: accents removed, lower case.
+     *
+     * @param name city name or typed text
+     * @return search key
+     */
+    public static String fold(String name) {
+        String s = Normalizer.normalize(name, Normalizer.Form.NFD);
+        return MARKS.matcher(s).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Finds the cities whose name starts with the given text, ignoring case
+     * and accents, in name order.
+     *
+     * @param prefix typed text
+     * @param limit  maximum number of matches
+     * @return city rows of the TimeZoneData file
+     */
+    public int[] search(String prefix, int limit) {
+        String key = fold(prefix.trim());
+        if (key.length() == 0)
+            return new int[0];
+        int lo = 0, hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        int end = lo;
+        while (end < keys.length && end - lo < limit && keys[end].startsWith(key))
+            end++;
+        return Arrays.copyOfRange(rows, lo, end);
+    }
+
+    public int getCityId(int row) {
+        return data.getCityId(row);
+    }
+
+    public String getCityName(int row) {
+        return data.getCityName(row);
+    }
+
+    /**
+     * Returns the state and country of a city to tell cities with the same
+     * name apart.
+     *
+     * @param row city row
+     * @return "state, country", or the country if the city has no state
+     */
+    public String getCityPlace(int row) {
+        String state = data.getCityState(row);
+        String country = data.getCityCountry(row);
+        return (state.length() == 0) ? country : state + ", " + country;
+    }
+}
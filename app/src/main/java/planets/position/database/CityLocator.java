@@ -0,0 +1,227 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+/**
+ * Finds the city nearest to a position. The cities of a TimeZoneData file are
+ * placed on the unit sphere and kept in a k-d tree stored in primitive
+ * arrays: the root of the rows lo to hi is at the middle row, with the
+ * closer half of the cities before it and the farther half after it along
+ * the split axis. Straight line distance on the sphere orders cities the same
+ * way as great circle distance, so the poles and the date line need no
+ * special cases.
+ */
+public final class CityLocator {
+
+    private static final double EARTH_RADIUS = 6371.0; // km
+
+    private final TimeZoneData data;
+    private final int[] rows;
+    private final double[] xyz;
+    private final byte[] axis;
+
+    /**
+     * Builds the tree, this takes a few milliseconds and should not be done
+     * on the main thread.
+     *
+     * @param data time zone data
+     */
+    public CityLocator(TimeZoneData data) {
+        this.data = data;
+        int n = data.getCityCount();
+        rows = new int[n];
+        xyz = new double[3 * n];
+        axis = new byte[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = i;
+            toXYZ(data.getCityLatitude(i), data.getCityLongitude(i), xyz, 3 * i);
+        }
+        build(0, n);
+    }
+
+    private static void toXYZ(double lat, double lng, double[] out, int pos) {
+        double la = Math.toRadians(lat);
+        double lo = Math.toRadians(lng);
+        out[pos] = Math.cos(la) * Math.cos(lo);
+        out[pos + 1] = Math.cos(la) * Math.sin(lo);
+        out[pos + 2] = Math.sin(la);
+    }
+
+    /**
+     * Returns the city nearest to a position.
+     *
+     * @param lat latitude in degrees
+     * @param lng longitude in degrees
+     * @return city row of the TimeZoneData file, -1 if there are no cities
+     */
+    public int nearest(double lat, double lng) {
+        double[] p = new double[3];
+        toXYZ(lat, lng, p, 0);
+        double[] bestDist = {Double.MAX_VALUE};
+        int best = search(0, rows.length, p, -1, bestDist);
+        return (best < 0) ? -1 : rows[best];
+    }
+
+    /**
+     * Returns the city nearest to a position by checking every city, for
+     * when the tree has not been built yet. Gives the same city as
+     * {@link #nearest}.
+     *
+     * @param data time zone data
+     * @param lat  latitude in degrees
+     * @param lng  longitude in degrees
+     * @return city row of the TimeZoneData file, -1 if there are no cities
+     */
+    public static int scan(TimeZoneData data, double lat, double lng) {
+        double[] p = new double[6];
+        toXYZ(lat, lng, p, 0);
+        int best = -1;
+        double bestDist = Double.MAX_VALUE;
+        for (int i = 0; i < data.getCityCount(); i++) {
+            toXYZ(data.getCityLatitude(i), data.getCityLongitude(i), p, 3);
+            double dx = p[3] - p[0], dy = p[4] - p[1], dz = p[5] - p[2];
+            double d = dx * dx + dy * dy + dz * dz;
+            if (d < bestDist) {
+                bestDist = d;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the great circle distance from a position to a city.
+     *
+     * @param row city row
+     * @param lat latitude in degrees
+     * @param lng longitude in degrees
+     * @return distance in km
+     */
+    public double distance(int row, double lat, double lng) {
+        return distance(data, row, lat, lng);
+    }
+
+    /**
+     * Returns the great circle distance from a position to a city.
+     *
+     * @param data time zone data
+     * @param row  city row
+     * @param lat  latitude in degrees
+     * @param lng  longitude in degrees
+     * @return distance in km
+     */
+    public static double distance(TimeZoneData data, int row, double lat, double lng) {
+        double[] a = new double[6];
+        toXYZ(lat, lng, a, 0);
+        toXYZ(data.getCityLatitude(row), data.getCityLongitude(row), a, 3);
+        double dx = a[0] - a[3], dy = a[1] - a[4], dz = a[2] - a[5];
+        double chord = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, chord / 2));
+    }
+
+    // returns the closer of best and the nearest tree row in lo to hi to p,
+    // bestDist holds the squared distance of the result
+    private int search(int lo, int hi, double[] p, int best, double[] bestDist) {
+        if (lo >= hi)
+            return best;
+        int mid = (lo + hi) >>> 1;
+        int pos = 3 * mid;
+        double dx = xyz[pos] - p[0], dy = xyz[pos + 1] - p[1], dz = xyz[pos + 2] - p[2];
+        double d = dx * dx + dy * dy + dz * dz;
+        if (d < bestDist[0]) {
+            bestDist[0] = d;
+            best = mid;
+        }
+        int a = axis[mid];
+        double diff = p[a] - xyz[pos + a];
+        // the half holding the position first, the other only if it can
+        // hold something closer
+        if (diff < 0) {
+            best = search(lo, mid, p, best, bestDist);
+            if (diff * diff < bestDist[0])
+                best = search(mid + 1, hi, p, best, bestDist);
+        } else {
+            best = search(mid + 1, hi, p, best, bestDist);
+            if (diff * diff < bestDist[0])
+                best = search(lo, mid, p, best, bestDist);
+        }
+        return best;
+    }
+
+    private void build(int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        // split along the axis with the widest spread
+        double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = lo; i < hi; i++) {
+            for (int k = 0; k < 3; k++) {
+                min[k] = Math.min(min[k], xyz[3 * i + k]);
+                max[k] = Math.max(max[k], xyz[3 * i + k]);
+            }
+        }
+        int a = 0;
+        for (int k = 1; k < 3; k++) {
+            if (max[k] - min[k] > max[a] - min[a])
+                a = k;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, a);
+        axis[mid] = (byte) a;
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    // moves the k-th smallest row along axis a to k, smaller rows before it
+    // and larger ones after it
+    private void select(int lo, int hi, int k, int a) {
+        while (lo < hi) {
+            double pivot = xyz[3 * ((lo + hi) >>> 1) + a];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (xyz[3 * i + a] < pivot)
+                    i++;
+                while (xyz[3 * j + a] > pivot)
+                    j--;
+                if (i <= j)
+                    swap(i++, j--);
+            }
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int r = rows[i];
+        rows[i] = rows[j];
+        rows[j] = r;
+        for (int k = 0; k < 3; k++) {
+            double t = xyz[3 * i + k];
+            xyz[3 * i + k] = xyz[3 * j + k];
+            xyz[3 * j + k] = t;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Holds the one connection to the planets database for the life of the
+ * process. The database is opened the first time it is asked for and never
+ * closed, SQLiteDatabase is safe to share between threads. Write ahead
+ * logging stays off, so SQLiteDatabase keeps a single connection and every
+ * query runs on the one PlanetsDatabaseHelper.onConfigure set up with the
+ * larger page cache and memory mapped reads.
+ * <p>
+ * The time it took to open and the latency of every timed operation are
+ * kept per operation, and an operation slower than a frame is logged.
+ * The time zone data is a memory mapped file read by TimeZoneDB and needs
+ * no connection.
+ */
+public final class DatabaseManager {
+
+    private static final String TAG = "DatabaseManager";
+    // operations slower than one frame are logged
+    private static final long SLOW_NANOS = 16000000L;
+
+    private static SQLiteDatabase database;
+    private static long openNanos;
+    private static final Map<String, long[]> stats = new LinkedHashMap<>();
+
+    private DatabaseManager() {
+    }
+
+    /**
+     * Returns the shared connection, opening it on the first call.
+     *
+     * @param context any context, only its application context is kept
+     * @return the open database
+     */
+    public static synchronized SQLiteDatabase getDatabase(Context context) {
+        if (database == null || !database.isOpen()) {
+            long start = System.nanoTime();
+            SQLiteDatabase db = PlanetsDatabaseHelper.getInstance(context).getWritableDatabase();
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+                // onConfigure is not called before API 16
+                PlanetsDatabaseHelper.configure(db);
+            }
+            database = db;
+            openNanos = System.nanoTime() - start;
+            Log.i(TAG, String.format(Locale.US, "opened %s in %.1f ms", db.getPath(),
+                    openNanos / 1e6));
+        }
+        return database;
+    }
+
+    /**
+     * Records the latency of one database operation.
+     *
+     * @param operation name of the operation
+     * @param start     System.nanoTime() when it started
+     */
+    public static void record(String operation, long start) {
+        long nanos = System.nanoTime() - start;
+        synchronized (stats) {
+            long[] s = stats.get(operation);
+            if (s == null) {
+                s = new long[3];
+                stats.put(operation, s);
+            }
+            s[0]++;
+            s[1] += nanos;
+            s[2] = Math.max(s[2], nanos);
+        }
+        if (nanos > SLOW_NANOS)
+            Log.w(TAG, String.format(Locale.US, "slow %s: %.1f ms", operation, nanos / 1e6));
+    }
+
+    /**
+     * Returns the open time and the count, mean and maximum latency of every
+     * recorded operation, one per line.
+     *
+     * @return latency report
+     */
+    public static String getStats() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (DatabaseManager.class) {
+            sb.append(String.format(Locale.US, "open %.1f ms%n", openNanos / 1e6));
+        }
+        synchronized (stats) {
+            for (Map.Entry<String, long[]> e : stats.entrySet()) {
+                long[] s = e.getValue();
+                sb.append(String.format(Locale.US, "%s: %d, mean %.2f ms, max %.2f ms%n",
+                        e.getKey(), s[0], s[1] / 1e6 / s[0], s[2] / 1e6));
+            }
+        }
+        return sb.toString();
+    }
+}
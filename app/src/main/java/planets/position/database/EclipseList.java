@@ -0,0 +1,133 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import android.database.Cursor;
+
+/**
+ * The eclipse or occultation list of a result table as flat arrays, read from
+ * the cursor once so the list can be bound and scrolled without it. The
+ * cursor columns are _id, kind, date, local and optionally the type string.
+ * A list can also be filled row by row while a search is running.
+ */
+public final class EclipseList {
+
+    private final long[] ids;
+    private final int[] kinds;
+    private final double[] dates;
+    private final boolean[] local;
+    private final String[] types;
+    private int count;
+
+    EclipseList(Cursor c) {
+        this(c.getCount());
+        boolean hasType = c.getColumnCount() > 4;
+        for (int i = 0; c.moveToNext(); i++) {
+            ids[i] = c.getLong(0);
+            kinds[i] = c.getInt(1);
+            dates[i] = c.getDouble(2);
+            local[i] = c.getInt(3) > 0;
+            types[i] = (hasType && !c.isNull(4)) ? c.getString(4) : "";
+        }
+        count = ids.length;
+    }
+
+    /**
+     * Creates an empty list for the rows of a running search.
+     *
+     * @param capacity most rows the list will hold
+     */
+    public EclipseList(int capacity) {
+        ids = new long[capacity];
+        kinds = new int[capacity];
+        dates = new double[capacity];
+        local = new boolean[capacity];
+        types = new String[capacity];
+    }
+
+    /**
+     * Inserts a row, moving the rows at and after the position down.
+     *
+     * @param i    position in the list, 0 to size()
+     * @param id   _id of the row in the result table
+     * @param kind global eclipse type flags, or the planet number of an
+     *             occultation
+     * @param date Jullian date in ut1
+     * @param loc  true if visible from the location
+     * @param type eclipse type string, null for occultations
+     */
+    public void add(int i, long id, int kind, double date, boolean loc, String type) {
+        if (i < 0 || i > count || count == ids.length)
+            throw new IndexOutOfBoundsException("Can not add row " + i + " to " + count);
+        int n = count - i;
+        System.arraycopy(ids, i, ids, i + 1, n);
+        System.arraycopy(kinds, i, kinds, i + 1, n);
+        System.arraycopy(dates, i, dates, i + 1, n);
+        System.arraycopy(local, i, local, i + 1, n);
+        System.arraycopy(types, i, types, i + 1, n);
+        ids[i] = id;
+        kinds[i] = kind;
+        dates[i] = date;
+        local[i] = loc;
+        types[i] = (type == null) ? "" : type;
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param i position in the list
+     * @return _id of the row
+     */
+    public long getId(int i) {
+        return ids[i];
+    }
+
+    /**
+     * @param i position in the list
+     * @return global eclipse type flags, or the planet number of an occultation
+     */
+    public int getKind(int i) {
+        return kinds[i];
+    }
+
+    /**
+     * @param i position in the list
+     * @return Jullian date in ut1
+     */
+    public double getDate(int i) {
+        return dates[i];
+    }
+
+    public boolean isLocal(int i) {
+        return local[i];
+    }
+
+    /**
+     * @param i position in the list
+     * @return eclipse type string, empty for occultations
+     */
+    public String getType(int i) {
+        return types[i];
+    }
+}
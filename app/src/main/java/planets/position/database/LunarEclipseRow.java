@@ -0,0 +1,107 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+/**
+ * One row of the lunar eclipse table, read by PlanetsDatabase.getLunarEclipse.
+ * The cursor is queried with COLUMNS, so every column is read by its
+ * position instead of being looked up by name.
+ */
+public final class LunarEclipseRow {
+
+    static final String[] COLUMNS = {LunarEclipseTable.COLUMN_ECLIPSE_DATE,
+            LunarEclipseTable.COLUMN_ECLIPSE_TYPE,
+            LunarEclipseTable.COLUMN_LOCAL,
+            LunarEclipseTable.COLUMN_MAX_ECLIPSE,
+            LunarEclipseTable.COLUMN_PENUMBRAL_BEGIN,
+            LunarEclipseTable.COLUMN_PENUMBRAL_END,
+            LunarEclipseTable.COLUMN_PARTIAL_BEGIN,
+            LunarEclipseTable.COLUMN_PARTIAL_END,
+            LunarEclipseTable.COLUMN_TOTAL_BEGIN,
+            LunarEclipseTable.COLUMN_TOTAL_END,
+            LunarEclipseTable.COLUMN_MOONRISE,
+            LunarEclipseTable.COLUMN_MOONSET,
+            LunarEclipseTable.COLUMN_MOON_AZ,
+            LunarEclipseTable.COLUMN_MOON_ALT,
+            LunarEclipseTable.COLUMN_PENUMBRAL_MAG,
+            LunarEclipseTable.COLUMN_UMBRAL_MAG,
+            LunarEclipseTable.COLUMN_SAROS_NUM,
+            LunarEclipseTable.COLUMN_SAROS_MEMBER_NUM};
+
+    /**
+     * Date of the maximum.
+     */
+    public final double date;
+    public final String type;
+    /**
+     * 1 if the eclipse is visible from the location, 0 if not.
+     */
+    public final int local;
+    public final double maxEclipse;
+    public final double penumbralBegin;
+    public final double penumbralEnd;
+    public final double partialBegin;
+    public final double partialEnd;
+    public final double totalBegin;
+    public final double totalEnd;
+    public final double moonrise;
+    public final double moonset;
+    public final double moonAz;
+    public final double moonAlt;
+    public final double penumbralMag;
+    public final double umbralMag;
+    public final int sarosNum;
+    public final int sarosMemberNum;
+
+    LunarEclipseRow(Cursor c) {
+        date = c.getDouble(0);
+        type = c.isNull(1) ? "" : c.getString(1);
+        local = c.getInt(2);
+        maxEclipse = c.getDouble(3);
+        penumbralBegin = c.getDouble(4);
+        penumbralEnd = c.getDouble(5);
+        partialBegin = c.getDouble(6);
+        partialEnd = c.getDouble(7);
+        totalBegin = c.getDouble(8);
+        totalEnd = c.getDouble(9);
+        moonrise = c.getDouble(10);
+        moonset = c.getDouble(11);
+        moonAz = c.getDouble(12);
+        moonAlt = c.getDouble(13);
+        penumbralMag = c.getDouble(14);
+        umbralMag = c.getDouble(15);
+        sarosNum = c.getInt(16);
+        sarosMemberNum = c.getInt(17);
+    }
+
+    /**
+     * Reads a row a running search has found but not written yet.
+     *
+     * @param values the row's columns by name
+     * @return the row
+     */
+    public static LunarEclipseRow fromValues(ContentValues values) {
+        return new LunarEclipseRow(PlanetsDatabase.toCursor(COLUMNS, values));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+/**
+ * One row of the lunar occultation table, read by
+ * PlanetsDatabase.getLunarOccult.
+ * The cursor is queried with COLUMNS, so every column is read by its
+ * position instead of being looked up by name.
+ */
+public final class LunarOccultRow {
+
+    static final String[] COLUMNS = {LunarOccultationTable.COLUMN_OCCULT_DATE,
+            LunarOccultationTable.COLUMN_OCCULT_PLANET,
+            LunarOccultationTable.COLUMN_LOCAL,
+            LunarOccultationTable.COLUMN_MOONRISE,
+            LunarOccultationTable.COLUMN_MOONSET,
+            LunarOccultationTable.COLUMN_LOCAL_FIRST,
+            LunarOccultationTable.COLUMN_LOCAL_MAX,
+            LunarOccultationTable.COLUMN_LOCAL_FOURTH,
+            LunarOccultationTable.COLUMN_MOONS_AZ,
+            LunarOccultationTable.COLUMN_MOONS_ALT,
+            LunarOccultationTable.COLUMN_MOONE_AZ,
+            LunarOccultationTable.COLUMN_MOONE_ALT,
+            LunarOccultationTable.COLUMN_GLOBAL_BEGIN,
+            LunarOccultationTable.COLUMN_GLOBAL_MAX,
+            LunarOccultationTable.COLUMN_GLOBAL_END};
+
+    /**
+     * Date of the occultation, the local maximum if it is visible.
+     */
+    public final double date;
+    /**
+     * Number of the occulted planet.
+     */
+    public final int planet;
+    /**
+     * 1 if the occultation is visible from the location, 0 if not.
+     */
+    public final int local;
+    public final double moonrise;
+    public final double moonset;
+    public final double localFirst;
+    public final double localMax;
+    public final double localFourth;
+    public final double moonStartAz;
+    public final double moonStartAlt;
+    public final double moonEndAz;
+    public final double moonEndAlt;
+    public final double globalBegin;
+    public final double globalMax;
+    public final double globalEnd;
+
+    LunarOccultRow(Cursor c) {
+        date = c.getDouble(0);
+        planet = c.getInt(1);
+        local = c.getInt(2);
+        moonrise = c.getDouble(3);
+        moonset = c.getDouble(4);
+        localFirst = c.getDouble(5);
+        localMax = c.getDouble(6);
+        localFourth = c.getDouble(7);
+        moonStartAz = c.getDouble(8);
+        moonStartAlt = c.getDouble(9);
+        moonEndAz = c.getDouble(10);
+        moonEndAlt = c.getDouble(11);
+        globalBegin = c.getDouble(12);
+        globalMax = c.getDouble(13);
+        globalEnd = c.getDouble(14);
+    }
+
+    /**
+     * Reads a row a running search has found but not written yet.
+     *
+     * @param values the row's columns by name
+     * @return the row
+     */
+    public static LunarOccultRow fromValues(ContentValues values) {
+        return new LunarOccultRow(PlanetsDatabase.toCursor(COLUMNS, values));
+    }
+}
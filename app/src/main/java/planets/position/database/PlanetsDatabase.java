@@ -23,278 +23,218 @@ package planets.position.database;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.os.Bundle;
+
+import planets.position.util.EphemerisEngine;
 
 public class PlanetsDatabase {
 
     private SQLiteDatabase database;
-    private final PlanetsDatabaseHelper dbHelper;
-
-    private final String[] whatsUpColumns = {PlanetsTable.COLUMN_NUMBER, PlanetsTable.COLUMN_NAME,
-            PlanetsTable.COLUMN_AZ, PlanetsTable.COLUMN_ALT, PlanetsTable.COLUMN_RISE,
-            PlanetsTable.COLUMN_RISE_TIME, PlanetsTable.COLUMN_SET_TIME, PlanetsTable.COLUMN_ID};
-    private final String[] planetDataColumns = {PlanetsTable.COLUMN_ID,
-            PlanetsTable.COLUMN_NAME, PlanetsTable.COLUMN_RA,
-            PlanetsTable.COLUMN_DEC, PlanetsTable.COLUMN_AZ,
-            PlanetsTable.COLUMN_ALT, PlanetsTable.COLUMN_DISTANCE,
-            PlanetsTable.COLUMN_MAGNITUDE, PlanetsTable.COLUMN_SET_TIME,
-            PlanetsTable.COLUMN_RISE_TIME, PlanetsTable.COLUMN_TRANSIT};
+    private final Context context;
+
+    private final String[] planetColumns = {PlanetsTable.COLUMN_NAME,
+            PlanetsTable.COLUMN_RA, PlanetsTable.COLUMN_DEC,
+            PlanetsTable.COLUMN_DISTANCE, PlanetsTable.COLUMN_AZ,
+            PlanetsTable.COLUMN_ALT, PlanetsTable.COLUMN_MAGNITUDE,
+            PlanetsTable.COLUMN_SET_TIME, PlanetsTable.COLUMN_RISE_TIME,
+            PlanetsTable.COLUMN_TRANSIT};
     private final String[] solarEclipseColumns = {SolarEclipseTable.COLUMN_ID,
             SolarEclipseTable.COLUMN_GLOBAL_TYPE,
             SolarEclipseTable.COLUMN_ECLIPSE_DATE,
-            SolarEclipseTable.COLUMN_ECLIPSE_TYPE,
-            SolarEclipseTable.COLUMN_LOCAL};
-    private final String[] solarDataColumns = {SolarEclipseTable.COLUMN_ID,
-            SolarEclipseTable.COLUMN_LOCAL, SolarEclipseTable.COLUMN_LOCAL_MAX,
-            SolarEclipseTable.COLUMN_LOCAL_FIRST,
-            SolarEclipseTable.COLUMN_LOCAL_SECOND,
-            SolarEclipseTable.COLUMN_LOCAL_THIRD,
-            SolarEclipseTable.COLUMN_LOCAL_FOURTH,
-            SolarEclipseTable.COLUMN_SUNRISE,
-            SolarEclipseTable.COLUMN_SUNSET,
-            SolarEclipseTable.COLUMN_GLOBAL_MAX,
-            SolarEclipseTable.COLUMN_GLOBAL_BEGIN,
-            SolarEclipseTable.COLUMN_GLOBAL_END,
-            SolarEclipseTable.COLUMN_GLOBAL_TOTAL_BEGIN,
-            SolarEclipseTable.COLUMN_GLOBAL_TOTAL_END,
-            SolarEclipseTable.COLUMN_GLOBAL_CENTER_BEGIN,
-            SolarEclipseTable.COLUMN_GLOBAL_CENTER_END,
-            SolarEclipseTable.COLUMN_FRACTION_COVERED,
-            SolarEclipseTable.COLUMN_SUN_AZ, SolarEclipseTable.COLUMN_SUN_ALT,
-            SolarEclipseTable.COLUMN_LOCAL_MAG,
-            SolarEclipseTable.COLUMN_SAROS_NUM,
-            SolarEclipseTable.COLUMN_SAROS_MEMBER_NUM,
-            SolarEclipseTable.COLUMN_ECLIPSE_DATE,
+            SolarEclipseTable.COLUMN_LOCAL,
             SolarEclipseTable.COLUMN_ECLIPSE_TYPE};
     private final String[] lunarEclipseColumns = {LunarEclipseTable.COLUMN_ID,
             LunarEclipseTable.COLUMN_GLOBAL_TYPE,
             LunarEclipseTable.COLUMN_ECLIPSE_DATE,
-            LunarEclipseTable.COLUMN_ECLIPSE_TYPE,
-            LunarEclipseTable.COLUMN_LOCAL};
-    private final String[] lunarDataColumns = {LunarEclipseTable.COLUMN_ID,
             LunarEclipseTable.COLUMN_LOCAL,
-            LunarEclipseTable.COLUMN_MAX_ECLIPSE,
-            LunarEclipseTable.COLUMN_PENUMBRAL_BEGIN,
-            LunarEclipseTable.COLUMN_PENUMBRAL_END,
-            LunarEclipseTable.COLUMN_TOTAL_BEGIN,
-            LunarEclipseTable.COLUMN_TOTAL_END,
-            LunarEclipseTable.COLUMN_PARTIAL_BEGIN,
-            LunarEclipseTable.COLUMN_PARTIAL_END,
-            LunarEclipseTable.COLUMN_MOONRISE,
-            LunarEclipseTable.COLUMN_MOONSET,
-            LunarEclipseTable.COLUMN_MOON_AZ,
-            LunarEclipseTable.COLUMN_MOON_ALT,
-            LunarEclipseTable.COLUMN_UMBRAL_MAG,
-            LunarEclipseTable.COLUMN_PENUMBRAL_MAG,
-            LunarEclipseTable.COLUMN_SAROS_NUM,
-            LunarEclipseTable.COLUMN_SAROS_MEMBER_NUM,
-            LunarEclipseTable.COLUMN_ECLIPSE_DATE,
             LunarEclipseTable.COLUMN_ECLIPSE_TYPE};
     private final String[] lunarOccultColumns = {LunarOccultationTable.COLUMN_ID,
-            LunarOccultationTable.COLUMN_OCCULT_DATE,
             LunarOccultationTable.COLUMN_OCCULT_PLANET,
-            LunarOccultationTable.COLUMN_LOCAL};
-    private final String[] occultDataColumns = {LunarOccultationTable.COLUMN_ID,
-            LunarOccultationTable.COLUMN_LOCAL,
-            LunarOccultationTable.COLUMN_LOCAL_MAX,
-            LunarOccultationTable.COLUMN_LOCAL_FIRST,
-            LunarOccultationTable.COLUMN_LOCAL_FOURTH,
-            LunarOccultationTable.COLUMN_MOONRISE,
-            LunarOccultationTable.COLUMN_MOONSET,
-            LunarOccultationTable.COLUMN_MOONS_AZ,
-            LunarOccultationTable.COLUMN_MOONS_ALT,
-            LunarOccultationTable.COLUMN_MOONE_AZ,
-            LunarOccultationTable.COLUMN_MOONE_ALT,
-            LunarOccultationTable.COLUMN_GLOBAL_MAX,
-            LunarOccultationTable.COLUMN_GLOBAL_BEGIN,
-            LunarOccultationTable.COLUMN_GLOBAL_END,
             LunarOccultationTable.COLUMN_OCCULT_DATE,
-            LunarOccultationTable.COLUMN_OCCULT_PLANET};
+            LunarOccultationTable.COLUMN_LOCAL};
 
     public PlanetsDatabase(Context context) {
-        dbHelper = PlanetsDatabaseHelper.getInstance(context);
+        this.context = context.getApplicationContext();
     }
 
+    /**
+     * Gets the shared connection from DatabaseManager, the first call in the
+     * process opens it.
+     */
     public void open() {
-        database = dbHelper.getWritableDatabase();
-        database.enableWriteAheadLogging();
+        database = DatabaseManager.getDatabase(context);
     }
 
+    /**
+     * The shared connection stays open for the whole process, so this does
+     * nothing. It is kept so every open has a matching close.
+     */
     public void close() {
-        database.close();
-    }
-
-    public Cursor getPlanetsSet() {
-        return database.query(PlanetsTable.TABLE_NAME, whatsUpColumns, "alt > 0.0",
-                null, null, null, null);
-    }
-
-    public Cursor getPlanetsRise() {
-        return database.query(PlanetsTable.TABLE_NAME, whatsUpColumns, "alt <= 0.0",
-                null, null, null, null);
     }
 
-    public Cursor getPlanetsAll() {
-        return database.query(PlanetsTable.TABLE_NAME, whatsUpColumns, null,
-                null, null, null, null);
-    }
-
-    public Bundle getPlanet(long planet) {
-
-        Bundle out = new Bundle();
-        Cursor c = database.query(PlanetsTable.TABLE_NAME, planetDataColumns,
-                PlanetsTable.COLUMN_ID + " = ?", new String[]{String.valueOf(planet)},
-                null, null, null);
-        c.moveToFirst();
-
-        out.putString("name", c.getString(c.getColumnIndex(PlanetsTable.COLUMN_NAME)));
-        out.putDouble("ra", c.getDouble(c.getColumnIndex(PlanetsTable.COLUMN_RA)));
-        out.putDouble("dec", c.getDouble(c.getColumnIndex(PlanetsTable.COLUMN_DEC)));
-        out.putDouble("az", c.getDouble(c.getColumnIndex(PlanetsTable.COLUMN_AZ)));
-        out.putDouble("alt", c.getDouble(c.getColumnIndex(PlanetsTable.COLUMN_ALT)));
-        out.putDouble("distance", c.getDouble(c.getColumnIndex(PlanetsTable.COLUMN_DISTANCE)));
-        out.putDouble("mag", c.getDouble(c.getColumnIndex(PlanetsTable.COLUMN_MAGNITUDE)));
-        out.putDouble("setTime", c.getDouble(c.getColumnIndex(PlanetsTable.COLUMN_SET_TIME)));
-        out.putDouble("riseTime", c.getDouble(c.getColumnIndex(PlanetsTable.COLUMN_RISE_TIME)));
-        out.putDouble("transit", c.getDouble(c.getColumnIndex(PlanetsTable.COLUMN_TRANSIT)));
-
-        c.close();
-
-        return out;
-    }
-
-    public void addPlanet(ContentValues values, int row) {
-        database.update(PlanetsTable.TABLE_NAME, values, PlanetsTable.COLUMN_ID + " = ?",
-                new String[]{String.valueOf(row)});
-    }
-
-    public Cursor getSolarEclipseList() {
-        return database.query(SolarEclipseTable.TABLE_NAME, solarEclipseColumns, null,
-                null, null, null, SolarEclipseTable.COLUMN_GLOBAL_BEGIN);
-    }
-
-    public Bundle getSolarEclipse(long solar) {
-
-        Bundle out = new Bundle();
-        Cursor c = database.query(SolarEclipseTable.TABLE_NAME, solarDataColumns,
+    /**
+     * Writes a What's Up snapshot to the planets table in one transaction.
+     *
+     * @param snapshot results of all ten planets
+     */
+    public void savePlanets(PlanetsSnapshot snapshot) {
+        ContentValues values = new ContentValues();
+        UpdateBatch batch = new UpdateBatch(PlanetsTable.TABLE_NAME);
+        for (int i = 0; i < PlanetsSnapshot.PLANETS; i++) {
+            values.clear();
+            values.put(PlanetsTable.COLUMN_NAME, snapshot.getName(i));
+            values.put(PlanetsTable.COLUMN_NUMBER, i);
+            values.put(PlanetsTable.COLUMN_RISE, (snapshot.getAlt(i) > 0) ? 1 : -1);
+            values.put(PlanetsTable.COLUMN_RA, snapshot.getRA(i));
+            values.put(PlanetsTable.COLUMN_DEC, snapshot.getDec(i));
+            values.put(PlanetsTable.COLUMN_AZ, snapshot.getAz(i));
+            values.put(PlanetsTable.COLUMN_ALT, snapshot.getAlt(i));
+            values.put(PlanetsTable.COLUMN_DISTANCE, snapshot.getDistance(i));
+            values.put(PlanetsTable.COLUMN_MAGNITUDE, snapshot.getMag(i));
+            values.put(PlanetsTable.COLUMN_SET_TIME, snapshot.getSetTime(i));
+            values.put(PlanetsTable.COLUMN_RISE_TIME, snapshot.getRiseTime(i));
+            values.put(PlanetsTable.COLUMN_TRANSIT, snapshot.getTransit(i));
+            batch.update(i, values);
+        }
+        write(batch);
+    }
+
+    /**
+     * Writes a batch of row updates in a single transaction.
+     *
+     * @param batch updates of one table
+     */
+    public void write(UpdateBatch batch) {
+        long start = System.nanoTime();
+        database.beginTransaction();
+        try {
+            batch.execute(database);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        DatabaseManager.record("write " + batch.getTable(), start);
+    }
+
+    /**
+     * Reads back the snapshot last written by savePlanets.
+     *
+     * @param time time of the calculation in milliseconds
+     * @return the snapshot, or null if the table does not hold all planets
+     */
+    public PlanetsSnapshot loadPlanets(long time) {
+        String[] names = new String[PlanetsSnapshot.PLANETS];
+        double[] data = new double[PlanetsSnapshot.PLANETS * EphemerisEngine.STRIDE];
+        long start = System.nanoTime();
+        Cursor c = database.query(PlanetsTable.TABLE_NAME, planetColumns, null,
+                null, null, null, PlanetsTable.COLUMN_ID);
+        try {
+            if (c.getCount() != PlanetsSnapshot.PLANETS)
+                return null;
+            for (int i = 0; c.moveToNext(); i++) {
+                int j = i * EphemerisEngine.STRIDE;
+                names[i] = c.getString(0);
+                // the table holds ra in hours
+                data[j] = c.getDouble(1) * 15;
+                // SQLite stores a NaN time as null
+                for (int k = 1; k < EphemerisEngine.STRIDE; k++)
+                    data[j + k] = c.isNull(k + 1) ? Double.NaN : c.getDouble(k + 1);
+            }
+        } finally {
+            c.close();
+            DatabaseManager.record("loadPlanets", start);
+        }
+        return new PlanetsSnapshot(time, names, data);
+    }
+
+    public EclipseList getSolarEclipseList() {
+        long start = System.nanoTime();
+        Cursor c = database.query(SolarEclipseTable.TABLE_NAME, solarEclipseColumns,
+                null, null, null, null, SolarEclipseTable.COLUMN_GLOBAL_BEGIN);
+        return readList("getSolarEclipseList", start, c);
+    }
+
+    public SolarEclipseRow getSolarEclipse(long solar) {
+        long start = System.nanoTime();
+        Cursor c = database.query(SolarEclipseTable.TABLE_NAME, SolarEclipseRow.COLUMNS,
                 SolarEclipseTable.COLUMN_ID + " = ?", new String[]{String.valueOf(solar)},
                 null, null, null);
-        c.moveToFirst();
-
-        out.putDouble(SolarEclipseTable.COLUMN_ECLIPSE_DATE, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_ECLIPSE_DATE)));
-        out.putString(SolarEclipseTable.COLUMN_ECLIPSE_TYPE, c.getString(c.getColumnIndex(SolarEclipseTable.COLUMN_ECLIPSE_TYPE)));
-        out.putDouble(SolarEclipseTable.COLUMN_GLOBAL_CENTER_BEGIN, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_GLOBAL_CENTER_BEGIN)));
-        out.putDouble(SolarEclipseTable.COLUMN_GLOBAL_CENTER_END, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_GLOBAL_CENTER_END)));
-        out.putInt(SolarEclipseTable.COLUMN_LOCAL, c.getInt(c.getColumnIndex(SolarEclipseTable.COLUMN_LOCAL)));
-        out.putDouble(SolarEclipseTable.COLUMN_SUNRISE, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_SUNRISE)));
-        out.putDouble(SolarEclipseTable.COLUMN_SUNSET, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_SUNSET)));
-        out.putDouble(SolarEclipseTable.COLUMN_LOCAL_FIRST, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_LOCAL_FIRST)));
-        out.putDouble(SolarEclipseTable.COLUMN_LOCAL_SECOND, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_LOCAL_SECOND)));
-        out.putDouble(SolarEclipseTable.COLUMN_LOCAL_MAX, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_LOCAL_MAX)));
-        out.putDouble(SolarEclipseTable.COLUMN_LOCAL_THIRD, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_LOCAL_THIRD)));
-        out.putDouble(SolarEclipseTable.COLUMN_LOCAL_FOURTH, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_LOCAL_FOURTH)));
-        out.putDouble(SolarEclipseTable.COLUMN_SUN_AZ, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_SUN_AZ)));
-        out.putDouble(SolarEclipseTable.COLUMN_SUN_ALT, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_SUN_ALT)));
-        out.putDouble(SolarEclipseTable.COLUMN_FRACTION_COVERED, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_FRACTION_COVERED)));
-        out.putDouble(SolarEclipseTable.COLUMN_LOCAL_MAG, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_LOCAL_MAG)));
-        out.putInt(SolarEclipseTable.COLUMN_SAROS_NUM, c.getInt(c.getColumnIndex(SolarEclipseTable.COLUMN_SAROS_NUM)));
-        out.putInt(SolarEclipseTable.COLUMN_SAROS_MEMBER_NUM, c.getInt(c.getColumnIndex(SolarEclipseTable.COLUMN_SAROS_MEMBER_NUM)));
-        out.putDouble(SolarEclipseTable.COLUMN_GLOBAL_BEGIN, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_GLOBAL_BEGIN)));
-        out.putDouble(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_BEGIN, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_BEGIN)));
-        out.putDouble(SolarEclipseTable.COLUMN_GLOBAL_MAX, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_GLOBAL_MAX)));
-        out.putDouble(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_END, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_END)));
-        out.putDouble(SolarEclipseTable.COLUMN_GLOBAL_END, c.getDouble(c.getColumnIndex(SolarEclipseTable.COLUMN_GLOBAL_END)));
-
-        c.close();
-
-        return out;
+        try {
+            return c.moveToFirst() ? new SolarEclipseRow(c) : null;
+        } finally {
+            c.close();
+            DatabaseManager.record("getSolarEclipse", start);
+        }
     }
 
-    public void addSolarEclipse(ContentValues values, int row) {
-        database.update(SolarEclipseTable.TABLE_NAME, values, SolarEclipseTable.COLUMN_ID + " = ?",
-                new String[]{String.valueOf(row)});
+    public EclipseList getLunarEclipseList() {
+        long start = System.nanoTime();
+        Cursor c = database.query(LunarEclipseTable.TABLE_NAME, lunarEclipseColumns,
+                null, null, null, null, LunarEclipseTable.COLUMN_MAX_ECLIPSE);
+        return readList("getLunarEclipseList", start, c);
     }
 
-    public Cursor getLunarEclipseList() {
-        return database.query(LunarEclipseTable.TABLE_NAME, lunarEclipseColumns, null,
-                null, null, null, LunarEclipseTable.COLUMN_MAX_ECLIPSE);
-    }
-
-    public void addLunarEclipse(ContentValues values, int row) {
-        database.update(LunarEclipseTable.TABLE_NAME, values, LunarEclipseTable.COLUMN_ID + " = ?",
-                new String[]{String.valueOf(row)});
-    }
-
-    public Bundle getLunarEclipse(long lunar) {
-
-        Bundle out = new Bundle();
-        Cursor c = database.query(LunarEclipseTable.TABLE_NAME, lunarDataColumns,
+    public LunarEclipseRow getLunarEclipse(long lunar) {
+        long start = System.nanoTime();
+        Cursor c = database.query(LunarEclipseTable.TABLE_NAME, LunarEclipseRow.COLUMNS,
                 LunarEclipseTable.COLUMN_ID + " = ?", new String[]{String.valueOf(lunar)},
                 null, null, null);
-        c.moveToFirst();
-
-        out.putDouble(LunarEclipseTable.COLUMN_ECLIPSE_DATE, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_ECLIPSE_DATE)));
-        out.putString(LunarEclipseTable.COLUMN_ECLIPSE_TYPE, c.getString(c.getColumnIndex(LunarEclipseTable.COLUMN_ECLIPSE_TYPE)));
-        out.putInt(LunarEclipseTable.COLUMN_LOCAL, c.getInt(c.getColumnIndex(LunarEclipseTable.COLUMN_LOCAL)));
-        out.putDouble(LunarEclipseTable.COLUMN_MAX_ECLIPSE, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_MAX_ECLIPSE)));
-        out.putDouble(LunarEclipseTable.COLUMN_PENUMBRAL_BEGIN, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_PENUMBRAL_BEGIN)));
-        out.putDouble(LunarEclipseTable.COLUMN_PENUMBRAL_END, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_PENUMBRAL_END)));
-        out.putDouble(LunarEclipseTable.COLUMN_PARTIAL_BEGIN, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_PARTIAL_BEGIN)));
-        out.putDouble(LunarEclipseTable.COLUMN_PARTIAL_END, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_PARTIAL_END)));
-        out.putDouble(LunarEclipseTable.COLUMN_TOTAL_BEGIN, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_TOTAL_BEGIN)));
-        out.putDouble(LunarEclipseTable.COLUMN_TOTAL_END, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_TOTAL_END)));
-        out.putDouble(LunarEclipseTable.COLUMN_MOONRISE, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_MOONRISE)));
-        out.putDouble(LunarEclipseTable.COLUMN_MOONSET, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_MOONSET)));
-        out.putDouble(LunarEclipseTable.COLUMN_MOON_AZ, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_MOON_AZ)));
-        out.putDouble(LunarEclipseTable.COLUMN_MOON_ALT, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_MOON_ALT)));
-        out.putDouble(LunarEclipseTable.COLUMN_PENUMBRAL_MAG, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_PENUMBRAL_MAG)));
-        out.putDouble(LunarEclipseTable.COLUMN_UMBRAL_MAG, c.getDouble(c.getColumnIndex(LunarEclipseTable.COLUMN_UMBRAL_MAG)));
-        out.putInt(LunarEclipseTable.COLUMN_SAROS_NUM, c.getInt(c.getColumnIndex(LunarEclipseTable.COLUMN_SAROS_NUM)));
-        out.putInt(LunarEclipseTable.COLUMN_SAROS_MEMBER_NUM, c.getInt(c.getColumnIndex(LunarEclipseTable.COLUMN_SAROS_MEMBER_NUM)));
-
-        c.close();
-        return out;
+        try {
+            return c.moveToFirst() ? new LunarEclipseRow(c) : null;
+        } finally {
+            c.close();
+            DatabaseManager.record("getLunarEclipse", start);
+        }
     }
 
-    public Cursor getLunarOccultList() {
-        return database.query(LunarOccultationTable.TABLE_NAME, lunarOccultColumns,
+    public EclipseList getLunarOccultList() {
+        long start = System.nanoTime();
+        Cursor c = database.query(LunarOccultationTable.TABLE_NAME, lunarOccultColumns,
                 LunarOccultationTable.COLUMN_OCCULT_PLANET + " > ?",
                 new String[]{String.valueOf(-1)}, null, null,
                 LunarOccultationTable.COLUMN_OCCULT_PLANET + "," + LunarOccultationTable.COLUMN_GLOBAL_MAX);
+        return readList("getLunarOccultList", start, c);
     }
 
-    public void addLunarOccult(ContentValues values, int row) {
-        database.update(LunarOccultationTable.TABLE_NAME, values, LunarOccultationTable.COLUMN_ID + " = ?",
-                new String[]{String.valueOf(row)});
-    }
-
-    public Bundle getLunarOccult(long occult) {
-
-        Bundle out = new Bundle();
-        Cursor c = database.query(LunarOccultationTable.TABLE_NAME, occultDataColumns,
+    public LunarOccultRow getLunarOccult(long occult) {
+        long start = System.nanoTime();
+        Cursor c = database.query(LunarOccultationTable.TABLE_NAME, LunarOccultRow.COLUMNS,
                 LunarOccultationTable.COLUMN_ID + " = ?", new String[]{String.valueOf(occult)},
                 null, null, null);
+        try {
+            return c.moveToFirst() ? new LunarOccultRow(c) : null;
+        } finally {
+            c.close();
+            DatabaseManager.record("getLunarOccult", start);
+        }
+    }
+
+    /**
+     * Puts a row a running search has not written yet into a cursor, so the
+     * row classes read it the same way as a row of the table.
+     *
+     * @param columns the columns to read
+     * @param values  the row's columns by name
+     * @return cursor on the row
+     */
+    static Cursor toCursor(String[] columns, ContentValues values) {
+        MatrixCursor c = new MatrixCursor(columns, 1);
+        Object[] row = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++)
+            row[i] = values.get(columns[i]);
+        c.addRow(row);
         c.moveToFirst();
+        return c;
+    }
 
-        out.putDouble(LunarOccultationTable.COLUMN_OCCULT_DATE, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_OCCULT_DATE)));
-        out.putInt(LunarOccultationTable.COLUMN_OCCULT_PLANET, c.getInt(c.getColumnIndex(LunarOccultationTable.COLUMN_OCCULT_PLANET)));
-        out.putInt(LunarOccultationTable.COLUMN_LOCAL, c.getInt(c.getColumnIndex(LunarOccultationTable.COLUMN_LOCAL)));
-        out.putDouble(LunarOccultationTable.COLUMN_MOONRISE, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_MOONRISE)));
-        out.putDouble(LunarOccultationTable.COLUMN_MOONSET, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_MOONSET)));
-        out.putDouble(LunarOccultationTable.COLUMN_LOCAL_FIRST, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_LOCAL_FIRST)));
-        out.putDouble(LunarOccultationTable.COLUMN_LOCAL_MAX, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_LOCAL_MAX)));
-        out.putDouble(LunarOccultationTable.COLUMN_LOCAL_FOURTH, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_LOCAL_FOURTH)));
-        out.putDouble(LunarOccultationTable.COLUMN_MOONS_AZ, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_MOONS_AZ)));
-        out.putDouble(LunarOccultationTable.COLUMN_MOONS_ALT, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_MOONS_ALT)));
-        out.putDouble(LunarOccultationTable.COLUMN_MOONE_AZ, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_MOONE_AZ)));
-        out.putDouble(LunarOccultationTable.COLUMN_MOONE_ALT, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_MOONE_ALT)));
-        out.putDouble(LunarOccultationTable.COLUMN_GLOBAL_BEGIN, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_GLOBAL_BEGIN)));
-        out.putDouble(LunarOccultationTable.COLUMN_GLOBAL_MAX, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_GLOBAL_MAX)));
-        out.putDouble(LunarOccultationTable.COLUMN_GLOBAL_END, c.getDouble(c.getColumnIndex(LunarOccultationTable.COLUMN_GLOBAL_END)));
-
-        c.close();
-        return out;
+    private EclipseList readList(String operation, long start, Cursor c) {
+        try {
+            return new EclipseList(c);
+        } finally {
+            c.close();
+            DatabaseManager.record(operation, start);
+        }
     }
 
 }
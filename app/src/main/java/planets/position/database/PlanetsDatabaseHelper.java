@@ -20,13 +20,18 @@
 
 package planets.position.database;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
 
 class PlanetsDatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "PlanetsDatabase.db";
-    private static final int DATABASE_VERSION = 221;
+    private static final int DATABASE_VERSION = 222;
+    private static final int CACHE_KB = 2048;
+    private static final long MMAP_SIZE = 4L * 1024 * 1024;
     private static PlanetsDatabaseHelper sInstance;
 
     private PlanetsDatabaseHelper(Context context) {
@@ -40,12 +45,37 @@ class PlanetsDatabaseHelper extends SQLiteOpenHelper {
         return sInstance;
     }
 
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Override
+    public void onConfigure(SQLiteDatabase database) {
+        configure(database);
+    }
+
+    // the pragmas are per connection; without write ahead logging there is
+    // only the primary connection, so they cover every query. Negative
+    // cache_size is in KiB, mmap_size is ignored by SQLite older than
+    // 3.7.17; both pragmas return a row, so they go through rawQuery
+    static void configure(SQLiteDatabase database) {
+        pragma(database, "PRAGMA cache_size = -" + CACHE_KB);
+        pragma(database, "PRAGMA mmap_size = " + MMAP_SIZE);
+    }
+
+    private static void pragma(SQLiteDatabase database, String sql) {
+        Cursor c = database.rawQuery(sql, null);
+        try {
+            c.moveToFirst();
+        } finally {
+            c.close();
+        }
+    }
+
     @Override
     public void onCreate(SQLiteDatabase database) {
         PlanetsTable.onCreate(database);
         SolarEclipseTable.onCreate(database);
         LunarEclipseTable.onCreate(database);
         LunarOccultationTable.onCreate(database);
+        ResultCacheTable.onCreate(database);
     }
 
     @Override
@@ -55,6 +85,7 @@ class PlanetsDatabaseHelper extends SQLiteOpenHelper {
         SolarEclipseTable.onUpgrade(database, oldVersion, newVersion);
         LunarEclipseTable.onUpgrade(database, oldVersion, newVersion);
         LunarOccultationTable.onUpgrade(database, oldVersion, newVersion);
+        ResultCacheTable.onUpgrade(database, oldVersion, newVersion);
     }
 
 }
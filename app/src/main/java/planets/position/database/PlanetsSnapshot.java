@@ -0,0 +1,199 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import planets.position.util.EphemerisEngine;
+
+/**
+ * The What's Up results for all ten planets at one time, kept in memory as
+ * parallel arrays indexed by planet number. A snapshot never changes once
+ * made, a new calculation publishes a new one and every observer is told.
+ * The planets table is only a copy written behind it, read back when the
+ * process was restarted.
+ */
+public final class PlanetsSnapshot {
+
+    /**
+     * Receives every published snapshot.
+     */
+    public interface Observer {
+        /**
+         * Called on the publishing thread.
+         *
+         * @param snapshot the new snapshot
+         */
+        void onSnapshot(PlanetsSnapshot snapshot);
+    }
+
+    public static final int PLANETS = 10;
+
+    private static final AtomicReference<PlanetsSnapshot> current =
+            new AtomicReference<>();
+    private static final CopyOnWriteArrayList<Observer> observers =
+            new CopyOnWriteArrayList<>();
+
+    private final long time;
+    private final String[] names;
+    private final double[] ra = new double[PLANETS];
+    private final double[] dec = new double[PLANETS];
+    private final double[] az = new double[PLANETS];
+    private final double[] alt = new double[PLANETS];
+    private final double[] distance = new double[PLANETS];
+    private final double[] mag = new double[PLANETS];
+    private final double[] setTime = new double[PLANETS];
+    private final double[] riseTime = new double[PLANETS];
+    private final double[] transit = new double[PLANETS];
+
+    /**
+     * Makes a snapshot from the output of {@link EphemerisEngine#planetsData}.
+     *
+     * @param time  time of the calculation in milliseconds
+     * @param names planet names, copied
+     * @param data  planetsData result of all ten planets, RA in degrees
+     */
+    public PlanetsSnapshot(long time, String[] names, double[] data) {
+        this.time = time;
+        this.names = names.clone();
+        for (int i = 0; i < PLANETS; i++) {
+            int j = i * EphemerisEngine.STRIDE;
+            // convert ra to hours
+            ra[i] = data[j] / 15;
+            dec[i] = data[j + 1];
+            distance[i] = data[j + 2];
+            az[i] = data[j + 3];
+            alt[i] = data[j + 4];
+            mag[i] = data[j + 5];
+            setTime[i] = data[j + 6];
+            riseTime[i] = data[j + 7];
+            transit[i] = data[j + 8];
+        }
+    }
+
+    /**
+     * Returns the last published snapshot.
+     *
+     * @return the snapshot, or null if nothing has been published yet
+     */
+    public static PlanetsSnapshot getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * Makes a snapshot the current one and hands it to every observer.
+     *
+     * @param snapshot the new snapshot
+     */
+    public static void publish(PlanetsSnapshot snapshot) {
+        current.set(snapshot);
+        for (Observer o : observers)
+            o.onSnapshot(snapshot);
+    }
+
+    public static void addObserver(Observer observer) {
+        observers.addIfAbsent(observer);
+    }
+
+    public static void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Returns the planets above the horizon (view 1), below it (view 0) or
+     * all of them (any other view), in planet order.
+     *
+     * @param view list shown by What's Up
+     * @return planet numbers
+     */
+    public int[] getPlanets(int view) {
+        int n = 0;
+        int[] out = new int[PLANETS];
+        for (int i = 0; i < PLANETS; i++) {
+            if ((view == 1 && alt[i] > 0) || (view == 0 && alt[i] <= 0)
+                    || (view != 0 && view != 1))
+                out[n++] = i;
+        }
+        int[] planets = new int[n];
+        System.arraycopy(out, 0, planets, 0, n);
+        return planets;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public String getName(int planet) {
+        return names[planet];
+    }
+
+    /**
+     * @param planet planet number
+     * @return right ascension in hours
+     */
+    public double getRA(int planet) {
+        return ra[planet];
+    }
+
+    public double getDec(int planet) {
+        return dec[planet];
+    }
+
+    public double getAz(int planet) {
+        return az[planet];
+    }
+
+    public double getAlt(int planet) {
+        return alt[planet];
+    }
+
+    public double getDistance(int planet) {
+        return distance[planet];
+    }
+
+    public double getMag(int planet) {
+        return mag[planet];
+    }
+
+    public double getSetTime(int planet) {
+        return setTime[planet];
+    }
+
+    public double getRiseTime(int planet) {
+        return riseTime[planet];
+    }
+
+    public double getTransit(int planet) {
+        return transit[planet];
+    }
+
+    /**
+     * Returns the next set time of a planet above the horizon, or the next
+     * rise time of one below it.
+     *
+     * @param planet planet number
+     * @return Jullian date in ut1
+     */
+    public double getNextEvent(int planet) {
+        return (alt[planet] > 0) ? setTime[planet] : riseTime[planet];
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keeps the eclipse and occultation lists of recently used locations, so
+ * switching back to a saved site reloads the list instead of searching
+ * again. An entry holds the UpdateBatch a task wrote to its result table and
+ * the first and last dates it reported, keyed by the query type, the
+ * location rounded to about a kilometer, the elevation rounded to 100 m and
+ * the start of the search. What's Up results are kept the same way, keyed by
+ * the location and the minute they were calculated for. The least recently
+ * used entries are dropped when there are more than MAX_ENTRIES or they take
+ * more than MAX_BYTES.
+ */
+public class ResultCache {
+
+    public static final int SOLAR = 0;
+    public static final int LUNAR = 1;
+    public static final int OCCULT = 2;
+    public static final int WHATS_UP = 3;
+
+    private static final int MAX_ENTRIES = 48;
+    private static final long MAX_BYTES = 512 * 1024;
+
+    private final Context context;
+
+    /**
+     * A cached result.
+     */
+    public static final class Entry {
+        public final UpdateBatch batch;
+        public final double first, last;
+
+        Entry(UpdateBatch batch, double first, double last) {
+            this.batch = batch;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    public ResultCache(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Makes the key of a search.
+     *
+     * @param type   SOLAR, LUNAR or OCCULT
+     * @param loc    longitude, latitude and elevation
+     * @param start  Jullian date the user asked to search from, not a date
+     *               taken from an earlier result
+     * @param back   search direction(0=forward|1=back)
+     * @param planet occulted planet, or 0 for the other types
+     * @return cache key
+     */
+    public static String key(int type, double[] loc, double start, int back, int planet) {
+        return String.format(Locale.US, "%d:%d:%d,%d,%d:%.4f:%d", type, planet,
+                Math.round(loc[0] * 100), Math.round(loc[1] * 100),
+                Math.round(loc[2] / 100), start, back);
+    }
+
+    /**
+     * Makes the key of a What's Up calculation. The time is rounded to the
+     * minute the list shows, so only a refresh in the same minute at the
+     * same place is a hit.
+     *
+     * @param loc longitude, latitude and elevation
+     * @param jd  Julian date of the calculation in UT
+     * @return cache key
+     */
+    public static String key(double[] loc, double jd) {
+        return String.format(Locale.US, "%d:%d,%d,%d:%d", WHATS_UP,
+                Math.round(loc[0] * 100), Math.round(loc[1] * 100),
+                Math.round(loc[2] / 100), Math.round(jd * 1440));
+    }
+
+    /**
+     * Looks up a search and marks it as used.
+     *
+     * @param key   key from key()
+     * @param table result table the batch is for
+     * @return the cached result, or null on a miss
+     */
+    public Entry get(String key, String table) {
+        long start = System.nanoTime();
+        SQLiteDatabase db = DatabaseManager.getDatabase(context);
+        Entry entry = null;
+        Cursor c = db.query(ResultCacheTable.TABLE_NAME, new String[]{
+                        ResultCacheTable.COLUMN_FIRST, ResultCacheTable.COLUMN_LAST,
+                        ResultCacheTable.COLUMN_DATA},
+                ResultCacheTable.COLUMN_KEY + " = ?", new String[]{key}, null, null, null);
+        try {
+            if (c.moveToFirst())
+                entry = new Entry(UpdateBatch.fromBytes(table, c.getBlob(2)),
+                        c.getDouble(0), c.getDouble(1));
+        } catch (IOException e) {
+            Log.w("ResultCache", "dropping bad entry " + key + ": " + e.getMessage());
+            remove(db, key);
+        } finally {
+            c.close();
+        }
+        if (entry != null)
+            touch(db, key);
+        DatabaseManager.record(entry != null ? "cache hit" : "cache miss", start);
+        return entry;
+    }
+
+    /**
+     * Looks up a What's Up calculation and marks it as used.
+     *
+     * @param key    key from key(loc, jd)
+     * @param length number of values the calculation returned
+     * @return the planetsData values, or null on a miss
+     */
+    public double[] getPlanets(String key, int length) {
+        long start = System.nanoTime();
+        SQLiteDatabase db = DatabaseManager.getDatabase(context);
+        double[] data = null;
+        Cursor c = db.query(ResultCacheTable.TABLE_NAME, new String[]{
+                        ResultCacheTable.COLUMN_DATA},
+                ResultCacheTable.COLUMN_KEY + " = ?", new String[]{key}, null, null, null);
+        try {
+            if (c.moveToFirst()) {
+                byte[] bytes = c.getBlob(0);
+                if (bytes.length != length * 8)
+                    throw new IOException("wrong length " + bytes.length);
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+                data = new double[length];
+                for (int i = 0; i < length; i++)
+                    data[i] = in.readDouble();
+            }
+        } catch (IOException e) {
+            Log.w("ResultCache", "dropping bad entry " + key + ": " + e.getMessage());
+            remove(db, key);
+            data = null;
+        } finally {
+            c.close();
+        }
+        if (data != null)
+            touch(db, key);
+        DatabaseManager.record(data != null ? "cache hit" : "cache miss", start);
+        return data;
+    }
+
+    /**
+     * Stores the result of a complete search and evicts old entries.
+     *
+     * @param key   key from key()
+     * @param batch rows the search wrote
+     * @param first first date reported by the search
+     * @param last  last date reported by the search
+     */
+    public void put(String key, UpdateBatch batch, double first, double last) {
+        long start = System.nanoTime();
+        byte[] data = batch.toBytes();
+        if (data.length > MAX_BYTES)
+            return;
+        insert(key, data, first, last);
+        DatabaseManager.record("cache put", start);
+    }
+
+    /**
+     * Stores a What's Up calculation and evicts old entries.
+     *
+     * @param key  key from key(loc, jd)
+     * @param data planetsData values of all planets
+     */
+    public void putPlanets(String key, double[] data) {
+        long start = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length * 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            for (double d : data)
+                out.writeDouble(d);
+            out.flush();
+        } catch (IOException e) {
+            // a ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        insert(key, bytes.toByteArray(), 0, 0);
+        DatabaseManager.record("cache put", start);
+    }
+
+    private void insert(String key, byte[] data, double first, double last) {
+        ContentValues values = new ContentValues();
+        values.put(ResultCacheTable.COLUMN_KEY, key);
+        values.put(ResultCacheTable.COLUMN_FIRST, first);
+        values.put(ResultCacheTable.COLUMN_LAST, last);
+        values.put(ResultCacheTable.COLUMN_SIZE, data.length);
+        values.put(ResultCacheTable.COLUMN_USED, System.currentTimeMillis());
+        values.put(ResultCacheTable.COLUMN_DATA, data);
+
+        SQLiteDatabase db = DatabaseManager.getDatabase(context);
+        db.beginTransaction();
+        try {
+            db.insertWithOnConflict(ResultCacheTable.TABLE_NAME, null, values,
+                    SQLiteDatabase.CONFLICT_REPLACE);
+            evict(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void touch(SQLiteDatabase db, String key) {
+        ContentValues values = new ContentValues();
+        values.put(ResultCacheTable.COLUMN_USED, System.currentTimeMillis());
+        db.update(ResultCacheTable.TABLE_NAME, values,
+                ResultCacheTable.COLUMN_KEY + " = ?", new String[]{key});
+    }
+
+    // drop the least recently used entries until both limits hold
+    private void evict(SQLiteDatabase db) {
+        Cursor c = db.query(ResultCacheTable.TABLE_NAME, new String[]{
+                        ResultCacheTable.COLUMN_KEY, ResultCacheTable.COLUMN_SIZE},
+                null, null, null, null, ResultCacheTable.COLUMN_USED + " DESC");
+        List<String> old = new ArrayList<>();
+        try {
+            int count = 0;
+            long bytes = 0;
+            while (c.moveToNext()) {
+                count++;
+                bytes += c.getLong(1);
+                if (count > MAX_ENTRIES || bytes > MAX_BYTES)
+                    old.add(c.getString(0));
+            }
+        } finally {
+            c.close();
+        }
+        for (String key : old)
+            remove(db, key);
+    }
+
+    private void remove(SQLiteDatabase db, String key) {
+        db.delete(ResultCacheTable.TABLE_NAME, ResultCacheTable.COLUMN_KEY + " = ?",
+                new String[]{key});
+    }
+}
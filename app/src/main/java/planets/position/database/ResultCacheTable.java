@@ -0,0 +1,51 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+public class ResultCacheTable {
+
+    public static final String TABLE_NAME = "resultCache";
+    public static final String COLUMN_ID = "_id";
+    public static final String COLUMN_KEY = "key";
+    public static final String COLUMN_FIRST = "first";
+    public static final String COLUMN_LAST = "last";
+    public static final String COLUMN_SIZE = "size";
+    public static final String COLUMN_USED = "used";
+    public static final String COLUMN_DATA = "data";
+
+    private static final String DATABASE_CREATE = String.format("create table %s(%s integer primary key autoincrement, %s text not null unique, %s real, %s real, %s integer, %s integer, %s blob);", TABLE_NAME, COLUMN_ID, COLUMN_KEY, COLUMN_FIRST, COLUMN_LAST, COLUMN_SIZE, COLUMN_USED, COLUMN_DATA);
+
+    public static void onCreate(SQLiteDatabase database) {
+        database.execSQL(DATABASE_CREATE);
+    }
+
+    static void onUpgrade(SQLiteDatabase database, int oldVersion,
+                          int newVersion) {
+        Log.w(ResultCacheTable.class.getName(), "Upgrading database from version "
+                + oldVersion + " to " + newVersion
+                + ", which will destroy all old data");
+        database.execSQL(String.format("DROP TABLE IF EXISTS %s", TABLE_NAME));
+        onCreate(database);
+    }
+}
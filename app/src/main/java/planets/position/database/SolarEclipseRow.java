@@ -0,0 +1,125 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+/**
+ * One row of the solar eclipse table, read by PlanetsDatabase.getSolarEclipse.
+ * The cursor is queried with COLUMNS, so every column is read by its
+ * position instead of being looked up by name.
+ */
+public final class SolarEclipseRow {
+
+    static final String[] COLUMNS = {SolarEclipseTable.COLUMN_ECLIPSE_DATE,
+            SolarEclipseTable.COLUMN_ECLIPSE_TYPE,
+            SolarEclipseTable.COLUMN_LOCAL,
+            SolarEclipseTable.COLUMN_LOCAL_MAX,
+            SolarEclipseTable.COLUMN_LOCAL_FIRST,
+            SolarEclipseTable.COLUMN_LOCAL_SECOND,
+            SolarEclipseTable.COLUMN_LOCAL_THIRD,
+            SolarEclipseTable.COLUMN_LOCAL_FOURTH,
+            SolarEclipseTable.COLUMN_SUNRISE,
+            SolarEclipseTable.COLUMN_SUNSET,
+            SolarEclipseTable.COLUMN_SUN_AZ,
+            SolarEclipseTable.COLUMN_SUN_ALT,
+            SolarEclipseTable.COLUMN_FRACTION_COVERED,
+            SolarEclipseTable.COLUMN_LOCAL_MAG,
+            SolarEclipseTable.COLUMN_SAROS_NUM,
+            SolarEclipseTable.COLUMN_SAROS_MEMBER_NUM,
+            SolarEclipseTable.COLUMN_GLOBAL_MAX,
+            SolarEclipseTable.COLUMN_GLOBAL_BEGIN,
+            SolarEclipseTable.COLUMN_GLOBAL_END,
+            SolarEclipseTable.COLUMN_GLOBAL_TOTAL_BEGIN,
+            SolarEclipseTable.COLUMN_GLOBAL_TOTAL_END,
+            SolarEclipseTable.COLUMN_GLOBAL_CENTER_BEGIN,
+            SolarEclipseTable.COLUMN_GLOBAL_CENTER_END};
+
+    /**
+     * Date of the eclipse, the local maximum if it is visible.
+     */
+    public final double date;
+    /**
+     * Global type, followed by |local type if it is visible.
+     */
+    public final String type;
+    /**
+     * 1 if the eclipse is visible from the location, 0 if not.
+     */
+    public final int local;
+    public final double localMax;
+    public final double localFirst;
+    public final double localSecond;
+    public final double localThird;
+    public final double localFourth;
+    public final double sunrise;
+    public final double sunset;
+    public final double sunAz;
+    public final double sunAlt;
+    public final double fractionCovered;
+    public final double localMag;
+    public final int sarosNum;
+    public final int sarosMemberNum;
+    public final double globalMax;
+    public final double globalBegin;
+    public final double globalEnd;
+    public final double globalTotalBegin;
+    public final double globalTotalEnd;
+    public final double globalCenterBegin;
+    public final double globalCenterEnd;
+
+    SolarEclipseRow(Cursor c) {
+        date = c.getDouble(0);
+        type = c.isNull(1) ? "" : c.getString(1);
+        local = c.getInt(2);
+        localMax = c.getDouble(3);
+        localFirst = c.getDouble(4);
+        localSecond = c.getDouble(5);
+        localThird = c.getDouble(6);
+        localFourth = c.getDouble(7);
+        sunrise = c.getDouble(8);
+        sunset = c.getDouble(9);
+        sunAz = c.getDouble(10);
+        sunAlt = c.getDouble(11);
+        fractionCovered = c.getDouble(12);
+        localMag = c.getDouble(13);
+        sarosNum = c.getInt(14);
+        sarosMemberNum = c.getInt(15);
+        globalMax = c.getDouble(16);
+        globalBegin = c.getDouble(17);
+        globalEnd = c.getDouble(18);
+        globalTotalBegin = c.getDouble(19);
+        globalTotalEnd = c.getDouble(20);
+        globalCenterBegin = c.getDouble(21);
+        globalCenterEnd = c.getDouble(22);
+    }
+
+    /**
+     * Reads a row a running search has found but not written yet.
+     *
+     * @param values the row's columns by name
+     * @return the row
+     */
+    public static SolarEclipseRow fromValues(ContentValues values) {
+        return new SolarEclipseRow(PlanetsDatabase.toCursor(COLUMNS, values));
+    }
+}
@@ -22,121 +22,229 @@ package planets.position.database;
 
 import android.content.Context;
 import android.database.Cursor;
-import android.database.SQLException;
-import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteOpenHelper;
+import android.database.MatrixCursor;
 import android.os.Bundle;
+import android.util.SparseArray;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 
-public class TimeZoneDB extends SQLiteOpenHelper {
+import planets.position.util.AssetInstaller;
 
-    private final String CITIES_TABLE = "worldcities";
-    private final String ZONE_TABLE = "zone";
+/**
+ * Time zone and city lookups over the TimeZoneData file. FileCopyTask
+ * installs the file from the assets into internal storage, it is mapped the
+ * first time it is needed and stays mapped, there is nothing to open or
+ * close.
+ */
+public class TimeZoneDB {
 
-    public final static String DB_NAME = "timezone.db";
-    public final static int DB_VERSION = 2;
+    public final static String ASSET = "timezone.bin";
 
-    private final Context myContext;
-    private SQLiteDatabase timezoneDatabase;
+    private static TimeZoneData timezoneData;
+    private static CityIndex cityIndex;
+    private static CityLocator cityLocator;
+
+    // offset transitions by zone id, shared by every instance and copied out
+    // of the mapped data the first time a zone is used
+    private static final SparseArray<ZoneOffsets> zoneOffsets = new SparseArray<>();
 
-    private final String[] timezoneColumns = {"gmt_offset", "dst"};
+    private final Context myContext;
 
     public TimeZoneDB(Context context) {
-        super(context, DB_NAME, null, 1);
-        this.myContext = context;
+        this.myContext = context.getApplicationContext();
     }
 
-    public void open() throws SQLException {
-        String myPath = myContext.getFilesDir().getAbsolutePath() + File.separator + "databases"
-                + File.separator + DB_NAME;
-        timezoneDatabase = SQLiteDatabase.openDatabase(myPath, null, SQLiteDatabase.OPEN_READONLY);
+    private TimeZoneData getData() {
+        synchronized (TimeZoneDB.class) {
+            if (timezoneData == null)
+                timezoneData = mapFile(getFile(myContext));
+            return timezoneData;
+        }
     }
 
-    public void close() {
-        super.close();
-        if (timezoneDatabase != null)
-            timezoneDatabase.close();
+    /**
+     * @return the installed time zone data file
+     */
+    public static File getFile(Context context) {
+        return new File(context.getFilesDir().getAbsolutePath() + File.separator + "databases"
+                + File.separator + ASSET);
     }
 
-    public Cursor getZoneList() {
-        return timezoneDatabase.query(ZONE_TABLE, null, null, null,
-                null, null, "zone_name");
+    private static TimeZoneData mapFile(File file) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            // the mapping stays valid after the file is closed
+            return TimeZoneData.map(raf.getChannel(), 0, raf.length());
+        } catch (IOException e) {
+            throw new IllegalStateException("Can not open " + file, e);
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
     }
 
-    public int getZoneID(String zone) {
+    /**
+     * Returns the checksum stored in the header of the time zone data asset,
+     * it changes with every new version of the data.
+     */
+    public static int getAssetChecksum(Context context) throws IOException {
+        return AssetInstaller.getChecksum(context.getAssets(), ASSET);
+    }
+
+    /**
+     * Drops the mapped data, the city indexes and the cached zone offsets,
+     * called after the file has been replaced.
+     */
+    public static void clearCache() {
+        synchronized (TimeZoneDB.class) {
+            timezoneData = null;
+            cityIndex = null;
+            cityLocator = null;
+        }
+        synchronized (zoneOffsets) {
+            zoneOffsets.clear();
+        }
+    }
+
+    /**
+     * Returns the city name search index, building it on first use. Call it
+     * off the main thread the first time.
+     *
+     * @return the index
+     */
+    public CityIndex getCityIndex() {
+        TimeZoneData data = getData();
+        synchronized (TimeZoneDB.class) {
+            if (cityIndex == null)
+                cityIndex = new CityIndex(data);
+            return cityIndex;
+        }
+    }
+
+    /**
+     * Returns the nearest city index, building it on first use. Call it off
+     * the main thread the first time.
+     *
+     * @return the index
+     */
+    public CityLocator getCityLocator() {
+        TimeZoneData data = getData();
+        synchronized (TimeZoneDB.class) {
+            if (cityLocator == null)
+                cityLocator = new CityLocator(data);
+            return cityLocator;
+        }
+    }
 
-        int id;
-        Cursor c = timezoneDatabase.query(ZONE_TABLE, null, "zone_name = ?",
-                new String[]{zone}, null, null, null);
-        c.moveToFirst();
-        if (c.getCount() > 0) {
-            id = c.getInt(c.getColumnIndex("_id"));
-        } else {
-            id = -1;
+    /**
+     * Finds the city nearest to a position.
+     *
+     * @param lat         latitude in degrees
+     * @param lng         longitude in degrees
+     * @param maxDistance largest distance in km to accept
+     * @return the city data as from getCityData plus its distance in km as
+     * "distance", or null if there is no city that close
+     */
+    public Bundle getNearestCity(double lat, double lng, double maxDistance) {
+        TimeZoneData data = getData();
+        CityLocator locator;
+        synchronized (TimeZoneDB.class) {
+            locator = cityLocator;
         }
-        c.close();
+        // scan the cities while the tree is still being built, rather than
+        // building it on the calling thread
+        int row = (locator != null) ? locator.nearest(lat, lng)
+                : CityLocator.scan(data, lat, lng);
+        if (row < 0)
+            return null;
+        double distance = CityLocator.distance(data, row, lat, lng);
+        if (distance > maxDistance)
+            return null;
+        Bundle b = getCityData(data.getCityId(row));
+        b.putDouble("distance", distance);
+        return b;
+    }
 
-        return id;
+    public Cursor getZoneList() {
+        TimeZoneData data = getData();
+        int[] rows = data.getZoneList();
+        MatrixCursor c = new MatrixCursor(new String[]{"_id", "country_code", "zone_name"},
+                rows.length);
+        for (int row : rows)
+            c.addRow(new Object[]{data.getZoneId(row), data.getZoneCountryCode(row),
+                    data.getZoneName(row)});
+        return c;
+    }
+
+    public int getZoneID(String zone) {
+        return getData().getZoneID(zone);
     }
 
     /**
+     * Returns the gmt offset of a zone at a time. The transitions of a zone
+     * are copied out of the mapped data once and kept in memory, later calls
+     * for the same zone search a primitive array.
+     *
      * @param zone Timezone id
      * @param time Time in seconds from Jan 1, 1970
-     * @return gmt offset in seconds
+     * @return gmt offset in seconds, -1 if the zone is unknown
      */
     public int getZoneOffset(int zone, long time) {
-
-        int offset;
-        String TIMEZONE_TABLE = "timezone";
-        Cursor c = timezoneDatabase.query(TIMEZONE_TABLE, timezoneColumns,
-                "zone_id = ? AND time_start <= ?",
-                new String[]{String.valueOf(zone), String.valueOf(time)}, null,
-                null, "time_start DESC", "1");
-        c.moveToFirst();
-        if (c.getCount() > 0) {
-            offset = c.getInt(c.getColumnIndex("gmt_offset"));
-        } else {
-            offset = -1;
+        ZoneOffsets offsets;
+        synchronized (zoneOffsets) {
+            offsets = zoneOffsets.get(zone);
         }
-        c.close();
-        return offset;
+        if (offsets == null) {
+            offsets = getData().getZoneOffsets(zone);
+            if (offsets == null)
+                return -1;
+            synchronized (zoneOffsets) {
+                zoneOffsets.put(zone, offsets);
+            }
+        }
+        return offsets.getOffset(time);
     }
 
     public Cursor getStateList(String name) {
-        String STATES_TALE = "states";
-        return timezoneDatabase.query(STATES_TALE, null, "country = ?",
-                new String[]{name}, null, null, "state");
+        TimeZoneData data = getData();
+        int[] rows = data.getStateList(name);
+        MatrixCursor c = new MatrixCursor(new String[]{"_id", "country", "state"},
+                rows.length);
+        for (int row : rows)
+            c.addRow(new Object[]{data.getStateId(row), name, data.getStateName(row)});
+        return c;
     }
 
     public Cursor getCityList(String country, String state) {
-        return timezoneDatabase.query(CITIES_TABLE, new String[]{"_id", "city"},
-                "country = ? AND state <= ?", new String[]{country, state},
-                null, null, "city");
+        TimeZoneData data = getData();
+        int[] rows = data.getCityList(country, state);
+        MatrixCursor c = new MatrixCursor(new String[]{"_id", "city"}, rows.length);
+        for (int row : rows)
+            c.addRow(new Object[]{data.getCityId(row), data.getCityName(row)});
+        return c;
     }
 
     public Bundle getCityData(long id) {
+        TimeZoneData data = getData();
         Bundle b = new Bundle();
-
-        Cursor c = timezoneDatabase.query(CITIES_TABLE, null, "_id = ?",
-                new String[]{String.valueOf(id)}, null, null, null);
-        c.moveToFirst();
-
-        b.putDouble("lat", c.getDouble(c.getColumnIndex("lat")));
-        b.putDouble("lng", c.getDouble(c.getColumnIndex("lng")));
-        b.putDouble("alt", c.getDouble(c.getColumnIndex("altitude")));
-        b.putString("timezone", c.getString(c.getColumnIndex("timezone")));
-        b.putString("city", c.getString(c.getColumnIndex("city")));
-
-        c.close();
+        int row = data.getCityRow(id);
+        if (row < 0)
+            return b;
+
+        b.putDouble("lat", data.getCityLatitude(row));
+        b.putDouble("lng", data.getCityLongitude(row));
+        b.putDouble("alt", data.getCityAltitude(row));
+        b.putString("timezone", data.getCityZone(row));
+        b.putString("city", data.getCityName(row));
+        b.putString("country", data.getCityCountry(row));
+        b.putString("state", data.getCityState(row));
         return b;
     }
-
-    @Override
-    public void onCreate(SQLiteDatabase db) {
-    }
-
-    @Override
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-    }
 }
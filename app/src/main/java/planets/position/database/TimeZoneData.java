@@ -0,0 +1,423 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * Read only time zone and city data, converted from timezone.db at build
+ * time into fixed width records that are searched in place.
+ * <p>
+ * All strings are stored once in a table sorted by their UTF-8 bytes, so the
+ * records refer to strings by number and comparing two numbers compares the
+ * strings the way SQLite does. The file is big endian:
+ * <pre>
+ * header      int magic, int version, int crc32 of the rest of the file,
+ *             int zone, transition, state, city and string counts,
+ *             int byte offset of each of the sections below
+ * zones       int id, int name, int country code, int first transition,
+ *             int transition count, sorted by id
+ * zone names  int zone row, sorted by name
+ * starts      long transition time in seconds from Jan 1, 1970
+ * offsets     int gmt offset in seconds, parallel to the starts, the
+ *             transitions of a zone are together and sorted by time
+ * states      int id, int country, int state, sorted by country and state
+ * cities      int id, int city, int country, int state, int time zone,
+ *             double latitude, double longitude, double altitude, sorted by id
+ * city list   int city row, sorted by country, state and city
+ * strings     int byte offset of each string and of the end of the last one,
+ *             followed by the UTF-8 bytes
+ * </pre>
+ */
+public final class TimeZoneData {
+
+    public static final int MAGIC = 0x5050545A; // "PPTZ"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 68;
+    public static final int ZONE_SIZE = 20;
+    public static final int STATE_SIZE = 12;
+    public static final int CITY_SIZE = 44;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int[] EMPTY = new int[0];
+
+    private final ByteBuffer buffer;
+    private final int zoneCount, transitionCount, stateCount, cityCount, stringCount;
+    private final int zones, zoneNames, starts, offsets, states, cities, cityList,
+            strings, bytes;
+
+    /**
+     * Creates a reader over a buffer holding the whole file.
+     *
+     * @param buffer file contents
+     * @throws IOException if the buffer is not valid time zone data
+     */
+    public TimeZoneData(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate();
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a time zone data file.");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported time zone data version " + buffer.getInt(4));
+        if (buffer.getInt(8) != checksum(buffer))
+            throw new IOException("Time zone data checksum mismatch.");
+
+        zoneCount = buffer.getInt(12);
+        transitionCount = buffer.getInt(16);
+        stateCount = buffer.getInt(20);
+        cityCount = buffer.getInt(24);
+        stringCount = buffer.getInt(28);
+        zones = section(32, zoneCount, ZONE_SIZE);
+        zoneNames = section(36, zoneCount, 4);
+        starts = section(40, transitionCount, 8);
+        offsets = section(44, transitionCount, 4);
+        states = section(48, stateCount, STATE_SIZE);
+        cities = section(52, cityCount, CITY_SIZE);
+        cityList = section(56, cityCount, 4);
+        strings = section(60, stringCount + 1, 4);
+        bytes = buffer.getInt(64);
+        if (bytes < 0 || bytes + (long) buffer.getInt(strings + stringCount * 4)
+                > buffer.capacity())
+            throw new IOException("Time zone data strings are truncated.");
+    }
+
+    /**
+     * Maps part of a file, such as an uncompressed asset inside the apk, and
+     * opens it.
+     *
+     * @param channel open file channel
+     * @param offset  start of the data in the file
+     * @param length  length of the data
+     * @return the reader
+     * @throws IOException if the file can not be mapped or is not valid
+     */
+    public static TimeZoneData map(FileChannel channel, long offset, long length)
+            throws IOException {
+        return new TimeZoneData(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    /**
+     * Returns the CRC32 stored in the header of a time zone data file.
+     *
+     * @param buffer file contents
+     * @return checksum of everything after the checksum field
+     */
+    public static int checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+        ByteBuffer b = buffer.duplicate();
+        b.position(12);
+        while (b.hasRemaining()) {
+            int n = Math.min(chunk.length, b.remaining());
+            b.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+        return (int) crc.getValue();
+    }
+
+    private int section(int field, int count, int size) throws IOException {
+        int pos = buffer.getInt(field);
+        if (count < 0 || pos < HEADER_SIZE || pos + (long) count * size > buffer.capacity())
+            throw new IOException("Time zone data section at " + field + " is truncated.");
+        return pos;
+    }
+
+    // Zones
+
+    /**
+     * Returns the zone rows sorted by zone name.
+     *
+     * @return zone rows
+     */
+    public int[] getZoneList() {
+        int[] rows = new int[zoneCount];
+        for (int i = 0; i < zoneCount; i++)
+            rows[i] = buffer.getInt(zoneNames + i * 4);
+        return rows;
+    }
+
+    public int getZoneId(int row) {
+        return buffer.getInt(zones + row * ZONE_SIZE);
+    }
+
+    public String getZoneName(int row) {
+        return getString(buffer.getInt(zones + row * ZONE_SIZE + 4));
+    }
+
+    public String getZoneCountryCode(int row) {
+        return getString(buffer.getInt(zones + row * ZONE_SIZE + 8));
+    }
+
+    /**
+     * @param zone Timezone name
+     * @return Timezone id, -1 if there is no such zone
+     */
+    public int getZoneID(String zone) {
+        int name = findString(zone);
+        if (name < 0)
+            return -1;
+        int lo = 0, hi = zoneCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int row = buffer.getInt(zoneNames + mid * 4);
+            int s = buffer.getInt(zones + row * ZONE_SIZE + 4);
+            if (s == name)
+                return getZoneId(row);
+            if (s < name)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return -1;
+    }
+
+    /**
+     * @param zone Timezone id
+     * @param time Time in seconds from Jan 1, 1970
+     * @return gmt offset in seconds, -1 if the zone is unknown or time is
+     * before its first transition
+     */
+    public int getZoneOffset(int zone, long time) {
+        int row = findRow(zones, ZONE_SIZE, zoneCount, zone);
+        if (row < 0)
+            return -1;
+        int first = buffer.getInt(zones + row * ZONE_SIZE + 12);
+        int lo = first, hi = first + buffer.getInt(zones + row * ZONE_SIZE + 16);
+        // first transition after time
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (buffer.getLong(starts + mid * 8) > time)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+        return (lo == first) ? -1 : buffer.getInt(offsets + (lo - 1) * 4);
+    }
+
+    /**
+     * Copies the transitions of a zone out of the mapped data.
+     *
+     * @param zone Timezone id
+     * @return the zone's offsets, null if the zone is unknown
+     */
+    ZoneOffsets getZoneOffsets(int zone) {
+        int row = findRow(zones, ZONE_SIZE, zoneCount, zone);
+        if (row < 0)
+            return null;
+        int first = buffer.getInt(zones + row * ZONE_SIZE + 12);
+        int n = buffer.getInt(zones + row * ZONE_SIZE + 16);
+        long[] s = new long[n];
+        int[] o = new int[n];
+        for (int i = 0; i < n; i++) {
+            s[i] = buffer.getLong(starts + (first + i) * 8);
+            o[i] = buffer.getInt(offsets + (first + i) * 4);
+        }
+        return new ZoneOffsets(s, o);
+    }
+
+    // States
+
+    /**
+     * Returns the state rows of a country sorted by state name.
+     *
+     * @param country country name
+     * @return state rows
+     */
+    public int[] getStateList(String country) {
+        int c = findString(country);
+        if (c < 0)
+            return EMPTY;
+        int from = lowerBound(states, STATE_SIZE, stateCount, c, -1);
+        int to = lowerBound(states, STATE_SIZE, stateCount, c + 1, -1);
+        int[] rows = new int[to - from];
+        for (int i = 0; i < rows.length; i++)
+            rows[i] = from + i;
+        return rows;
+    }
+
+    public int getStateId(int row) {
+        return buffer.getInt(states + row * STATE_SIZE);
+    }
+
+    public String getStateName(int row) {
+        return getString(buffer.getInt(states + row * STATE_SIZE + 8));
+    }
+
+    // Cities
+
+    /**
+     * Returns the number of cities.
+     *
+     * @return city count
+     */
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    /**
+     * Returns the city rows of a state sorted by city name.
+     *
+     * @param country country name
+     * @param state   state name
+     * @return city rows
+     */
+    public int[] getCityList(String country, String state) {
+        int c = findString(country);
+        int s = findString(state);
+        if (c < 0 || s < 0)
+            return EMPTY;
+        int from = lowerBound(cityList, 4, cityCount, c, s);
+        int to = lowerBound(cityList, 4, cityCount, c, s + 1);
+        int[] rows = new int[to - from];
+        for (int i = 0; i < rows.length; i++)
+            rows[i] = buffer.getInt(cityList + (from + i) * 4);
+        return rows;
+    }
+
+    /**
+     * @param id city id
+     * @return city row, -1 if there is no such city
+     */
+    public int getCityRow(long id) {
+        if (id < Integer.MIN_VALUE || id > Integer.MAX_VALUE)
+            return -1;
+        return findRow(cities, CITY_SIZE, cityCount, (int) id);
+    }
+
+    public int getCityId(int row) {
+        return buffer.getInt(cities + row * CITY_SIZE);
+    }
+
+    public String getCityName(int row) {
+        return getString(buffer.getInt(cities + row * CITY_SIZE + 4));
+    }
+
+    public String getCityCountry(int row) {
+        return getString(buffer.getInt(cities + row * CITY_SIZE + 8));
+    }
+
+    public String getCityState(int row) {
+        return getString(buffer.getInt(cities + row * CITY_SIZE + 12));
+    }
+
+    public String getCityZone(int row) {
+        return getString(buffer.getInt(cities + row * CITY_SIZE + 16));
+    }
+
+    public double getCityLatitude(int row) {
+        return buffer.getDouble(cities + row * CITY_SIZE + 20);
+    }
+
+    public double getCityLongitude(int row) {
+        return buffer.getDouble(cities + row * CITY_SIZE + 28);
+    }
+
+    public double getCityAltitude(int row) {
+        return buffer.getDouble(cities + row * CITY_SIZE + 36);
+    }
+
+    // Searches
+
+    // row of a record with the given id in a section sorted by id
+    private int findRow(int section, int size, int count, int id) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int v = buffer.getInt(section + mid * size);
+            if (v == id)
+                return mid;
+            if (v < id)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return -1;
+    }
+
+    /*
+     * First entry at or after (country, state) in the states section or the
+     * city list, state -1 compares the country only.
+     */
+    private int lowerBound(int section, int size, int count, int country, int state) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int pos;
+            if (section == cityList)
+                pos = cities + buffer.getInt(section + mid * 4) * CITY_SIZE + 8;
+            else
+                pos = section + mid * size + 4;
+            int c = buffer.getInt(pos);
+            if (c < country || (c == country && state >= 0 && buffer.getInt(pos + 4) < state))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    // Strings
+
+    private String getString(int s) {
+        int from = buffer.getInt(strings + s * 4);
+        int to = buffer.getInt(strings + s * 4 + 4);
+        byte[] b = new byte[to - from];
+        ByteBuffer d = buffer.duplicate();
+        d.position(bytes + from);
+        d.get(b);
+        return new String(b, UTF8);
+    }
+
+    // number of a string, -1 if it is not in the table
+    private int findString(String value) {
+        if (value == null)
+            return -1;
+        byte[] key = value.getBytes(UTF8);
+        int lo = 0, hi = stringCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareString(mid, key);
+            if (cmp == 0)
+                return mid;
+            if (cmp < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return -1;
+    }
+
+    // compares a stored string with key byte by byte, as unsigned values
+    private int compareString(int s, byte[] key) {
+        int from = bytes + buffer.getInt(strings + s * 4);
+        int length = buffer.getInt(strings + s * 4 + 4) - buffer.getInt(strings + s * 4);
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (buffer.get(from + i) & 0xff) - (key[i] & 0xff);
+            if (cmp != 0)
+                return cmp;
+        }
+        return length - key.length;
+    }
+}
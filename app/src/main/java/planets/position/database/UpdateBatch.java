@@ -0,0 +1,231 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Row updates of one result table, collected while a task calculates and
+ * written together by PlanetsDatabase.write. Every row is bound to a compiled
+ * UPDATE statement, which is only compiled again when a row sets different
+ * columns, and the whole batch is one transaction.
+ */
+public class UpdateBatch {
+
+    private static final byte NULL = 0, LONG = 1, DOUBLE = 2, STRING = 3;
+
+    private final String table;
+    private final List<Integer> rows = new ArrayList<>();
+    private final List<ContentValues> values = new ArrayList<>();
+
+    /**
+     * @param table name of the table, its rows are keyed by an _id column
+     */
+    public UpdateBatch(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Adds the update of one row. The values are copied, so the caller can
+     * reuse them for the next row.
+     *
+     * @param row    _id of the row
+     * @param values new column values
+     */
+    public void update(int row, ContentValues values) {
+        rows.add(row);
+        this.values.add(new ContentValues(values));
+    }
+
+    /**
+     * Reads a batch written by toBytes.
+     *
+     * @param table name of the table
+     * @param bytes serialized batch
+     * @return the batch
+     * @throws IOException if the bytes are not a batch
+     */
+    public static UpdateBatch fromBytes(String table, byte[] bytes) throws IOException {
+        UpdateBatch batch = new UpdateBatch(table);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            int row = in.readInt();
+            int columns = in.readInt();
+            ContentValues v = new ContentValues(columns);
+            for (int c = 0; c < columns; c++) {
+                String key = in.readUTF();
+                switch (in.readByte()) {
+                    case NULL:
+                        v.putNull(key);
+                        break;
+                    case LONG:
+                        v.put(key, in.readLong());
+                        break;
+                    case DOUBLE:
+                        v.put(key, in.readDouble());
+                        break;
+                    case STRING:
+                        v.put(key, in.readUTF());
+                        break;
+                    default:
+                        throw new IOException("Unknown value type in batch.");
+                }
+            }
+            batch.rows.add(row);
+            batch.values.add(v);
+        }
+        return batch;
+    }
+
+    /**
+     * Serializes the batch for the result cache. Integers are stored as
+     * longs and floats as doubles, which SQLite stores the same way.
+     *
+     * @return serialized batch
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                ContentValues v = values.get(i);
+                out.writeInt(rows.get(i));
+                out.writeInt(v.size());
+                for (Map.Entry<String, Object> e : v.valueSet()) {
+                    Object value = e.getValue();
+                    out.writeUTF(e.getKey());
+                    if (value == null) {
+                        out.writeByte(NULL);
+                    } else if (value instanceof Double || value instanceof Float) {
+                        out.writeByte(DOUBLE);
+                        out.writeDouble(((Number) value).doubleValue());
+                    } else if (value instanceof Number) {
+                        out.writeByte(LONG);
+                        out.writeLong(((Number) value).longValue());
+                    } else if (value instanceof Boolean) {
+                        out.writeByte(LONG);
+                        out.writeLong(((Boolean) value) ? 1 : 0);
+                    } else {
+                        out.writeByte(STRING);
+                        out.writeUTF(value.toString());
+                    }
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // a ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * @param i index of an update, in the order they were added
+     * @return _id of the row the update is for
+     */
+    public int getRow(int i) {
+        return rows.get(i);
+    }
+
+    /**
+     * @param i index of an update, in the order they were added
+     * @return column values of the update, not a copy
+     */
+    public ContentValues getValues(int i) {
+        return values.get(i);
+    }
+
+    /**
+     * Runs the updates, the caller holds the transaction.
+     */
+    void execute(SQLiteDatabase database) {
+        SQLiteStatement statement = null;
+        Set<String> keys = null;
+        String[] columns = null;
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                ContentValues v = values.get(i);
+                if (statement == null || !v.keySet().equals(keys)) {
+                    if (statement != null)
+                        statement.close();
+                    keys = v.keySet();
+                    columns = keys.toArray(new String[0]);
+                    statement = database.compileStatement(sql(columns));
+                }
+                statement.clearBindings();
+                for (int c = 0; c < columns.length; c++)
+                    bind(statement, c + 1, v.get(columns[c]));
+                statement.bindLong(columns.length + 1, rows.get(i));
+                statement.executeUpdateDelete();
+            }
+        } finally {
+            if (statement != null)
+                statement.close();
+        }
+    }
+
+    private String sql(String[] columns) {
+        StringBuilder sb = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        for (int c = 0; c < columns.length; c++) {
+            if (c > 0)
+                sb.append(", ");
+            sb.append(columns[c]).append(" = ?");
+        }
+        return sb.append(" WHERE _id = ?").toString();
+    }
+
+    private static void bind(SQLiteStatement statement, int index, Object value) {
+        if (value == null)
+            statement.bindNull(index);
+        else if (value instanceof String)
+            statement.bindString(index, (String) value);
+        else if (value instanceof Double || value instanceof Float)
+            statement.bindDouble(index, ((Number) value).doubleValue());
+        else if (value instanceof Number)
+            statement.bindLong(index, ((Number) value).longValue());
+        else if (value instanceof Boolean)
+            statement.bindLong(index, ((Boolean) value) ? 1 : 0);
+        else
+            statement.bindString(index, value.toString());
+    }
+}
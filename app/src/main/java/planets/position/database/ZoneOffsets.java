@@ -0,0 +1,53 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import java.util.Arrays;
+
+/**
+ * The gmt offset transitions of one time zone, held as parallel primitive
+ * arrays sorted by start time so an offset is found by binary search.
+ */
+final class ZoneOffsets {
+
+    private final long[] starts;
+    private final int[] offsets;
+
+    /**
+     * @param starts  transition times in seconds from Jan 1, 1970, ascending
+     * @param offsets gmt offset in seconds starting at each transition
+     */
+    ZoneOffsets(long[] starts, int[] offsets) {
+        this.starts = starts;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @param time Time in seconds from Jan 1, 1970
+     * @return gmt offset in seconds, -1 if time is before the first transition
+     */
+    int getOffset(long time) {
+        int i = Arrays.binarySearch(starts, time);
+        if (i < 0)
+            i = -i - 2; // last transition before time
+        return (i < 0) ? -1 : offsets[i];
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.location;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Filter;
+import android.widget.Filterable;
+import android.widget.TextView;
+
+import planets.position.R;
+import planets.position.database.CityIndex;
+import planets.position.database.TimeZoneDB;
+
+/**
+ * Type-ahead city suggestions from the CityIndex. Filtering runs on the
+ * filter thread, which also builds the index the first time.
+ */
+public class CitySearchAdapter extends BaseAdapter implements Filterable {
+
+    private static final int LIMIT = 50;
+
+    private final TimeZoneDB tzDB;
+    private final LayoutInflater mInflater;
+    private CityIndex index;
+    private int[] rows = new int[0];
+
+    CitySearchAdapter(Context c, TimeZoneDB tzDB) {
+        this.tzDB = tzDB;
+        mInflater = LayoutInflater.from(c);
+    }
+
+    @Override
+    public int getCount() {
+        return rows.length;
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return index.getCityName(rows[position]);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return index.getCityId(rows[position]);
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        ViewHolder holder;
+        if (convertView == null) {
+            convertView = mInflater.inflate(R.layout.city_search_row, parent, false);
+            holder = new ViewHolder();
+            holder.txtCity = convertView.findViewById(R.id.txtCity);
+            holder.txtPlace = convertView.findViewById(R.id.txtPlace);
+            convertView.setTag(holder);
+        } else {
+            holder = (ViewHolder) convertView.getTag();
+        }
+
+        holder.txtCity.setText(index.getCityName(rows[position]));
+        holder.txtPlace.setText(index.getCityPlace(rows[position]));
+
+        return convertView;
+    }
+
+    static class ViewHolder {
+        TextView txtCity;
+        TextView txtPlace;
+    }
+
+    @Override
+    public Filter getFilter() {
+        return new Filter() {
+            @Override
+            protected FilterResults performFiltering(CharSequence constraint) {
+                FilterResults results = new FilterResults();
+                CityIndex cities = tzDB.getCityIndex();
+                int[] found = (constraint == null) ? new int[0]
+                        : cities.search(constraint.toString(), LIMIT);
+                results.values = new Object[]{cities, found};
+                results.count = found.length;
+                return results;
+            }
+
+            @Override
+            protected void publishResults(CharSequence constraint, FilterResults results) {
+                Object[] values = (Object[]) results.values;
+                index = (CityIndex) values[0];
+                rows = (int[]) values[1];
+                if (rows.length > 0)
+                    notifyDataSetChanged();
+                else
+                    notifyDataSetInvalidated();
+            }
+
+            @Override
+            public CharSequence convertResultToString(Object resultValue) {
+                return (String) resultValue;
+            }
+        };
+    }
+}
@@ -26,11 +26,13 @@ import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.database.Cursor;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.AutoCompleteTextView;
 import android.widget.Spinner;
 
 import androidx.annotation.NonNull;
@@ -43,12 +45,17 @@ import planets.position.database.TimeZoneDB;
 
 public class UserCityDialog extends DialogFragment {
 
+    private Spinner spinCountry;
     private Spinner spinState;
     private Spinner spinCity;
+    private ArrayAdapter<CharSequence> countryAdapter;
     private CityDialogListener mListener;
     private TimeZoneDB tzDB;
     private String country, state;
     private long cityID;
+    // city picked in the search, shown in the spinners once they catch up
+    private String pickState;
+    private long pickCity = -1;
 
     public interface CityDialogListener {
         void onDialogPositiveClick(long id);
@@ -64,6 +71,14 @@ public class UserCityDialog extends DialogFragment {
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         tzDB = new TimeZoneDB(getActivity().getApplicationContext());
+        // build the search index while the dialog opens
+        final TimeZoneDB db = tzDB;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                db.getCityIndex();
+            }
+        });
     }
 
     @Override
@@ -83,28 +98,38 @@ public class UserCityDialog extends DialogFragment {
         LayoutInflater inflaterLat = getActivity().getLayoutInflater();
         @SuppressLint("InflateParams")
         View v = inflaterLat.inflate(R.layout.fragment_user_city_dialog, null);
-        Spinner spinCountry = v.findViewById(R.id.spinnerCountry);
+        spinCountry = v.findViewById(R.id.spinnerCountry);
         spinState = v.findViewById(R.id.spinnerState);
         spinCity = v.findViewById(R.id.spinnerCity);
+        AutoCompleteTextView searchCity = v.findViewById(R.id.searchCity);
 
-        ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(getActivity(),
+        searchCity.setAdapter(new CitySearchAdapter(getActivity(), tzDB));
+        searchCity.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                cityID = id;
+                showCity(id);
+            }
+        });
+
+        countryAdapter = ArrayAdapter.createFromResource(getActivity(),
                 R.array.country_array, R.layout.spinner_item);
-        adapter.setDropDownViewResource(R.layout.spinner_drop_item);
-        spinCountry.setAdapter(adapter);
+        countryAdapter.setDropDownViewResource(R.layout.spinner_drop_item);
+        spinCountry.setAdapter(countryAdapter);
 
         spinCountry.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
                 country = (String) parent.getItemAtPosition(position);
                 spinState.setVisibility(View.VISIBLE);
-                tzDB.open();
                 Cursor states = tzDB.getStateList(country);
                 SimpleCursorAdapter cursorAdapter = new SimpleCursorAdapter(getActivity().getApplicationContext(),
                         R.layout.spinner_item, states, new String[]{"state"},
                         new int[]{R.id.spinText}, 0);
                 cursorAdapter.setDropDownViewResource(R.layout.spinner_drop_item);
                 spinState.setAdapter(cursorAdapter);
-                tzDB.close();
+                if (pickState != null)
+                    selectState(true);
             }
 
             @Override
@@ -118,14 +143,14 @@ public class UserCityDialog extends DialogFragment {
                 Cursor c = (Cursor) parent.getItemAtPosition(position);
                 state = c.getString(c.getColumnIndex("state"));
                 spinCity.setVisibility(View.VISIBLE);
-                tzDB.open();
                 Cursor cities = tzDB.getCityList(country, state);
                 SimpleCursorAdapter cursorAdapter = new SimpleCursorAdapter(getActivity().getApplicationContext(),
                         R.layout.spinner_item, cities, new String[]{"city"},
                         new int[]{R.id.spinText}, 0);
                 cursorAdapter.setDropDownViewResource(R.layout.spinner_drop_item);
                 spinCity.setAdapter(cursorAdapter);
-                tzDB.close();
+                if (pickCity >= 0)
+                    selectCity(true);
             }
 
             @Override
@@ -136,6 +161,11 @@ public class UserCityDialog extends DialogFragment {
         spinCity.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                // ignore the selections made on the way to a searched city
+                if (pickCity >= 0 && id != pickCity)
+                    return;
+                pickState = null;
+                pickCity = -1;
                 cityID = id;
             }
 
@@ -164,4 +194,74 @@ public class UserCityDialog extends DialogFragment {
         return alert.create();
     }
 
+    /**
+     * Moves the spinners to a city picked in the search. Each spinner fills
+     * the next one when its selection changes, so the state and city are
+     * selected by the listeners as the lists are loaded.
+     *
+     * @param id city id
+     */
+    private void showCity(long id) {
+        Bundle b = tzDB.getCityData(id);
+        int pos = countryAdapter.getPosition(b.getString("country"));
+        if (pos < 0)
+            return;
+        pickState = b.getString("state", "");
+        pickCity = id;
+        if (pos != spinCountry.getSelectedItemPosition())
+            spinCountry.setSelection(pos);
+        else
+            selectState(false);
+    }
+
+    /**
+     * Selects the picked state.
+     *
+     * @param loaded true if the state list was just loaded, its listener
+     *               is then called even when the position does not change
+     */
+    private void selectState(boolean loaded) {
+        SimpleCursorAdapter adapter = (SimpleCursorAdapter) spinState.getAdapter();
+        if (adapter == null)
+            return; // the country listener selects it once the list is loaded
+        int pos = -1;
+        Cursor c = adapter.getCursor();
+        for (int i = 0; i < c.getCount() && pos < 0; i++) {
+            c.moveToPosition(i);
+            if (pickState.equals(c.getString(c.getColumnIndex("state"))))
+                pos = i;
+        }
+        if (pos < 0) {
+            pickState = null;
+            pickCity = -1;
+        } else if (loaded || pos != spinState.getSelectedItemPosition()) {
+            spinState.setSelection(pos);
+        } else {
+            selectCity(false);
+        }
+    }
+
+    /**
+     * Selects the picked city.
+     *
+     * @param loaded true if the city list was just loaded
+     */
+    private void selectCity(boolean loaded) {
+        SimpleCursorAdapter adapter = (SimpleCursorAdapter) spinCity.getAdapter();
+        if (adapter == null)
+            return; // the state listener selects it once the list is loaded
+        int pos = -1;
+        for (int i = 0; i < adapter.getCount() && pos < 0; i++) {
+            if (adapter.getItemId(i) == pickCity)
+                pos = i;
+        }
+        if (pos >= 0 && (loaded || pos != spinCity.getSelectedItemPosition())) {
+            spinCity.setSelection(pos);
+        } else {
+            // already showing the city, or it is not in the list
+            pickState = null;
+            pickCity = -1;
+        }
+    }
+
 }
@@ -29,6 +29,7 @@ import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.provider.Settings;
 import android.text.InputType;
@@ -81,6 +82,8 @@ public class UserLocation extends AppCompatActivity implements UserTimezoneDialo
     private static final int REQUEST_PERMISSIONS_REQUEST_CODE = 500;
     private static final int REQUEST_CHECK_SETTINGS = 100;
     private static final String TAG = "UserLocation";
+    // farthest city whose time zone is used for a GPS fix, in km
+    private static final double MAX_CITY_DISTANCE = 500;
 
     private TextView latitudeText, longitudeText, elevationText, timezoneText, gmtOffsetText;
     private EditText latitudeEdit, longitudeEdit, elevationEdit, timezoneEdit;
@@ -129,6 +132,14 @@ public class UserLocation extends AppCompatActivity implements UserTimezoneDialo
         timezoneEdit.setFocusable(false);
 
         tzDB = new TimeZoneDB(getApplicationContext());
+        // build the nearest city index before the first GPS fix
+        final TimeZoneDB db = tzDB;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                db.getCityLocator();
+            }
+        });
         settings = PreferenceManager.getDefaultSharedPreferences(getBaseContext());
 
         Toolbar myToolbar = findViewById(R.id.toolbar1);
@@ -157,18 +168,7 @@ public class UserLocation extends AppCompatActivity implements UserTimezoneDialo
                     gpsDialog.dismiss();
                 Location location = locationResult.getLastLocation();
                 if (location != null) {
-                    latitude = location.getLatitude();
-                    longitude = location.getLongitude();
-                    elevation = location.getAltitude();
-
-                    Calendar c = Calendar.getInstance();
-                    TimeZone t = TimeZone.getDefault();
-                    zoneName = t.getID();
-                    tzDB.open();
-                    zoneID = tzDB.getZoneID(zoneName);
-                    int off = tzDB.getZoneOffset(zoneID, c.getTimeInMillis() / 1000L);
-                    offset = off / 3600.0;
-                    tzDB.close();
+                    setGPSLocation(location);
 
                     startLoc = false;
                     if (saveLocation()) {
@@ -257,6 +257,34 @@ public class UserLocation extends AppCompatActivity implements UserTimezoneDialo
         });
     }
 
+    /**
+     * Takes the position of a GPS fix, with the time zone of the nearest
+     * city or of the device if there is no city near. The elevation of the
+     * city is used if the fix has none.
+     */
+    private void setGPSLocation(Location location) {
+        latitude = location.getLatitude();
+        longitude = location.getLongitude();
+        elevation = location.getAltitude();
+
+        Bundle city = tzDB.getNearestCity(latitude, longitude, MAX_CITY_DISTANCE);
+        if (city != null) {
+            zoneName = city.getString("timezone");
+            if (!location.hasAltitude())
+                elevation = city.getDouble("alt");
+        } else {
+            zoneName = TimeZone.getDefault().getID();
+        }
+        zoneID = tzDB.getZoneID(zoneName);
+        if (zoneID < 0) {
+            zoneName = TimeZone.getDefault().getID();
+            zoneID = tzDB.getZoneID(zoneName);
+        }
+        Calendar c = Calendar.getInstance();
+        int off = tzDB.getZoneOffset(zoneID, c.getTimeInMillis() / 1000L);
+        offset = off / 3600.0;
+    }
+
     private void initLocation() {
 
         mLocationRequest = new LocationRequest();
@@ -394,9 +422,7 @@ public class UserLocation extends AppCompatActivity implements UserTimezoneDialo
 
                 // get timezone
                 Calendar c = Calendar.getInstance();
-                tzDB.open();
                 int off = tzDB.getZoneOffset(zoneID, c.getTimeInMillis() / 1000L);
-                tzDB.close();
                 offset = off / 3600.0;
 
                 timezoneText.setVisibility(View.VISIBLE);
@@ -543,9 +569,7 @@ public class UserLocation extends AppCompatActivity implements UserTimezoneDialo
 
         timezoneEdit.setText(zoneName);
         Calendar c = Calendar.getInstance();
-        tzDB.open();
         int off = tzDB.getZoneOffset(zoneID, c.getTimeInMillis() / 1000L);
-        tzDB.close();
         offset = off / 3600.0;
 
         if (saveLocation()) {
@@ -564,7 +588,6 @@ public class UserLocation extends AppCompatActivity implements UserTimezoneDialo
         edit = false;
         layoutEdit.setVisibility(View.GONE);
         invalidateOptionsMenu();
-        tzDB.open();
         Bundle data = tzDB.getCityData(id);
         Calendar c = Calendar.getInstance();
         latitude = data.getDouble("lat", 0);
@@ -574,7 +597,6 @@ public class UserLocation extends AppCompatActivity implements UserTimezoneDialo
         zoneID = tzDB.getZoneID(zoneName);
         int off = tzDB.getZoneOffset(zoneID, c.getTimeInMillis() / 1000L);
         offset = off / 3600.0;
-        tzDB.close();
 
         if (saveLocation()) {
             Toast.makeText(getApplicationContext(),
@@ -625,18 +647,7 @@ public class UserLocation extends AppCompatActivity implements UserTimezoneDialo
                     public void onSuccess(Location location) {
                         if (location != null) {
                             mRequestingLocationUpdates = false;
-                            latitude = location.getLatitude();
-                            longitude = location.getLongitude();
-                            elevation = location.getAltitude();
-
-                            Calendar c = Calendar.getInstance();
-                            TimeZone t = TimeZone.getDefault();
-                            zoneName = t.getID();
-                            tzDB.open();
-                            zoneID = tzDB.getZoneID(zoneName);
-                            int off = tzDB.getZoneOffset(zoneID, c.getTimeInMillis() / 1000L);
-                            offset = off / 3600.0;
-                            tzDB.close();
+                            setGPSLocation(location);
 
                             startLoc = false;
                             if (saveLocation()) {
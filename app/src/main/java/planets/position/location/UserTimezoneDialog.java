@@ -75,7 +75,6 @@ public class UserTimezoneDialog extends DialogFragment {
     public Dialog onCreateDialog(Bundle savedInstanceState) {
         AlertDialog.Builder alert = new AlertDialog.Builder(getActivity(), R.style.LocDialogTheme);
         alert.setTitle(R.string.loc_tz_title);
-        timeZoneDB.open();
         final Cursor c = timeZoneDB.getZoneList();
         c.moveToFirst();
         alert.setCursor(c, new DialogInterface.OnClickListener() {
@@ -87,7 +86,6 @@ public class UserTimezoneDialog extends DialogFragment {
                 mListener.onZoneSelection(id, name);
             }
         }, "zone_name");
-        timeZoneDB.close();
         return alert.create();
     }
 }
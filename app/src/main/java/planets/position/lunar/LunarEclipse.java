@@ -21,10 +21,10 @@
 package planets.position.lunar;
 
 import android.app.Activity;
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -35,25 +35,22 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemClickListener;
-import android.widget.ImageView;
+import android.widget.BaseAdapter;
 import android.widget.ListView;
-import android.widget.TextView;
+import android.widget.ProgressBar;
 
 import androidx.annotation.NonNull;
-import androidx.cursoradapter.widget.SimpleCursorAdapter;
 import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
 import androidx.preference.PreferenceManager;
 
-import java.text.DateFormat;
 import java.util.Calendar;
-import java.util.GregorianCalendar;
 
 import planets.position.FragmentListener;
 import planets.position.R;
-import planets.position.database.LunarEclipseTable;
+import planets.position.database.EclipseList;
 import planets.position.database.PlanetsDatabase;
 import planets.position.database.TimeZoneDB;
 import planets.position.util.JDUTC;
@@ -71,12 +68,12 @@ public class LunarEclipse extends Fragment {
     private LunarEclipseData eclipseData;
     private TimeZoneDB tzDB;
     private ListView lunarList;
+    private ProgressBar searchProgress;
     private int zoneID;
-    private double offset, firstDate, lastDate;
+    private double offset, firstDate, lastDate, startDate, startBack;
     private final double[] g = new double[3];
     private double[] time;
     private boolean firstRun, newLoc;
-    private DateFormat mDateFormat;
     private PlanetsDatabase planetsDB;
     private SharedPreferences settings;
     private JDUTC jdUTC;
@@ -86,10 +83,19 @@ public class LunarEclipse extends Fragment {
                              Bundle savedInstanceState) {
         View v = inflater.inflate(R.layout.fragment_eclipse, container, false);
         lunarList = v.findViewById(R.id.eclipseList);
+        searchProgress = v.findViewById(R.id.searchProgress);
 
         lunarList.setOnItemClickListener(new OnItemClickListener() {
             public void onItemClick(AdapterView<?> parent, View v,
                                     int position, long id) {
+                // a row of a running search is shown from the task until
+                // the search writes the table
+                ContentValues row = null;
+                if (taskFragment != null) {
+                    row = taskFragment.getRow(id);
+                    if (row == null)
+                        return;
+                }
                 // display eclipse data
                 FragmentTransaction ft = null;
                 if (getFragmentManager() != null) {
@@ -98,6 +104,8 @@ public class LunarEclipse extends Fragment {
                 eclipseData = new LunarEclipseData();
                 Bundle args = new Bundle();
                 args.putLong("lunarNum", id);
+                if (row != null)
+                    args.putParcelable("row", row);
                 args.putInt("zoneID", zoneID);
                 eclipseData.setArguments(args);
                 if (ft != null) {
@@ -131,9 +139,9 @@ public class LunarEclipse extends Fragment {
 
         if (taskFragment != null) {
             taskFragment.setTargetFragment(this, TASK_FRAGMENT);
+            showTask();
         } else {
             if (firstRun) {
-                lunarList.setVisibility(View.INVISIBLE);
                 launchTask(time[1], 0.0);
             } else {
                 loadEclipses();
@@ -148,12 +156,15 @@ public class LunarEclipse extends Fragment {
         super.onCreate(savedInstanceState);
         jdUTC = new JDUTC();
         tzDB = new TimeZoneDB(getActivity().getApplicationContext());
-        mDateFormat = android.text.format.DateFormat
-                .getDateFormat(getActivity().getApplicationContext());
         settings = PreferenceManager.getDefaultSharedPreferences(getActivity().getApplicationContext());
         firstRun = settings.getBoolean("leFirstRun", true);
         firstDate = settings.getFloat("leFirstDate", 0);
         lastDate = settings.getFloat("leLastDate", 0);
+        // the date and direction of the last search, kept at full precision
+        // as they are part of the result cache key
+        startDate = Double.longBitsToDouble(settings.getLong("leStartDate",
+                Double.doubleToLongBits(firstDate)));
+        startBack = settings.getFloat("leStartBack", 0);
 
         setHasOptionsMenu(true);
     }
@@ -175,12 +186,19 @@ public class LunarEclipse extends Fragment {
             editor.putBoolean("newLocation", false);
             editor.apply();
             newLoc = false;
-            lunarList.setVisibility(View.INVISIBLE);
-            launchTask(firstDate, 0.0);
+            launchTask(startDate, startBack);
         }
         super.onResume();
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // leaving the screen stops the search, a configuration change keeps it
+        if (taskFragment != null && !getActivity().isChangingConfigurations())
+            taskFragment.cancel();
+    }
+
     @Override
     public void onAttach(@NonNull Context context) {
         super.onAttach(context);
@@ -204,16 +222,13 @@ public class LunarEclipse extends Fragment {
                     data.getIntExtra("month", 0),
                     data.getIntExtra("day", 0));
             // convert local time to utc
-            tzDB.open();
             int off = tzDB.getZoneOffset(zoneID, c.getTimeInMillis() / 1000L);
             offset = off / 60.0;
-            tzDB.close();
             c.add(Calendar.MINUTE, (int) (offset * -1));
             time = jdUTC.utcjd(c.get(Calendar.MONTH) + 1,
                     c.get(Calendar.DAY_OF_MONTH), c.get(Calendar.YEAR),
                     c.get(Calendar.HOUR_OF_DAY), c.get(Calendar.MINUTE),
                     c.get(Calendar.SECOND));
-            lunarList.setVisibility(View.INVISIBLE);
             launchTask(time[1], 0.0);
         } else if (requestCode == TASK_FRAGMENT) {
             switch (resultCode) {
@@ -231,6 +246,9 @@ public class LunarEclipse extends Fragment {
                     firstRun = false;
                     loadEclipses();
                     break;
+                case LunarEclipseTask.RESULT_ROW:
+                    ((BaseAdapter) lunarList.getAdapter()).notifyDataSetChanged();
+                    break;
                 case Activity.RESULT_CANCELED:
                     Log.e(TASK_FRAGMENT_TAG, "Lunar eclipse task canceled.");
                     break;
@@ -274,11 +292,9 @@ public class LunarEclipse extends Fragment {
         // Handle item selection
         switch (item.getItemId()) {
             case R.id.action_previous:
-                lunarList.setVisibility(View.INVISIBLE);
                 launchTask(firstDate, 1.0);
                 return true;
             case R.id.action_next:
-                lunarList.setVisibility(View.INVISIBLE);
                 launchTask(lastDate, 0.0);
                 return true;
             case R.id.action_calendar:
@@ -305,81 +321,38 @@ public class LunarEclipse extends Fragment {
     }
 
     private void launchTask(double time, double back) {
-        taskFragment = (LunarEclipseTask) mFM.findFragmentByTag(TASK_FRAGMENT_TAG);
-        if (taskFragment == null) {
-            taskFragment = new LunarEclipseTask();
-            taskFragment.setData(taskFragment.new ComputeEclipseTask(), g, time,
-                    back);
-            taskFragment.setTargetFragment(this, TASK_FRAGMENT);
-            taskFragment.setStyle(DialogFragment.STYLE_NO_TITLE, 0);
-            taskFragment.show(mFM, TASK_FRAGMENT_TAG);
+        startDate = time;
+        startBack = back;
+        SharedPreferences.Editor editor = settings.edit();
+        editor.putLong("leStartDate", Double.doubleToLongBits(startDate));
+        editor.putFloat("leStartBack", (float) startBack);
+        editor.apply();
+        if (taskFragment != null) {
+            // the new search replaces the one still running
+            taskFragment.setTargetFragment(null, 0);
+            taskFragment.cancel();
+            mFM.beginTransaction().remove(taskFragment).commit();
         }
+        taskFragment = new LunarEclipseTask();
+        taskFragment.setData(taskFragment.new ComputeEclipseTask(), g, time, back);
+        taskFragment.setTargetFragment(this, TASK_FRAGMENT);
+        mFM.beginTransaction().add(taskFragment, TASK_FRAGMENT_TAG).commit();
+        showTask();
+    }
+
+    // shows the rows of the running search as they are found
+    private void showTask() {
+        lunarList.setAdapter(new LunarEclipseAdapter(getActivity(), taskFragment.getList()));
+        lunarList.setVisibility(View.VISIBLE);
+        searchProgress.setVisibility(View.VISIBLE);
     }
 
     private void loadEclipses() {
-        SimpleCursorAdapter cursorAdapter;
         planetsDB.open();
-        Cursor leCursor = planetsDB.getLunarEclipseList();
-        String[] from = new String[]{LunarEclipseTable.COLUMN_GLOBAL_TYPE,
-                LunarEclipseTable.COLUMN_ECLIPSE_DATE,
-                LunarEclipseTable.COLUMN_ECLIPSE_TYPE,
-                LunarEclipseTable.COLUMN_LOCAL};
-        int[] to = new int[]{R.id.rowEclImage, R.id.rowEclDate,
-                R.id.rowEclType, R.id.rowEclLocal};
-        cursorAdapter = new SimpleCursorAdapter(getActivity()
-                .getApplicationContext(), R.layout.eclipse_list_row, leCursor,
-                from, to, 0);
-        // customize the fields
-        cursorAdapter.setViewBinder(new SimpleCursorAdapter.ViewBinder() {
-            @Override
-            public boolean setViewValue(View view, Cursor cursor, int column) {
-                switch (column) {
-                    case 1: {// type image
-                        ImageView iv = (ImageView) view;
-                        int val = cursor.getInt(cursor
-                                .getColumnIndex(LunarEclipseTable.COLUMN_GLOBAL_TYPE));
-                        if ((val & 4) == 4) // LE_ECL_TOTAL
-                            iv.setImageResource(R.drawable.ic_lunar_total);
-                        else if ((val & 64) == 64) // LE_ECL_PENUMBRAL
-                            iv.setImageResource(R.drawable.ic_lunar_penumbral);
-                        else if ((val & 16) == 16) // LE_ECL_PARTIAL
-                            iv.setImageResource(R.drawable.ic_lunar_partial);
-                        else
-                            iv.setImageResource(R.drawable.ic_planet_moon);
-                        return true;
-                    }
-                    case 2: {// date
-                        TextView tv = (TextView) view;
-                        double date = cursor.getDouble(cursor
-                                .getColumnIndex(LunarEclipseTable.COLUMN_ECLIPSE_DATE));
-                        Calendar gc = new GregorianCalendar();
-                        gc.setTimeInMillis(jdUTC.jdmills(date));
-                        tv.setText(mDateFormat.format(gc.getTime()));
-                        return true;
-                    }
-                    case 3: {// type
-                        TextView tv = (TextView) view;
-                        String type = cursor.getString(cursor
-                                .getColumnIndex(LunarEclipseTable.COLUMN_ECLIPSE_TYPE));
-                        tv.setText(type);
-                        return true;
-                    }
-                    case 4: {// local
-                        ImageView iv = (ImageView) view;
-                        int l = cursor.getInt(cursor
-                                .getColumnIndex(LunarEclipseTable.COLUMN_LOCAL));
-                        if (l > 0)
-                            iv.setVisibility(View.VISIBLE);
-                        else
-                            iv.setVisibility(View.INVISIBLE);
-                        return true;
-                    }
-                }
-                return false;
-            }
-        });
-        lunarList.setAdapter(cursorAdapter);
-        lunarList.setVisibility(View.VISIBLE);
+        EclipseList list = planetsDB.getLunarEclipseList();
         planetsDB.close();
+        lunarList.setAdapter(new LunarEclipseAdapter(getActivity(), list));
+        lunarList.setVisibility(View.VISIBLE);
+        searchProgress.setVisibility(View.GONE);
     }
 }
@@ -20,6 +20,7 @@
 
 package planets.position.lunar;
 
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
@@ -47,9 +48,8 @@ import java.util.Locale;
 
 import planets.position.FragmentListener;
 import planets.position.R;
-import planets.position.database.LunarEclipseTable;
+import planets.position.database.LunarEclipseRow;
 import planets.position.database.PlanetsDatabase;
-import planets.position.database.SolarEclipseTable;
 import planets.position.database.TimeZoneDB;
 import planets.position.util.JDUTC;
 import planets.position.util.PositionFormat;
@@ -199,22 +199,30 @@ public class LunarEclipseData extends Fragment {
         double moonRise, moonSet, temp;
         Calendar gc = new GregorianCalendar();
 
-        planetsDB.open();
-        Bundle b = planetsDB.getLunarEclipse(lunarNum);
-        planetsDB.close();
+        LunarEclipseRow row;
+        Bundle args = getArguments();
+        ContentValues found = (args != null) ? (ContentValues) args.getParcelable("row") : null;
+        if (found != null) {
+            // found by a search that has not written the table yet
+            row = LunarEclipseRow.fromValues(found);
+        } else {
+            planetsDB.open();
+            row = planetsDB.getLunarEclipse(lunarNum);
+            planetsDB.close();
+        }
+        if (row == null)
+            return;
 
         planetColor = ContextCompat.getColor
                 (getActivity().getApplicationContext(), R.color.planet_set_color);
 
-        long max = jdUTC.jdmills(b.getDouble(LunarEclipseTable.COLUMN_ECLIPSE_DATE));
-        tzDB.open();
+        long max = jdUTC.jdmills(row.date);
         int off = tzDB.getZoneOffset(zoneID, max / 1000L);
         double offset = off / 60.0;
-        tzDB.close();
         gc.setTimeInMillis(max);
         leDateText.setText(mDateFormat.format(gc.getTime()));
 
-        String type = b.getString(SolarEclipseTable.COLUMN_ECLIPSE_TYPE, "");
+        String type = row.type;
         partial = type.equals("Partial");
         eclType = type;
         if (type.equals("Total")) {
@@ -222,9 +230,9 @@ public class LunarEclipseData extends Fragment {
             partial = true;
         }
         leTypeText.setText(type);
-        local = b.getInt(LunarEclipseTable.COLUMN_LOCAL, -1) > 0;
+        local = row.local > 0;
 
-        moonRise = b.getDouble(LunarEclipseTable.COLUMN_MOONRISE, 0);
+        moonRise = row.moonrise;
         if (moonRise > 0) {
             gc.setTimeInMillis(jdUTC.jdmills(moonRise, offset));
             leMoonRise.setText(String.format("%s\n%s", mDateFormat.format(gc.getTime()),
@@ -232,7 +240,7 @@ public class LunarEclipseData extends Fragment {
         } else {
             leMoonRise.setText("");
         }
-        moonSet = b.getDouble(LunarEclipseTable.COLUMN_MOONSET, 0);
+        moonSet = row.moonset;
         if (moonSet > 0) {
             gc.setTimeInMillis(jdUTC.jdmills(moonSet, offset));
             leMoonSet.setText(String.format("%s\n%s", mDateFormat.format(gc.getTime()),
@@ -240,7 +248,7 @@ public class LunarEclipseData extends Fragment {
         } else {
             leMoonSet.setText("");
         }
-        temp = b.getDouble(LunarEclipseTable.COLUMN_PENUMBRAL_BEGIN, 0);
+        temp = row.penumbralBegin;
         if (temp > 0) {
             eclStart = jdUTC.jdmills(temp, offset);
             gc.setTimeInMillis(eclStart);
@@ -253,7 +261,7 @@ public class LunarEclipseData extends Fragment {
         } else {
             leStartText.setText(" \n ");
         }
-        temp = b.getDouble(LunarEclipseTable.COLUMN_PARTIAL_BEGIN, 0);
+        temp = row.partialBegin;
         if (temp > 0) {
             gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
             lePStartText.setText(String.format("%s\n%s", mDateFormat.format(gc.getTime()),
@@ -263,7 +271,7 @@ public class LunarEclipseData extends Fragment {
                     lePStartText.setTextColor(planetColor);
                 }
         }
-        temp = b.getDouble(LunarEclipseTable.COLUMN_TOTAL_BEGIN, 0);
+        temp = row.totalBegin;
         if (temp > 0) {
             gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
             leTStartText.setText(String.format("%s\n%s", mDateFormat.format(gc.getTime()),
@@ -273,7 +281,7 @@ public class LunarEclipseData extends Fragment {
                     leTStartText.setTextColor(planetColor);
                 }
         }
-        temp = b.getDouble(LunarEclipseTable.COLUMN_MAX_ECLIPSE, 0);
+        temp = row.maxEclipse;
         if (temp > 0) {
             gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
             leMaxText.setText(String.format("%s\n%s", mDateFormat.format(gc.getTime()),
@@ -285,7 +293,7 @@ public class LunarEclipseData extends Fragment {
         } else {
             leMaxText.setText(" \n ");
         }
-        temp = b.getDouble(LunarEclipseTable.COLUMN_TOTAL_END, 0);
+        temp = row.totalEnd;
         if (temp > 0) {
             gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
             leTEndText.setText(String.format("%s\n%s", mDateFormat.format(gc.getTime()),
@@ -295,7 +303,7 @@ public class LunarEclipseData extends Fragment {
                     leTEndText.setTextColor(planetColor);
                 }
         }
-        temp = b.getDouble(LunarEclipseTable.COLUMN_PARTIAL_END, 0);
+        temp = row.partialEnd;
         if (temp > 0) {
             gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
             lePEndText.setText(String.format("%s\n%s", mDateFormat.format(gc.getTime()),
@@ -305,7 +313,7 @@ public class LunarEclipseData extends Fragment {
                     lePEndText.setTextColor(planetColor);
                 }
         }
-        temp = b.getDouble(LunarEclipseTable.COLUMN_PENUMBRAL_END, 0);
+        temp = row.penumbralEnd;
         if (temp > 0) {
             eclEnd = jdUTC.jdmills(temp, offset);
             gc.setTimeInMillis(eclEnd);
@@ -328,20 +336,20 @@ public class LunarEclipseData extends Fragment {
         if (local) {
             // local eclipse
             leLocalTime.setText(R.string.ecl_local);
-            temp = b.getDouble(LunarEclipseTable.COLUMN_MOON_AZ, 0);
+            temp = row.moonAz;
             if (temp > 0) {
                 leAzText.setText(pf.formatAZ(temp));
             } else {
                 leAzText.setText("");
             }
-            temp = b.getDouble(LunarEclipseTable.COLUMN_MOON_ALT, 0);
+            temp = row.moonAlt;
             if (temp > 0) {
                 leAltText.setText(pf.formatALT(temp));
             } else {
                 leAltText.setText("");
             }
             // penumbral magnitude
-            temp = b.getDouble(LunarEclipseTable.COLUMN_PENUMBRAL_MAG, 0);
+            temp = row.penumbralMag;
             if (temp > 0) {
                 mag = temp;
                 lePMagText.setText(String.format(Locale.getDefault(), "%.2f", temp));
@@ -350,7 +358,7 @@ public class LunarEclipseData extends Fragment {
                 lePMagText.setText("");
             }
             // umbral magnitude
-            temp = b.getDouble(LunarEclipseTable.COLUMN_UMBRAL_MAG, 0);
+            temp = row.umbralMag;
             if (temp > 0) {
                 mag = temp;
                 leUMagText.setText(String.format(Locale.getDefault(), "%.2f", temp));
@@ -359,8 +367,8 @@ public class LunarEclipseData extends Fragment {
                 leUMag.setVisibility(View.GONE);
                 leUMagText.setVisibility(View.GONE);
             }
-            leSarosText.setText(String.valueOf(b.getInt(LunarEclipseTable.COLUMN_SAROS_NUM, 0)));
-            leSarosMText.setText(String.valueOf(b.getInt(LunarEclipseTable.COLUMN_SAROS_MEMBER_NUM, 0)));
+            leSarosText.setText(String.valueOf(row.sarosNum));
+            leSarosMText.setText(String.valueOf(row.sarosMemberNum));
         } else {
             // global eclipse
             leLocalTime.setText(R.string.ecl_universal);
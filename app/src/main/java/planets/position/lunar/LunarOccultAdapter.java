@@ -0,0 +1,101 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.lunar;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import java.text.DateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import planets.position.R;
+import planets.position.database.EclipseList;
+import planets.position.util.JDUTC;
+
+/**
+ * Rows of the lunar occultation list.
+ */
+class LunarOccultAdapter extends BaseAdapter {
+
+    private final LayoutInflater mInflater;
+    private final DateFormat mDateFormat;
+    private final JDUTC jdUTC = new JDUTC();
+    private final Calendar gc = new GregorianCalendar();
+    private final EclipseList list;
+    private final List<String> planetArray;
+
+    LunarOccultAdapter(Context context, EclipseList list, List<String> planetArray) {
+        this.list = list;
+        this.planetArray = planetArray;
+        mInflater = LayoutInflater.from(context);
+        mDateFormat = android.text.format.DateFormat.getDateFormat(context);
+    }
+
+    @Override
+    public int getCount() {
+        return list.size();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return list.getDate(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return list.getId(position);
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        ViewHolder holder;
+        if (convertView == null) {
+            convertView = mInflater.inflate(R.layout.occult_list_row, parent, false);
+            holder = new ViewHolder();
+            holder.rowOccDate = convertView.findViewById(R.id.rowOccDate);
+            holder.rowOccPlanet = convertView.findViewById(R.id.rowOccPlanet);
+            holder.rowOccLocal = convertView.findViewById(R.id.rowOccLocal);
+            convertView.setTag(holder);
+        } else {
+            holder = (ViewHolder) convertView.getTag();
+        }
+
+        gc.setTimeInMillis(jdUTC.jdmills(list.getDate(position)));
+        holder.rowOccDate.setText(mDateFormat.format(gc.getTime()));
+        holder.rowOccPlanet.setText(planetArray.get(list.getKind(position) - 1));
+        holder.rowOccLocal.setVisibility(list.isLocal(position) ? View.VISIBLE : View.INVISIBLE);
+
+        return convertView;
+    }
+
+    static class ViewHolder {
+        TextView rowOccDate;
+        TextView rowOccPlanet;
+        ImageView rowOccLocal;
+    }
+}
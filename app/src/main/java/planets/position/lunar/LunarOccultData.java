@@ -20,6 +20,7 @@
 
 package planets.position.lunar;
 
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
@@ -48,7 +49,7 @@ import java.util.List;
 
 import planets.position.FragmentListener;
 import planets.position.R;
-import planets.position.database.LunarOccultationTable;
+import planets.position.database.LunarOccultRow;
 import planets.position.database.PlanetsDatabase;
 import planets.position.database.TimeZoneDB;
 import planets.position.util.JDUTC;
@@ -188,29 +189,37 @@ public class LunarOccultData extends Fragment {
         int planetColor;
         double moonRise, moonSet, temp;
         Calendar gc = new GregorianCalendar();
-        planetsDB.open();
-        Bundle b = planetsDB.getLunarOccult(occultNum);
-        planetsDB.close();
+        LunarOccultRow row;
+        Bundle args = getArguments();
+        ContentValues found = (args != null) ? (ContentValues) args.getParcelable("row") : null;
+        if (found != null) {
+            // found by a search that has not written the table yet
+            row = LunarOccultRow.fromValues(found);
+        } else {
+            planetsDB.open();
+            row = planetsDB.getLunarOccult(occultNum);
+            planetsDB.close();
+        }
+        if (row == null)
+            return;
         planetColor = ContextCompat.getColor
                 (getActivity().getApplicationContext(), R.color.planet_set_color);
 
-        long max = jdUTC.jdmills(b.getDouble(LunarOccultationTable.COLUMN_OCCULT_DATE));
-        tzDB.open();
+        long max = jdUTC.jdmills(row.date);
         int off = tzDB.getZoneOffset(zoneID, max / 1000L);
         double offset = off / 60.0;
-        tzDB.close();
         gc.setTimeInMillis(max);
         loDateText.setText(mDateFormat.format(gc.getTime()));
-        planet = b.getInt(LunarOccultationTable.COLUMN_OCCULT_PLANET, -1);
+        planet = row.planet;
         if (planet >= 0)
             loPlanetText.setText(planetArray.get(planet));
         else
             loPlanetText.setText("");
-        local = b.getInt(LunarOccultationTable.COLUMN_LOCAL, -1);
+        local = row.local;
         if (local > 0) {
             // local occultation
             loLocalTime.setText(R.string.ecl_local);
-            moonRise = b.getDouble(LunarOccultationTable.COLUMN_MOONRISE, 0);
+            moonRise = row.moonrise;
             if (moonRise > 0) {
                 gc.setTimeInMillis(jdUTC.jdmills(moonRise, offset));
                 loMoonRiseText.setText(String.format("%s\n%s", mDateFormat.format(gc.getTime()),
@@ -218,7 +227,7 @@ public class LunarOccultData extends Fragment {
             } else {
                 loMoonRiseText.setText("");
             }
-            moonSet = b.getDouble(LunarOccultationTable.COLUMN_MOONSET, 0);
+            moonSet = row.moonset;
             if (moonSet > 0) {
                 gc.setTimeInMillis(jdUTC.jdmills(moonSet, offset));
                 loMoonSetText.setText(String.format("%s\n%s", mDateFormat.format(gc.getTime()),
@@ -226,7 +235,7 @@ public class LunarOccultData extends Fragment {
             } else {
                 loMoonSetText.setText("");
             }
-            temp = b.getDouble(LunarOccultationTable.COLUMN_LOCAL_FIRST, 0);
+            temp = row.localFirst;
             if (temp > 0) {
                 eclStart = jdUTC.jdmills(temp, offset);
                 gc.setTimeInMillis(eclStart);
@@ -237,7 +246,7 @@ public class LunarOccultData extends Fragment {
             } else {
                 loStartText.setText("");
             }
-            temp = b.getDouble(LunarOccultationTable.COLUMN_LOCAL_MAX, 0);
+            temp = row.localMax;
             if (temp > 0) {
                 gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
                 loMaxText.setText(String.format("%s\n%s", mDateFormat.format(gc.getTime()),
@@ -247,7 +256,7 @@ public class LunarOccultData extends Fragment {
             } else {
                 loMaxText.setText("");
             }
-            temp = b.getDouble(LunarOccultationTable.COLUMN_LOCAL_FOURTH, 0);
+            temp = row.localFourth;
             if (temp > 0) {
                 eclEnd = jdUTC.jdmills(temp, offset);
                 gc.setTimeInMillis(eclEnd);
@@ -258,18 +267,18 @@ public class LunarOccultData extends Fragment {
             } else {
                 loEndText.setText("");
             }
-            temp = b.getDouble(LunarOccultationTable.COLUMN_MOONS_AZ, 0);
+            temp = row.moonStartAz;
             loMoonSAzText.setText(pf.formatAZ(temp));
-            temp = b.getDouble(LunarOccultationTable.COLUMN_MOONS_ALT, 0);
+            temp = row.moonStartAlt;
             loMoonSAltText.setText(pf.formatALT(temp));
-            temp = b.getDouble(LunarOccultationTable.COLUMN_MOONE_AZ, 0);
+            temp = row.moonEndAz;
             loMoonEAzText.setText(pf.formatAZ(temp));
-            temp = b.getDouble(LunarOccultationTable.COLUMN_MOONE_ALT, 0);
+            temp = row.moonEndAlt;
             loMoonEAltText.setText(pf.formatALT(temp));
         } else {
             // global occultation
             loLocalTime.setText(R.string.ecl_universal);
-            temp = b.getDouble(LunarOccultationTable.COLUMN_GLOBAL_BEGIN, 0);
+            temp = row.globalBegin;
             if (temp > 0) {
                 eclStart = jdUTC.jdmills(temp, offset);
                 gc.setTimeInMillis(eclStart);
@@ -278,7 +287,7 @@ public class LunarOccultData extends Fragment {
             } else {
                 loStartText.setText("");
             }
-            temp = b.getDouble(LunarOccultationTable.COLUMN_GLOBAL_MAX, 0);
+            temp = row.globalMax;
             if (temp > 0) {
                 gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
                 loMaxText.setText(String.format("%s\n%s", mDateFormat.format(gc.getTime()),
@@ -286,7 +295,7 @@ public class LunarOccultData extends Fragment {
             } else {
                 loMaxText.setText("");
             }
-            temp = b.getDouble(LunarOccultationTable.COLUMN_GLOBAL_END, 0);
+            temp = row.globalEnd;
             if (temp > 0) {
                 eclEnd = jdUTC.jdmills(temp, offset);
                 gc.setTimeInMillis(eclEnd);
@@ -22,53 +22,37 @@ package planets.position.lunar;
 
 import android.app.Activity;
 import android.content.ContentValues;
-import android.content.DialogInterface;
 import android.content.Intent;
-import android.graphics.Color;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffColorFilter;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.util.Log;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.ProgressBar;
-import android.widget.TextView;
+import android.util.SparseArray;
 
-import androidx.annotation.NonNull;
-import androidx.fragment.app.DialogFragment;
+import androidx.fragment.app.Fragment;
 
-import java.util.Arrays;
-import java.util.List;
-
-import planets.position.R;
+import planets.position.database.EclipseList;
 import planets.position.database.LunarOccultationTable;
 import planets.position.database.PlanetsDatabase;
+import planets.position.database.ResultCache;
+import planets.position.database.UpdateBatch;
+import planets.position.util.Ephemeris;
+import planets.position.util.EphemerisEngine;
+import planets.position.util.EphemerisSession;
 import planets.position.util.RiseSet;
 
-public class LunarOccultTask extends DialogFragment {
+public class LunarOccultTask extends Fragment {
+
+    public static final int RESULT_ROW = Activity.RESULT_FIRST_USER;
 
     private ComputeOccultTask mTask;
     private double firstEcl, lastEcl, startTime, backward;
     private boolean allPlanets = false;
     private double[] g;
     private int planetNum;
-    private List<String> planetArray;
     private RiseSet riseSet;
-    private ProgressBar pb;
-    private TextView tv;
-
-    // load c library
-    static {
-        System.loadLibrary("planets_swiss");
-    }
-
-    // c function prototypes
-    public native double[] lunarOccultLocal(double d2, double[] loc,
-                                            int planet, int back);
-
-    public native double[] lunarOccultGlobal(double d2, int planet, int back);
+    private EclipseList list;
+    // the rows found so far by _id, until the search writes the table
+    private final SparseArray<ContentValues> rows = new SparseArray<>();
 
     public void setData(ComputeOccultTask task, double[] loc, double time,
                         double back, int planet) {
@@ -77,6 +61,8 @@ public class LunarOccultTask extends DialogFragment {
         startTime = time;
         backward = back;
         planetNum = planet;
+        riseSet = new RiseSet(g);
+        list = new EclipseList(10);
         mTask.setFragment(this);
     }
 
@@ -89,54 +75,70 @@ public class LunarOccultTask extends DialogFragment {
     }
 
     @Override
-    public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
-                             Bundle savedInstanceState) {
-        View v = inflater.inflate(R.layout.progress_dialog_hor, container,
-                false);
-        tv = v.findViewById(R.id.progress_text);
-        pb = v.findViewById(R.id.progressBar);
-        if (planetNum < 2)
-            pb.setMax(8);
-        else
-            pb.setMax(10);
-        pb.getProgressDrawable().setColorFilter(new PorterDuffColorFilter(Color.LTGRAY, PorterDuff.Mode.SRC_IN));
-        planetArray = Arrays.asList(getResources().getStringArray(
-                R.array.planets_array));
-        riseSet = new RiseSet(g);
-        getDialog().setCanceledOnTouchOutside(false);
-        return v;
+    public void onResume() {
+        super.onResume();
+        if (mTask == null)
+            remove();
     }
 
     /**
-     * workaround for issue #17423
-     * https://code.google.com/p/android/issues/detail?id=17423
+     * Returns the occultations found so far in list order. Rows are added on
+     * the main thread while the search runs.
+     *
+     * @return list of the occultations found
      */
-    @Override
-    public void onDestroyView() {
-        if (getDialog() != null && getRetainInstance())
-            getDialog().setOnDismissListener(null);
-        super.onDestroyView();
+    public EclipseList getList() {
+        return list;
     }
 
-    @Override
-    public void onDismiss(@NonNull DialogInterface dialog) {
-        super.onDismiss(dialog);
-        if (mTask != null) {
+    /**
+     * Returns a row the search has found, it can be shown before the search
+     * writes the table.
+     *
+     * @param id _id of the row
+     * @return the row's columns, null if it has not been found
+     */
+    public ContentValues getRow(long id) {
+        return rows.get((int) id);
+    }
+
+    /**
+     * Stops the search.
+     */
+    public void cancel() {
+        if (mTask != null)
             mTask.cancel(false);
-        }
     }
 
-    @Override
-    public void onResume() {
-        super.onResume();
-        if (mTask == null)
-            dismiss();
+    private void remove() {
+        if (getFragmentManager() != null)
+            getFragmentManager().beginTransaction().remove(this).commit();
     }
 
-    private void taskFinished() {
+    private void rowFound(ContentValues row) {
+        rows.put(row.getAsInteger(LunarOccultationTable.COLUMN_ID), row);
+        // all planets are listed in planet order, a backward search for one
+        // planet finds the latest occultation first
+        list.add((planetNum > 1 && backward != 0) ? 0 : list.size(),
+                row.getAsLong(LunarOccultationTable.COLUMN_ID),
+                row.getAsInteger(LunarOccultationTable.COLUMN_OCCULT_PLANET),
+                row.getAsDouble(LunarOccultationTable.COLUMN_OCCULT_DATE),
+                row.getAsInteger(LunarOccultationTable.COLUMN_LOCAL) > 0, null);
+        if (getTargetFragment() != null)
+            getTargetFragment().onActivityResult(LunarOccultation.TASK_FRAGMENT, RESULT_ROW,
+                    null);
+    }
+
+    private void taskCancelled() {
+        mTask = null;
         if (isResumed())
-            dismiss();
+            remove();
+    }
+
+    private void taskFinished() {
         mTask = null;
+        if (isResumed())
+            remove();
         if (getTargetFragment() != null) {
             Intent data = new Intent();
             Bundle b = new Bundle();
@@ -149,10 +151,11 @@ public class LunarOccultTask extends DialogFragment {
         }
     }
 
-    public class ComputeOccultTask extends AsyncTask<Double, Integer, Void> {
+    public class ComputeOccultTask extends AsyncTask<Double, ContentValues, Void> {
 
         LunarOccultTask mFragment;
         PlanetsDatabase planetsDB;
+        ResultCache cache;
         private ContentValues values;
 
         void setFragment(LunarOccultTask fragment) {
@@ -163,34 +166,86 @@ public class LunarOccultTask extends DialogFragment {
         protected void onPreExecute() {
             values = new ContentValues();
             planetsDB = new PlanetsDatabase(mFragment.getActivity().getApplicationContext());
+            cache = new ResultCache(mFragment.getActivity().getApplicationContext());
         }
 
-        protected void onProgressUpdate(Integer... values) {
-            pb.setProgress(values[0]);
-            if (values[2] == 0)
-                tv.setText(String.format("Calculating the first\noccultation for %s",
-                        planetArray.get(values[1])));
-            else
-                tv.setText(String.format("Calculating occultations for %s",
-                        planetArray.get(values[1])));
+        @Override
+        protected void onProgressUpdate(ContentValues... rows) {
+            if (!this.isCancelled())
+                mFragment.rowFound(rows[0]);
         }
 
         @Override
         protected Void doInBackground(Double... params) {
-            double start, moonrise, moonset;
-            double[] data1, data2;
-            int back, i;
+            double start;
+            int back;
+            boolean complete;
 
-            planetsDB.open();
             back = (int) Math.round(params[1]);
             start = params[0];
+            String key = ResultCache.key(ResultCache.OCCULT, g, start, back, planetNum);
+            ResultCache.Entry cached = cache.get(key, LunarOccultationTable.TABLE_NAME);
+            if (cached != null) {
+                // this search was done for the location before
+                firstEcl = cached.first;
+                lastEcl = cached.last;
+                allPlanets = planetNum < 2;
+                // rows go to the list the same way a search passes them on,
+                // the cleared sun and moon rows are not listed
+                for (int i = 0; i < cached.batch.size(); i++) {
+                    if (this.isCancelled())
+                        return null;
+                    values.clear();
+                    values.putAll(cached.batch.getValues(i));
+                    Integer planet = values.getAsInteger(LunarOccultationTable.COLUMN_OCCULT_PLANET);
+                    if (planet != null && planet > -1)
+                        publishRow(cached.batch.getRow(i));
+                }
+                if (this.isCancelled())
+                    return null;
+                planetsDB.open();
+                planetsDB.write(cached.batch);
+                planetsDB.close();
+                return null;
+            }
+            EphemerisEngine engine = Ephemeris.getEngine();
+            EphemerisSession session = EphemerisSession.open();
+            UpdateBatch batch = new UpdateBatch(LunarOccultationTable.TABLE_NAME);
+
+            try {
+                complete = search(engine, batch, start, back);
+            } finally {
+                session.close();
+            }
+            // the search replacing a cancelled one writes the table
+            if (this.isCancelled())
+                return null;
+            // one transaction for the whole list
+            planetsDB.open();
+            planetsDB.write(batch);
+            planetsDB.close();
+            if (complete)
+                cache.put(key, batch, firstEcl, lastEcl);
+            return null;
+        }
+
+        /**
+         * Searches the occultations into the batch and publishes each row.
+         *
+         * @return true if the whole list was found
+         */
+        private boolean search(EphemerisEngine engine, UpdateBatch batch, double start,
+                               int back) {
+            double moonrise, moonset;
+            double[] data1, data2;
+            int i;
+            boolean complete;
 
             if (planetNum > 1) {
                 // compute occultations for the given planet
-                publishProgress(0, planetNum, 1);
                 allPlanets = false;
                 // compute first local eclipse
-                data2 = lunarOccultLocal(start, g, planetNum, back);
+                data2 = engine.occultationLocal(start, g, planetNum, back);
                 if (data2 == null) {
                     Log.e("Lunar Occultation error",
                             "lunarOccultLocal data2 error");
@@ -198,7 +253,7 @@ public class LunarOccultTask extends DialogFragment {
                         getTargetFragment().onActivityResult(
                                 LunarOccultation.TASK_FRAGMENT, 100, null);
                     }
-                    return null;
+                    return false;
                 }
 
                 for (i = 0; i < 10; i++) {
@@ -213,7 +268,7 @@ public class LunarOccultTask extends DialogFragment {
                     values.clear();
 
                     // Global Occultation Calculation
-                    data1 = lunarOccultGlobal(start, planetNum, back);
+                    data1 = engine.occultationGlobal(start, planetNum, back);
                     if (data1 == null) {
                         Log.e("Lunar Occultation error",
                                 "lunarOccultGlobal data1 error");
@@ -271,7 +326,7 @@ public class LunarOccultTask extends DialogFragment {
                         else
                             start = data1[1] - 2.0;
 
-                        data2 = lunarOccultLocal(start, g, planetNum, back);
+                        data2 = engine.occultationLocal(start, g, planetNum, back);
                         if (data2 == null) {
                             Log.e("Lunar Occultation error",
                                     "computeOccultations data2a error");
@@ -312,15 +367,15 @@ public class LunarOccultTask extends DialogFragment {
                         else
                             start = data1[1] - 2.0;
                     }
-                    planetsDB.addLunarOccult(values, i);
-                    publishProgress(i + 1, planetNum, 1);
+                    batch.update(i, values);
+                    publishRow(i);
                 }
+                complete = i == 10;
             } else {
                 // compute occultations for all planets
                 firstEcl = start;
                 lastEcl = start;
                 allPlanets = true;
-                publishProgress(0, 2, 0);
                 for (i = 0; i < 8; i++) {
                     if (this.isCancelled()) {
                         if (getTargetFragment() != null) {
@@ -333,7 +388,7 @@ public class LunarOccultTask extends DialogFragment {
                     values.clear();
 
                     // Local Occultation Calculation
-                    data2 = lunarOccultLocal(start, g, i + 2, back);
+                    data2 = engine.occultationLocal(start, g, i + 2, back);
                     if (data2 == null) {
                         Log.e("Lunar Occultation error",
                                 "lunarOccultLocal data2 error");
@@ -345,7 +400,7 @@ public class LunarOccultTask extends DialogFragment {
                     }
 
                     // Global Occultation Calculation
-                    data1 = lunarOccultGlobal(start, i + 2, back);
+                    data1 = engine.occultationGlobal(start, i + 2, back);
                     if (data1 == null) {
                         Log.e("Lunar Occultation error",
                                 "lunarOccultGlobal data1 error");
@@ -412,18 +467,30 @@ public class LunarOccultTask extends DialogFragment {
                         values.put(LunarOccultationTable.COLUMN_OCCULT_DATE, data1[1]);
                         values.put(LunarOccultationTable.COLUMN_OCCULT_PLANET, i + 2);
                     }
-                    planetsDB.addLunarOccult(values, i + 2);
-                    if (i + 1 < 8)
-                        publishProgress(i + 1, i + 3, 0);
+                    batch.update(i + 2, values);
+                    publishRow(i + 2);
                 }
+                complete = i == 8;
                 // clears values in database for sun and moon
                 values.clear();
                 values.put(LunarOccultationTable.COLUMN_OCCULT_PLANET, -1);
-                planetsDB.addLunarOccult(values, 0);
-                planetsDB.addLunarOccult(values, 1);
+                batch.update(0, values);
+                batch.update(1, values);
             }
-            planetsDB.close();
-            return null;
+            return complete;
+        }
+
+        // passes row id of the table on to the list
+        private void publishRow(int id) {
+            ContentValues row = new ContentValues(values);
+            row.put(LunarOccultationTable.COLUMN_ID, id);
+            publishProgress(row);
+        }
+
+        @Override
+        protected void onCancelled(Void result) {
+            if (mFragment != null)
+                mFragment.taskCancelled();
         }
 
         @Override
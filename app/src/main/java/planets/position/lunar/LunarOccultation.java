@@ -21,10 +21,10 @@
 package planets.position.lunar;
 
 import android.app.Activity;
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -36,28 +36,25 @@ import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemClickListener;
 import android.widget.ArrayAdapter;
-import android.widget.ImageView;
+import android.widget.BaseAdapter;
 import android.widget.ListView;
+import android.widget.ProgressBar;
 import android.widget.Spinner;
-import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.cursoradapter.widget.SimpleCursorAdapter;
 import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
 import androidx.preference.PreferenceManager;
 
-import java.text.DateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.GregorianCalendar;
 import java.util.List;
 
 import planets.position.FragmentListener;
 import planets.position.R;
-import planets.position.database.LunarOccultationTable;
+import planets.position.database.EclipseList;
 import planets.position.database.PlanetsDatabase;
 import planets.position.database.TimeZoneDB;
 import planets.position.util.JDUTC;
@@ -74,18 +71,18 @@ public class LunarOccultation extends Fragment {
     private FragmentManager mFM;
     private MenuItem next, previous;
     private ListView occultList;
+    private ProgressBar searchProgress;
     private List<String> planetArray;
     private LunarOccultTask taskFragment;
     private LunarOccultData occultData;
     private TimeZoneDB tzDB;
-    private double offset, firstDate, lastDate;
+    private double offset, firstDate, lastDate, startDate, startBack;
     private final double[] g = new double[3];
     private double[] time;
     private boolean allPlanets, newLoc;
     private int planetNum = 1, zoneID, spinnerPos = -1;
     private PlanetsDatabase planetsDB;
     private SharedPreferences settings;
-    private DateFormat mDateFormat;
     private JDUTC jdUTC;
 
     @Override
@@ -96,12 +93,21 @@ public class LunarOccultation extends Fragment {
 
         Spinner planetsSpinner = v.findViewById(R.id.planetsSpinner);
         occultList = v.findViewById(R.id.occultList);
+        searchProgress = v.findViewById(R.id.searchProgress);
         planetArray = Arrays.asList(getResources().getStringArray(
                 R.array.occult_array));
 
         occultList.setOnItemClickListener(new OnItemClickListener() {
             public void onItemClick(AdapterView<?> parent, View v,
                                     int position, long id) {
+                // a row of a running search is shown from the task until
+                // the search writes the table
+                ContentValues row = null;
+                if (taskFragment != null) {
+                    row = taskFragment.getRow(id);
+                    if (row == null)
+                        return;
+                }
                 // display occultation data
                 FragmentTransaction ft = null;
                 if (getFragmentManager() != null) {
@@ -110,6 +116,8 @@ public class LunarOccultation extends Fragment {
                 occultData = new LunarOccultData();
                 Bundle args = new Bundle();
                 args.putLong("occultNum", id);
+                if (row != null)
+                    args.putParcelable("row", row);
                 args.putInt("zoneID", zoneID);
                 occultData.setArguments(args);
                 if (ft != null) {
@@ -140,12 +148,9 @@ public class LunarOccultation extends Fragment {
                     spinnerPos = position;
                     planetNum = position + 1;
                     Calendar c = Calendar.getInstance();
-                    tzDB.open();
                     int off = tzDB.getZoneOffset(zoneID, c.getTimeInMillis() / 1000L);
                     offset = off / 60.0;
-                    tzDB.close();
                     time = jdUTC.getCurrentTime(offset);
-                    occultList.setVisibility(View.INVISIBLE);
                     launchTask(time[1], 0.0, planetNum);
                 }
             }
@@ -172,12 +177,15 @@ public class LunarOccultation extends Fragment {
         }
         if (taskFragment != null) {
             taskFragment.setTargetFragment(this, TASK_FRAGMENT);
+            showTask();
         } else {
             loadOccults();
         }
 
         if (firstDate == 0)
             firstDate = time[1];
+        if (startDate == 0)
+            startDate = firstDate;
 
         return v;
     }
@@ -186,14 +194,16 @@ public class LunarOccultation extends Fragment {
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         jdUTC = new JDUTC();
-        // Get date and time formats from system
-        mDateFormat = android.text.format.DateFormat
-                .getDateFormat(getActivity().getApplicationContext());
         tzDB = new TimeZoneDB(getActivity().getApplicationContext());
         // Restore preferences
         settings = PreferenceManager.getDefaultSharedPreferences(getActivity().getApplicationContext());
         firstDate = settings.getFloat("loFirstDate", 0);
         lastDate = settings.getFloat("loLastDate", 0);
+        // the date and direction of the last search, kept at full precision
+        // as they are part of the result cache key
+        startDate = Double.longBitsToDouble(settings.getLong("loStartDate",
+                Double.doubleToLongBits(firstDate)));
+        startBack = settings.getFloat("loStartBack", 0);
         allPlanets = settings.getBoolean("loAllPlanets", true);
         planetNum = settings.getInt("loPlanetNum", 1);
         setHasOptionsMenu(true);
@@ -209,6 +219,14 @@ public class LunarOccultation extends Fragment {
         outState.putInt("spinnerPos", spinnerPos);
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // leaving the screen stops the search, a configuration change keeps it
+        if (taskFragment != null && !getActivity().isChangingConfigurations())
+            taskFragment.cancel();
+    }
+
     @Override
     public void onAttach(@NonNull Context context) {
         super.onAttach(context);
@@ -231,8 +249,7 @@ public class LunarOccultation extends Fragment {
             editor.putBoolean("newLocation", false);
             editor.apply();
             newLoc = false;
-            occultList.setVisibility(View.INVISIBLE);
-            launchTask(firstDate, 0.0, planetNum);
+            launchTask(startDate, startBack, planetNum);
         }
         super.onResume();
     }
@@ -247,12 +264,9 @@ public class LunarOccultation extends Fragment {
                 allPlanets = (resultCode == 0);
                 getActivity().invalidateOptionsMenu();
                 c = Calendar.getInstance();
-                tzDB.open();
                 off = tzDB.getZoneOffset(zoneID, c.getTimeInMillis() / 1000L);
                 offset = off / 60.0;
-                tzDB.close();
                 time = jdUTC.getCurrentTime(offset);
-                occultList.setVisibility(View.INVISIBLE);
                 launchTask(time[1], 0.0, planetNum);
                 break;
             case DATE_FRAGMENT:
@@ -263,16 +277,13 @@ public class LunarOccultation extends Fragment {
                         data.getIntExtra("month", 0),
                         data.getIntExtra("day", 0));
                 // convert local time to utc
-                tzDB.open();
                 off = tzDB.getZoneOffset(zoneID, c.getTimeInMillis() / 1000L);
                 offset = off / 60.0;
-                tzDB.close();
                 c.add(Calendar.MINUTE, (int) (offset * -1));
                 time = jdUTC.utcjd(c.get(Calendar.MONTH) + 1,
                         c.get(Calendar.DAY_OF_MONTH), c.get(Calendar.YEAR),
                         c.get(Calendar.HOUR_OF_DAY), c.get(Calendar.MINUTE),
                         c.get(Calendar.SECOND));
-                occultList.setVisibility(View.INVISIBLE);
                 launchTask(time[1], 0.0, planetNum);
                 break;
             case TASK_FRAGMENT:
@@ -293,6 +304,9 @@ public class LunarOccultation extends Fragment {
                         editor.apply();
                         loadOccults();
                         break;
+                    case LunarOccultTask.RESULT_ROW:
+                        ((BaseAdapter) occultList.getAdapter()).notifyDataSetChanged();
+                        break;
                     case Activity.RESULT_CANCELED:
                         Log.e(TASK_FRAGMENT_TAG, "Lunar occultation task canceled.");
                         break;
@@ -369,11 +383,9 @@ public class LunarOccultation extends Fragment {
         // Handle item selection
         switch (item.getItemId()) {
             case R.id.action_previous:
-                occultList.setVisibility(View.INVISIBLE);
                 launchTask(firstDate, 1.0, planetNum);
                 return true;
             case R.id.action_next:
-                occultList.setVisibility(View.INVISIBLE);
                 launchTask(lastDate, 0.0, planetNum);
                 return true;
             case R.id.action_calendar:
@@ -400,64 +412,39 @@ public class LunarOccultation extends Fragment {
     }
 
     private void launchTask(double time, double back, int planet) {
-        taskFragment = (LunarOccultTask) mFM.findFragmentByTag(TASK_FRAGMENT_TAG);
-        if (taskFragment == null) {
-            taskFragment = new LunarOccultTask();
-            taskFragment.setData(taskFragment.new ComputeOccultTask(), g, time, back, planet);
-            taskFragment.setTargetFragment(this, TASK_FRAGMENT);
-            taskFragment.setStyle(DialogFragment.STYLE_NO_TITLE, 0);
-            taskFragment.show(mFM, TASK_FRAGMENT_TAG);
+        startDate = time;
+        startBack = back;
+        SharedPreferences.Editor editor = settings.edit();
+        editor.putLong("loStartDate", Double.doubleToLongBits(startDate));
+        editor.putFloat("loStartBack", (float) startBack);
+        editor.apply();
+        if (taskFragment != null) {
+            // the new search replaces the one still running
+            taskFragment.setTargetFragment(null, 0);
+            taskFragment.cancel();
+            mFM.beginTransaction().remove(taskFragment).commit();
         }
+        taskFragment = new LunarOccultTask();
+        taskFragment.setData(taskFragment.new ComputeOccultTask(), g, time, back, planet);
+        taskFragment.setTargetFragment(this, TASK_FRAGMENT);
+        mFM.beginTransaction().add(taskFragment, TASK_FRAGMENT_TAG).commit();
+        showTask();
+    }
+
+    // shows the rows of the running search as they are found
+    private void showTask() {
+        occultList.setAdapter(new LunarOccultAdapter(getActivity(), taskFragment.getList(),
+                planetArray));
+        occultList.setVisibility(View.VISIBLE);
+        searchProgress.setVisibility(View.VISIBLE);
     }
 
     private void loadOccults() {
-        SimpleCursorAdapter cursorAdapter;
         planetsDB.open();
-        Cursor loCursor = planetsDB.getLunarOccultList();
-        String[] from = new String[]{
-                LunarOccultationTable.COLUMN_OCCULT_DATE,
-                LunarOccultationTable.COLUMN_OCCULT_PLANET,
-                LunarOccultationTable.COLUMN_LOCAL};
-        int[] to = new int[]{R.id.rowOccDate,
-                R.id.rowOccPlanet, R.id.rowOccLocal};
-        cursorAdapter = new SimpleCursorAdapter(getActivity().getApplicationContext(),
-                R.layout.occult_list_row, loCursor, from, to, 0);
-        // customize the fields
-        cursorAdapter.setViewBinder(new SimpleCursorAdapter.ViewBinder() {
-            @Override
-            public boolean setViewValue(View view, Cursor cursor, int column) {
-                switch (column) {
-                    case 1: {// date
-                        TextView tv = (TextView) view;
-                        double date = cursor.getDouble(cursor
-                                .getColumnIndex(LunarOccultationTable.COLUMN_OCCULT_DATE));
-                        Calendar gc = new GregorianCalendar();
-                        gc.setTimeInMillis(jdUTC.jdmills(date));
-                        tv.setText(mDateFormat.format(gc.getTime()));
-                        return true;
-                    }
-                    case 2: {// planet
-                        TextView tv = (TextView) view;
-                        int i = cursor.getInt(cursor
-                                .getColumnIndex(LunarOccultationTable.COLUMN_OCCULT_PLANET));
-                        tv.setText(planetArray.get(i - 1));
-                        return true;
-                    }
-                    case 3: // local
-                        ImageView iv = (ImageView) view;
-                        int l = cursor.getInt(cursor
-                                .getColumnIndex(LunarOccultationTable.COLUMN_LOCAL));
-                        if (l > 0)
-                            iv.setVisibility(View.VISIBLE);
-                        else
-                            iv.setVisibility(View.INVISIBLE);
-                        return true;
-                }
-                return false;
-            }
-        });
-        occultList.setAdapter(cursorAdapter);
-        occultList.setVisibility(View.VISIBLE);
+        EclipseList list = planetsDB.getLunarOccultList();
         planetsDB.close();
+        occultList.setAdapter(new LunarOccultAdapter(getActivity(), list, planetArray));
+        occultList.setVisibility(View.VISIBLE);
+        searchProgress.setVisibility(View.GONE);
     }
 }
@@ -21,10 +21,10 @@
 package planets.position.solar;
 
 import android.app.Activity;
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -35,26 +35,23 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemClickListener;
-import android.widget.ImageView;
+import android.widget.BaseAdapter;
 import android.widget.ListView;
-import android.widget.TextView;
+import android.widget.ProgressBar;
 
 import androidx.annotation.NonNull;
-import androidx.cursoradapter.widget.SimpleCursorAdapter;
 import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
 import androidx.preference.PreferenceManager;
 
-import java.text.DateFormat;
 import java.util.Calendar;
-import java.util.GregorianCalendar;
 
 import planets.position.FragmentListener;
 import planets.position.R;
+import planets.position.database.EclipseList;
 import planets.position.database.PlanetsDatabase;
-import planets.position.database.SolarEclipseTable;
 import planets.position.database.TimeZoneDB;
 import planets.position.util.JDUTC;
 import planets.position.util.PlanetDatePicker;
@@ -71,13 +68,13 @@ public class SolarEclipse extends Fragment {
     private SolarEclipseData eclipseData;
     private TimeZoneDB tzDB;
     private ListView solarList;
-    private double offset, firstDate, lastDate;
+    private ProgressBar searchProgress;
+    private double offset, firstDate, lastDate, startDate, startBack;
     private int zoneID;
     private final double[] g = new double[3];
     private double[] time;
     private boolean firstRun, newLoc;
     private PlanetsDatabase planetsDB;
-    private DateFormat mDateFormat;
     private SharedPreferences settings;
     private JDUTC jdUTC;
 
@@ -86,10 +83,19 @@ public class SolarEclipse extends Fragment {
                              Bundle savedInstanceState) {
         View v = inflater.inflate(R.layout.fragment_eclipse, container, false);
         solarList = v.findViewById(R.id.eclipseList);
+        searchProgress = v.findViewById(R.id.searchProgress);
 
         solarList.setOnItemClickListener(new OnItemClickListener() {
             public void onItemClick(AdapterView<?> parent, View v,
                                     int position, long id) {
+                // a row of a running search is shown from the task until
+                // the search writes the table
+                ContentValues row = null;
+                if (taskFragment != null) {
+                    row = taskFragment.getRow(id);
+                    if (row == null)
+                        return;
+                }
                 // display eclipse data
                 FragmentTransaction ft = null;
                 if (getFragmentManager() != null) {
@@ -98,6 +104,8 @@ public class SolarEclipse extends Fragment {
                 eclipseData = new SolarEclipseData();
                 Bundle args = new Bundle();
                 args.putLong("solarNum", id);
+                if (row != null)
+                    args.putParcelable("row", row);
                 args.putInt("zoneID", zoneID);
                 args.putDouble("latitude", g[1]);
                 args.putDouble("longitude", g[0]);
@@ -131,9 +139,9 @@ public class SolarEclipse extends Fragment {
 
         if (taskFragment != null) {
             taskFragment.setTargetFragment(this, TASK_FRAGMENT);
+            showTask();
         } else {
             if (firstRun) {
-                solarList.setVisibility(View.INVISIBLE);
                 launchTask(time[1], 0.0);
             } else {
                 loadEclipses();
@@ -148,8 +156,6 @@ public class SolarEclipse extends Fragment {
         super.onCreate(savedInstanceState);
 
         jdUTC = new JDUTC();
-        mDateFormat = android.text.format.DateFormat
-                .getDateFormat(getActivity().getApplicationContext());
         tzDB = new TimeZoneDB(getActivity().getApplicationContext());
         planetsDB = new PlanetsDatabase(getActivity().getApplicationContext());
         settings = PreferenceManager.getDefaultSharedPreferences(getActivity().getApplicationContext());
@@ -157,6 +163,11 @@ public class SolarEclipse extends Fragment {
         firstRun = settings.getBoolean("seFirstRun", true);
         firstDate = settings.getFloat("seFirstDate", 0);
         lastDate = settings.getFloat("seLastDate", 0);
+        // the date and direction of the last search, kept at full precision
+        // as they are part of the result cache key
+        startDate = Double.longBitsToDouble(settings.getLong("seStartDate",
+                Double.doubleToLongBits(firstDate)));
+        startBack = settings.getFloat("seStartBack", 0);
 
         setHasOptionsMenu(true);
         setRetainInstance(true);
@@ -179,12 +190,19 @@ public class SolarEclipse extends Fragment {
             editor.putBoolean("newLocation", false);
             editor.apply();
             newLoc = false;
-            solarList.setVisibility(View.INVISIBLE);
-            launchTask(firstDate, 0.0);
+            launchTask(startDate, startBack);
         }
         super.onResume();
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // leaving the screen stops the search, a configuration change keeps it
+        if (taskFragment != null && !getActivity().isChangingConfigurations())
+            taskFragment.cancel();
+    }
+
     @Override
     public void onAttach(@NonNull Context context) {
         super.onAttach(context);
@@ -208,16 +226,13 @@ public class SolarEclipse extends Fragment {
                     data.getIntExtra("month", 0),
                     data.getIntExtra("day", 0));
             // convert local time to utc
-            tzDB.open();
             int off = tzDB.getZoneOffset(zoneID, c.getTimeInMillis() / 1000L);
             offset = off / 60.0;
-            tzDB.close();
             c.add(Calendar.MINUTE, (int) (offset * -1));
             time = jdUTC.utcjd(c.get(Calendar.MONTH) + 1,
                     c.get(Calendar.DAY_OF_MONTH), c.get(Calendar.YEAR),
                     c.get(Calendar.HOUR_OF_DAY), c.get(Calendar.MINUTE),
                     c.get(Calendar.SECOND));
-            solarList.setVisibility(View.INVISIBLE);
             launchTask(time[1], 0.0);
         } else if (requestCode == TASK_FRAGMENT) {
             switch (resultCode) {
@@ -234,6 +249,9 @@ public class SolarEclipse extends Fragment {
                     firstRun = false;
                     loadEclipses();
                     break;
+                case SolarEclipseTask.RESULT_ROW:
+                    ((BaseAdapter) solarList.getAdapter()).notifyDataSetChanged();
+                    break;
                 case Activity.RESULT_CANCELED:
                     Log.e(TASK_FRAGMENT_TAG, "Solar eclipse task canceled.");
                     break;
@@ -276,11 +294,9 @@ public class SolarEclipse extends Fragment {
         // Handle item selection
         switch (item.getItemId()) {
             case R.id.action_previous:
-                solarList.setVisibility(View.INVISIBLE);
                 launchTask(firstDate, 1.0);
                 return true;
             case R.id.action_next:
-                solarList.setVisibility(View.INVISIBLE);
                 launchTask(lastDate, 0.0);
                 return true;
             case R.id.action_calendar:
@@ -307,85 +323,39 @@ public class SolarEclipse extends Fragment {
     }
 
     private void launchTask(double time, double back) {
-        taskFragment = (SolarEclipseTask) mFM.findFragmentByTag(TASK_FRAGMENT_TAG);
-        if (taskFragment == null) {
-            taskFragment = new SolarEclipseTask();
-            taskFragment.setData(taskFragment.new ComputeEclipseTask(), g, time,
-                    back);
-            taskFragment.setTargetFragment(this, TASK_FRAGMENT);
-            taskFragment.setStyle(DialogFragment.STYLE_NO_TITLE, 0);
-            taskFragment.show(mFM, TASK_FRAGMENT_TAG);
+        startDate = time;
+        startBack = back;
+        SharedPreferences.Editor editor = settings.edit();
+        editor.putLong("seStartDate", Double.doubleToLongBits(startDate));
+        editor.putFloat("seStartBack", (float) startBack);
+        editor.apply();
+        if (taskFragment != null) {
+            // the new search replaces the one still running
+            taskFragment.setTargetFragment(null, 0);
+            taskFragment.cancel();
+            mFM.beginTransaction().remove(taskFragment).commit();
         }
+        taskFragment = new SolarEclipseTask();
+        taskFragment.setData(taskFragment.new ComputeEclipseTask(), g, time, back);
+        taskFragment.setTargetFragment(this, TASK_FRAGMENT);
+        mFM.beginTransaction().add(taskFragment, TASK_FRAGMENT_TAG).commit();
+        showTask();
+    }
+
+    // shows the rows of the running search as they are found
+    private void showTask() {
+        solarList.setAdapter(new SolarEclipseAdapter(getActivity(), taskFragment.getList()));
+        solarList.setVisibility(View.VISIBLE);
+        searchProgress.setVisibility(View.VISIBLE);
     }
 
     private void loadEclipses() {
-        SimpleCursorAdapter cursorAdapter;
         planetsDB.open();
-        Cursor seCursor = planetsDB.getSolarEclipseList();
-        String[] from = new String[]{SolarEclipseTable.COLUMN_GLOBAL_TYPE,
-                SolarEclipseTable.COLUMN_ECLIPSE_DATE,
-                SolarEclipseTable.COLUMN_ECLIPSE_TYPE,
-                SolarEclipseTable.COLUMN_LOCAL};
-        int[] to = new int[]{R.id.rowEclImage, R.id.rowEclDate,
-                R.id.rowEclType, R.id.rowEclLocal};
-        cursorAdapter = new SimpleCursorAdapter(getActivity().getApplicationContext(),
-                R.layout.eclipse_list_row, seCursor, from, to, 0);
-        // customize the fields
-        cursorAdapter.setViewBinder(new SimpleCursorAdapter.ViewBinder() {
-            @Override
-            public boolean setViewValue(View view, Cursor cursor, int column) {
-                switch (column) {
-                    case 1: {// type image
-                        ImageView iv = (ImageView) view;
-                        int val = cursor.getInt(cursor
-                                .getColumnIndex(SolarEclipseTable.COLUMN_GLOBAL_TYPE));
-                        if ((val & 4) == 4) // SE_ECL_TOTAL
-                            iv.setImageResource(R.drawable.ic_solar_total);
-                        else if ((val & 8) == 8 || (val & 32) == 32) // SE_ECL_ANNULAR
-                            iv.setImageResource(R.drawable.ic_solar_annular);
-                        else if ((val & 16) == 16) // SE_ECL_PARTIAL
-                            iv.setImageResource(R.drawable.ic_solar_partial);
-                        else
-                            iv.setImageResource(R.drawable.ic_planet_sun);
-                        return true;
-                    }
-                    case 2: {// date
-                        TextView tv = (TextView) view;
-                        double date = cursor.getDouble(cursor
-                                .getColumnIndex(SolarEclipseTable.COLUMN_ECLIPSE_DATE));
-                        Calendar gc = new GregorianCalendar();
-                        gc.setTimeInMillis(jdUTC.jdmills(date));
-                        tv.setText(mDateFormat.format(gc.getTime()));
-                        return true;
-                    }
-                    case 3: {// type
-                        TextView tv = (TextView) view;
-                        String type = cursor.getString(cursor
-                                .getColumnIndex(SolarEclipseTable.COLUMN_ECLIPSE_TYPE));
-                        if (type.contains("|")) {
-                            tv.setText(type.split("\\|")[0]);
-                        } else {
-                            tv.setText(type);
-                        }
-                        return true;
-                    }
-                    case 4: {// local
-                        ImageView iv = (ImageView) view;
-                        int l = cursor.getInt(cursor
-                                .getColumnIndex(SolarEclipseTable.COLUMN_LOCAL));
-                        if (l > 0)
-                            iv.setVisibility(View.VISIBLE);
-                        else
-                            iv.setVisibility(View.INVISIBLE);
-                        return true;
-                    }
-                }
-                return false;
-            }
-        });
-        solarList.setAdapter(cursorAdapter);
-        solarList.setVisibility(View.VISIBLE);
+        EclipseList list = planetsDB.getSolarEclipseList();
         planetsDB.close();
+        solarList.setAdapter(new SolarEclipseAdapter(getActivity(), list));
+        solarList.setVisibility(View.VISIBLE);
+        searchProgress.setVisibility(View.GONE);
     }
 
 }
@@ -0,0 +1,114 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.solar;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import java.text.DateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import planets.position.R;
+import planets.position.database.EclipseList;
+import planets.position.util.JDUTC;
+
+/**
+ * Rows of the solar eclipse list.
+ */
+class SolarEclipseAdapter extends BaseAdapter {
+
+    private final LayoutInflater mInflater;
+    private final DateFormat mDateFormat;
+    private final JDUTC jdUTC = new JDUTC();
+    private final Calendar gc = new GregorianCalendar();
+    private final EclipseList list;
+
+    SolarEclipseAdapter(Context context, EclipseList list) {
+        this.list = list;
+        mInflater = LayoutInflater.from(context);
+        mDateFormat = android.text.format.DateFormat.getDateFormat(context);
+    }
+
+    @Override
+    public int getCount() {
+        return list.size();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return list.getDate(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return list.getId(position);
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        ViewHolder holder;
+        if (convertView == null) {
+            convertView = mInflater.inflate(R.layout.eclipse_list_row, parent, false);
+            holder = new ViewHolder();
+            holder.rowEclImage = convertView.findViewById(R.id.rowEclImage);
+            holder.rowEclDate = convertView.findViewById(R.id.rowEclDate);
+            holder.rowEclType = convertView.findViewById(R.id.rowEclType);
+            holder.rowEclLocal = convertView.findViewById(R.id.rowEclLocal);
+            convertView.setTag(holder);
+        } else {
+            holder = (ViewHolder) convertView.getTag();
+        }
+
+        int val = list.getKind(position);
+        if ((val & 4) == 4) // SE_ECL_TOTAL
+            holder.rowEclImage.setImageResource(R.drawable.ic_solar_total);
+        else if ((val & 8) == 8 || (val & 32) == 32) // SE_ECL_ANNULAR
+            holder.rowEclImage.setImageResource(R.drawable.ic_solar_annular);
+        else if ((val & 16) == 16) // SE_ECL_PARTIAL
+            holder.rowEclImage.setImageResource(R.drawable.ic_solar_partial);
+        else
+            holder.rowEclImage.setImageResource(R.drawable.ic_planet_sun);
+        gc.setTimeInMillis(jdUTC.jdmills(list.getDate(position)));
+        holder.rowEclDate.setText(mDateFormat.format(gc.getTime()));
+        String type = list.getType(position);
+        if (type.contains("|")) {
+            holder.rowEclType.setText(type.split("\\|")[0]);
+        } else {
+            holder.rowEclType.setText(type);
+        }
+        holder.rowEclLocal.setVisibility(list.isLocal(position) ? View.VISIBLE : View.INVISIBLE);
+
+        return convertView;
+    }
+
+    static class ViewHolder {
+        ImageView rowEclImage;
+        TextView rowEclDate;
+        TextView rowEclType;
+        ImageView rowEclLocal;
+    }
+}
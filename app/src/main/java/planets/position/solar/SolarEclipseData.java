@@ -20,6 +20,7 @@
 
 package planets.position.solar;
 
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
@@ -48,7 +49,7 @@ import java.util.Locale;
 import planets.position.FragmentListener;
 import planets.position.R;
 import planets.position.database.PlanetsDatabase;
-import planets.position.database.SolarEclipseTable;
+import planets.position.database.SolarEclipseRow;
 import planets.position.database.TimeZoneDB;
 import planets.position.util.JDUTC;
 import planets.position.util.PositionFormat;
@@ -219,23 +220,31 @@ public class SolarEclipseData extends Fragment {
         double sunrise, sunset, temp;
         Calendar gc = new GregorianCalendar();
 
-        planetsDB.open();
-        Bundle b = planetsDB.getSolarEclipse(solarNum);
-        planetsDB.close();
+        SolarEclipseRow row;
+        Bundle args = getArguments();
+        ContentValues found = (args != null) ? (ContentValues) args.getParcelable("row") : null;
+        if (found != null) {
+            // found by a search that has not written the table yet
+            row = SolarEclipseRow.fromValues(found);
+        } else {
+            planetsDB.open();
+            row = planetsDB.getSolarEclipse(solarNum);
+            planetsDB.close();
+        }
+        if (row == null)
+            return;
 
         planetColor = ContextCompat.getColor
                 (getActivity().getApplicationContext(), R.color.planet_set_color);
 
-        long max = jdUTC.jdmills(b.getDouble(SolarEclipseTable.COLUMN_ECLIPSE_DATE));
-        tzDB.open();
+        long max = jdUTC.jdmills(row.date);
         int off = tzDB.getZoneOffset(zoneID, max / 1000L);
         double offset = off / 60.0;
-        tzDB.close();
         gc.setTimeInMillis(max);
         eclDate = gc.getTimeInMillis();
         seDateText.setText(mDateFormat.format(gc.getTime()));
 
-        String type = b.getString(SolarEclipseTable.COLUMN_ECLIPSE_TYPE, "");
+        String type = row.type;
         if (type.contains("|")) {
             gTotal = type.split("\\|")[0].equals("Total");
             lTotal = type.split("\\|")[1].equals("Total");
@@ -251,35 +260,35 @@ public class SolarEclipseData extends Fragment {
             eclLocalType = "";
             seTypeText.setText(type);
         }
-        centerBegin = b.getDouble(SolarEclipseTable.COLUMN_GLOBAL_CENTER_BEGIN, 0);
-        centerEnd = b.getDouble(SolarEclipseTable.COLUMN_GLOBAL_CENTER_END, 0);
+        centerBegin = row.globalCenterBegin;
+        centerEnd = row.globalCenterEnd;
         // partial eclipse path start and end
         if (centerBegin == 0 || centerEnd == 0) {
-            centerBegin = b.getDouble(SolarEclipseTable.COLUMN_GLOBAL_BEGIN, 0);
-            centerEnd = b.getDouble(SolarEclipseTable.COLUMN_GLOBAL_END, 0);
+            centerBegin = row.globalBegin;
+            centerEnd = row.globalEnd;
         }
-        local = b.getInt(SolarEclipseTable.COLUMN_LOCAL, -1);
+        local = row.local;
         if (local > 0) {
             // local eclipse
             seLocalTime.setText(R.string.ecl_local);
             if (!lTotal) {
                 seTotalLayout.setVisibility(View.GONE);
             }
-            sunrise = b.getDouble(SolarEclipseTable.COLUMN_SUNRISE, 0);
+            sunrise = row.sunrise;
             if (sunrise > 0) {
                 gc.setTimeInMillis(jdUTC.jdmills(sunrise, offset));
                 seSunRiseText.setText(mTimeFormat.format(gc.getTime()));
             } else {
                 seSunRiseText.setText("");
             }
-            sunset = b.getDouble(SolarEclipseTable.COLUMN_SUNSET, 0);
+            sunset = row.sunset;
             if (sunset > 0) {
                 gc.setTimeInMillis(jdUTC.jdmills(sunset, offset));
                 seSunSetText.setText(mTimeFormat.format(gc.getTime()));
             } else {
                 seSunSetText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_LOCAL_FIRST, 0);
+            temp = row.localFirst;
             if (temp > 0) {
                 eclStart = jdUTC.jdmills(temp, offset);
                 gc.setTimeInMillis(eclStart);
@@ -289,7 +298,7 @@ public class SolarEclipseData extends Fragment {
             } else {
                 seStartText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_LOCAL_SECOND, 0);
+            temp = row.localSecond;
             if (temp > 0 && lTotal) {
                 gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
                 seTStartText.setText(mTimeFormat.format(gc.getTime()));
@@ -298,7 +307,7 @@ public class SolarEclipseData extends Fragment {
             } else {
                 seTStartText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_LOCAL_MAX, 0);
+            temp = row.localMax;
             if (temp > 0) {
                 gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
                 seMaxText.setText(mTimeFormat.format(gc.getTime()));
@@ -307,7 +316,7 @@ public class SolarEclipseData extends Fragment {
             } else {
                 seMaxText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_LOCAL_THIRD, 0);
+            temp = row.localThird;
             if (temp > 0 && lTotal) {
                 gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
                 seTEndText.setText(mTimeFormat.format(gc.getTime()));
@@ -316,7 +325,7 @@ public class SolarEclipseData extends Fragment {
             } else {
                 seTEndText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_LOCAL_FOURTH, 0);
+            temp = row.localFourth;
             if (temp > 0) {
                 eclEnd = jdUTC.jdmills(temp, offset);
                 gc.setTimeInMillis(eclEnd);
@@ -326,19 +335,19 @@ public class SolarEclipseData extends Fragment {
             } else {
                 seEndText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_SUN_AZ, 0);
+            temp = row.sunAz;
             if (temp > 0) {
                 seAzText.setText(pf.formatAZ(temp));
             } else {
                 seAzText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_SUN_ALT, 0);
+            temp = row.sunAlt;
             if (temp > 0) {
                 seAltText.setText(pf.formatALT(temp));
             } else {
                 seAltText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_FRACTION_COVERED, 0);
+            temp = row.fractionCovered;
             if (temp > 0) {
                 cover = temp;
                 seCoverText.setText(String.format(Locale.getDefault(), "%3.0f%%", temp * 100));
@@ -346,7 +355,7 @@ public class SolarEclipseData extends Fragment {
                 cover = 0;
                 seCoverText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_LOCAL_MAG, 0);
+            temp = row.localMag;
             if (temp > 0) {
                 mag = temp;
                 seMagText.setText(String.format(Locale.getDefault(), "%.2f", temp));
@@ -354,15 +363,15 @@ public class SolarEclipseData extends Fragment {
                 mag = 0;
                 seMagText.setText("");
             }
-            seSarosText.setText(String.valueOf(b.getInt(SolarEclipseTable.COLUMN_SAROS_NUM, 0)));
-            seSarosMText.setText(String.valueOf(b.getInt(SolarEclipseTable.COLUMN_SAROS_MEMBER_NUM, 0)));
+            seSarosText.setText(String.valueOf(row.sarosNum));
+            seSarosMText.setText(String.valueOf(row.sarosMemberNum));
         } else {
             // global eclipse
             seLocalTime.setText(R.string.ecl_universal);
             if (!gTotal) {
                 seTotalLayout.setVisibility(View.GONE);
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_GLOBAL_BEGIN, 0);
+            temp = row.globalBegin;
             if (temp > 0) {
                 eclStart = jdUTC.jdmills(temp, offset);
                 gc.setTimeInMillis(eclStart);
@@ -370,28 +379,28 @@ public class SolarEclipseData extends Fragment {
             } else {
                 seStartText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_BEGIN, 0);
+            temp = row.globalTotalBegin;
             if (temp > 0 && gTotal) {
                 gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
                 seTStartText.setText(mTimeFormat.format(gc.getTime()));
             } else {
                 seTStartText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_GLOBAL_MAX, 0);
+            temp = row.globalMax;
             if (temp > 0) {
                 gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
                 seMaxText.setText(mTimeFormat.format(gc.getTime()));
             } else {
                 seMaxText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_END, 0);
+            temp = row.globalTotalEnd;
             if (temp > 0 && gTotal) {
                 gc.setTimeInMillis(jdUTC.jdmills(temp, offset));
                 seTEndText.setText(mTimeFormat.format(gc.getTime()));
             } else {
                 seTEndText.setText("");
             }
-            temp = b.getDouble(SolarEclipseTable.COLUMN_GLOBAL_END, 0);
+            temp = row.globalEnd;
             if (temp > 0) {
                 eclEnd = jdUTC.jdmills(temp, offset);
                 gc.setTimeInMillis(eclEnd);
@@ -22,45 +22,37 @@ package planets.position.solar;
 
 import android.app.Activity;
 import android.content.ContentValues;
-import android.content.DialogInterface;
 import android.content.Intent;
-import android.graphics.Color;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffColorFilter;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.util.Log;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.ProgressBar;
-import android.widget.TextView;
+import android.util.SparseArray;
 
-import androidx.annotation.NonNull;
-import androidx.fragment.app.DialogFragment;
+import androidx.fragment.app.Fragment;
 
-import planets.position.R;
+import java.util.List;
+
+import planets.position.database.EclipseList;
 import planets.position.database.PlanetsDatabase;
+import planets.position.database.ResultCache;
 import planets.position.database.SolarEclipseTable;
+import planets.position.database.UpdateBatch;
+import planets.position.util.EclipseSearch;
+import planets.position.util.Ephemeris;
+import planets.position.util.EphemerisSession;
 import planets.position.util.RiseSet;
 
-public class SolarEclipseTask extends DialogFragment {
+public class SolarEclipseTask extends Fragment {
+
+    public static final int RESULT_ROW = Activity.RESULT_FIRST_USER;
 
     private ComputeEclipseTask mTask;
     private double firstEcl, lastEcl, startTime, backward;
     private double[] g;
-    private ProgressBar pb;
     private RiseSet riseSet;
-
-    // load c library
-    static {
-        System.loadLibrary("planets_swiss");
-    }
-
-    // c function prototypes
-    public native double[] solarDataLocal(double d2, double[] loc, int back);
-
-    public native double[] solarDataGlobal(double d2, int back);
+    private EclipseList list;
+    // the rows found so far by _id, until the search writes the table
+    private final SparseArray<ContentValues> rows = new SparseArray<>();
 
     public void setData(ComputeEclipseTask task, double[] loc, double time,
                         double back) {
@@ -68,6 +60,8 @@ public class SolarEclipseTask extends DialogFragment {
         g = loc;
         startTime = time;
         backward = back;
+        riseSet = new RiseSet(g);
+        list = new EclipseList(10);
         mTask.setFragment(this);
     }
 
@@ -80,50 +74,69 @@ public class SolarEclipseTask extends DialogFragment {
     }
 
     @Override
-    public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
-                             Bundle savedInstanceState) {
-        TextView tv;
-        View v = inflater.inflate(R.layout.progress_dialog_hor, container, false);
-        tv = v.findViewById(R.id.progress_text);
-        pb = v.findViewById(R.id.progressBar);
-        tv.setText(R.string.eclipse_dialog);
-        pb.setMax(10);
-        pb.getProgressDrawable().setColorFilter(new PorterDuffColorFilter(Color.LTGRAY, PorterDuff.Mode.SRC_IN));
-        getDialog().setCanceledOnTouchOutside(false);
-        riseSet = new RiseSet(g);
-        return v;
+    public void onResume() {
+        super.onResume();
+        if (mTask == null)
+            remove();
     }
 
     /**
-     * workaround for issue #17423
-     * https://code.google.com/p/android/issues/detail?id=17423
+     * Returns the eclipses found so far in date order. Rows are added on the
+     * main thread while the search runs.
+     *
+     * @return list of the eclipses found
      */
-    @Override
-    public void onDestroyView() {
-        if (getDialog() != null && getRetainInstance())
-            getDialog().setOnDismissListener(null);
-        super.onDestroyView();
+    public EclipseList getList() {
+        return list;
     }
 
-    @Override
-    public void onDismiss(@NonNull DialogInterface dialog) {
-        super.onDismiss(dialog);
-        if (mTask != null) {
+    /**
+     * Returns a row the search has found, it can be shown before the search
+     * writes the table.
+     *
+     * @param id _id of the row
+     * @return the row's columns, null if it has not been found
+     */
+    public ContentValues getRow(long id) {
+        return rows.get((int) id);
+    }
+
+    /**
+     * Stops the search.
+     */
+    public void cancel() {
+        if (mTask != null)
             mTask.cancel(false);
-        }
     }
 
-    @Override
-    public void onResume() {
-        super.onResume();
-        if (mTask == null)
-            dismiss();
+    private void remove() {
+        if (getFragmentManager() != null)
+            getFragmentManager().beginTransaction().remove(this).commit();
     }
 
-    private void taskFinished() {
+    private void rowFound(ContentValues row) {
+        rows.put(row.getAsInteger(SolarEclipseTable.COLUMN_ID), row);
+        // a backward search finds the latest eclipse first
+        list.add((backward == 0) ? list.size() : 0,
+                row.getAsLong(SolarEclipseTable.COLUMN_ID),
+                row.getAsInteger(SolarEclipseTable.COLUMN_GLOBAL_TYPE),
+                row.getAsDouble(SolarEclipseTable.COLUMN_ECLIPSE_DATE),
+                row.getAsInteger(SolarEclipseTable.COLUMN_LOCAL) > 0,
+                row.getAsString(SolarEclipseTable.COLUMN_ECLIPSE_TYPE));
+        if (getTargetFragment() != null)
+            getTargetFragment().onActivityResult(SolarEclipse.TASK_FRAGMENT, RESULT_ROW, null);
+    }
+
+    private void taskCancelled() {
+        mTask = null;
         if (isResumed())
-            dismiss();
+            remove();
+    }
+
+    private void taskFinished() {
         mTask = null;
+        if (isResumed())
+            remove();
         if (getTargetFragment() != null) {
             Intent data = new Intent();
             Bundle b = new Bundle();
@@ -135,10 +148,11 @@ public class SolarEclipseTask extends DialogFragment {
         }
     }
 
-    public class ComputeEclipseTask extends AsyncTask<Double, Integer, Void> {
+    public class ComputeEclipseTask extends AsyncTask<Double, ContentValues, Void> {
 
         SolarEclipseTask mFragment;
         PlanetsDatabase planetsDB;
+        ResultCache cache;
         private ContentValues values;
 
         void setFragment(SolarEclipseTask fragment) {
@@ -149,188 +163,228 @@ public class SolarEclipseTask extends DialogFragment {
         protected void onPreExecute() {
             values = new ContentValues();
             planetsDB = new PlanetsDatabase(mFragment.getActivity().getApplicationContext());
+            cache = new ResultCache(mFragment.getActivity().getApplicationContext());
         }
 
-        protected void onProgressUpdate(Integer... values) {
-            pb.setProgress(values[0] + 1);
+        @Override
+        protected void onProgressUpdate(ContentValues... rows) {
+            if (!this.isCancelled())
+                mFragment.rowFound(rows[0]);
         }
 
         @Override
         protected Void doInBackground(Double... params) {
-            double start, sunset, sunrise;
-            double[] data1, data2;
-            int back, i, val;
+            double start;
+            List<EclipseSearch.Eclipse> eclipses;
+            final int back;
 
-            planetsDB.open();
             back = (int) Math.round(params[1]);
             start = params[0];
-
-            // compute first local eclipse
-            data2 = solarDataLocal(start, g, back);
-            if (data2 == null) {
-                Log.e("Solar Eclipse error", "solarDataLocal data2 error");
+            String key = ResultCache.key(ResultCache.SOLAR, g, start, back, 0);
+            ResultCache.Entry cached = cache.get(key, SolarEclipseTable.TABLE_NAME);
+            if (cached != null) {
+                // this search was done for the location before
+                firstEcl = cached.first;
+                lastEcl = cached.last;
+                // rows go to the list the same way a search passes them on
+                for (int i = 0; i < cached.batch.size(); i++) {
+                    if (this.isCancelled())
+                        return null;
+                    values.clear();
+                    values.putAll(cached.batch.getValues(i));
+                    publishRow(cached.batch.getRow(i));
+                }
+                if (this.isCancelled())
+                    return null;
+                planetsDB.open();
+                planetsDB.write(cached.batch);
+                planetsDB.close();
+                return null;
+            }
+            EphemerisSession session = EphemerisSession.open();
+            final UpdateBatch batch = new UpdateBatch(SolarEclipseTable.TABLE_NAME);
+
+            // search for the eclipses on the ephemeris worker threads, each
+            // one is added to the list as soon as it is found
+            try {
+                eclipses = EclipseSearch.search(Ephemeris.getEngine(), EclipseSearch.SOLAR,
+                        start, g, back, 10, new EclipseSearch.Listener() {
+                            @Override
+                            public void onEclipse(int index, EclipseSearch.Eclipse eclipse) {
+                                addEclipse(batch, index, eclipse, back);
+                            }
+
+                            @Override
+                            public boolean isCancelled() {
+                                return ComputeEclipseTask.this.isCancelled();
+                            }
+                        });
+            } catch (InterruptedException e) {
+                eclipses = null;
+            } finally {
+                session.close();
+            }
+            if (eclipses == null) {
+                Log.e("Solar Eclipse error", "EclipseSearch error");
                 if (getTargetFragment() != null) {
                     getTargetFragment().onActivityResult(
-                            SolarEclipse.TASK_FRAGMENT, 100, null);
+                            SolarEclipse.TASK_FRAGMENT, 200, null);
                 }
                 return null;
             }
 
-            for (i = 0; i < 10; i++) {
-                if (this.isCancelled()) {
-                    if (getTargetFragment() != null) {
-                        getTargetFragment().onActivityResult(
-                                SolarEclipse.TASK_FRAGMENT,
-                                Activity.RESULT_CANCELED, null);
-                    }
-                    break;
-                }
-                values.clear();
-
-                // Global Eclipse Calculation
-                data1 = solarDataGlobal(start, back);
-                if (data1 == null) {
-                    Log.e("Solar Eclipse error", "solarDataGlobal data1 error");
-                    if (getTargetFragment() != null) {
-                        getTargetFragment().onActivityResult(
-                                SolarEclipse.TASK_FRAGMENT, 200, null);
-                    }
-                    break;
+            if (this.isCancelled()) {
+                if (getTargetFragment() != null) {
+                    getTargetFragment().onActivityResult(
+                            SolarEclipse.TASK_FRAGMENT,
+                            Activity.RESULT_CANCELED, null);
                 }
-                // create type string use data1[0] (global type)
-                val = (int) data1[0];
-                String eclType;
+                // the search replacing this one writes the table
+                return null;
+            }
+            // one transaction for the whole list
+            planetsDB.open();
+            planetsDB.write(batch);
+            planetsDB.close();
+            if (batch.size() == eclipses.size())
+                cache.put(key, batch, firstEcl, lastEcl);
+            return null;
+        }
+
+        // fills in row i of the table and passes it on to the list
+        private void addEclipse(UpdateBatch batch, int i, EclipseSearch.Eclipse eclipse,
+                                int back) {
+            double sunset, sunrise;
+            double[] data1, data2;
+            int val;
+
+            values.clear();
+            data1 = eclipse.global;
+            data2 = eclipse.local;
+
+            // create type string use data1[0] (global type)
+            val = (int) data1[0];
+            String eclType;
+            if ((val & 4) == 4) // SE_ECL_TOTAL
+                eclType = "Total";
+            else if ((val & 8) == 8) // SE_ECL_ANNULAR
+                eclType = "Annular";
+            else if ((val & 16) == 16) // SE_ECL_PARTIAL
+                eclType = "Partial";
+            else if ((val & 32) == 32) // SE_ECL_ANNULAR_TOTAL
+                eclType = "Hybrid";
+            else
+                eclType = "Other";
+
+            // save the beginning time of the eclipse
+            if (i == 0) {
+                if (back == 0)
+                    firstEcl = data1[3];
+                else
+                    lastEcl = data1[4];
+            }
+            // save the ending time of the eclipse
+            if (i == 9) {
+                if (back == 0)
+                    lastEcl = data1[4];
+                else
+                    firstEcl = data1[3];
+            }
+
+            if (data2 != null) {
+                // if local eclipse time is within one day of the global
+                // time, then eclipse is visible locally
+
+                // create type string use data2[0] (local type)
+                val = (int) data2[0];
                 if ((val & 4) == 4) // SE_ECL_TOTAL
-                    eclType = "Total";
+                    eclType += "|Total";
                 else if ((val & 8) == 8) // SE_ECL_ANNULAR
-                    eclType = "Annular";
+                    eclType += "|Annular";
                 else if ((val & 16) == 16) // SE_ECL_PARTIAL
-                    eclType = "Partial";
+                    eclType += "|Partial";
                 else if ((val & 32) == 32) // SE_ECL_ANNULAR_TOTAL
-                    eclType = "Hybrid";
+                    eclType += "|Hybrid";
                 else
-                    eclType = "Other";
-
-                // save the beginning time of the eclipse
-                if (i == 0) {
-                    if (back == 0)
-                        firstEcl = data1[3];
-                    else
-                        lastEcl = data1[4];
-                }
-                // save the ending time of the eclipse
-                if (i == 9) {
-                    if (back == 0)
-                        lastEcl = data1[4];
-                    else
-                        firstEcl = data1[3];
-                }
-
-                if (Math.abs(data2[1] - data1[1]) <= 1.0) {
-                    // if local eclipse time is within one day of the global
-                    // time, then eclipse is visible locally
-
-                    // create type string use data2[0] (local type)
-                    val = (int) data2[0];
-                    if ((val & 4) == 4) // SE_ECL_TOTAL
-                        eclType += "|Total";
-                    else if ((val & 8) == 8) // SE_ECL_ANNULAR
-                        eclType += "|Annular";
-                    else if ((val & 16) == 16) // SE_ECL_PARTIAL
-                        eclType += "|Partial";
-                    else if ((val & 32) == 32) // SE_ECL_ANNULAR_TOTAL
-                        eclType += "|Hybrid";
-                    else
-                        eclType += "|Other";
-
-                    sunset = riseSet.getSet(data2[2], 0);
-                    sunrise = riseSet.getRise(sunset - 1, 0);
-
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_TYPE, (int) data2[0]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_TYPE, (int) data1[0]);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL, 1);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_MAX, data2[1]);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_FIRST, data2[2]);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_SECOND, data2[3]);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_THIRD, data2[4]);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_FOURTH, data2[5]);
-                    values.put(SolarEclipseTable.COLUMN_SUNRISE, sunrise);
-                    values.put(SolarEclipseTable.COLUMN_SUNSET, sunset);
-                    values.put(SolarEclipseTable.COLUMN_RATIO, data2[7]);
-                    values.put(SolarEclipseTable.COLUMN_FRACTION_COVERED, data2[8]);
-                    values.put(SolarEclipseTable.COLUMN_SUN_AZ, data2[10]);
-                    values.put(SolarEclipseTable.COLUMN_SUN_ALT, data2[11]);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_MAG, data2[14]);
-                    values.put(SolarEclipseTable.COLUMN_SAROS_NUM, (int) data2[15]);
-                    values.put(SolarEclipseTable.COLUMN_SAROS_MEMBER_NUM, (int) data2[16]);
-                    values.put(SolarEclipseTable.COLUMN_MOON_AZ, data2[17]);
-                    values.put(SolarEclipseTable.COLUMN_MOON_ALT, data2[18]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_MAX, data1[1]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_BEGIN, data1[3]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_END, data1[4]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_BEGIN, data1[5]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_END, data1[6]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_CENTER_BEGIN, data1[7]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_CENTER_END, data1[8]);
-                    values.put(SolarEclipseTable.COLUMN_ECLIPSE_DATE, data2[1]);
-                    values.put(SolarEclipseTable.COLUMN_ECLIPSE_TYPE, eclType);
-
-                    if (back == 0)
-                        start = data1[4];
-                    else
-                        start = data1[3];
-
-                    data2 = solarDataLocal(start, g, back);
-                    if (data2 == null) {
-                        Log.e("Solar Eclipse error",
-                                "computeEclipses data2a error");
-                        if (getTargetFragment() != null) {
-                            getTargetFragment().onActivityResult(
-                                    SolarEclipse.TASK_FRAGMENT, 300, null);
-                        }
-                        break;
-                    }
-                } else {
-                    // Global Eclipse
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_TYPE, -1);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_TYPE, (int) data1[0]);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL, 0);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_MAX, -1);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_FIRST, -1);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_SECOND, -1);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_THIRD, -1);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_FOURTH, -1);
-                    values.put(SolarEclipseTable.COLUMN_SUNRISE, -1);
-                    values.put(SolarEclipseTable.COLUMN_SUNSET, -1);
-                    values.put(SolarEclipseTable.COLUMN_RATIO, -1);
-                    values.put(SolarEclipseTable.COLUMN_FRACTION_COVERED, -1);
-                    values.put(SolarEclipseTable.COLUMN_SUN_AZ, -1);
-                    values.put(SolarEclipseTable.COLUMN_SUN_ALT, -1);
-                    values.put(SolarEclipseTable.COLUMN_LOCAL_MAG, -1);
-                    values.put(SolarEclipseTable.COLUMN_SAROS_NUM, -1);
-                    values.put(SolarEclipseTable.COLUMN_SAROS_MEMBER_NUM, -1);
-                    values.put(SolarEclipseTable.COLUMN_MOON_AZ, -1);
-                    values.put(SolarEclipseTable.COLUMN_MOON_ALT, -1);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_MAX, data1[1]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_BEGIN, data1[3]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_END, data1[4]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_BEGIN, data1[5]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_END, data1[6]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_CENTER_BEGIN, data1[7]);
-                    values.put(SolarEclipseTable.COLUMN_GLOBAL_CENTER_END, data1[8]);
-                    values.put(SolarEclipseTable.COLUMN_ECLIPSE_DATE, data1[1]);
-                    values.put(SolarEclipseTable.COLUMN_ECLIPSE_TYPE, eclType);
-
-                    if (back == 0)
-                        start = data1[4];
-                    else
-                        start = data1[3];
-                }
-                planetsDB.addSolarEclipse(values, i);
-                publishProgress(i);
+                    eclType += "|Other";
+
+                sunset = riseSet.getSet(data2[2], 0);
+                sunrise = riseSet.getRise(sunset - 1, 0);
+
+                values.put(SolarEclipseTable.COLUMN_LOCAL_TYPE, (int) data2[0]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_TYPE, (int) data1[0]);
+                values.put(SolarEclipseTable.COLUMN_LOCAL, 1);
+                values.put(SolarEclipseTable.COLUMN_LOCAL_MAX, data2[1]);
+                values.put(SolarEclipseTable.COLUMN_LOCAL_FIRST, data2[2]);
+                values.put(SolarEclipseTable.COLUMN_LOCAL_SECOND, data2[3]);
+                values.put(SolarEclipseTable.COLUMN_LOCAL_THIRD, data2[4]);
+                values.put(SolarEclipseTable.COLUMN_LOCAL_FOURTH, data2[5]);
+                values.put(SolarEclipseTable.COLUMN_SUNRISE, sunrise);
+                values.put(SolarEclipseTable.COLUMN_SUNSET, sunset);
+                values.put(SolarEclipseTable.COLUMN_RATIO, data2[7]);
+                values.put(SolarEclipseTable.COLUMN_FRACTION_COVERED, data2[8]);
+                values.put(SolarEclipseTable.COLUMN_SUN_AZ, data2[10]);
+                values.put(SolarEclipseTable.COLUMN_SUN_ALT, data2[11]);
+                values.put(SolarEclipseTable.COLUMN_LOCAL_MAG, data2[14]);
+                values.put(SolarEclipseTable.COLUMN_SAROS_NUM, (int) data2[15]);
+                values.put(SolarEclipseTable.COLUMN_SAROS_MEMBER_NUM, (int) data2[16]);
+                values.put(SolarEclipseTable.COLUMN_MOON_AZ, data2[17]);
+                values.put(SolarEclipseTable.COLUMN_MOON_ALT, data2[18]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_MAX, data1[1]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_BEGIN, data1[3]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_END, data1[4]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_BEGIN, data1[5]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_END, data1[6]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_CENTER_BEGIN, data1[7]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_CENTER_END, data1[8]);
+                values.put(SolarEclipseTable.COLUMN_ECLIPSE_DATE, data2[1]);
+                values.put(SolarEclipseTable.COLUMN_ECLIPSE_TYPE, eclType);
+            } else {
+                // Global Eclipse
+                values.put(SolarEclipseTable.COLUMN_LOCAL_TYPE, -1);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_TYPE, (int) data1[0]);
+                values.put(SolarEclipseTable.COLUMN_LOCAL, 0);
+                values.put(SolarEclipseTable.COLUMN_LOCAL_MAX, -1);
+                values.put(SolarEclipseTable.COLUMN_LOCAL_FIRST, -1);
+                values.put(SolarEclipseTable.COLUMN_LOCAL_SECOND, -1);
+                values.put(SolarEclipseTable.COLUMN_LOCAL_THIRD, -1);
+                values.put(SolarEclipseTable.COLUMN_LOCAL_FOURTH, -1);
+                values.put(SolarEclipseTable.COLUMN_SUNRISE, -1);
+                values.put(SolarEclipseTable.COLUMN_SUNSET, -1);
+                values.put(SolarEclipseTable.COLUMN_RATIO, -1);
+                values.put(SolarEclipseTable.COLUMN_FRACTION_COVERED, -1);
+                values.put(SolarEclipseTable.COLUMN_SUN_AZ, -1);
+                values.put(SolarEclipseTable.COLUMN_SUN_ALT, -1);
+                values.put(SolarEclipseTable.COLUMN_LOCAL_MAG, -1);
+                values.put(SolarEclipseTable.COLUMN_SAROS_NUM, -1);
+                values.put(SolarEclipseTable.COLUMN_SAROS_MEMBER_NUM, -1);
+                values.put(SolarEclipseTable.COLUMN_MOON_AZ, -1);
+                values.put(SolarEclipseTable.COLUMN_MOON_ALT, -1);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_MAX, data1[1]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_BEGIN, data1[3]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_END, data1[4]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_BEGIN, data1[5]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_TOTAL_END, data1[6]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_CENTER_BEGIN, data1[7]);
+                values.put(SolarEclipseTable.COLUMN_GLOBAL_CENTER_END, data1[8]);
+                values.put(SolarEclipseTable.COLUMN_ECLIPSE_DATE, data1[1]);
+                values.put(SolarEclipseTable.COLUMN_ECLIPSE_TYPE, eclType);
             }
-            planetsDB.close();
-            return null;
+            batch.update(i, values);
+            publishRow(i);
+        }
+
+        // passes row id of the table on to the list
+        private void publishRow(int id) {
+            ContentValues row = new ContentValues(values);
+            row.put(SolarEclipseTable.COLUMN_ID, id);
+            publishProgress(row);
+        }
+
+        @Override
+        protected void onCancelled(Void result) {
+            if (mFragment != null)
+                mFragment.taskCancelled();
         }
 
         @Override
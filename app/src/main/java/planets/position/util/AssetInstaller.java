@@ -0,0 +1,174 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Installs data files from the assets into internal storage. The eclipse
+ * catalog and the time zone data both start with a magic number, a version
+ * and a checksum of the rest, so the checksum tells the installed copy and
+ * the asset apart.
+ */
+public final class AssetInstaller {
+
+    /**
+     * Checks a copied file before it replaces the installed one.
+     */
+    public interface Check {
+        /**
+         * @param file   the copy
+         * @param length number of bytes copied
+         * @throws IOException if the copy is not valid
+         */
+        void check(File file, long length) throws IOException;
+    }
+
+    private AssetInstaller() {
+    }
+
+    /**
+     * Copies an asset to a temporary file, checks it and then renames it
+     * over the installed file, so an interrupted copy never leaves broken
+     * data behind.
+     *
+     * @param assets the app's assets
+     * @param asset  name of the asset
+     * @param file   installed file
+     * @param check  check of the copy
+     * @throws IOException if the asset can not be copied or fails the check
+     */
+    public static void install(AssetManager assets, String asset, File file, Check check)
+            throws IOException {
+        File tmp = new File(file.getAbsolutePath() + ".tmp");
+        try {
+            long length = transfer(assets, asset, tmp);
+            if (tmp.length() != length)
+                throw new IOException("Short copy of " + tmp + ", " + tmp.length() + " of "
+                        + length + " bytes");
+            check.check(tmp, length);
+            if (!tmp.renameTo(file))
+                throw new IOException("Can not rename " + tmp + " to " + file);
+        } finally {
+            if (tmp.exists() && !tmp.delete())
+                Log.w("AssetInstaller", "Can not delete " + tmp);
+        }
+    }
+
+    /**
+     * Returns the checksum in the header of an asset.
+     *
+     * @param assets the app's assets
+     * @param asset  name of the asset
+     * @return the checksum
+     * @throws IOException if the asset can not be read
+     */
+    public static int getChecksum(AssetManager assets, String asset) throws IOException {
+        return readChecksum(assets.open(asset));
+    }
+
+    /**
+     * Returns the checksum in the header of an installed file.
+     *
+     * @param file installed file
+     * @return the checksum
+     * @throws IOException if the file can not be read
+     */
+    public static int getChecksum(File file) throws IOException {
+        return readChecksum(new FileInputStream(file));
+    }
+
+    private static int readChecksum(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        try {
+            byte[] header = new byte[12];
+            in.readFully(header);
+            return ByteBuffer.wrap(header).getInt(8);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Copies an asset to a file and syncs it to disk. An asset stored
+     * uncompressed in the apk is copied with a single channel transfer from
+     * the apk file, a compressed one is inflated through a stream channel.
+     *
+     * @return number of bytes copied
+     */
+    private static long transfer(AssetManager assets, String asset, File out)
+            throws IOException {
+        FileOutputStream os = new FileOutputStream(out);
+        try {
+            FileChannel dst = os.getChannel();
+            long length;
+            AssetFileDescriptor afd = null;
+            try {
+                afd = assets.openFd(asset);
+            } catch (FileNotFoundException e) {
+                // the asset is compressed, fall back to a stream
+            }
+            if (afd != null) {
+                FileInputStream is = new FileInputStream(afd.getFileDescriptor());
+                try {
+                    FileChannel src = is.getChannel();
+                    long start = afd.getStartOffset();
+                    length = afd.getLength();
+                    long done = 0;
+                    while (done < length)
+                        done += src.transferTo(start + done, length - done, dst);
+                } finally {
+                    is.close();
+                    afd.close();
+                }
+            } else {
+                InputStream is = assets.open(asset);
+                try {
+                    ReadableByteChannel src = Channels.newChannel(is);
+                    length = 0;
+                    long n;
+                    while ((n = dst.transferFrom(src, length, 1 << 20)) > 0)
+                        length += n;
+                } finally {
+                    is.close();
+                }
+            }
+            dst.force(true);
+            return length;
+        } finally {
+            os.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+/**
+ * EphemerisEngine that answers global eclipse and occultation searches from an
+ * EclipseCatalog and passes everything else, and any search outside the
+ * catalog, on to another engine.
+ */
+public class CatalogEphemerisEngine implements EphemerisEngine {
+
+    private final EphemerisEngine engine;
+    private final EclipseCatalog catalog;
+
+    public CatalogEphemerisEngine(EphemerisEngine engine, EclipseCatalog catalog) {
+        this.engine = engine;
+        this.catalog = catalog;
+    }
+
+    @Override
+    public double[] utcToJd(int m, int d, int y, int hr, int min, double sec) {
+        return engine.utcToJd(m, d, y, hr, min, sec);
+    }
+
+    @Override
+    public double[] planetData(double dET, double dUT, int planet, double[] loc) {
+        return engine.planetData(dET, dUT, planet, loc);
+    }
+
+    @Override
+    public int planetsData(double dET, double dUT, int mask, double[] loc, double[] out) {
+        return engine.planetsData(dET, dUT, mask, loc, out);
+    }
+
+    @Override
+    public double siderealTime(double dUT) {
+        return engine.siderealTime(dUT);
+    }
+
+    @Override
+    public double rise(double dUT, int planet, double[] loc) {
+        return engine.rise(dUT, planet, loc);
+    }
+
+    @Override
+    public double set(double dUT, int planet, double[] loc) {
+        return engine.set(dUT, planet, loc);
+    }
+
+    @Override
+    public double transit(double dUT, int planet, double[] loc) {
+        return engine.transit(dUT, planet, loc);
+    }
+
+    @Override
+    public double[] solarEclipseGlobal(double dUT, int back) {
+        double[] data = catalog.find(EclipseCatalog.SOLAR, dUT, back);
+        if (data == null)
+            data = engine.solarEclipseGlobal(dUT, back);
+        return data;
+    }
+
+    @Override
+    public double[] solarEclipseLocal(double dUT, double[] loc, int back) {
+        return engine.solarEclipseLocal(dUT, loc, back);
+    }
+
+    @Override
+    public double[] lunarEclipseGlobal(double dUT, int back) {
+        double[] data = catalog.find(EclipseCatalog.LUNAR, dUT, back);
+        if (data == null)
+            data = engine.lunarEclipseGlobal(dUT, back);
+        return data;
+    }
+
+    @Override
+    public double[] lunarEclipseLocal(double dUT, double[] loc, int back) {
+        return engine.lunarEclipseLocal(dUT, loc, back);
+    }
+
+    @Override
+    public double[] occultationGlobal(double dUT, int planet, int back) {
+        double[] data = catalog.find(EclipseCatalog.OCCULTATION + planet, dUT, back);
+        if (data == null)
+            data = engine.occultationGlobal(dUT, planet, back);
+        return data;
+    }
+
+    @Override
+    public double[] occultationLocal(double dUT, double[] loc, int planet, int back) {
+        return engine.occultationLocal(dUT, loc, planet, back);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Installs the eclipse catalog asset into internal storage, maps it and puts
+ * a CatalogEphemerisEngine in front of the current engine. The asset is
+ * compressed in the apk, so it is copied out once with AssetInstaller and
+ * copied again only when the asset's checksum changes.
+ */
+public final class CatalogInstaller {
+
+    public static final String ASSET = "eclipses.bin";
+
+    private static boolean started;
+
+    private CatalogInstaller() {
+    }
+
+    /**
+     * Loads the catalog on an ephemeris worker thread. Only the first call
+     * does anything. Without the asset the engine is left unchanged.
+     *
+     * @param context any context of the app
+     */
+    public static synchronized void install(Context context) {
+        if (started)
+            return;
+        started = true;
+        final AssetManager assets = context.getApplicationContext().getAssets();
+        final File file = new File(context.getApplicationContext().getFilesDir(), ASSET);
+        EphemerisPool.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!file.exists() || AssetInstaller.getChecksum(file)
+                            != AssetInstaller.getChecksum(assets, ASSET)) {
+                        AssetInstaller.install(assets, ASSET, file,
+                                new AssetInstaller.Check() {
+                                    @Override
+                                    public void check(File copy, long length)
+                                            throws IOException {
+                                        map(copy);
+                                    }
+                                });
+                    }
+                    Ephemeris.setEngine(new CatalogEphemerisEngine(Ephemeris.getEngine(),
+                            map(file)));
+                } catch (IOException e) {
+                    Log.w("EclipseCatalog", "eclipse catalog not available: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    // the mapping stays valid after the file is closed
+    private static EclipseCatalog map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return EclipseCatalog.map(raf.getChannel(), 0, raf.length());
+        } finally {
+            raf.close();
+        }
+    }
+}
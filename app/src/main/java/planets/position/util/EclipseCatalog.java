@@ -0,0 +1,272 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Read only catalog of precomputed global eclipses and lunar occultations.
+ * <p>
+ * Global eclipse circumstances do not depend on the observer, so they are
+ * calculated once by the catalog generator and looked up here by binary
+ * search instead of running a Swiss Ephemeris search. The file is big endian:
+ * <pre>
+ * header   int magic, int version, int crc32 of the rest of the file,
+ *          int section count, double first jd, double last jd
+ * sections int kind, int record count, int byte offset of the records
+ * records  double maximum, int eclipse type, float[7] other times
+ * </pre>
+ * A section holds every event of its kind with its maximum between the first
+ * and last Jullian dates, sorted by maximum. The other times are the rest of
+ * the engine's tret values stored as offsets in days from the maximum, NaN
+ * where the engine returned 0.
+ */
+public class EclipseCatalog {
+
+    public static final int MAGIC = 0x50504543; // "PPEC"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int SECTION_SIZE = 12;
+    public static final int RECORD_SIZE = 40;
+    public static final int TIMES = 7;
+
+    /**
+     * Section kind of solar eclipses.
+     */
+    public static final int SOLAR = 0;
+    /**
+     * Section kind of lunar eclipses.
+     */
+    public static final int LUNAR = 1;
+    /**
+     * Section kind of lunar occultations of planet 0, the kind for planet p
+     * is OCCULTATION + p.
+     */
+    public static final int OCCULTATION = 16;
+
+    // Swiss Ephemeris only returns events more than this after the start
+    private static final double EPSILON = 0.0001;
+
+    private final ByteBuffer buffer;
+    private final double first, last;
+    private final int[] kinds, counts, offsets;
+
+    /**
+     * Creates a catalog over a buffer holding the whole file.
+     *
+     * @param buffer catalog file contents
+     * @throws IOException if the buffer is not a valid catalog
+     */
+    public EclipseCatalog(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate();
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not an eclipse catalog.");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported eclipse catalog version " + buffer.getInt(4));
+        if (buffer.getInt(8) != checksum(buffer))
+            throw new IOException("Eclipse catalog checksum mismatch.");
+
+        int sections = buffer.getInt(12);
+        first = buffer.getDouble(16);
+        last = buffer.getDouble(24);
+        kinds = new int[sections];
+        counts = new int[sections];
+        offsets = new int[sections];
+        for (int i = 0; i < sections; i++) {
+            int pos = HEADER_SIZE + i * SECTION_SIZE;
+            kinds[i] = buffer.getInt(pos);
+            counts[i] = buffer.getInt(pos + 4);
+            offsets[i] = buffer.getInt(pos + 8);
+            if (offsets[i] + (long) counts[i] * RECORD_SIZE > buffer.capacity())
+                throw new IOException("Eclipse catalog section " + kinds[i] + " is truncated.");
+        }
+    }
+
+    /**
+     * Maps part of a file, such as an uncompressed asset inside the apk, and
+     * opens it as a catalog.
+     *
+     * @param channel open file channel
+     * @param offset  start of the catalog in the file
+     * @param length  length of the catalog
+     * @return the catalog
+     * @throws IOException if the file can not be mapped or is not a catalog
+     */
+    public static EclipseCatalog map(FileChannel channel, long offset, long length)
+            throws IOException {
+        return new EclipseCatalog(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    /**
+     * Returns the CRC32 stored in the header of a catalog file.
+     *
+     * @param buffer catalog file contents
+     * @return checksum of everything after the checksum field
+     */
+    public static int checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+        ByteBuffer b = buffer.duplicate();
+        b.position(12);
+        while (b.hasRemaining()) {
+            int n = Math.min(chunk.length, b.remaining());
+            b.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns the first Jullian date covered by the catalog.
+     *
+     * @return Jullian date in ut1
+     */
+    public double getFirst() {
+        return first;
+    }
+
+    /**
+     * Returns the last Jullian date covered by the catalog.
+     *
+     * @return Jullian date in ut1
+     */
+    public double getLast() {
+        return last;
+    }
+
+    /**
+     * Returns true if the catalog has a section of the given kind.
+     *
+     * @param kind section kind
+     * @return true if the section exists
+     */
+    public boolean hasKind(int kind) {
+        return section(kind) >= 0;
+    }
+
+    /**
+     * Returns the number of events of a kind.
+     *
+     * @param kind section kind
+     * @return number of records, 0 if there is no such section
+     */
+    public int getCount(int kind) {
+        int s = section(kind);
+        return (s < 0) ? 0 : counts[s];
+    }
+
+    /**
+     * Finds the next event after (or before) a date the same way the Swiss
+     * Ephemeris global searches do.
+     *
+     * @param kind section kind
+     * @param dUT  Jullian date in ut1 to search from
+     * @param back search direction(0=forward|1=back)
+     * @return array of eclipse type and the 8 event times as returned by the
+     * engine, or null if the answer is not inside the catalog
+     */
+    public double[] find(int kind, double dUT, int back) {
+        int s = section(kind);
+        if (s < 0)
+            return null;
+        int index;
+        if (back == 0) {
+            if (dUT < first)
+                return null;
+            index = upperBound(s, dUT + EPSILON);
+        } else {
+            if (dUT > last)
+                return null;
+            index = lowerBound(s, dUT - EPSILON) - 1;
+        }
+        if (index < 0 || index >= counts[s])
+            return null;
+        return record(s, index);
+    }
+
+    /**
+     * Returns one record of a kind, in the order of the catalog.
+     *
+     * @param kind  section kind
+     * @param index record number
+     * @return array of eclipse type and the 8 event times
+     */
+    public double[] get(int kind, int index) {
+        int s = section(kind);
+        if (s < 0 || index < 0 || index >= counts[s])
+            throw new IndexOutOfBoundsException("No record " + index + " of kind " + kind);
+        return record(s, index);
+    }
+
+    private int section(int kind) {
+        for (int i = 0; i < kinds.length; i++) {
+            if (kinds[i] == kind)
+                return i;
+        }
+        return -1;
+    }
+
+    private double max(int s, int index) {
+        return buffer.getDouble(offsets[s] + index * RECORD_SIZE);
+    }
+
+    // first record with a maximum > t
+    private int upperBound(int s, double t) {
+        int lo = 0, hi = counts[s];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (max(s, mid) > t)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+        return lo;
+    }
+
+    // first record with a maximum >= t
+    private int lowerBound(int s, double t) {
+        int lo = 0, hi = counts[s];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (max(s, mid) >= t)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+        return lo;
+    }
+
+    private double[] record(int s, int index) {
+        int pos = offsets[s] + index * RECORD_SIZE;
+        double[] data = new double[2 + TIMES];
+        double max = buffer.getDouble(pos);
+        data[0] = buffer.getInt(pos + 8);
+        data[1] = max;
+        for (int i = 0; i < TIMES; i++) {
+            float off = buffer.getFloat(pos + 12 + i * 4);
+            data[2 + i] = Float.isNaN(off) ? 0 : max + off;
+        }
+        return data;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finds a run of solar or lunar eclipses forward or backward from a date.
+ * <p>
+ * Each global search starts where the previous eclipse ended, so a single
+ * search is one long serial chain. Here the time after (or before) the start
+ * is cut into one segment per EphemerisPool worker, together long enough for
+ * the eclipses wanted, and the segments are searched concurrently. The
+ * segment boundaries are placed on the mean
+ * lunar phase opposite the eclipses being searched for (full moon for solar
+ * eclipses, new moon for lunar ones), two weeks away from any eclipse, so
+ * every eclipse belongs to exactly one segment. The results are merged in
+ * segment order and match a serial search. Each segment hands its eclipses
+ * over as it finds them, so the first eclipse is reported after one step of
+ * the first segment rather than after the whole segment.
+ */
+public final class EclipseSearch {
+
+    public static final int SOLAR = 0;
+    public static final int LUNAR = 1;
+
+    // mean lunar phases, Meeus chapter 49
+    private static final double SYNODIC_MONTH = 29.530588861;
+    private static final double NEW_MOON = 2451550.09766;
+    // both kinds of eclipse average a little under 2.5 a year
+    private static final double LUNATIONS_PER_ECLIPSE = 5.5;
+    private static final int MIN_SEGMENT = 6; // lunations
+
+    /**
+     * Receives the progress of {@link #search}.
+     */
+    public interface Listener {
+        /**
+         * Called on the searching thread for each eclipse as soon as it and
+         * every eclipse before it have been found.
+         *
+         * @param index   position of the eclipse in search order
+         * @param eclipse the eclipse
+         */
+        void onEclipse(int index, Eclipse eclipse);
+
+        /**
+         * Polled by the searching thread and the workers, return true to stop
+         * the search.
+         *
+         * @return true if the search has been cancelled
+         */
+        boolean isCancelled();
+    }
+
+    /**
+     * One eclipse found by the search.
+     */
+    public static final class Eclipse {
+        /**
+         * The global eclipse data from the engine.
+         */
+        public final double[] global;
+        /**
+         * The local eclipse data, or null if the eclipse is not visible from
+         * the location.
+         */
+        public final double[] local;
+
+        Eclipse(double[] global, double[] local) {
+            this.global = global;
+            this.local = local;
+        }
+    }
+
+    // marks the end of a segment's queue
+    private static final Eclipse END = new Eclipse(null, null);
+
+    private EclipseSearch() {
+    }
+
+    /**
+     * Searches for eclipses starting at a date. An eclipse is visible locally
+     * if the local eclipse maximum is within one day of the global maximum.
+     *
+     * @param engine   the engine to use
+     * @param type     SOLAR or LUNAR
+     * @param start    Jullian date in ut1 to start from
+     * @param loc      location array
+     * @param back     search direction(0=forward|1=back)
+     * @param count    number of eclipses to find
+     * @param listener notified of progress, may cancel the search
+     * @return the eclipses in search order, fewer than count if cancelled, or
+     * null on error
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public static List<Eclipse> search(EphemerisEngine engine, int type, double start,
+                                       double[] loc, int back, int count,
+                                       Listener listener) throws InterruptedException {
+        ExecutorService executor = EphemerisPool.getExecutor();
+        int threads = EphemerisPool.getThreadCount();
+        List<Eclipse> found = new ArrayList<>(count);
+        double from = start;
+
+        while (found.size() < count && !listener.isCancelled()) {
+            // one segment per worker, together long enough for the eclipses
+            // still needed; a single worker gets one serial search
+            double length = Math.max(MIN_SEGMENT, Math.ceil((count - found.size())
+                    * LUNATIONS_PER_ECLIPSE / threads)) * SYNODIC_MONTH;
+            List<Segment> segments = new ArrayList<>(threads);
+            List<Future<Boolean>> futures = new ArrayList<>(threads);
+            AtomicBoolean stop = new AtomicBoolean();
+            for (int j = 0; j < threads; j++) {
+                double to = boundary(type, (back == 0) ? from + length : from - length, back);
+                Segment segment = new Segment(engine, type, from, to, loc, back, listener,
+                        stop);
+                segments.add(segment);
+                futures.add(executor.submit(segment));
+                from = to;
+            }
+            try {
+                for (int j = 0; j < threads; j++) {
+                    // pass on the eclipses of this segment while its worker
+                    // is still searching, later segments wait their turn
+                    Eclipse eclipse;
+                    while (found.size() < count && (eclipse = segments.get(j).take()) != null) {
+                        found.add(eclipse);
+                        listener.onEclipse(found.size() - 1, eclipse);
+                    }
+                    if (found.size() == count || listener.isCancelled())
+                        break;
+                    if (!futures.get(j).get())
+                        return null;
+                }
+            } catch (ExecutionException e) {
+                throw EphemerisPool.rethrow(e);
+            } finally {
+                // drop the segments that are no longer needed, the running
+                // ones stop after their current step
+                stop.set(true);
+                for (Future<Boolean> f : futures)
+                    f.cancel(false);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the first mean full moon (solar eclipses) or mean new moon
+     * (lunar eclipses) at or after t, or at or before t when searching back.
+     */
+    private static double boundary(int type, double t, int back) {
+        double phase = (type == SOLAR) ? NEW_MOON + SYNODIC_MONTH / 2 : NEW_MOON;
+        double n;
+        if (back == 0)
+            n = Math.ceil((t - phase) / SYNODIC_MONTH);
+        else
+            n = Math.floor((t - phase) / SYNODIC_MONTH);
+        return phase + n * SYNODIC_MONTH;
+    }
+
+    /**
+     * Searches one segment with the same chain of global and local searches
+     * as a serial search, queueing the eclipses whose maximum is inside it.
+     * Returns false on an engine error. Stops early once the stop flag is set
+     * or the listener is cancelled.
+     */
+    private static class Segment implements Callable<Boolean> {
+        private final EphemerisEngine engine;
+        private final int type, back;
+        private final double from, to;
+        private final double[] loc;
+        private final Listener listener;
+        private final AtomicBoolean stop;
+        private final BlockingQueue<Eclipse> queue = new LinkedBlockingQueue<>();
+
+        Segment(EphemerisEngine engine, int type, double from, double to, double[] loc,
+                int back, Listener listener, AtomicBoolean stop) {
+            this.engine = engine;
+            this.type = type;
+            this.from = from;
+            this.to = to;
+            this.loc = loc;
+            this.back = back;
+            this.listener = listener;
+            this.stop = stop;
+        }
+
+        /**
+         * Waits for the next eclipse of the segment.
+         *
+         * @return the eclipse, or null once the segment is done
+         */
+        Eclipse take() throws InterruptedException {
+            Eclipse eclipse = queue.take();
+            return (eclipse == END) ? null : eclipse;
+        }
+
+        @Override
+        public Boolean call() {
+            try {
+                return search();
+            } finally {
+                queue.add(END);
+            }
+        }
+
+        private boolean search() {
+            double[] global, local = null;
+            double start = from, localStart = from;
+
+            while (!stop.get() && !listener.isCancelled()) {
+                global = global(start);
+                if (global == null)
+                    return false;
+                if ((back == 0 && global[1] >= to) || (back != 0 && global[1] <= to))
+                    break;
+
+                // next search starts at the end (or beginning) of this eclipse
+                start = (back == 0) ? global[end()] : global[begin()];
+                // the local search scans until it finds a visible eclipse, so
+                // it is only repeated when there is an eclipse to compare with
+                if (local == null) {
+                    local = local(localStart);
+                    if (local == null)
+                        return false;
+                }
+                if (Math.abs(local[1] - global[1]) <= 1.0) {
+                    queue.add(new Eclipse(global, local));
+                    local = null;
+                    localStart = start;
+                } else {
+                    queue.add(new Eclipse(global, null));
+                }
+            }
+            return true;
+        }
+
+        private double[] global(double start) {
+            if (type == SOLAR)
+                return engine.solarEclipseGlobal(start, back);
+            return engine.lunarEclipseGlobal(start, back);
+        }
+
+        private double[] local(double start) {
+            if (type == SOLAR)
+                return engine.solarEclipseLocal(start, loc, back);
+            return engine.lunarEclipseLocal(start, loc, back);
+        }
+
+        private int begin() {
+            return (type == SOLAR) ? 3 : 7;
+        }
+
+        private int end() {
+            return (type == SOLAR) ? 4 : 8;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+/**
+ * Holds the EphemerisEngine used by the app. Defaults to the Swiss Ephemeris
+ * JNI engine; the pure Java {@link MoshierEphemerisEngine} can be installed
+ * with {@link #setEngine} instead.
+ */
+public final class Ephemeris {
+
+    private static volatile EphemerisEngine engine;
+
+    private Ephemeris() {
+    }
+
+    /**
+     * Returns the current engine, creating the JNI engine on first use.
+     *
+     * @return the ephemeris engine
+     */
+    public static EphemerisEngine getEngine() {
+        EphemerisEngine e = engine;
+        if (e == null) {
+            synchronized (Ephemeris.class) {
+                if (engine == null)
+                    engine = new JniEphemerisEngine();
+                e = engine;
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Replaces the engine used by the app.
+     *
+     * @param e the new engine
+     */
+    public static void setEngine(EphemerisEngine e) {
+        if (e == null)
+            throw new IllegalArgumentException("EphemerisEngine must not be null.");
+        engine = e;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+/**
+ * The planetary calculations used by the app. Planet numbers follow the Swiss
+ * Ephemeris (0 = Sun, 1 = Moon, 2 = Mercury ... 9 = Pluto) and locations are
+ * arrays of [longitude, latitude, elevation].
+ * <p>
+ * Implementations must not depend on Android classes, so they can be run and
+ * benchmarked on a plain JVM. They must also be safe to call from several
+ * threads at once, a calculation on one thread must not change the location
+ * or any other state seen by another.
+ */
+public interface EphemerisEngine {
+
+    /**
+     * Number of values stored for each planet by {@link #planetsData}.
+     */
+    int STRIDE = 9;
+
+    /**
+     * Bit mask selecting all ten planets.
+     */
+    int ALL_PLANETS = 0x3ff;
+
+    /**
+     * Converts an utc date to a jullian date.
+     *
+     * @param m   month
+     * @param d   day
+     * @param y   year
+     * @param hr  hour
+     * @param min minute
+     * @param sec second
+     * @return array of 2 jullian dates, [tt,ut1], or null on error
+     */
+    double[] utcToJd(int m, int d, int y, int hr, int min, double sec);
+
+    /**
+     * Calculates the topocentric position of a planet.
+     *
+     * @param dET    Jullian date in ephemeris time
+     * @param dUT    Jullian date in ut1
+     * @param planet planet number
+     * @param loc    location array
+     * @return array of RA, Dec, distance, azimuth, altitude and magnitude,
+     * or null on error
+     */
+    double[] planetData(double dET, double dUT, int planet, double[] loc);
+
+    /**
+     * Calculates the position, set, rise and transit times of several
+     * planets. For planet n the values are stored at n * STRIDE in the order
+     * RA, Dec, distance, azimuth, altitude, magnitude, set, rise and transit.
+     * A set, rise or transit time that can not be found is stored as NaN and
+     * does not fail the call. Values of planets not in the mask are left
+     * unchanged, so calls for
+     * different planets may fill the same array from different threads.
+     *
+     * @param dET  Jullian date in ephemeris time
+     * @param dUT  Jullian date in ut1
+     * @param mask bit mask of planet numbers, bit n selects planet n
+     * @param loc  location array
+     * @param out  result array of at least 10 * STRIDE values
+     * @return number of planets calculated or -1 on error
+     */
+    int planetsData(double dET, double dUT, int mask, double[] loc, double[] out);
+
+    /**
+     * Returns the apparent sidereal time at Greenwich, the one used for the
+     * azimuth and altitude returned by {@link #planetData}.
+     *
+     * @param dUT Jullian date in ut1
+     * @return sidereal time in hours
+     */
+    double siderealTime(double dUT);
+
+    /**
+     * Returns the next rise time of a planet.
+     *
+     * @param dUT    Jullian date in ut1
+     * @param planet planet number
+     * @param loc    location array
+     * @return Jullian date in ut1 or a negative value on error
+     */
+    double rise(double dUT, int planet, double[] loc);
+
+    /**
+     * Returns the next set time of a planet.
+     *
+     * @param dUT    Jullian date in ut1
+     * @param planet planet number
+     * @param loc    location array
+     * @return Jullian date in ut1 or a negative value on error
+     */
+    double set(double dUT, int planet, double[] loc);
+
+    /**
+     * Returns the next meridian transit of a planet.
+     *
+     * @param dUT    Jullian date in ut1
+     * @param planet planet number
+     * @param loc    location array
+     * @return Jullian date in ut1 or a negative value on error
+     */
+    double transit(double dUT, int planet, double[] loc);
+
+    /**
+     * Finds the next solar eclipse anywhere on Earth.
+     *
+     * @param dUT  Jullian date in ut1 to start the search from
+     * @param back search direction, 0 = forward, 1 = backward
+     * @return array of eclipse type followed by the eclipse event times,
+     * or null on error
+     */
+    double[] solarEclipseGlobal(double dUT, int back);
+
+    /**
+     * Finds the next solar eclipse visible from a location.
+     *
+     * @param dUT  Jullian date in ut1 to start the search from
+     * @param loc  location array
+     * @param back search direction, 0 = forward, 1 = backward
+     * @return array of local eclipse type, local event times, eclipse
+     * attributes and moon position, or null on error
+     */
+    double[] solarEclipseLocal(double dUT, double[] loc, int back);
+
+    /**
+     * Finds the next lunar eclipse.
+     *
+     * @param dUT  Jullian date in ut1 to start the search from
+     * @param back search direction, 0 = forward, 1 = backward
+     * @return array of eclipse type followed by the eclipse event times,
+     * or null on error
+     */
+    double[] lunarEclipseGlobal(double dUT, int back);
+
+    /**
+     * Finds the next lunar eclipse visible from a location.
+     *
+     * @param dUT  Jullian date in ut1 to start the search from
+     * @param loc  location array
+     * @param back search direction, 0 = forward, 1 = backward
+     * @return array of local eclipse type, local event times and eclipse
+     * attributes, or null on error
+     */
+    double[] lunarEclipseLocal(double dUT, double[] loc, int back);
+
+    /**
+     * Finds the next occultation of a planet by the moon anywhere on Earth.
+     *
+     * @param dUT    Jullian date in ut1 to start the search from
+     * @param planet planet number
+     * @param back   search direction, 0 = forward, 1 = backward
+     * @return array of occultation type followed by the event times,
+     * or null on error
+     */
+    double[] occultationGlobal(double dUT, int planet, int back);
+
+    /**
+     * Finds the next occultation of a planet by the moon visible from a
+     * location.
+     *
+     * @param dUT    Jullian date in ut1 to start the search from
+     * @param loc    location array
+     * @param planet planet number
+     * @param back   search direction, 0 = forward, 1 = backward
+     * @return array of local occultation type, local event times and the
+     * start and end positions of the moon, or null on error
+     */
+    double[] occultationLocal(double dUT, double[] loc, int planet, int back);
+}
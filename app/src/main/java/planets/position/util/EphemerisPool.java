@@ -0,0 +1,210 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of worker threads for ephemeris calculations that do not
+ * depend on each other. The Swiss Ephemeris keeps its state per thread, so
+ * workers never share a topocentric setup. Each worker holds an
+ * EphemerisSession open while it is alive, idle workers exit after a few
+ * seconds.
+ */
+public final class EphemerisPool {
+
+    /**
+     * Receives the results of {@link #planetsData}.
+     */
+    public interface Listener {
+        /**
+         * Called on the submitting thread as each planet is finished.
+         *
+         * @param planet planet number
+         */
+        void onPlanet(int planet);
+
+        /**
+         * Polled by the submitting thread and the workers, return true to
+         * stop the remaining calculations.
+         *
+         * @return true if the work has been cancelled
+         */
+        boolean isCancelled();
+    }
+
+    private static final int THREADS = Math.max(1,
+            Math.min(10, Runtime.getRuntime().availableProcessors()));
+    private static final long KEEP_ALIVE = 5; // seconds
+    private static final int SKIPPED = -2;
+    private static ThreadPoolExecutor executor;
+
+    private EphemerisPool() {
+    }
+
+    /**
+     * Returns the number of worker threads, never more than the number of
+     * available cores.
+     *
+     * @return number of workers
+     */
+    public static int getThreadCount() {
+        return THREADS;
+    }
+
+    /**
+     * Returns the shared executor, creating it on first use.
+     *
+     * @return the executor
+     */
+    public static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(THREADS, THREADS, KEEP_ALIVE,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new WorkerFactory());
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Calculates the position, set, rise and transit times of several planets,
+     * one planet per worker. The results are stored in out as described by
+     * {@link EphemerisEngine#planetsData}. On a single core device the planets
+     * are calculated with one engine call on the calling thread.
+     *
+     * @param engine   the engine to use
+     * @param dET      Jullian date in ephemeris time
+     * @param dUT      Jullian date in ut1
+     * @param mask     bit mask of planet numbers, bit n selects planet n
+     * @param loc      location array
+     * @param out      result array of at least 10 * STRIDE values
+     * @param listener notified as each planet is finished
+     * @return number of planets reported to the listener or -1 on error
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public static int planetsData(final EphemerisEngine engine, final double dET,
+                                  final double dUT, int mask, final double[] loc,
+                                  final double[] out, final Listener listener)
+            throws InterruptedException {
+        int count = 0;
+
+        if (THREADS == 1) {
+            if (engine.planetsData(dET, dUT, mask, loc, out) < 0)
+                return -1;
+            for (int p = 0; p < 10; p++) {
+                if (listener.isCancelled())
+                    break;
+                if ((mask & (1 << p)) != 0) {
+                    listener.onPlanet(p);
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        CompletionService<Integer> service = new ExecutorCompletionService<>(getExecutor());
+        List<Future<Integer>> futures = new ArrayList<>(10);
+        for (int p = 0; p < 10; p++) {
+            if ((mask & (1 << p)) == 0)
+                continue;
+            final int planet = p;
+            futures.add(service.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    if (listener.isCancelled())
+                        return SKIPPED;
+                    if (engine.planetsData(dET, dUT, 1 << planet, loc, out) < 0)
+                        return -1;
+                    return planet;
+                }
+            }));
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                int planet = service.take().get();
+                if (planet == -1)
+                    return -1;
+                if (planet == SKIPPED || listener.isCancelled())
+                    break;
+                listener.onPlanet(planet);
+                count++;
+            }
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        } finally {
+            // drop anything still queued after an error or a cancel
+            for (Future<Integer> f : futures)
+                f.cancel(false);
+        }
+        return count;
+    }
+
+    /**
+     * Unwraps the exception thrown by a worker so it can be rethrown on the
+     * submitting thread.
+     *
+     * @param e the exception from Future.get
+     * @return the unchecked cause to throw
+     */
+    static RuntimeException rethrow(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException)
+            return (RuntimeException) cause;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        return new IllegalStateException(cause);
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    EphemerisSession session = EphemerisSession.open();
+                    try {
+                        r.run();
+                    } finally {
+                        session.close();
+                    }
+                }
+            }, "ephemeris-" + number.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
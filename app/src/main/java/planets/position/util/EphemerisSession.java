@@ -0,0 +1,89 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import java.io.Closeable;
+
+/**
+ * Keeps the Swiss Ephemeris initialized between JNI calls.
+ * <p>
+ * Without an open session every native call sets the ephemeris path on entry
+ * and closes the ephemeris on exit, throwing away all of its caches. While a
+ * session is open on a thread, calls made from that thread reuse the warmed
+ * state. The Swiss Ephemeris keeps its state per thread, so a session must be
+ * opened and closed on the thread that does the calculations.
+ */
+public class EphemerisSession implements Closeable {
+
+    private final Thread owner;
+    private boolean open;
+
+    // load c library
+    static {
+        System.loadLibrary("planets_swiss");
+    }
+
+    // c function prototypes
+    private native static int sessionOpen();
+
+    private native static int sessionClose();
+
+    private EphemerisSession() {
+        owner = Thread.currentThread();
+        sessionOpen();
+        open = true;
+    }
+
+    /**
+     * Opens an ephemeris session on the calling thread. Sessions may be nested,
+     * the ephemeris is released when the last one is closed.
+     *
+     * @return the new session
+     */
+    public static EphemerisSession open() {
+        return new EphemerisSession();
+    }
+
+    /**
+     * Returns true if this session has not been closed.
+     *
+     * @return true if the session is open
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Closes the session. Must be called from the thread that opened it.
+     * Closing an already closed session does nothing.
+     */
+    @Override
+    public void close() {
+        if (!open)
+            return;
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException(
+                    "EphemerisSession must be closed on the thread that opened it.");
+        }
+        sessionClose();
+        open = false;
+    }
+}
@@ -20,12 +20,17 @@
 
 package planets.position.util;
 
-import android.util.Log;
-
 import java.util.Calendar;
+import java.util.TimeZone;
 
 public class JDUTC {
 
+    // Julian date of 1970-01-01 00:00 UTC
+    private static final double JD_EPOCH = 2440587.5;
+    private static final double MILLIS_PER_DAY = 86400000.0;
+
+    private final TimeZone zone = TimeZone.getDefault();
+
     // load c library
     static {
         System.loadLibrary("planets_swiss");
@@ -35,8 +40,6 @@ public class JDUTC {
     public native static double[] utc2jd(int m, int d, int y, int hr, int min,
                                          double sec);
 
-    public native static String jd2utc(double jdate);
-
     /**
      * Calls the utc2jd JNI c function. Converts from an utc date to a jullian
      * date.
@@ -50,7 +53,28 @@ public class JDUTC {
      * @return array of 2 jullian dates, [ut1,tt]
      */
     public double[] utcjd(int m, int d, int y, int hr, int min, double sec) {
-        return utc2jd(m, d, y, hr, min, sec);
+        return Ephemeris.getEngine().utcToJd(m, d, y, hr, min, sec);
+    }
+
+    /**
+     * Converts a Julian date in ut1 to milliseconds since Jan 1, 1970 UTC.
+     * The difference between ut1 and utc (less than a second) is ignored.
+     *
+     * @param jdate The given date in Jullian format.
+     * @return Milliseconds since the epoch.
+     */
+    public static long jdToMillis(double jdate) {
+        return Math.round((jdate - JD_EPOCH) * MILLIS_PER_DAY);
+    }
+
+    /**
+     * Converts milliseconds since Jan 1, 1970 UTC to a Julian date.
+     *
+     * @param millis Milliseconds since the epoch.
+     * @return Jullian date.
+     */
+    public static double millisToJd(long millis) {
+        return millis / MILLIS_PER_DAY + JD_EPOCH;
     }
 
     /**
@@ -61,17 +85,8 @@ public class JDUTC {
      * @return Long containing the milliseconds.
      */
     public long jdmills(double jdate, double offset) {
-        String[] dateArr;
-        Calendar utc = Calendar.getInstance();
-        dateArr = jd2utc(jdate).split("_");
-        utc.set(Integer.parseInt(dateArr[1]), Integer.parseInt(dateArr[2]) - 1,
-                Integer.parseInt(dateArr[3]), Integer.parseInt(dateArr[4]),
-                Integer.parseInt(dateArr[5]));
-        utc.set(Calendar.MILLISECOND,
-                (int) (Double.parseDouble(dateArr[6]) * 1000));
         // convert utc to local time
-        utc.add(Calendar.MINUTE, (int) (offset));
-        return utc.getTimeInMillis();
+        return wallMillis(jdToMillis(jdate) + (int) offset * 60000L);
     }
 
     /**
@@ -81,15 +96,34 @@ public class JDUTC {
      * @return Long containing the milliseconds.
      */
     public long jdmills(double jdate) {
-        String[] dateArr;
-        Calendar utc = Calendar.getInstance();
-        dateArr = jd2utc(jdate).split("_");
-        utc.set(Integer.parseInt(dateArr[1]), Integer.parseInt(dateArr[2]) - 1,
-                Integer.parseInt(dateArr[3]), Integer.parseInt(dateArr[4]),
-                Integer.parseInt(dateArr[5]));
-        utc.set(Calendar.MILLISECOND,
-                (int) (Double.parseDouble(dateArr[6]) * 1000));
-        return utc.getTimeInMillis();
+        return wallMillis(jdToMillis(jdate));
+    }
+
+    /**
+     * Converts an array of Julian dates to milliseconds in local time, in
+     * place. Same as calling jdmills(jdate, offset) on each element.
+     *
+     * @param jdates The dates in Jullian format, replaced by the milliseconds.
+     * @param offset The UTC offset in minutes.
+     */
+    public void jdmills(double[] jdates, double offset) {
+        long off = (int) offset * 60000L;
+        for (int i = 0; i < jdates.length; i++) {
+            jdates[i] = wallMillis(jdToMillis(jdates[i]) + off);
+        }
+    }
+
+    /**
+     * Returns the milliseconds that display the given wall clock time in the
+     * device time zone. The dates are shown with DateFormats that use the
+     * device time zone, so the wall clock time of the location is shifted by
+     * the device offset.
+     *
+     * @param wall Wall clock time as milliseconds since the epoch.
+     * @return Long containing the milliseconds.
+     */
+    private long wallMillis(long wall) {
+        return wall - zone.getOffset(wall - zone.getRawOffset());
     }
 
     /**
@@ -97,6 +131,7 @@ public class JDUTC {
      *
      * @param offset The UTC offset in minutes.
      * @return Double array containing the times with [0]=TT and [1]=UT1.
+     * @throws IllegalStateException if the ephemeris can not convert the date
      */
     public double[] getCurrentTime(double offset) {
         double[] time;
@@ -107,9 +142,8 @@ public class JDUTC {
         time = utcjd(c.get(Calendar.MONTH) + 1, c.get(Calendar.DAY_OF_MONTH),
                 c.get(Calendar.YEAR), c.get(Calendar.HOUR_OF_DAY),
                 c.get(Calendar.MINUTE), c.get(Calendar.SECOND));
-        if (time == null) {
-            Log.e("JDUTC getCurrentTime", "utcjd error");
-        }
+        if (time == null)
+            throw new IllegalStateException("JDUTC getCurrentTime: utcjd error");
         return time;
     }
 }
@@ -0,0 +1,120 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+/**
+ * EphemerisEngine backed by the Swiss Ephemeris in the planets_swiss library.
+ * The library keeps a separate ephemeris context for each thread, so the
+ * engine can be shared by the UI thread, services and background tasks.
+ */
+public class JniEphemerisEngine implements EphemerisEngine {
+
+    // load c library
+    static {
+        System.loadLibrary("planets_swiss");
+    }
+
+    // c function prototypes
+    private native static double[] calcPlanet(double d1, double d2, int p, double[] loc);
+
+    private native static int calcPlanets(double d1, double d2, int mask, double[] loc,
+                                          double[] out);
+
+    private native static double calcSidTime(double d2);
+
+    private native static double[] solarDataGlobal(double d2, int back);
+
+    private native static double[] solarDataLocal(double d2, double[] loc, int back);
+
+    private native static double[] lunarDataGlobal(double d2, int back);
+
+    private native static double[] lunarDataLocal(double d2, double[] loc, int back);
+
+    private native static double[] lunarOccultGlobal(double d2, int planet, int back);
+
+    private native static double[] lunarOccultLocal(double d2, double[] loc, int planet,
+                                                    int back);
+
+    @Override
+    public double[] utcToJd(int m, int d, int y, int hr, int min, double sec) {
+        return JDUTC.utc2jd(m, d, y, hr, min, sec);
+    }
+
+    @Override
+    public double[] planetData(double dET, double dUT, int planet, double[] loc) {
+        return calcPlanet(dET, dUT, planet, loc);
+    }
+
+    @Override
+    public int planetsData(double dET, double dUT, int mask, double[] loc, double[] out) {
+        return calcPlanets(dET, dUT, mask, loc, out);
+    }
+
+    @Override
+    public double siderealTime(double dUT) {
+        return calcSidTime(dUT);
+    }
+
+    @Override
+    public double rise(double dUT, int planet, double[] loc) {
+        return RiseSet.planetRise(dUT, planet, loc);
+    }
+
+    @Override
+    public double set(double dUT, int planet, double[] loc) {
+        return RiseSet.planetSet(dUT, planet, loc);
+    }
+
+    @Override
+    public double transit(double dUT, int planet, double[] loc) {
+        return RiseSet.planetTransit(dUT, planet, loc);
+    }
+
+    @Override
+    public double[] solarEclipseGlobal(double dUT, int back) {
+        return solarDataGlobal(dUT, back);
+    }
+
+    @Override
+    public double[] solarEclipseLocal(double dUT, double[] loc, int back) {
+        return solarDataLocal(dUT, loc, back);
+    }
+
+    @Override
+    public double[] lunarEclipseGlobal(double dUT, int back) {
+        return lunarDataGlobal(dUT, back);
+    }
+
+    @Override
+    public double[] lunarEclipseLocal(double dUT, double[] loc, int back) {
+        return lunarDataLocal(dUT, loc, back);
+    }
+
+    @Override
+    public double[] occultationGlobal(double dUT, int planet, int back) {
+        return lunarOccultGlobal(dUT, planet, back);
+    }
+
+    @Override
+    public double[] occultationLocal(double dUT, double[] loc, int planet, int back) {
+        return lunarOccultLocal(dUT, loc, planet, back);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+/**
+ * EphemerisEngine that calculates positions, magnitudes and rise, set and
+ * transit times in Java with the Moshier ephemeris, giving the same results
+ * as the Swiss Ephemeris JNI engine without the native library. Eclipse and
+ * occultation searches are passed on to another engine.
+ */
+public class MoshierEphemerisEngine implements EphemerisEngine {
+
+    private final EphemerisEngine engine;
+
+    /**
+     * @param engine engine used for eclipse and occultation searches
+     */
+    public MoshierEphemerisEngine(EphemerisEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public double[] utcToJd(int m, int d, int y, int hr, int min, double sec) {
+        return MoshierTime.utcToJd(y, m, d, hr, min, sec);
+    }
+
+    @Override
+    public double[] planetData(double dET, double dUT, int planet, double[] loc) {
+        try {
+            return position(new MoshierPosition(loc), new MoshierRiseSet(loc), dET, dUT,
+                    planet);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int planetsData(double dET, double dUT, int mask, double[] loc, double[] out) {
+        if (out.length < 10 * STRIDE)
+            return -1;
+        MoshierPosition position = new MoshierPosition(loc);
+        MoshierRiseSet riseSet = new MoshierRiseSet(loc);
+        double[] r = new double[STRIDE];
+        int count = 0;
+        for (int p = 0; p < 10; p++) {
+            if ((mask & (1 << p)) == 0)
+                continue;
+            try {
+                System.arraycopy(position(position, riseSet, dET, dUT, p), 0, r, 0, 6);
+            } catch (IllegalArgumentException e) {
+                return -1;
+            }
+            r[6] = event(riseSet, dUT, p, MoshierRiseSet.SET);
+            r[7] = event(riseSet, dUT, p, MoshierRiseSet.RISE);
+            r[8] = event(riseSet, dUT, p, 0);
+            // move this planet's row to the result
+            System.arraycopy(r, 0, out, p * STRIDE, STRIDE);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public double siderealTime(double dUT) {
+        return MoshierTime.sidtime(dUT);
+    }
+
+    @Override
+    public double rise(double dUT, int planet, double[] loc) {
+        try {
+            return new MoshierRiseSet(loc).riseSet(dUT, planet, MoshierRiseSet.RISE);
+        } catch (IllegalArgumentException e) {
+            return -1.0;
+        }
+    }
+
+    @Override
+    public double set(double dUT, int planet, double[] loc) {
+        try {
+            return new MoshierRiseSet(loc).riseSet(dUT, planet, MoshierRiseSet.SET);
+        } catch (IllegalArgumentException e) {
+            return -1.0;
+        }
+    }
+
+    @Override
+    public double transit(double dUT, int planet, double[] loc) {
+        try {
+            return new MoshierRiseSet(loc).transit(dUT, planet);
+        } catch (IllegalArgumentException e) {
+            return -1.0;
+        }
+    }
+
+    @Override
+    public double[] solarEclipseGlobal(double dUT, int back) {
+        return engine.solarEclipseGlobal(dUT, back);
+    }
+
+    @Override
+    public double[] solarEclipseLocal(double dUT, double[] loc, int back) {
+        return engine.solarEclipseLocal(dUT, loc, back);
+    }
+
+    @Override
+    public double[] lunarEclipseGlobal(double dUT, int back) {
+        return engine.lunarEclipseGlobal(dUT, back);
+    }
+
+    @Override
+    public double[] lunarEclipseLocal(double dUT, double[] loc, int back) {
+        return engine.lunarEclipseLocal(dUT, loc, back);
+    }
+
+    @Override
+    public double[] occultationGlobal(double dUT, int planet, int back) {
+        return engine.occultationGlobal(dUT, planet, back);
+    }
+
+    @Override
+    public double[] occultationLocal(double dUT, double[] loc, int planet, int back) {
+        return engine.occultationLocal(dUT, loc, planet, back);
+    }
+
+    // RA, Dec, distance, azimuth from the north, altitude and magnitude
+    private static double[] position(MoshierPosition position, MoshierRiseSet riseSet,
+                                     double dET, double dUT, int planet) {
+        double[] x = position.calc(dET, planet, MoshierPosition.TOPOCTR);
+        double[] equ = {x[MoshierPosition.EQU_POLAR], x[MoshierPosition.EQU_POLAR + 1],
+                x[MoshierPosition.EQU_POLAR + 2]};
+        double[] az = riseSet.azalt(dUT, equ);
+        double mag = position.magnitude(
+                dUT + MoshierTime.deltaT(dUT, MoshierTime.TIDAL_MOSHIER), planet);
+        // rotates azimuth origin to north
+        az[0] += 180;
+        if (az[0] > 360)
+            az[0] -= 360;
+        return new double[]{equ[0], equ[1], equ[2], az[0], az[1], mag};
+    }
+
+    // set, rise or, for 0, transit time, NaN if the calculation fails
+    private static double event(MoshierRiseSet riseSet, double dUT, int planet, int event) {
+        try {
+            if (event == 0)
+                return riseSet.transit(dUT, planet);
+            return riseSet.riseSet(dUT, planet, event);
+        } catch (IllegalArgumentException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,702 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+/**
+ * Reference frames and coordinate conversions of the Moshier engine, ported
+ * from swephlib.c of the Swiss Ephemeris with its default models: Vondrak
+ * 2011 precession and obliquity, IAU 2000B nutation and the IAU 2006 frame
+ * bias. Angles are in radians. Conversions take a source and a destination
+ * array, which may be the same array.
+ */
+final class MoshierFrames {
+
+    static final double DEGTORAD = Math.PI / 180.0;
+    static final double RADTODEG = 180.0 / Math.PI;
+    static final double J2000 = 2451545.0;
+    // radians per arc second
+    static final double STR = 4.8481368110953599359e-6;
+    // au in meters and the speed of light in m/s
+    static final double AUNIT = 1.49597870700e+11;
+    static final double CLIGHT = 2.99792458e+8;
+
+    // precession directions
+    static final int J_TO_J2000 = 1;
+    static final int J2000_TO_J = -1;
+
+    private static final double TWOPI = 2.0 * Math.PI;
+    private static final double AS2R = DEGTORAD / 3600.0;
+    private static final double EPS0 = 84381.406 * AS2R;
+    // units of the nutation series, 0.1 micro arc seconds
+    private static final double O1MAS2DEG = 1 / 3600.0 / 10000000.0;
+
+    // Vondrak et al. 2011, obliquity and general precession in longitude
+    private static final double[][] PEPOL = {
+            {8134.017132, 84028.206305},
+            {5043.0520035, 0.3624445},
+            {-0.00710733, -0.00004039},
+            {0.000000271, -0.000000110}
+    };
+    private static final double[][] PEPER = {
+            {409.90, 396.15, 537.22, 402.90, 417.15, 288.92, 4043.00, 306.00, 277.00, 203.00},
+            {
+                -6908.287473, -3198.706291, 1453.674527, -857.748557, 1173.231614, -156.981465,
+                371.836550, -216.619040, 193.691479, 11.891524
+            },
+            {
+                753.872780, -247.805823, 379.471484, -53.880558, -90.109153, -353.600190,
+                -63.115353, -28.248187, 17.703387, 38.911307
+            },
+            {
+                -2845.175469, 449.844989, -1255.915323, 886.736783, 418.887514, 997.912441,
+                -240.979710, 76.541307, -36.788069, -170.964086
+            },
+            {
+                -1704.720302, -862.308358, 447.832178, -889.571909, 190.402846, -56.564991,
+                -296.222622, -75.859952, 67.473503, 3.014055
+            }
+    };
+
+    // Vondrak et al. 2011, pole of the ecliptic
+    private static final double[][] PQPOL = {
+            {5851.607687, -1600.886300},
+            {-0.1189000, 1.1689818},
+            {-0.00028913, -0.00000020},
+            {0.000000101, -0.000000437}
+    };
+    private static final double[][] PQPER = {
+            {708.15, 2309.0, 1620.0, 492.2, 1183.0, 622.0, 882.0, 547.0},
+            {
+                -5486.751211, -17.127623, -617.517403, 413.44294, 78.614193, -180.732815,
+                -87.676083, 46.140315
+            },
+            {
+                -684.66156, 2446.28388, 399.671049, -356.652376, -186.387003, -316.80007,
+                198.296701, 101.135679
+            },
+            {
+                667.66673, -2354.886252, -428.152441, 376.202861, 184.778874, 335.321713,
+                -185.138669, -120.97283
+            },
+            {
+                -5523.863691, -549.74745, -310.998056, 421.535876, -36.776172, -145.278396,
+                -34.74445, 22.885731
+            }
+    };
+
+    // Vondrak et al. 2011, pole of the equator
+    private static final double[][] XYPOL = {
+            {5453.282155, -73750.930350},
+            {0.4252841, -0.7675452},
+            {-0.00037173, -0.00018725},
+            {-0.000000152, 0.000000231}
+    };
+    private static final double[][] XYPER = {
+            {
+                256.75, 708.15, 274.2, 241.45, 2309.0, 492.2, 396.1, 288.9, 231.1, 1610.0, 620.0,
+                157.87, 220.3, 1200.0
+            },
+            {
+                -819.940624, -8444.676815, 2600.009459, 2755.17563, -167.659835, 871.855056,
+                44.769698, -512.313065, -819.415595, -538.071099, -189.793622, -402.922932,
+                179.516345, -9.814756
+            },
+            {
+                75004.344875, 624.033993, 1251.136893, -1102.212834, -2660.66498, 699.291817,
+                153.16722, -950.865637, 499.754645, -145.18821, 558.116553, -23.923029,
+                -165.405086, 9.344131
+            },
+            {
+                81491.287984, 787.163481, 1251.296102, -1257.950837, -2966.79973, 639.744522,
+                131.600209, -445.040117, 584.522874, -89.756563, 524.42963, -13.549067,
+                -210.157124, -44.919798
+            },
+            {
+                1558.515853, 7774.939698, -2219.534038, -2523.969396, 247.850422, -846.485643,
+                -1393.124055, 368.526116, 749.045012, 444.704518, 235.934465, 374.049623,
+                -171.33018, -22.899655
+            }
+    };
+
+    // IAU 2000B luni-solar nutation, multiples of the fundamental arguments
+    private static final int[] NLS = {
+            0, 0, 0, 0, 1, 0, 0, 2, -2, 2,
+            0, 0, 2, 0, 2, 0, 0, 0, 0, 2,
+            0, 1, 0, 0, 0, 0, 1, 2, -2, 2,
+            1, 0, 0, 0, 0, 0, 0, 2, 0, 1,
+            1, 0, 2, 0, 2, 0, -1, 2, -2, 2,
+            0, 0, 2, -2, 1, -1, 0, 2, 0, 2,
+            -1, 0, 0, 2, 0, 1, 0, 0, 0, 1,
+            -1, 0, 0, 0, 1, -1, 0, 2, 2, 2,
+            1, 0, 2, 0, 1, -2, 0, 2, 0, 1,
+            0, 0, 0, 2, 0, 0, 0, 2, 2, 2,
+            0, -2, 2, -2, 2, -2, 0, 0, 2, 0,
+            2, 0, 2, 0, 2, 1, 0, 2, -2, 2,
+            -1, 0, 2, 0, 1, 2, 0, 0, 0, 0,
+            0, 0, 2, 0, 0, 0, 1, 0, 0, 1,
+            -1, 0, 0, 2, 1, 0, 2, 2, -2, 2,
+            0, 0, -2, 2, 0, 1, 0, 0, -2, 1,
+            0, -1, 0, 0, 1, -1, 0, 2, 2, 1,
+            0, 2, 0, 0, 0, 1, 0, 2, 2, 2,
+            -2, 0, 2, 0, 0, 0, 1, 2, 0, 2,
+            0, 0, 2, 2, 1, 0, -1, 2, 0, 2,
+            0, 0, 0, 2, 1, 1, 0, 2, -2, 1,
+            2, 0, 2, -2, 2, -2, 0, 0, 2, 1,
+            2, 0, 2, 0, 1, 0, -1, 2, -2, 1,
+            0, 0, 0, -2, 1, -1, -1, 0, 2, 0,
+            2, 0, 0, -2, 1, 1, 0, 0, 2, 0,
+            0, 1, 2, -2, 1, 1, -1, 0, 0, 0,
+            -2, 0, 2, 0, 2, 3, 0, 2, 0, 2,
+            0, -1, 0, 2, 0, 1, -1, 2, 0, 2,
+            0, 0, 0, 1, 0, -1, -1, 2, 2, 2,
+            -1, 0, 2, 0, 0, 0, -1, 2, 2, 2,
+            -2, 0, 0, 0, 1, 1, 1, 2, 0, 2,
+            2, 0, 0, 0, 1, -1, 1, 0, 1, 0,
+            1, 1, 0, 0, 0, 1, 0, 2, 0, 0,
+            -1, 0, 2, -2, 1, 1, 0, 0, 0, 2,
+            -1, 0, 0, 1, 0, 0, 0, 2, 1, 2,
+            -1, 0, 2, 4, 2, -1, 1, 0, 1, 1,
+            0, -2, 2, -2, 1, 1, 0, 2, 2, 1,
+            -2, 0, 2, 2, 2, -1, 0, 0, 0, 2,
+            1, 1, 2, -2, 2
+    };
+
+    // IAU 2000B luni-solar nutation, coefficients in 0.1 micro arc seconds
+    private static final double[] CLS = {
+            -172064161, -174666, 33386, 92052331, 9086, 15377,
+            -13170906, -1675, -13696, 5730336, -3015, -4587,
+            -2276413, -234, 2796, 978459, -485, 1374,
+            2074554, 207, -698, -897492, 470, -291,
+            1475877, -3633, 11817, 73871, -184, -1924,
+            -516821, 1226, -524, 224386, -677, -174,
+            711159, 73, -872, -6750, 0, 358,
+            -387298, -367, 380, 200728, 18, 318,
+            -301461, -36, 816, 129025, -63, 367,
+            215829, -494, 111, -95929, 299, 132,
+            128227, 137, 181, -68982, -9, 39,
+            123457, 11, 19, -53311, 32, -4,
+            156994, 10, -168, -1235, 0, 82,
+            63110, 63, 27, -33228, 0, -9,
+            -57976, -63, -189, 31429, 0, -75,
+            -59641, -11, 149, 25543, -11, 66,
+            -51613, -42, 129, 26366, 0, 78,
+            45893, 50, 31, -24236, -10, 20,
+            63384, 11, -150, -1220, 0, 29,
+            -38571, -1, 158, 16452, -11, 68,
+            32481, 0, 0, -13870, 0, 0,
+            -47722, 0, -18, 477, 0, -25,
+            -31046, -1, 131, 13238, -11, 59,
+            28593, 0, -1, -12338, 10, -3,
+            20441, 21, 10, -10758, 0, -3,
+            29243, 0, -74, -609, 0, 13,
+            25887, 0, -66, -550, 0, 11,
+            -14053, -25, 79, 8551, -2, -45,
+            15164, 10, 11, -8001, 0, -1,
+            -15794, 72, -16, 6850, -42, -5,
+            21783, 0, 13, -167, 0, 13,
+            -12873, -10, -37, 6953, 0, -14,
+            -12654, 11, 63, 6415, 0, 26,
+            -10204, 0, 25, 5222, 0, 15,
+            16707, -85, -10, 168, -1, 10,
+            -7691, 0, 44, 3268, 0, 19,
+            -11024, 0, -14, 104, 0, 2,
+            7566, -21, -11, -3250, 0, -5,
+            -6637, -11, 25, 3353, 0, 14,
+            -7141, 21, 8, 3070, 0, 4,
+            -6302, -11, 2, 3272, 0, 4,
+            5800, 10, 2, -3045, 0, -1,
+            6443, 0, -7, -2768, 0, -4,
+            -5774, -11, -15, 3041, 0, -5,
+            -5350, 0, 21, 2695, 0, 12,
+            -4752, -11, -3, 2719, 0, -3,
+            -4940, -11, -21, 2720, 0, -9,
+            7350, 0, -8, -51, 0, 4,
+            4065, 0, 6, -2206, 0, 1,
+            6579, 0, -24, -199, 0, 2,
+            3579, 0, 5, -1900, 0, 1,
+            4725, 0, -6, -41, 0, 3,
+            -3075, 0, -2, 1313, 0, -1,
+            -2904, 0, 15, 1233, 0, 7,
+            4348, 0, -10, -81, 0, 2,
+            -2878, 0, 8, 1232, 0, 4,
+            -4230, 0, 5, -20, 0, -2,
+            -2819, 0, 7, 1207, 0, 3,
+            -4056, 0, 5, 40, 0, -2,
+            -2647, 0, 11, 1129, 0, 5,
+            -2294, 0, -10, 1266, 0, -4,
+            2481, 0, -7, -1062, 0, -3,
+            2179, 0, -2, -1129, 0, -2,
+            3276, 0, 1, -9, 0, 0,
+            -3389, 0, 5, 35, 0, -2,
+            3339, 0, -13, -107, 0, 1,
+            -1987, 0, -6, 1073, 0, -2,
+            -1981, 0, 0, 854, 0, 0,
+            4026, 0, -353, -553, 0, -139,
+            1660, 0, -5, -710, 0, -2,
+            -1521, 0, 9, 647, 0, 4,
+            1314, 0, 0, -700, 0, 0,
+            -1283, 0, 0, 672, 0, 0,
+            -1331, 0, 8, 663, 0, 4,
+            1383, 0, -2, -594, 0, -2,
+            1405, 0, 4, -610, 0, 2,
+            1290, 0, 0, -556, 0, 0
+    };
+
+    // IAU 2006 frame bias matrix
+    private static final double[][] BIAS = {
+            {0.99999999999999412, 0.00000007078368695, -0.00000008056214212},
+            {-0.00000007078368961, 0.99999999999999700, -0.00000003306427981},
+            {0.00000008056213978, 0.00000003306428553, 0.99999999999999634}
+    };
+
+    /**
+     * Mean obliquity of the ecliptic at J2000.
+     */
+    static final Epsilon EPS2000 = new Epsilon(J2000);
+
+    /**
+     * Mean obliquity of the ecliptic of a date, with its sine and cosine.
+     */
+    static final class Epsilon {
+        final double eps;
+        final double sinEps;
+        final double cosEps;
+
+        Epsilon(double tjd) {
+            eps = ldpPeps(tjd)[1];
+            sinEps = Math.sin(eps);
+            cosEps = Math.cos(eps);
+        }
+    }
+
+    /**
+     * Nutation of a date and the matrix that applies it to equatorial
+     * coordinates.
+     */
+    static final class Nutation {
+        final double dpsi;
+        final double deps;
+        final double sinDeps;
+        final double cosDeps;
+        private final double[][] matrix = new double[3][3];
+
+        Nutation(double tjd, Epsilon oe) {
+            double[] nutlo = nutation(tjd);
+            dpsi = nutlo[0];
+            deps = nutlo[1];
+            sinDeps = Math.sin(deps);
+            cosDeps = Math.cos(deps);
+            double eps = oe.eps + deps;
+            double sinpsi = Math.sin(dpsi);
+            double cospsi = Math.cos(dpsi);
+            double sineps = Math.sin(eps);
+            double coseps = Math.cos(eps);
+            matrix[0][0] = cospsi;
+            matrix[0][1] = sinpsi * coseps;
+            matrix[0][2] = sinpsi * sineps;
+            matrix[1][0] = -sinpsi * oe.cosEps;
+            matrix[1][1] = cospsi * coseps * oe.cosEps + sineps * oe.sinEps;
+            matrix[1][2] = cospsi * sineps * oe.cosEps - coseps * oe.sinEps;
+            matrix[2][0] = -sinpsi * oe.sinEps;
+            matrix[2][1] = cospsi * coseps * oe.sinEps - sineps * oe.cosEps;
+            matrix[2][2] = cospsi * sineps * oe.sinEps + coseps * oe.cosEps;
+        }
+
+        /**
+         * Moves a position from the mean to the true equator of date.
+         */
+        void nutate(double[] xx) {
+            double[] x = new double[3];
+            for (int i = 0; i <= 2; i++) {
+                x[i] = xx[0] * matrix[0][i] + xx[1] * matrix[1][i] + xx[2] * matrix[2][i];
+            }
+            System.arraycopy(x, 0, xx, 0, 3);
+        }
+    }
+
+    private MoshierFrames() {
+    }
+
+    /**
+     * Returns the general precession in longitude and the mean obliquity of
+     * a date, Vondrak et al. 2011.
+     */
+    static double[] ldpPeps(double tjd) {
+        double t = (tjd - J2000) / 36525.0;
+        double p = 0;
+        double q = 0;
+        for (int i = 0; i < PEPER[0].length; i++) {
+            double a = TWOPI * t / PEPER[0][i];
+            double s = Math.sin(a);
+            double c = Math.cos(a);
+            p += c * PEPER[1][i] + s * PEPER[3][i];
+            q += c * PEPER[2][i] + s * PEPER[4][i];
+        }
+        double w = 1;
+        for (double[] pol : PEPOL) {
+            p += pol[0] * w;
+            q += pol[1] * w;
+            w *= t;
+        }
+        return new double[]{p * AS2R, q * AS2R};
+    }
+
+    // pole of the ecliptic of a date
+    private static double[] eclipticPole(double tjd) {
+        double t = (tjd - J2000) / 36525.0;
+        double p = 0;
+        double q = 0;
+        for (int i = 0; i < PQPER[0].length; i++) {
+            double a = TWOPI * t / PQPER[0][i];
+            double s = Math.sin(a);
+            double c = Math.cos(a);
+            p += c * PQPER[1][i] + s * PQPER[3][i];
+            q += c * PQPER[2][i] + s * PQPER[4][i];
+        }
+        double w = 1;
+        for (double[] pol : PQPOL) {
+            p += pol[0] * w;
+            q += pol[1] * w;
+            w *= t;
+        }
+        p *= AS2R;
+        q *= AS2R;
+        double z = 1 - p * p - q * q;
+        z = z < 0 ? 0 : Math.sqrt(z);
+        double s = Math.sin(EPS0);
+        double c = Math.cos(EPS0);
+        return new double[]{p, -q * c - z * s, -q * s + z * c};
+    }
+
+    // pole of the equator of a date
+    private static double[] equatorPole(double tjd) {
+        double t = (tjd - J2000) / 36525.0;
+        double x = 0;
+        double y = 0;
+        for (int i = 0; i < XYPER[0].length; i++) {
+            double a = TWOPI * t / XYPER[0][i];
+            double s = Math.sin(a);
+            double c = Math.cos(a);
+            x += c * XYPER[1][i] + s * XYPER[3][i];
+            y += c * XYPER[2][i] + s * XYPER[4][i];
+        }
+        double w = 1;
+        for (double[] pol : XYPOL) {
+            x += pol[0] * w;
+            y += pol[1] * w;
+            w *= t;
+        }
+        x *= AS2R;
+        y *= AS2R;
+        w = x * x + y * y;
+        return new double[]{x, y, w < 1 ? Math.sqrt(1 - w) : 0};
+    }
+
+    private static double[] cross(double[] a, double[] b) {
+        return new double[]{a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2],
+                a[0] * b[1] - a[1] * b[0]};
+    }
+
+    /**
+     * Precesses the cartesian equatorial vector at x[off] from a date to
+     * J2000 (J_TO_J2000) or from J2000 to the date (J2000_TO_J).
+     */
+    static void precess(double[] x, int off, double tjd, int direction) {
+        if (tjd == J2000) {
+            return;
+        }
+        double[] peqr = equatorPole(tjd);
+        double[] v = cross(peqr, eclipticPole(tjd));
+        double w = Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+        double[] eqx = {v[0] / w, v[1] / w, v[2] / w};
+        v = cross(peqr, eqx);
+        double[] rp = {eqx[0], eqx[1], eqx[2], v[0], v[1], v[2], peqr[0], peqr[1], peqr[2]};
+        double[] r = new double[3];
+        for (int i = 0; i <= 2; i++) {
+            if (direction == J2000_TO_J) {
+                r[i] = x[off] * rp[i * 3] + x[off + 1] * rp[i * 3 + 1]
+                        + x[off + 2] * rp[i * 3 + 2];
+            } else {
+                r[i] = x[off] * rp[i] + x[off + 1] * rp[i + 3] + x[off + 2] * rp[i + 6];
+            }
+        }
+        System.arraycopy(r, 0, x, off, 3);
+    }
+
+    static void precess(double[] x, double tjd, int direction) {
+        precess(x, 0, tjd, direction);
+    }
+
+    /**
+     * Precesses a position and speed vector and corrects the speed for the
+     * motion of the equinox.
+     */
+    static void precessSpeed(double[] xx, double t, int direction) {
+        Epsilon oe;
+        double fac;
+        if (direction == J2000_TO_J) {
+            fac = 1;
+            oe = new Epsilon(t);
+        } else {
+            fac = -1;
+            oe = EPS2000;
+        }
+        precess(xx, 3, t, direction);
+        coortrf2(xx, 0, xx, 0, oe.sinEps, oe.cosEps);
+        coortrf2(xx, 3, xx, 3, oe.sinEps, oe.cosEps);
+        cartpolSp(xx, xx);
+        xx[3] += (ldpPeps(t + 1)[0] - ldpPeps(t)[0]) * fac;
+        polcartSp(xx, xx);
+        coortrf2(xx, 0, xx, 0, -oe.sinEps, oe.cosEps);
+        coortrf2(xx, 3, xx, 3, -oe.sinEps, oe.cosEps);
+    }
+
+    /**
+     * Returns the nutation in longitude and obliquity of a date, IAU 2000B.
+     */
+    static double[] nutation(double tjd) {
+        double t = (tjd - J2000) / 36525.0;
+        // fundamental arguments, Simon et al. 1994
+        double m = degnorm((485868.249036 + t * (1717915923.2178 + t * (31.8792
+                + t * (0.051635 + t * (-0.00024470))))) / 3600.0) * DEGTORAD;
+        double sm = degnorm((1287104.79305 + t * (129596581.0481 + t * (-0.5532
+                + t * (0.000136 + t * (-0.00001149))))) / 3600.0) * DEGTORAD;
+        double f = degnorm((335779.526232 + t * (1739527262.8478 + t * (-12.7512
+                + t * (-0.001037 + t * (0.00000417))))) / 3600.0) * DEGTORAD;
+        double d = degnorm((1072260.70369 + t * (1602961601.2090 + t * (-6.3706
+                + t * (0.006593 + t * (-0.00003169))))) / 3600.0) * DEGTORAD;
+        double om = degnorm((450160.398036 + t * (-6962890.5431 + t * (7.4722
+                + t * (0.007702 + t * (-0.00005939))))) / 3600.0) * DEGTORAD;
+        double dpsi = 0;
+        double deps = 0;
+        // smallest terms first
+        for (int i = NLS.length / 5 - 1; i >= 0; i--) {
+            int j = i * 5;
+            double darg = radnorm(NLS[j] * m + NLS[j + 1] * sm + NLS[j + 2] * f
+                    + NLS[j + 3] * d + NLS[j + 4] * om);
+            double sinarg = Math.sin(darg);
+            double cosarg = Math.cos(darg);
+            int k = i * 6;
+            dpsi += (CLS[k] + CLS[k + 1] * t) * sinarg + CLS[k + 2] * cosarg;
+            deps += (CLS[k + 3] + CLS[k + 4] * t) * cosarg + CLS[k + 5] * sinarg;
+        }
+        return new double[]{dpsi * O1MAS2DEG * DEGTORAD, deps * O1MAS2DEG * DEGTORAD};
+    }
+
+    /**
+     * Applies the frame bias, ICRS to J2000, to a position.
+     */
+    static void bias(double[] x) {
+        double[] xx = new double[3];
+        for (int i = 0; i <= 2; i++) {
+            xx[i] = x[0] * BIAS[0][i] + x[1] * BIAS[1][i] + x[2] * BIAS[2][i];
+        }
+        System.arraycopy(xx, 0, x, 0, 3);
+    }
+
+    static double degnorm(double x) {
+        double y = x % 360.0;
+        if (Math.abs(y) < 1e-13) {
+            y = 0;
+        }
+        if (y < 0.0) {
+            y += 360.0;
+        }
+        return y;
+    }
+
+    static double radnorm(double x) {
+        double y = x % TWOPI;
+        if (Math.abs(y) < 1e-13) {
+            y = 0;
+        }
+        if (y < 0.0) {
+            y += TWOPI;
+        }
+        return y;
+    }
+
+    /**
+     * Rotates a cartesian vector about the x axis by an angle given by its
+     * sine and cosine, e.g. from the equator to the ecliptic.
+     */
+    static void coortrf2(double[] xpo, int offo, double[] xpn, int offn, double sineps,
+                         double coseps) {
+        double x0 = xpo[offo];
+        double x1 = xpo[offo + 1] * coseps + xpo[offo + 2] * sineps;
+        double x2 = -xpo[offo + 1] * sineps + xpo[offo + 2] * coseps;
+        xpn[offn] = x0;
+        xpn[offn + 1] = x1;
+        xpn[offn + 2] = x2;
+    }
+
+    static void coortrf2(double[] x, double sineps, double coseps) {
+        coortrf2(x, 0, x, 0, sineps, coseps);
+    }
+
+    static void coortrf(double[] x, double eps) {
+        coortrf2(x, 0, x, 0, Math.sin(eps), Math.cos(eps));
+    }
+
+    /**
+     * Converts cartesian coordinates to longitude, latitude and radius.
+     */
+    static void cartpol(double[] x, double[] l) {
+        if (x[0] == 0 && x[1] == 0 && x[2] == 0) {
+            l[0] = l[1] = l[2] = 0;
+            return;
+        }
+        double rxy = x[0] * x[0] + x[1] * x[1];
+        double r = Math.sqrt(rxy + x[2] * x[2]);
+        rxy = Math.sqrt(rxy);
+        double lon = Math.atan2(x[1], x[0]);
+        if (lon < 0.0) {
+            lon += TWOPI;
+        }
+        double lat;
+        if (rxy == 0) {
+            lat = x[2] >= 0 ? Math.PI / 2 : -(Math.PI / 2);
+        } else {
+            lat = Math.atan(x[2] / rxy);
+        }
+        l[0] = lon;
+        l[1] = lat;
+        l[2] = r;
+    }
+
+    /**
+     * Converts longitude, latitude and radius to cartesian coordinates.
+     */
+    static void polcart(double[] l, double[] x) {
+        double cosl1 = Math.cos(l[1]);
+        double x0 = l[2] * cosl1 * Math.cos(l[0]);
+        double x1 = l[2] * cosl1 * Math.sin(l[0]);
+        double x2 = l[2] * Math.sin(l[1]);
+        x[0] = x0;
+        x[1] = x1;
+        x[2] = x2;
+    }
+
+    /**
+     * Converts cartesian position and speed to polar position and speed.
+     */
+    static void cartpolSp(double[] x, double[] l) {
+        if (x[0] == 0 && x[1] == 0 && x[2] == 0) {
+            // zero position, return the direction of motion
+            double[] ll = new double[6];
+            double[] v = {x[3], x[4], x[5]};
+            ll[5] = Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+            cartpol(v, ll);
+            ll[2] = 0;
+            System.arraycopy(ll, 0, l, 0, 6);
+            return;
+        }
+        if (x[3] == 0 && x[4] == 0 && x[5] == 0) {
+            l[3] = l[4] = l[5] = 0;
+            cartpol(x, l);
+            return;
+        }
+        double rxy = x[0] * x[0] + x[1] * x[1];
+        double r = Math.sqrt(rxy + x[2] * x[2]);
+        rxy = Math.sqrt(rxy);
+        double lon = Math.atan2(x[1], x[0]);
+        if (lon < 0.0) {
+            lon += TWOPI;
+        }
+        double lat = Math.atan(x[2] / rxy);
+        // rotate the speed by the longitude and latitude of the position
+        double coslon = x[0] / rxy;
+        double sinlon = x[1] / rxy;
+        double coslat = rxy / r;
+        double sinlat = x[2] / r;
+        double xx3 = x[3] * coslon + x[4] * sinlon;
+        double xx4 = -x[3] * sinlon + x[4] * coslon;
+        double dlon = xx4 / rxy;
+        xx4 = -sinlat * xx3 + coslat * x[5];
+        double xx5 = coslat * xx3 + sinlat * x[5];
+        l[3] = dlon;
+        l[4] = xx4 / r;
+        l[5] = xx5;
+        l[0] = lon;
+        l[1] = lat;
+        l[2] = r;
+    }
+
+    /**
+     * Converts polar position and speed to cartesian position and speed.
+     */
+    static void polcartSp(double[] l, double[] x) {
+        if (l[3] == 0 && l[4] == 0 && l[5] == 0) {
+            x[3] = x[4] = x[5] = 0;
+            polcart(l, x);
+            return;
+        }
+        double coslon = Math.cos(l[0]);
+        double sinlon = Math.sin(l[0]);
+        double coslat = Math.cos(l[1]);
+        double sinlat = Math.sin(l[1]);
+        double xx0 = l[2] * coslat * coslon;
+        double xx1 = l[2] * coslat * sinlon;
+        double xx2 = l[2] * sinlat;
+        double rxyz = l[2];
+        double rxy = Math.sqrt(xx0 * xx0 + xx1 * xx1);
+        double xx5 = l[5];
+        double xx4 = l[4] * rxyz;
+        x[5] = sinlat * xx5 + coslat * xx4;
+        double xx3 = coslat * xx5 - sinlat * xx4;
+        xx4 = l[3] * rxy;
+        x[3] = coslon * xx3 - sinlon * xx4;
+        x[4] = sinlon * xx3 + coslon * xx4;
+        x[0] = xx0;
+        x[1] = xx1;
+        x[2] = xx2;
+    }
+
+    /**
+     * Converts longitude and latitude in degrees between coordinate systems
+     * that are tilted by eps degrees, the distance is kept.
+     */
+    static double[] cotrans(double[] xpo, double eps) {
+        double[] x = {xpo[0] * DEGTORAD, xpo[1] * DEGTORAD, 1};
+        polcart(x, x);
+        coortrf(x, eps * DEGTORAD);
+        cartpol(x, x);
+        return new double[]{x[0] * RADTODEG, x[1] * RADTODEG, xpo[2]};
+    }
+
+    /**
+     * Returns the cosine of the angle between two vectors.
+     */
+    static double dotProdUnit(double[] x, double[] y) {
+        double dop = x[0] * y[0] + x[1] * y[1] + x[2] * y[2];
+        double e1 = Math.sqrt(x[0] * x[0] + x[1] * x[1] + x[2] * x[2]);
+        double e2 = Math.sqrt(y[0] * y[0] + y[1] * y[1] + y[2] * y[2]);
+        dop /= e1;
+        dop /= e2;
+        if (dop > 1) {
+            dop = 1;
+        }
+        if (dop < -1) {
+            dop = -1;
+        }
+        return dop;
+    }
+}
@@ -0,0 +1,829 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import static planets.position.util.MoshierFrames.AUNIT;
+import static planets.position.util.MoshierFrames.J2000;
+import static planets.position.util.MoshierFrames.STR;
+import static planets.position.util.MoshierPlanet.mods3600;
+
+/**
+ * Geocentric position of the Moon from Moshier's lunar theory, a port of
+ * swemmoon.c of the Swiss Ephemeris. The series keep a lot of intermediate
+ * state, so each evaluation uses its own instance.
+ */
+final class MoshierMoon {
+
+    /**
+     * First and last dates covered by the theory, with the margin the Swiss
+     * Ephemeris allows.
+     */
+    static final double START = 625000.5 - 0.2;
+    static final double END = 2818000.5 + 0.2;
+
+    private static final double SPEED_INTERVAL = 0.00005;
+
+    // secular terms of the mean elements, fit to DE404
+    private static final double[] Z = {
+            -1.312045233711e+01, -1.138215912580e-03, -9.646018347184e-06, 3.146734198839e+01,
+            4.768357585780e-02, -3.421689790404e-04, -6.847070905410e+00, -5.834100476561e-03,
+            -2.905334122698e-04, -5.663161722088e+00, 5.722859298199e-03, -8.466472828815e-05,
+            -8.429817796435e+01, -2.072552484689e+02, 7.876842214863e+00, 1.836463749022e+00,
+            -1.557471855361e+01, -2.006969124724e+01, 2.152670284757e+01, -6.179946916139e+00,
+            -9.070028191196e-01, -1.270848233038e+01, -2.145589319058e+00, 1.381936399935e+01,
+            -1.999840061168e+00
+    };
+
+    // longitude and radius, large terms
+    private static final short[] LR = {
+            0, 0, 1, 0, 22639, 5858, -20905, -3550,
+            2, 0, -1, 0, 4586, 4383, -3699, -1109,
+            2, 0, 0, 0, 2369, 9139, -2955, -9676,
+            0, 0, 2, 0, 769, 257, -569, -9251,
+            0, 1, 0, 0, -666, -4171, 48, 8883,
+            0, 0, 0, 2, -411, -5957, -3, -1483,
+            2, 0, -2, 0, 211, 6556, 246, 1585,
+            2, -1, -1, 0, 205, 4358, -152, -1377,
+            2, 0, 1, 0, 191, 9562, -170, -7331,
+            2, -1, 0, 0, 164, 7285, -204, -5860,
+            0, 1, -1, 0, -147, -3213, -129, -6201,
+            1, 0, 0, 0, -124, -9881, 108, 7427,
+            0, 1, 1, 0, -109, -3803, 104, 7552,
+            2, 0, 0, -2, 55, 1771, 10, 3211,
+            0, 0, 1, 2, -45, -996, 0, 0,
+            0, 0, 1, -2, 39, 5333, 79, 6606,
+            4, 0, -1, 0, 38, 4298, -34, -7825,
+            0, 0, 3, 0, 36, 1238, -23, -2104,
+            4, 0, -2, 0, 30, 7726, -21, -6363,
+            2, 1, -1, 0, -28, -3971, 24, 2085,
+            2, 1, 0, 0, -24, -3582, 30, 8238,
+            1, 0, -1, 0, -18, -5847, -8, -3791,
+            1, 1, 0, 0, 17, 9545, -16, -6747,
+            2, -1, 1, 0, 14, 5303, -12, -8314,
+            2, 0, 2, 0, 14, 3797, -10, -4448,
+            4, 0, 0, 0, 13, 8991, -11, -6500,
+            2, 0, -3, 0, 13, 1941, 14, 4027,
+            0, 1, -2, 0, -9, -6791, -7, -27,
+            2, 0, -1, 2, -9, -3659, 0, 7740,
+            2, -1, -2, 0, 8, 6055, 10, 562,
+            1, 0, 1, 0, -8, -4531, 6, 3220,
+            2, -2, 0, 0, 8, 502, -9, -8845,
+            0, 1, 2, 0, -7, -6302, 5, 7509,
+            0, 2, 0, 0, -7, -4475, 1, 657,
+            2, -2, -1, 0, 7, 3712, -4, -9501,
+            2, 0, 1, -2, -6, -3832, 4, 1311,
+            2, 0, 0, 2, -5, -7416, 0, 0,
+            4, -1, -1, 0, 4, 3740, -3, -9580,
+            0, 0, 2, 2, -3, -9976, 0, 0,
+            3, 0, -1, 0, -3, -2097, 3, 2582,
+            2, 1, 1, 0, -2, -9145, 2, 6164,
+            4, -1, -2, 0, 2, 7319, -1, -8970,
+            0, 2, -1, 0, -2, -5679, -2, -1171,
+            2, 2, -1, 0, -2, -5212, 2, 3536,
+            2, 1, -2, 0, 2, 4889, 0, 1437,
+            2, -1, 0, -2, 2, 1461, 0, 6571,
+            4, 0, 1, 0, 1, 9777, -1, -4226,
+            0, 0, 4, 0, 1, 9337, -1, -1169,
+            4, -1, 0, 0, 1, 8708, -1, -5714,
+            1, 0, -2, 0, -1, -7530, -1, -7385,
+            2, 1, 0, -2, -1, -4372, 0, -1357,
+            0, 0, 2, -2, -1, -3726, -4, -4212,
+            1, 1, 1, 0, 1, 2618, 0, -9333,
+            3, 0, -2, 0, -1, -2241, 0, 8624,
+            4, 0, -3, 0, 1, 1868, 0, -5142,
+            2, -1, 2, 0, 1, 1770, 0, -8488,
+            0, 2, 1, 0, -1, -1617, 1, 1655,
+            1, 1, -1, 0, 1, 777, 0, 8512,
+            2, 0, 3, 0, 1, 595, 0, -6697,
+            2, 0, 1, 2, 0, -9902, 0, 0,
+            2, 0, -4, 0, 0, 9483, 0, 7785,
+            2, -2, 1, 0, 0, 7517, 0, -6575,
+            0, 1, -3, 0, 0, -6694, 0, -4224,
+            4, 1, -1, 0, 0, -6352, 0, 5788,
+            1, 0, 2, 0, 0, -5840, 0, 3785,
+            1, 0, 0, -2, 0, -5833, 0, -7956,
+            6, 0, -2, 0, 0, 5716, 0, -4225,
+            2, 0, -2, -2, 0, -5606, 0, 4726,
+            1, -1, 0, 0, 0, -5569, 0, 4976,
+            0, 1, 3, 0, 0, -5459, 0, 3551,
+            2, 0, -2, 2, 0, -5357, 0, 7740,
+            2, 0, -1, -2, 0, 1790, 8, 7516,
+            3, 0, 0, 0, 0, 4042, -1, -4189,
+            2, -1, -3, 0, 0, 4784, 0, 4950,
+            2, -1, 3, 0, 0, 932, 0, -585,
+            2, 0, 2, -2, 0, -4538, 0, 2840,
+            2, -1, -1, 2, 0, -4262, 0, 373,
+            0, 0, 0, 4, 0, 4203, 0, 0,
+            0, 1, 0, 2, 0, 4134, 0, -1580,
+            6, 0, -1, 0, 0, 3945, 0, -2866,
+            2, -1, 0, 2, 0, -3821, 0, 0,
+            2, -1, 1, -2, 0, -3745, 0, 2094,
+            4, 1, -2, 0, 0, -3576, 0, 2370,
+            1, 1, -2, 0, 0, 3497, 0, 3323,
+            2, -3, 0, 0, 0, 3398, 0, -4107,
+            0, 0, 3, 2, 0, -3286, 0, 0,
+            4, -2, -1, 0, 0, -3087, 0, -2790,
+            0, 1, -1, -2, 0, 3015, 0, 0,
+            4, 0, -1, -2, 0, 3009, 0, -3218,
+            2, -2, -2, 0, 0, 2942, 0, 3430,
+            6, 0, -3, 0, 0, 2925, 0, -1832,
+            2, 1, 2, 0, 0, -2902, 0, 2125,
+            4, 1, 0, 0, 0, -2891, 0, 2445,
+            4, -1, 1, 0, 0, 2825, 0, -2029,
+            3, 1, -1, 0, 0, 2737, 0, -2126,
+            0, 1, 1, 2, 0, 2634, 0, 0,
+            1, 0, 0, 2, 0, 2543, 0, 0,
+            3, 0, 0, -2, 0, -2530, 0, 2010,
+            2, 2, -2, 0, 0, -2499, 0, -1089,
+            2, -3, -1, 0, 0, 2469, 0, -1481,
+            3, -1, -1, 0, 0, -2314, 0, 2556,
+            4, 0, 2, 0, 0, 2185, 0, -1392,
+            4, 0, -1, 2, 0, -2013, 0, 0,
+            0, 2, -2, 0, 0, -1931, 0, 0,
+            2, 2, 0, 0, 0, -1858, 0, 0,
+            2, 1, -3, 0, 0, 1762, 0, 0,
+            4, 0, -2, 2, 0, -1698, 0, 0,
+            4, -2, -2, 0, 0, 1578, 0, -1083,
+            4, -2, 0, 0, 0, 1522, 0, -1281,
+            3, 1, 0, 0, 0, 1499, 0, -1077,
+            1, -1, -1, 0, 0, -1364, 0, 1141,
+            1, -3, 0, 0, 0, -1281, 0, 0,
+            6, 0, 0, 0, 0, 1261, 0, -859,
+            2, 0, 2, 2, 0, -1239, 0, 0,
+            1, -1, 1, 0, 0, -1207, 0, 1100,
+            0, 0, 5, 0, 0, 1110, 0, -589,
+            0, 3, 0, 0, 0, -1013, 0, 213,
+            4, -1, -3, 0, 0, 998, 0, 0
+    };
+
+    // latitude, large terms
+    private static final short[] MB = {
+            0, 0, 0, 1, 18461, 2387,
+            0, 0, 1, 1, 1010, 1671,
+            0, 0, 1, -1, 999, 6936,
+            2, 0, 0, -1, 623, 6524,
+            2, 0, -1, 1, 199, 4837,
+            2, 0, -1, -1, 166, 5741,
+            2, 0, 0, 1, 117, 2607,
+            0, 0, 2, 1, 61, 9120,
+            2, 0, 1, -1, 33, 3572,
+            0, 0, 2, -1, 31, 7597,
+            2, -1, 0, -1, 29, 5766,
+            2, 0, -2, -1, 15, 5663,
+            2, 0, 1, 1, 15, 1216,
+            2, 1, 0, -1, -12, -941,
+            2, -1, -1, 1, 8, 8681,
+            2, -1, 0, 1, 7, 9586,
+            2, -1, -1, -1, 7, 4346,
+            0, 1, -1, -1, -6, -7314,
+            4, 0, -1, -1, 6, 5796,
+            0, 1, 0, 1, -6, -4601,
+            0, 0, 0, 3, -6, -2965,
+            0, 1, -1, 1, -5, -6324,
+            1, 0, 0, 1, -5, -3684,
+            0, 1, 1, 1, -5, -3113,
+            0, 1, 1, -1, -5, -759,
+            0, 1, 0, -1, -4, -8396,
+            1, 0, 0, -1, -4, -8057,
+            0, 0, 3, 1, 3, 9841,
+            4, 0, 0, -1, 3, 6745,
+            4, 0, -1, 1, 2, 9985,
+            0, 0, 1, -3, 2, 7986,
+            4, 0, -2, 1, 2, 4139,
+            2, 0, 0, -3, 2, 1863,
+            2, 0, 2, -1, 2, 1462,
+            2, -1, 1, -1, 1, 7660,
+            2, 0, -2, 1, -1, -6244,
+            0, 0, 3, -1, 1, 5813,
+            2, 0, 2, 1, 1, 5198,
+            2, 0, -3, -1, 1, 5156,
+            2, 1, -1, 1, -1, -3178,
+            2, 1, 0, 1, -1, -2643,
+            4, 0, 0, 1, 1, 1919,
+            2, -1, 1, 1, 1, 1346,
+            2, -2, 0, -1, 1, 859,
+            0, 0, 1, 3, -1, -194,
+            2, 1, 1, -1, 0, -8227,
+            1, 1, 0, -1, 0, 8042,
+            1, 1, 0, 1, 0, 8026,
+            0, 1, -2, -1, 0, -7932,
+            2, 1, -1, -1, 0, -7910,
+            1, 0, 1, 1, 0, -6674,
+            2, -1, -2, -1, 0, 6502,
+            0, 1, 2, 1, 0, -6388,
+            4, 0, -2, -1, 0, 6337,
+            4, -1, -1, -1, 0, 5958,
+            1, 0, 1, -1, 0, -5889,
+            4, 0, 1, -1, 0, 4734,
+            1, 0, -1, -1, 0, -4299,
+            4, -1, 0, -1, 0, 4149,
+            2, -2, 0, 1, 0, 3835,
+            3, 0, 0, -1, 0, -3518,
+            4, -1, -1, 1, 0, 3388,
+            2, 0, -1, -3, 0, 3291,
+            2, -2, -1, 1, 0, 3147,
+            0, 1, 2, -1, 0, -3129,
+            3, 0, -1, -1, 0, -3052,
+            0, 1, -2, 1, 0, -3013,
+            2, 0, 1, -3, 0, -2912,
+            2, -2, -1, -1, 0, 2686,
+            0, 0, 4, 1, 0, 2633,
+            2, 0, -3, 1, 0, 2541,
+            2, 0, -1, 3, 0, -2448,
+            2, 1, 1, 1, 0, -2370,
+            4, -1, -2, 1, 0, 2138,
+            4, 0, 1, 1, 0, 2126,
+            3, 0, -1, 1, 0, -2059,
+            4, 1, -1, -1, 0, -1719
+    };
+
+    // longitude and radius, terms in T
+    private static final short[] LRT = {
+            0, 1, 0, 0, 16, 7680, -1, -2302,
+            2, -1, -1, 0, -5, -1642, 3, 8245,
+            2, -1, 0, 0, -4, -1383, 5, 1395,
+            0, 1, -1, 0, 3, 7115, 3, 2654,
+            0, 1, 1, 0, 2, 7560, -2, -6396,
+            2, 1, -1, 0, 0, 7118, 0, -6068,
+            2, 1, 0, 0, 0, 6128, 0, -7754,
+            1, 1, 0, 0, 0, -4516, 0, 4194,
+            2, -2, 0, 0, 0, -4048, 0, 4970,
+            0, 2, 0, 0, 0, 3747, 0, -540,
+            2, -2, -1, 0, 0, -3707, 0, 2490,
+            2, -1, 1, 0, 0, -3649, 0, 3222,
+            0, 1, -2, 0, 0, 2438, 0, 1760,
+            2, -1, -2, 0, 0, -2165, 0, -2530,
+            0, 1, 2, 0, 0, 1923, 0, -1450,
+            0, 2, -1, 0, 0, 1292, 0, 1070,
+            2, 2, -1, 0, 0, 1271, 0, -6070,
+            4, -1, -1, 0, 0, -1098, 0, 990,
+            2, 0, 0, 0, 0, 1073, 0, -1360,
+            2, 0, -1, 0, 0, 839, 0, -630,
+            2, 1, 1, 0, 0, 734, 0, -660,
+            4, -1, -2, 0, 0, -688, 0, 480,
+            2, 1, -2, 0, 0, -630, 0, 0,
+            0, 2, 1, 0, 0, 587, 0, -590,
+            2, -1, 0, -2, 0, -540, 0, -170,
+            4, -1, 0, 0, 0, -468, 0, 390,
+            2, -2, 1, 0, 0, -378, 0, 330,
+            2, 1, 0, -2, 0, 364, 0, 0,
+            1, 1, 1, 0, 0, -317, 0, 240,
+            2, -1, 2, 0, 0, -295, 0, 210,
+            1, 1, -1, 0, 0, -270, 0, -210,
+            2, -3, 0, 0, 0, -256, 0, 310,
+            2, -3, -1, 0, 0, -187, 0, 110,
+            0, 1, -3, 0, 0, 169, 0, 110,
+            4, 1, -1, 0, 0, 158, 0, -150,
+            4, -2, -1, 0, 0, -155, 0, 140,
+            0, 0, 1, 0, 0, 155, 0, -250,
+            2, -2, -2, 0, 0, -148, 0, -170
+    };
+
+    // latitude, terms in T
+    private static final short[] BT = {
+            2, -1, 0, -1, -7430,
+            2, 1, 0, -1, 3043,
+            2, -1, -1, 1, -2229,
+            2, -1, 0, 1, -1999,
+            2, -1, -1, -1, -1869,
+            0, 1, -1, -1, 1696,
+            0, 1, 0, 1, 1623,
+            0, 1, -1, 1, 1418,
+            0, 1, 1, 1, 1339,
+            0, 1, 1, -1, 1278,
+            0, 1, 0, -1, 1217,
+            2, -2, 0, -1, -547,
+            2, -1, 1, -1, -443,
+            2, 1, -1, 1, 331,
+            2, 1, 0, 1, 317,
+            2, 0, 0, -1, 295
+    };
+
+    // longitude and radius, terms in T^2
+    private static final short[] LRT2 = {
+            0, 1, 0, 0, 487, -36,
+            2, -1, -1, 0, -150, 111,
+            2, -1, 0, 0, -120, 149,
+            0, 1, -1, 0, 108, 95,
+            0, 1, 1, 0, 80, -77,
+            2, 1, -1, 0, 21, -18,
+            2, 1, 0, 0, 20, -23,
+            1, 1, 0, 0, -13, 12,
+            2, -2, 0, 0, -12, 14,
+            2, -1, 1, 0, -11, 9,
+            2, -2, -1, 0, -11, 7,
+            0, 2, 0, 0, 11, 0,
+            2, -1, -2, 0, -6, -7,
+            0, 1, -2, 0, 7, 5,
+            0, 1, 2, 0, 6, -4,
+            2, 2, -1, 0, 5, -3,
+            0, 2, -1, 0, 5, 3,
+            4, -1, -1, 0, -3, 3,
+            2, 0, 0, 0, 3, -4,
+            4, -1, -2, 0, -2, 0,
+            2, 1, -2, 0, -2, 0,
+            2, -1, 0, -2, -2, 0,
+            2, 1, 1, 0, 2, -2,
+            2, 0, -1, 0, 2, 0,
+            0, 2, 1, 0, 2, 0
+    };
+
+    // latitude, terms in T^2
+    private static final short[] BT2 = {
+            2, -1, 0, -1, -22,
+            2, 1, 0, -1, 9,
+            2, -1, 0, 1, -6,
+            2, -1, -1, 1, -6,
+            2, -1, -1, -1, -5,
+            0, 1, 0, 1, 5,
+            0, 1, -1, -1, 5,
+            0, 1, 1, 1, 4,
+            0, 1, 1, -1, 4,
+            0, 1, 0, -1, 4,
+            0, 1, -1, 1, 4,
+            2, -2, 0, -1, -2
+    };
+
+    private final double[][] ss = new double[5][8];
+    private final double[][] cc = new double[5][8];
+    private final double[] moonpol = new double[3];
+    private double t, t2;
+    // mean elements of the Moon and the Sun in arc seconds
+    private double m, mp, d, nf, lp;
+    // mean longitudes of the planets in arc seconds
+    private double ve, ea, ma, ju, sa;
+    private double l, l1, l2, l3, l4, b, f, g, cg, sg;
+
+    private MoshierMoon(double tjd) {
+        t = (tjd - J2000) / 36525.0;
+        t2 = t * t;
+        meanElements();
+        meanElementsPlanets();
+        moon1();
+        moon2();
+        moon3();
+        moon4();
+    }
+
+    /**
+     * Returns the geocentric ecliptic longitude, latitude and distance of
+     * the Moon, referred to the mean ecliptic and equinox of date.
+     *
+     * @param tjd Jullian date in ephemeris time
+     * @return array of longitude and latitude in radians and distance in au
+     */
+    static double[] ecliptic(double tjd) {
+        return new MoshierMoon(tjd).moonpol;
+    }
+
+    /**
+     * Returns the geocentric position and speed of the Moon, cartesian
+     * coordinates of the equator and equinox of J2000 in au and au per day.
+     *
+     * @param tjd Jullian date in ephemeris time
+     * @param oe  obliquity of the date being calculated
+     * @return array of x, y, z and their speeds
+     * @throws IllegalArgumentException if the date is outside the theory
+     */
+    static double[] equatorial(double tjd, MoshierFrames.Epsilon oe) {
+        if (tjd < START || tjd > END) {
+            throw new IllegalArgumentException("outside Moshier moon: " + tjd);
+        }
+        double[] xpm = new double[6];
+        System.arraycopy(equatorial2000(tjd, oe), 0, xpm, 0, 3);
+        double[] x1 = equatorial2000(tjd + SPEED_INTERVAL, oe);
+        double[] x2 = equatorial2000(tjd - SPEED_INTERVAL, oe);
+        // speed from a parabola through the three positions
+        for (int i = 0; i <= 2; i++) {
+            double bb = (x1[i] - x2[i]) / 2;
+            double a = (x1[i] + x2[i]) / 2 - xpm[i];
+            xpm[i + 3] = (2 * a + bb) / SPEED_INTERVAL;
+        }
+        return xpm;
+    }
+
+    // ecliptic of date to the cartesian equator of J2000
+    private static double[] equatorial2000(double tjd, MoshierFrames.Epsilon oe) {
+        double[] x = ecliptic(tjd);
+        MoshierFrames.polcart(x, x);
+        MoshierFrames.coortrf2(x, -oe.sinEps, oe.cosEps);
+        MoshierFrames.precess(x, tjd, MoshierFrames.J_TO_J2000);
+        return x;
+    }
+
+    private void moon1() {
+        double a;
+        sscc(0, STR * d, 6);
+        sscc(1, STR * m, 4);
+        sscc(2, STR * mp, 4);
+        sscc(3, STR * nf, 4);
+        moonpol[0] = 0.0;
+        moonpol[1] = 0.0;
+        moonpol[2] = 0.0;
+        // terms in T^2, scale 1.0 = 10^-5"
+        chewm(LRT2, 4, 2);
+        chewm(BT2, 4, 4);
+        f = 18 * ve - 16 * ea;
+        g = STR * (f - mp); // 18V - 16E - l
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l = 6.367278 * cg + 12.747036 * sg; // t^0
+        l1 = 23123.70 * cg - 10570.02 * sg; // t^1
+        l2 = Z[12] * cg + Z[13] * sg; // t^2
+        moonpol[2] += 5.01 * cg + 2.72 * sg;
+        g = STR * (10. * ve - 3. * ea - mp);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += -0.253102 * cg + 0.503359 * sg;
+        l1 += 1258.46 * cg + 707.29 * sg;
+        l2 += Z[14] * cg + Z[15] * sg;
+        g = STR * (8. * ve - 13. * ea);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += -0.187231 * cg - 0.127481 * sg;
+        l1 += -319.87 * cg - 18.34 * sg;
+        l2 += Z[16] * cg + Z[17] * sg;
+        a = 4.0 * ea - 8.0 * ma + 3.0 * ju;
+        g = STR * a;
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += -0.866287 * cg + 0.248192 * sg;
+        l1 += 41.87 * cg + 1053.97 * sg;
+        l2 += Z[18] * cg + Z[19] * sg;
+        g = STR * (a - mp);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += -0.165009 * cg + 0.044176 * sg;
+        l1 += 4.67 * cg + 201.55 * sg;
+        g = STR * f; // 18V - 16E
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += 0.330401 * cg + 0.661362 * sg;
+        l1 += 1202.67 * cg - 555.59 * sg;
+        l2 += Z[20] * cg + Z[21] * sg;
+        g = STR * (f - 2.0 * mp); // 18V - 16E - 2l
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += 0.352185 * cg + 0.705041 * sg;
+        l1 += 1283.59 * cg - 586.43 * sg;
+        g = STR * (2.0 * ju - 5.0 * sa);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += -0.034700 * cg + 0.160041 * sg;
+        l2 += Z[22] * cg + Z[23] * sg;
+        g = STR * (lp - nf);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += 0.000116 * cg + 7.063040 * sg;
+        l1 += 298.8 * sg;
+        // T^3 terms
+        sg = Math.sin(STR * m);
+        // l3 was not initialized by Moshier
+        l3 = Z[24] * sg;
+        l4 = 0;
+        g = STR * (2.0 * d - m);
+        sg = Math.sin(g);
+        cg = Math.cos(g);
+        moonpol[2] += -0.2655 * cg * t;
+        g = STR * (m - mp);
+        moonpol[2] += -0.1568 * Math.cos(g) * t;
+        g = STR * (m + mp);
+        moonpol[2] += 0.1309 * Math.cos(g) * t;
+        g = STR * (2.0 * (d + m) - mp);
+        sg = Math.sin(g);
+        cg = Math.cos(g);
+        moonpol[2] += 0.5568 * cg * t;
+        l2 += moonpol[0];
+        g = STR * (2.0 * d - m - mp);
+        moonpol[2] += -0.1910 * Math.cos(g) * t;
+        moonpol[1] *= t;
+        moonpol[2] *= t;
+        // terms in T
+        moonpol[0] = 0.0;
+        chewm(BT, 4, 4);
+        chewm(LRT, 4, 1);
+        g = STR * (f - mp - nf - 2355767.6); // 18V - 16E - l - F
+        moonpol[1] += -1127. * Math.sin(g);
+        g = STR * (f - mp + nf - 235353.6); // 18V - 16E - l + F
+        moonpol[1] += -1123. * Math.sin(g);
+        g = STR * (ea + d + 51987.6);
+        moonpol[1] += 1303. * Math.sin(g);
+        g = STR * lp;
+        moonpol[1] += 342. * Math.sin(g);
+        g = STR * (2. * ve - 3. * ea);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += -0.343550 * cg - 0.000276 * sg;
+        l1 += 105.90 * cg + 336.53 * sg;
+        g = STR * (f - 2. * d); // 18V - 16E - 2D
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += 0.074668 * cg + 0.149501 * sg;
+        l1 += 271.77 * cg - 124.20 * sg;
+        g = STR * (f - 2. * d - mp);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += 0.073444 * cg + 0.147094 * sg;
+        l1 += 265.24 * cg - 121.16 * sg;
+        g = STR * (f + 2. * d - mp);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += 0.072844 * cg + 0.145829 * sg;
+        l1 += 265.18 * cg - 121.29 * sg;
+        g = STR * (f + 2. * (d - mp));
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += 0.070201 * cg + 0.140542 * sg;
+        l1 += 255.36 * cg - 116.79 * sg;
+        g = STR * (ea + d - nf);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += 0.288209 * cg - 0.025901 * sg;
+        l1 += -63.51 * cg - 240.14 * sg;
+        g = STR * (2. * ea - 3. * ju + 2. * d - mp);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += 0.077865 * cg + 0.438460 * sg;
+        l1 += 210.57 * cg + 124.84 * sg;
+        g = STR * (ea - 2. * ma);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += -0.216579 * cg + 0.241702 * sg;
+        l1 += 197.67 * cg + 125.23 * sg;
+        g = STR * (a + mp);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += -0.165009 * cg + 0.044176 * sg;
+        l1 += 4.67 * cg + 201.55 * sg;
+        g = STR * (a + 2. * d - mp);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += -0.133533 * cg + 0.041116 * sg;
+        l1 += 6.95 * cg + 187.07 * sg;
+        g = STR * (a - 2. * d + mp);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += -0.133430 * cg + 0.041079 * sg;
+        l1 += 6.28 * cg + 169.08 * sg;
+        g = STR * (3. * ve - 4. * ea);
+        cg = Math.cos(g);
+        sg = Math.sin(g);
+        l += -0.175074 * cg + 0.003035 * sg;
+        l1 += 49.17 * cg + 150.57 * sg;
+        g = STR * (2. * (ea + d - mp) - 3. * ju + 213534.);
+        l1 += 158.4 * Math.sin(g);
+        l1 += moonpol[0];
+        a = 0.1 * t; // set amplitude scale of 1.0 = 10^-4 arcsec
+        moonpol[1] *= a;
+        moonpol[2] *= a;
+    }
+
+    private void moon2() {
+        // terms in T^0
+        g = STR * (2 * (ea - ju + d) - mp + 648431.172);
+        l += 1.14307 * Math.sin(g);
+        g = STR * (ve - ea + 648035.568);
+        l += 0.82155 * Math.sin(g);
+        g = STR * (3 * (ve - ea) + 2 * d - mp + 647933.184);
+        l += 0.64371 * Math.sin(g);
+        g = STR * (ea - ju + 4424.04);
+        l += 0.63880 * Math.sin(g);
+        g = STR * (lp + mp - nf + 4.68);
+        l += 0.49331 * Math.sin(g);
+        g = STR * (lp - mp - nf + 4.68);
+        l += 0.4914 * Math.sin(g);
+        g = STR * (lp + nf + 2.52);
+        l += 0.36061 * Math.sin(g);
+        g = STR * (2. * ve - 2. * ea + 736.2);
+        l += 0.30154 * Math.sin(g);
+        g = STR * (2. * ea - 3. * ju + 2. * d - 2. * mp + 36138.2);
+        l += 0.28282 * Math.sin(g);
+        g = STR * (2. * ea - 2. * ju + 2. * d - 2. * mp + 311.0);
+        l += 0.24516 * Math.sin(g);
+        g = STR * (ea - ju - 2. * d + mp + 6275.88);
+        l += 0.21117 * Math.sin(g);
+        g = STR * (2. * (ea - ma) - 846.36);
+        l += 0.19444 * Math.sin(g);
+        g = STR * (2. * (ea - ju) + 1569.96);
+        l -= 0.18457 * Math.sin(g);
+        g = STR * (2. * (ea - ju) - mp - 55.8);
+        l += 0.18256 * Math.sin(g);
+        g = STR * (ea - ju - 2. * d + 6490.08);
+        l += 0.16499 * Math.sin(g);
+        g = STR * (ea - 2. * ju - 212378.4);
+        l += 0.16427 * Math.sin(g);
+        g = STR * (2. * (ve - ea - d) + mp + 1122.48);
+        l += 0.16088 * Math.sin(g);
+        g = STR * (ve - ea - mp + 32.04);
+        l -= 0.15350 * Math.sin(g);
+        g = STR * (ea - ju - mp + 4488.88);
+        l += 0.14346 * Math.sin(g);
+        g = STR * (2. * (ve - ea + d) - mp - 8.64);
+        l += 0.13594 * Math.sin(g);
+        g = STR * (2. * (ve - ea - d) + 1319.76);
+        l += 0.13432 * Math.sin(g);
+        g = STR * (ve - ea - 2. * d + mp - 56.16);
+        l -= 0.13122 * Math.sin(g);
+        g = STR * (ve - ea + mp + 54.36);
+        l -= 0.12722 * Math.sin(g);
+        g = STR * (3. * (ve - ea) - mp + 433.8);
+        l += 0.12539 * Math.sin(g);
+        g = STR * (ea - ju + mp + 4002.12);
+        l += 0.10994 * Math.sin(g);
+        g = STR * (20. * ve - 21. * ea - 2. * d + mp - 317511.72);
+        l += 0.10652 * Math.sin(g);
+        g = STR * (26. * ve - 29. * ea - mp + 270002.52);
+        l += 0.10490 * Math.sin(g);
+        g = STR * (3. * ve - 4. * ea + d - mp - 322765.56);
+        l += 0.10386 * Math.sin(g);
+        g = STR * (lp + 648002.556);
+        b = 8.04508 * Math.sin(g);
+        g = STR * (ea + d + 996048.252);
+        b += 1.51021 * Math.sin(g);
+        g = STR * (f - mp + nf + 95554.332);
+        b += 0.63037 * Math.sin(g);
+        g = STR * (f - mp - nf + 95553.792);
+        b += 0.63014 * Math.sin(g);
+        g = STR * (lp - mp + 2.9);
+        b += 0.45587 * Math.sin(g);
+        g = STR * (lp + mp + 2.5);
+        b += -0.41573 * Math.sin(g);
+        g = STR * (lp - 2.0 * nf + 3.2);
+        b += 0.32623 * Math.sin(g);
+        g = STR * (lp - 2.0 * d + 2.5);
+        b += 0.29855 * Math.sin(g);
+    }
+
+    private void moon3() {
+        // terms in T^0
+        moonpol[0] = 0.0;
+        chewm(LR, 4, 1);
+        chewm(MB, 4, 3);
+        l += (((l4 * t + l3) * t + l2) * t + l1) * t * 1.0e-5;
+        moonpol[0] = lp + l + 1.0e-4 * moonpol[0];
+        moonpol[1] = 1.0e-4 * moonpol[1] + b;
+        moonpol[2] = 1.0e-4 * moonpol[2] + 385000.52899; // kilometers
+    }
+
+    // final ecliptic polar coordinates
+    private void moon4() {
+        moonpol[2] /= AUNIT / 1000;
+        moonpol[0] = STR * mods3600(moonpol[0]);
+        moonpol[1] = STR * moonpol[1];
+        b = moonpol[1];
+    }
+
+    /**
+     * Steps through a perturbation table. Each line holds the multiples of
+     * the first nangles arguments followed by the amplitudes, typflg selects
+     * the layout of the amplitudes.
+     */
+    private void chewm(short[] pt, int nangles, int typflg) {
+        int p = 0;
+        while (p < pt.length) {
+            boolean first = true;
+            double sv = 0.0;
+            double cv = 0.0;
+            for (int n = 0; n < nangles; n++) {
+                // multiple angle factor
+                int j = pt[p++];
+                if (j != 0) {
+                    int k = Math.abs(j);
+                    double su = ss[n][k - 1];
+                    double cu = cc[n][k - 1];
+                    if (j < 0) {
+                        su = -su;
+                    }
+                    if (first) {
+                        sv = su;
+                        cv = cu;
+                        first = false;
+                    } else {
+                        double ff = su * cv + cu * sv;
+                        cv = cu * cv - su * sv;
+                        sv = ff;
+                    }
+                }
+            }
+            int j, k;
+            switch (typflg) {
+                case 1:
+                    // large longitude and radius
+                    j = pt[p++];
+                    k = pt[p++];
+                    moonpol[0] += (10000.0 * j + k) * sv;
+                    j = pt[p++];
+                    k = pt[p++];
+                    if (k != 0) {
+                        moonpol[2] += (10000.0 * j + k) * cv;
+                    }
+                    break;
+                case 2:
+                    // longitude and radius
+                    j = pt[p++];
+                    k = pt[p++];
+                    moonpol[0] += j * sv;
+                    moonpol[2] += k * cv;
+                    break;
+                case 3:
+                    // large latitude
+                    j = pt[p++];
+                    k = pt[p++];
+                    moonpol[1] += (10000.0 * j + k) * sv;
+                    break;
+                default:
+                    // latitude
+                    j = pt[p++];
+                    moonpol[1] += j * sv;
+                    break;
+            }
+        }
+    }
+
+    // sine and cosine of 1 to n times an argument
+    private void sscc(int k, double arg, int n) {
+        MoshierPlanet.sscc(ss[k], cc[k], arg, n);
+    }
+
+    private void meanElements() {
+        double fracT = t % 1;
+        // Mean anomaly of sun = l' (J. Laskar)
+        m = mods3600(129600000.0 * fracT - 3418.961646 * t + 1287104.76154);
+        m += ((((((((
+                1.62e-20 * t
+                - 1.0390e-17) * t
+                - 3.83508e-15) * t
+                + 4.237343e-13) * t
+                + 8.8555011e-11) * t
+                - 4.77258489e-8) * t
+                - 1.1297037031e-5) * t
+                + 1.4732069041e-4) * t
+                - 0.552891801772) * t2;
+        // Mean distance of moon from its ascending node = F
+        nf = mods3600(1739232000.0 * fracT + 295263.0983 * t - 2.079419901760e-01 * t
+                + 335779.55755);
+        // Mean anomaly of moon = l
+        mp = mods3600(1717200000.0 * fracT + 715923.4728 * t - 2.035946368532e-01 * t
+                + 485868.28096);
+        // Mean elongation of moon = D
+        d = mods3600(1601856000.0 * fracT + 1105601.4603 * t + 3.962893294503e-01 * t
+                + 1072260.73512);
+        // Mean longitude of moon, referred to the mean ecliptic and equinox of date
+        lp = mods3600(1731456000.0 * fracT + 1108372.83264 * t - 6.784914260953e-01 * t
+                + 785939.95571);
+        // Higher degree secular terms found by least squares fit
+        nf += ((Z[2] * t + Z[1]) * t + Z[0]) * t2;
+        mp += ((Z[5] * t + Z[4]) * t + Z[3]) * t2;
+        d += ((Z[8] * t + Z[7]) * t + Z[6]) * t2;
+        lp += ((Z[11] * t + Z[10]) * t + Z[9]) * t2;
+    }
+
+    private void meanElementsPlanets() {
+        // Mean longitudes of planets (Laskar, Bretagnon)
+        ve = mods3600(210664136.4335482 * t + 655127.283046);
+        ve += ((((((((
+                -9.36e-023 * t
+                - 1.95e-20) * t
+                + 6.097e-18) * t
+                + 4.43201e-15) * t
+                + 2.509418e-13) * t
+                - 3.0622898e-10) * t
+                - 2.26602516e-9) * t
+                - 1.4244812531e-5) * t
+                + 0.005871373088) * t2;
+        ea = mods3600(129597742.26669231 * t + 361679.214649);
+        ea += ((((((((-1.16e-22 * t
+                + 2.976e-19) * t
+                + 2.8460e-17) * t
+                - 1.08402e-14) * t
+                - 1.226182e-12) * t
+                + 1.7228268e-10) * t
+                + 1.515912254e-7) * t
+                + 8.863982531e-6) * t
+                - 2.0199859001e-2) * t2;
+        ma = mods3600(68905077.59284 * t + 1279559.78866);
+        ma += (-1.043e-5 * t + 9.38012e-3) * t2;
+        ju = mods3600(10925660.428608 * t + 123665.342120);
+        ju += (1.543273e-5 * t - 3.06037836351e-1) * t2;
+        sa = mods3600(4399609.65932 * t + 180278.89694);
+        sa += ((4.475946e-8 * t - 6.874806E-5) * t + 7.56161437443E-1) * t2;
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import static planets.position.util.MoshierFrames.DEGTORAD;
+import static planets.position.util.MoshierFrames.J2000;
+import static planets.position.util.MoshierFrames.STR;
+
+/**
+ * Heliocentric planet positions from the Moshier planetary theory, a port of
+ * swemplan.c of the Swiss Ephemeris. Positions are cartesian, referred to the
+ * equator and equinox of J2000, in au and au per day.
+ */
+final class MoshierPlanet {
+
+    /**
+     * First and last dates covered by the theory, with the margin the Swiss
+     * Ephemeris allows for the speed at the edges.
+     */
+    static final double START = 625000.5 - 0.3;
+    static final double END = 2818000.5 + 0.3;
+
+    private static final double J1900 = 2415020.0;
+    private static final double TIMESCALE = 3652500.0;
+    private static final double SPEED_INTERVAL = 0.0001;
+    private static final double EARTH_MOON_MRAT = 1 / 0.0123000383;
+
+    // mean motions in arc seconds per 10000 julian years
+    private static final double[] FREQS = {
+            53810162868.8982, 21066413643.3548, 12959774228.3429, 6890507749.3988,
+            1092566037.7991, 439960985.5372, 154248119.3933, 78655032.0744,
+            52272245.1795
+    };
+
+    // mean longitudes at J2000 in arc seconds
+    private static final double[] PHASES = {
+            252.25090552 * 3600., 181.97980085 * 3600., 100.46645683 * 3600.,
+            355.43299958 * 3600., 34.35151874 * 3600., 50.07744430 * 3600.,
+            314.05500511 * 3600., 304.34866548 * 3600., 860492.1546
+    };
+
+    /**
+     * Coefficients of the theory for one planet.
+     */
+    static final class Table {
+        final int[] maxHarmonic;
+        final int maxPowerOfT;
+        final double distance;
+        final byte[] args;
+        final double[] lon;
+        final double[] lat;
+        final double[] rad;
+
+        Table(int[] maxHarmonic, int maxPowerOfT, double distance, byte[] args,
+              double[] lon, double[] lat, double[] rad) {
+            this.maxHarmonic = maxHarmonic;
+            this.maxPowerOfT = maxPowerOfT;
+            this.distance = distance;
+            this.args = args;
+            this.lon = lon;
+            this.lat = lat;
+            this.rad = rad;
+        }
+    }
+
+    private MoshierPlanet() {
+    }
+
+    /**
+     * Returns the heliocentric position and speed of a planet.
+     *
+     * @param tjd    Jullian date in ephemeris time
+     * @param planet planet number, 2 = Mercury ... 9 = Pluto
+     * @return array of x, y, z and their speeds
+     * @throws IllegalArgumentException if the date is outside the theory
+     */
+    static double[] planet(double tjd, int planet) {
+        checkDate(tjd);
+        Table table = table(planet);
+        double[] x = equatorial(tjd, table);
+        double[] x2 = equatorial(tjd - SPEED_INTERVAL, table);
+        return withSpeed(x, x2);
+    }
+
+    /**
+     * Returns the heliocentric position and speed of the Earth.
+     *
+     * @param tjd Jullian date in ephemeris time
+     * @param oe  obliquity of the date being calculated, used to place the
+     *            Moon when going from the barycenter to the Earth
+     * @return array of x, y, z and their speeds
+     * @throws IllegalArgumentException if the date is outside the theory
+     */
+    static double[] earth(double tjd, MoshierFrames.Epsilon oe) {
+        checkDate(tjd);
+        Table table = MoshierPlanetTables.EarthMoonBarycenter.TABLE;
+        double[] x = equatorial(tjd, table);
+        embToEarth(tjd, x, oe);
+        double[] x2 = equatorial(tjd - SPEED_INTERVAL, table);
+        embToEarth(tjd - SPEED_INTERVAL, x2, oe);
+        return withSpeed(x, x2);
+    }
+
+    private static void checkDate(double tjd) {
+        if (tjd < START || tjd > END) {
+            throw new IllegalArgumentException("outside Moshier planets: " + tjd);
+        }
+    }
+
+    private static Table table(int planet) {
+        switch (planet) {
+            case 2:
+                return MoshierPlanetTables.Mercury.TABLE;
+            case 3:
+                return MoshierPlanetTables.Venus.TABLE;
+            case 4:
+                return MoshierPlanetTables.Mars.TABLE;
+            case 5:
+                return MoshierPlanetTables.Jupiter.TABLE;
+            case 6:
+                return MoshierPlanetTables.Saturn.TABLE;
+            case 7:
+                return MoshierPlanetTables.Uranus.TABLE;
+            case 8:
+                return MoshierPlanetTables.Neptune.TABLE;
+            case 9:
+                return MoshierPlanetTables.Pluto.TABLE;
+            default:
+                throw new IllegalArgumentException("no Moshier theory for planet " + planet);
+        }
+    }
+
+    private static double[] withSpeed(double[] x, double[] x2) {
+        double[] xx = new double[6];
+        for (int i = 0; i <= 2; i++) {
+            xx[i] = x[i];
+            xx[i + 3] = (x[i] - x2[i]) / SPEED_INTERVAL;
+        }
+        return xx;
+    }
+
+    // ecliptic polar coordinates of J2000 converted to equatorial cartesian
+    private static double[] equatorial(double tjd, Table table) {
+        double[] x = ecliptic(tjd, table);
+        MoshierFrames.polcart(x, x);
+        MoshierFrames.coortrf2(x, -MoshierFrames.EPS2000.sinEps,
+                MoshierFrames.EPS2000.cosEps);
+        return x;
+    }
+
+    /**
+     * Sums the series of a planet, returns the heliocentric ecliptic
+     * longitude, latitude and radius of J2000.
+     */
+    static double[] ecliptic(double tjd, Table table) {
+        double[][] ss = new double[9][24];
+        double[][] cc = new double[9][24];
+        double t = (tjd - J2000) / TIMESCALE;
+        for (int i = 0; i < 9; i++) {
+            int j = table.maxHarmonic[i];
+            if (j > 0) {
+                sscc(ss[i], cc[i], (mods3600(FREQS[i] * t) + PHASES[i]) * STR, j);
+            }
+        }
+        byte[] p = table.args;
+        double[] pl = table.lon;
+        double[] pb = table.lat;
+        double[] pr = table.rad;
+        int ip = 0, il = 0, ib = 0, ir = 0;
+        double sl = 0, sb = 0, sr = 0;
+        double su, cu, sv, cv;
+        for (; ; ) {
+            int np = p[ip++];
+            if (np < 0) {
+                break;
+            }
+            if (np == 0) {
+                // polynomial term
+                int nt = p[ip++];
+                cu = pl[il++];
+                for (int k = 0; k < nt; k++) {
+                    cu = cu * t + pl[il++];
+                }
+                sl += mods3600(cu);
+                cu = pb[ib++];
+                for (int k = 0; k < nt; k++) {
+                    cu = cu * t + pb[ib++];
+                }
+                sb += cu;
+                cu = pr[ir++];
+                for (int k = 0; k < nt; k++) {
+                    cu = cu * t + pr[ir++];
+                }
+                sr += cu;
+                continue;
+            }
+            boolean first = true;
+            sv = 0;
+            cv = 0;
+            for (int n = 0; n < np; n++) {
+                // harmonic and planet of each argument
+                int j = p[ip++];
+                int m = p[ip++] - 1;
+                if (j != 0) {
+                    int k = Math.abs(j) - 1;
+                    su = j < 0 ? -ss[m][k] : ss[m][k];
+                    cu = cc[m][k];
+                    if (first) {
+                        sv = su;
+                        cv = cu;
+                        first = false;
+                    } else {
+                        double s = su * cv + cu * sv;
+                        cv = cu * cv - su * sv;
+                        sv = s;
+                    }
+                }
+            }
+            int nt = p[ip++];
+            cu = pl[il++];
+            su = pl[il++];
+            for (int k = 0; k < nt; k++) {
+                cu = cu * t + pl[il++];
+                su = su * t + pl[il++];
+            }
+            sl += cu * cv + su * sv;
+            cu = pb[ib++];
+            su = pb[ib++];
+            for (int k = 0; k < nt; k++) {
+                cu = cu * t + pb[ib++];
+                su = su * t + pb[ib++];
+            }
+            sb += cu * cv + su * sv;
+            cu = pr[ir++];
+            su = pr[ir++];
+            for (int k = 0; k < nt; k++) {
+                cu = cu * t + pr[ir++];
+                su = su * t + pr[ir++];
+            }
+            sr += cu * cv + su * sv;
+        }
+        return new double[]{STR * sl, STR * sb, STR * table.distance * sr + table.distance};
+    }
+
+    /**
+     * Fills ss and cc with the sine and cosine of 1 to n times arg.
+     */
+    static void sscc(double[] ss, double[] cc, double arg, int n) {
+        double su = Math.sin(arg);
+        double cu = Math.cos(arg);
+        ss[0] = su;
+        cc[0] = cu;
+        double sv = 2.0 * su * cu;
+        double cv = cu * cu - su * su;
+        ss[1] = sv;
+        cc[1] = cv;
+        for (int i = 2; i < n; i++) {
+            double s = su * cv + cu * sv;
+            cv = cu * cv - su * sv;
+            sv = s;
+            ss[i] = sv;
+            cc[i] = cv;
+        }
+    }
+
+    /**
+     * Reduces arc seconds to the range 0 to 360 degrees.
+     */
+    static double mods3600(double x) {
+        return x - 1296000.0 * Math.floor(x / 1296000.0);
+    }
+
+    // moves the Earth-Moon barycenter to the Earth with a short lunar series
+    private static void embToEarth(double tjd, double[] xemb, MoshierFrames.Epsilon oe) {
+        double t = (tjd - J1900) / 36525.0;
+        // mean anomaly of the Moon
+        double a = MoshierFrames.degnorm(((1.44e-5 * t + 0.009192) * t + 477198.8491) * t
+                + 296.104608);
+        a *= DEGTORAD;
+        double smp = Math.sin(a);
+        double cmp = Math.cos(a);
+        double s2mp = 2.0 * smp * cmp;
+        double c2mp = cmp * cmp - smp * smp;
+        // mean elongation of the Moon
+        a = MoshierFrames.degnorm(((1.9e-6 * t - 0.001436) * t + 445267.1142) * t
+                + 350.737486);
+        a = 2.0 * DEGTORAD * a;
+        double s2d = Math.sin(a);
+        double c2d = Math.cos(a);
+        // mean distance of the Moon from its ascending node
+        a = MoshierFrames.degnorm(((-3.e-7 * t - 0.003211) * t + 483202.0251) * t
+                + 11.250889);
+        a *= DEGTORAD;
+        double sf = Math.sin(a);
+        double cf = Math.cos(a);
+        double s2f = 2.0 * sf * cf;
+        double sx = s2d * cmp - c2d * smp;
+        double cx = c2d * cmp + s2d * smp;
+        // mean longitude of the Moon and mean anomaly of the Sun
+        double l = ((1.9e-6 * t - 0.001133) * t + 481267.8831) * t + 270.434164;
+        double m = MoshierFrames.degnorm(((-3.3e-6 * t - 1.50e-4) * t + 35999.0498) * t
+                + 358.475833);
+        l = l + 6.288750 * smp + 1.274018 * sx + 0.658309 * s2d + 0.213616 * s2mp
+                - 0.185596 * Math.sin(DEGTORAD * m) - 0.114336 * s2f;
+        a = smp * cf;
+        sx = cmp * sf;
+        double b = 5.128189 * sf + 0.280606 * (a + sx) + 0.277693 * (a - sx)
+                + 0.173238 * (s2d * cf - c2d * sf);
+        b *= DEGTORAD;
+        // parallax of the Moon
+        double p = 0.950724 + 0.051818 * cmp + 0.009531 * cx + 0.007843 * c2d
+                + 0.002824 * c2mp;
+        p *= DEGTORAD;
+        l = MoshierFrames.degnorm(l) * DEGTORAD;
+        double[] xyz = {l, b, 4.263523e-5 / Math.sin(p)};
+        MoshierFrames.polcart(xyz, xyz);
+        MoshierFrames.coortrf2(xyz, -oe.sinEps, oe.cosEps);
+        MoshierFrames.precess(xyz, tjd, MoshierFrames.J_TO_J2000);
+        for (int i = 0; i <= 2; i++) {
+            xemb[i] -= xyz[i] / (EARTH_MOON_MRAT + 1.0);
+        }
+    }
+}
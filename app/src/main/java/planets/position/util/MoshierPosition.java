@@ -0,0 +1,415 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import static planets.position.util.MoshierFrames.AUNIT;
+import static planets.position.util.MoshierFrames.CLIGHT;
+import static planets.position.util.MoshierFrames.DEGTORAD;
+import static planets.position.util.MoshierFrames.J2000;
+import static planets.position.util.MoshierFrames.RADTODEG;
+
+/**
+ * Apparent positions of the Sun, Moon and planets with the Moshier
+ * ephemeris, ported from app_pos_etc_plan(), app_pos_etc_sun() and
+ * app_pos_etc_moon() in sweph.c of the Swiss Ephemeris. Only positions are
+ * computed, speeds are not needed by the app. Planet numbers are those of
+ * the Swiss Ephemeris, 0 = Sun, 1 = Moon, 2 = Mercury ... 9 = Pluto.
+ */
+final class MoshierPosition {
+
+    static final int SUN = 0;
+    static final int MOON = 1;
+    static final int MERCURY = 2;
+    static final int VENUS = 3;
+    static final int SATURN = 6;
+
+    // calc flags
+    static final int TOPOCTR = 1;
+    static final int HELCTR = 2;
+
+    // offsets of the coordinates returned by calc
+    static final int ECL_POLAR = 0;
+    static final int ECL_XYZ = 3;
+    static final int EQU_POLAR = 6;
+    static final int EQU_XYZ = 9;
+
+    static final double EARTH_RADIUS = 6378136.6;
+    private static final double EARTH_OBLATENESS = 1.0 / 298.25642;
+    // radians per day
+    private static final double EARTH_ROT_SPEED = 7.2921151467e-5 * 86400;
+    // G * M(sun), m^3/sec^2
+    private static final double HELGRAVCONST = 1.32712440017987e+20;
+    private static final double SUN_RADIUS = 959.63 / 3600 * DEGTORAD;
+
+    // diameters in meters, Sun to Pluto
+    static final double[] DIAMETER = {
+            1392000000.0, 3476300.0, 2439000.0 * 2, 6052000.0 * 2, 3397200.0 * 2,
+            71398000.0 * 2, 60000000.0 * 2, 25400000.0 * 2, 24300000.0 * 2, 2500000.0 * 2
+    };
+
+    // magnitude elements, Sun to Pluto, see swe_pheno()
+    private static final double[][] MAG_ELEM = {
+            {-26.86, 0, 0, 0},
+            {-12.55, 0, 0, 0},
+            {-0.42, 3.80, -2.73, 2.00},
+            {-4.40, 0.09, 2.39, -0.65},
+            {-1.52, 1.60, 0, 0},
+            {-9.40, 0.5, 0, 0},
+            {-8.88, -2.60, 1.25, 0.044},
+            {-7.19, 0.0, 0, 0},
+            {-6.87, 0.0, 0, 0},
+            {-1.00, 0.0, 0, 0}
+    };
+
+    // effective mass of the Sun for a photon passing it at 1.00, 0.99 ...
+    // 0.00 of its radius, see meff() in sweph.c
+    private static final double[] MEFF = {
+            1.000000, 0.999979, 0.999940, 0.999881, 0.999811, 0.999724, 0.999622, 0.999497,
+            0.999354, 0.999192, 0.999000, 0.998786, 0.998535, 0.998242, 0.997919, 0.997571,
+            0.997198, 0.996792, 0.996316, 0.995791, 0.995226, 0.994625, 0.993991, 0.993326,
+            0.992598, 0.991770, 0.990873, 0.989919, 0.988912, 0.987856, 0.986755, 0.985610,
+            0.984398, 0.982986, 0.981437, 0.979779, 0.978024, 0.976182, 0.974256, 0.972253,
+            0.970174, 0.968024, 0.965594, 0.962797, 0.959758, 0.956515, 0.953088, 0.949495,
+            0.945741, 0.941838, 0.937790, 0.933563, 0.928668, 0.923288, 0.917527, 0.911432,
+            0.905035, 0.898353, 0.891022, 0.882940, 0.874312, 0.865206, 0.855423, 0.844619,
+            0.833074, 0.820876, 0.808031, 0.793962, 0.778931, 0.763021, 0.745815, 0.727557,
+            0.708234, 0.687583, 0.665741, 0.642597, 0.618252, 0.592586, 0.565747, 0.537697,
+            0.508554, 0.478420, 0.447322, 0.415454, 0.382892, 0.349955, 0.316691, 0.283565,
+            0.250431, 0.218327, 0.186794, 0.156287, 0.128421, 0.102237, 0.077393, 0.054833,
+            0.036361, 0.020953, 0.009645, 0.002767, 0.000000
+    };
+
+    private final double geolon;
+    private final double geolat;
+    private final double geoalt;
+
+    /**
+     * @param geopos array of longitude, latitude and elevation of the
+     *               observer, used for topocentric positions
+     */
+    MoshierPosition(double[] geopos) {
+        geolon = geopos[0];
+        geolat = geopos[1];
+        geoalt = geopos[2];
+    }
+
+    /**
+     * Calculates the apparent position of a body, referred to the true
+     * equator and ecliptic of date.
+     *
+     * @param tjd   Jullian date in ephemeris time
+     * @param ipl   planet number
+     * @param flags TOPOCTR or HELCTR, 0 for geocentric
+     * @return ecliptic longitude, latitude and distance in degrees and au at
+     * ECL_POLAR, the same as x, y, z at ECL_XYZ, and right ascension,
+     * declination and distance at EQU_POLAR and EQU_XYZ
+     * @throws IllegalArgumentException if the date is outside the theory
+     */
+    double[] calc(double tjd, int ipl, int flags) {
+        MoshierFrames.Epsilon oe = new MoshierFrames.Epsilon(tjd);
+        double[] earth = MoshierPlanet.earth(tjd, oe);
+        double[] topo = (flags & TOPOCTR) != 0 ? observer(tjd) : new double[6];
+        double[] xx;
+        if (ipl == SUN) {
+            xx = sun(earth, topo);
+        } else if (ipl == MOON) {
+            xx = moon(tjd, oe, earth, topo, (flags & HELCTR) != 0);
+        } else {
+            xx = planet(tjd, ipl, earth, topo, (flags & HELCTR) != 0);
+        }
+        MoshierFrames.bias(xx);
+        MoshierFrames.precess(xx, tjd, MoshierFrames.J2000_TO_J);
+        MoshierFrames.Nutation nut = new MoshierFrames.Nutation(tjd, oe);
+        nut.nutate(xx);
+        double[] ret = new double[12];
+        System.arraycopy(xx, 0, ret, EQU_XYZ, 3);
+        MoshierFrames.coortrf2(xx, oe.sinEps, oe.cosEps);
+        MoshierFrames.coortrf2(xx, nut.sinDeps, nut.cosDeps);
+        System.arraycopy(xx, 0, ret, ECL_XYZ, 3);
+        toPolar(ret, EQU_XYZ, EQU_POLAR);
+        toPolar(ret, ECL_XYZ, ECL_POLAR);
+        return ret;
+    }
+
+    /**
+     * Calculates the apparent magnitude of a body as seen from the center
+     * of the Earth, see swe_pheno() in swecl.c.
+     *
+     * @param tjd Jullian date in ephemeris time
+     * @param ipl planet number
+     * @return magnitude
+     * @throws IllegalArgumentException if the date is outside the theory
+     */
+    double magnitude(double tjd, int ipl) {
+        double[] geo = calc(tjd, ipl, 0);
+        double dist = geo[ECL_POLAR + 2];
+        double diam = DIAMETER[ipl];
+        if (ipl == SUN) {
+            double d = dist < diam / 2 / AUNIT ? 180
+                    : Math.asin(diam / 2 / AUNIT / dist) * 2 * RADTODEG;
+            // ratio of the apparent to the average diameter
+            double fac = d / (Math.asin(diam / 2.0 / AUNIT) * 2 * RADTODEG);
+            fac *= fac;
+            return MAG_ELEM[SUN][0] - 2.5 * Math.log10(fac);
+        }
+        // heliocentric position at the time the light left the body
+        double dt = dist * AUNIT / CLIGHT / 86400.0;
+        double[] helio = calc(tjd - dt, ipl, HELCTR);
+        double[] xx = {geo[ECL_XYZ], geo[ECL_XYZ + 1], geo[ECL_XYZ + 2]};
+        double[] xx2 = {helio[ECL_XYZ], helio[ECL_XYZ + 1], helio[ECL_XYZ + 2]};
+        double phase = Math.acos(MoshierFrames.dotProdUnit(xx, xx2)) * RADTODEG;
+        double r = dist;
+        double r2 = helio[ECL_POLAR + 2];
+        if (ipl == MOON) {
+            // Allen, Astrophysical Quantities, 1976
+            return -21.62 + 5 * Math.log10(r * AUNIT / EARTH_RADIUS) + 0.026 * Math.abs(phase)
+                    + 0.000000004 * Math.pow(phase, 4);
+        }
+        double[] me = MAG_ELEM[ipl];
+        if (ipl == SATURN) {
+            // rings, Meeus, Astronomical Algorithms p. 301
+            double lon = geo[ECL_POLAR] * DEGTORAD;
+            double lat = geo[ECL_POLAR + 1] * DEGTORAD;
+            double lon2 = helio[ECL_POLAR] * DEGTORAD;
+            double lat2 = helio[ECL_POLAR + 1] * DEGTORAD;
+            double t = (tjd - dt - J2000) / 36525.0;
+            double in = (28.075216 - 0.012998 * t + 0.000004 * t * t) * DEGTORAD;
+            double om = (169.508470 + 1.394681 * t + 0.000412 * t * t) * DEGTORAD;
+            double sinB = Math.abs(Math.sin(in) * Math.cos(lat) * Math.sin(lon - om)
+                    - Math.cos(in) * Math.sin(lat));
+            double u1 = Math.atan2(Math.sin(in) * Math.tan(lat2)
+                    + Math.cos(in) * Math.sin(lon2 - om), Math.cos(lon2 - om)) * RADTODEG;
+            double u2 = Math.atan2(Math.sin(in) * Math.tan(lat)
+                    + Math.cos(in) * Math.sin(lon - om), Math.cos(lon - om)) * RADTODEG;
+            double du = MoshierFrames.degnorm(u1 - u2);
+            if (du > 10) {
+                du = 360 - du;
+            }
+            return 5 * Math.log10(r2 * r) + me[1] * sinB + me[2] * sinB * sinB + me[3] * du
+                    + me[0];
+        }
+        double i100 = phase / 100.0;
+        if (ipl == MERCURY) {
+            // Hilton 2005
+            return -0.60 + 4.98 * i100 - 4.88 * i100 * i100 + 3.02 * i100 * i100 * i100
+                    + 5 * Math.log10(r2 * r);
+        }
+        if (ipl == VENUS) {
+            double mag;
+            if (phase < 163.6) {
+                mag = -4.47 + 1.03 * i100 + 0.57 * i100 * i100 + 0.13 * i100 * i100 * i100;
+            } else {
+                mag = 0.98 - 1.02 * i100;
+            }
+            return mag + 5 * Math.log10(r2 * r);
+        }
+        return 5 * Math.log10(r2 * r) + me[1] * phase / 100.0
+                + me[2] * phase * phase / 10000.0
+                + me[3] * phase * phase * phase / 1000000.0 + me[0];
+    }
+
+    // geocentric Sun, with Moshier the Sun is at the barycenter
+    private double[] sun(double[] earth, double[] topo) {
+        double[] xobs = new double[6];
+        double[] xx = new double[3];
+        for (int i = 0; i <= 5; i++) {
+            xobs[i] = topo[i] + earth[i];
+        }
+        for (int i = 0; i <= 2; i++) {
+            xx[i] = -xobs[i];
+        }
+        aberration(xx, xobs);
+        return xx;
+    }
+
+    private double[] planet(double tjd, int ipl, double[] earth, double[] topo,
+                            boolean helio) {
+        double[] x = MoshierPlanet.planet(tjd, ipl);
+        double[] xobs = new double[6];
+        for (int i = 0; i <= 5; i++) {
+            xobs[i] = topo[i] + earth[i];
+        }
+        // light-time, subtracting dt times the speed is good enough here
+        double[] xx = new double[3];
+        for (int i = 0; i <= 2; i++) {
+            xx[i] = helio ? x[i] : x[i] - xobs[i];
+        }
+        double dt = norm(xx) * AUNIT / CLIGHT / 86400.0;
+        for (int i = 0; i <= 2; i++) {
+            xx[i] = x[i] - dt * x[i + 3];
+        }
+        if (!helio) {
+            for (int i = 0; i <= 2; i++) {
+                xx[i] -= xobs[i];
+            }
+            deflection(xx, xobs);
+            aberration(xx, xobs);
+        }
+        return xx;
+    }
+
+    private double[] moon(double tjd, MoshierFrames.Epsilon oe, double[] earth, double[] topo,
+                          boolean helio) {
+        double[] xm = MoshierMoon.equatorial(tjd, oe);
+        double[] xobs = new double[6];
+        double[] xxm = new double[3];
+        if (!helio) {
+            for (int i = 0; i <= 5; i++) {
+                xobs[i] = topo[i] + earth[i];
+            }
+        }
+        for (int i = 0; i <= 2; i++) {
+            xxm[i] = helio ? xm[i] + earth[i] : xm[i] - topo[i];
+        }
+        double dt = norm(xxm) * AUNIT / CLIGHT / 86400.0;
+        double[] xx = new double[3];
+        for (int i = 0; i <= 2; i++) {
+            xx[i] = xm[i] + earth[i] - dt * (xm[i + 3] + earth[i + 3]) - xobs[i];
+        }
+        if (!helio) {
+            aberration(xx, xobs);
+        }
+        return xx;
+    }
+
+    /**
+     * Returns the geocentric position and speed of the observer, cartesian
+     * coordinates of the equator and equinox of J2000 in au and au per day,
+     * see swi_get_observer() in sweph.c.
+     */
+    private double[] observer(double tjd) {
+        double tjdUt = tjd - MoshierTime.deltaT(tjd, MoshierTime.TIDAL_MOSHIER);
+        double eps = MoshierFrames.ldpPeps(tjd)[1];
+        // mean sidereal time in degrees
+        double sidt = MoshierTime.sidtime0(tjdUt, eps * RADTODEG, 0) * 15;
+        double f = EARTH_OBLATENESS;
+        double cosfi = Math.cos(geolat * DEGTORAD);
+        double sinfi = Math.sin(geolat * DEGTORAD);
+        double cc = 1 / Math.sqrt(cosfi * cosfi + (1 - f) * (1 - f) * sinfi * sinfi);
+        double ss = (1 - f) * (1 - f) * cc;
+        double cosl = Math.cos((geolon + sidt) * DEGTORAD);
+        double sinl = Math.sin((geolon + sidt) * DEGTORAD);
+        double[] xobs = new double[6];
+        xobs[0] = (EARTH_RADIUS * cc + geoalt) * cosfi * cosl;
+        xobs[1] = (EARTH_RADIUS * cc + geoalt) * cosfi * sinl;
+        xobs[2] = (EARTH_RADIUS * ss + geoalt) * sinfi;
+        MoshierFrames.cartpol(xobs, xobs);
+        xobs[3] = EARTH_ROT_SPEED;
+        xobs[4] = xobs[5] = 0;
+        MoshierFrames.polcartSp(xobs, xobs);
+        for (int i = 0; i <= 5; i++) {
+            xobs[i] /= AUNIT;
+        }
+        MoshierFrames.precess(xobs, tjd, MoshierFrames.J_TO_J2000);
+        MoshierFrames.precessSpeed(xobs, tjd, MoshierFrames.J_TO_J2000);
+        return xobs;
+    }
+
+    /**
+     * Relativistic deflection of light by the Sun, see swi_deflect_light()
+     * in sweph.c.
+     *
+     * @param xx     geocentric position, deflected in place
+     * @param xearth heliocentric position of the observer
+     */
+    private static void deflection(double[] xx, double[] xearth) {
+        double[] u = new double[3];
+        double[] e = new double[3];
+        double[] q = new double[3];
+        for (int i = 0; i <= 2; i++) {
+            u[i] = xx[i];
+            e[i] = xearth[i];
+            q[i] = xx[i] + xearth[i];
+        }
+        double ru = norm(u);
+        double rq = norm(q);
+        double re = norm(e);
+        for (int i = 0; i <= 2; i++) {
+            u[i] /= ru;
+            q[i] /= rq;
+            e[i] /= re;
+        }
+        double uq = dot(u, q);
+        double ue = dot(u, e);
+        double qe = dot(q, e);
+        // a photon passing inside the solar disc sees only part of its mass
+        double sina = Math.sqrt(1 - ue * ue);
+        double sinSunr = SUN_RADIUS / re;
+        double meffFact = sina < sinSunr ? meff(sina / sinSunr) : 1;
+        double g1 = 2.0 * HELGRAVCONST * meffFact / CLIGHT / CLIGHT / AUNIT / re;
+        double g2 = 1.0 + qe;
+        for (int i = 0; i <= 2; i++) {
+            xx[i] = ru * (u[i] + g1 / g2 * (uq * e[i] - ue * q[i]));
+        }
+    }
+
+    private static double meff(double r) {
+        if (r <= 0) {
+            return 0.0;
+        } else if (r >= 1) {
+            return 1.0;
+        }
+        int i = 0;
+        while ((100 - i) / 100.0 > r) {
+            i++;
+        }
+        double r0 = (100 - i + 1) / 100.0;
+        double f = (r - r0) / ((100 - i) / 100.0 - r0);
+        return MEFF[i - 1] + f * (MEFF[i] - MEFF[i - 1]);
+    }
+
+    /**
+     * Annual aberration of light, see swi_aberr_light() in sweph.c.
+     *
+     * @param xx geocentric position, corrected in place
+     * @param xe position and speed of the observer
+     */
+    private static void aberration(double[] xx, double[] xe) {
+        double ru = norm(xx);
+        double[] v = new double[3];
+        for (int i = 0; i <= 2; i++) {
+            v[i] = xe[i + 3] / 24.0 / 3600.0 / CLIGHT * AUNIT;
+        }
+        double b1 = Math.sqrt(1 - dot(v, v));
+        double f1 = dot(xx, v) / ru;
+        double f2 = 1.0 + f1 / (1.0 + b1);
+        for (int i = 0; i <= 2; i++) {
+            xx[i] = (b1 * xx[i] + f2 * ru * v[i]) / (1.0 + f1);
+        }
+    }
+
+    // cartesian coordinates at ret[from] to polar degrees at ret[to]
+    private static void toPolar(double[] ret, int from, int to) {
+        double[] x = {ret[from], ret[from + 1], ret[from + 2]};
+        MoshierFrames.cartpol(x, x);
+        ret[to] = x[0] * RADTODEG;
+        ret[to + 1] = x[1] * RADTODEG;
+        ret[to + 2] = x[2];
+    }
+
+    private static double dot(double[] a, double[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
+
+    private static double norm(double[] x) {
+        return Math.sqrt(x[0] * x[0] + x[1] * x[1] + x[2] * x[2]);
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import static planets.position.util.MoshierFrames.AUNIT;
+import static planets.position.util.MoshierFrames.DEGTORAD;
+import static planets.position.util.MoshierFrames.RADTODEG;
+import static planets.position.util.MoshierFrames.degnorm;
+
+/**
+ * Horizontal coordinates and rise, set and transit times with the Moshier
+ * ephemeris, ported from swe_azalt(), swe_refrac_extended() and
+ * swe_rise_trans() in swecl.c of the Swiss Ephemeris. Times are Jullian
+ * dates in ut1, rises and sets are those of the upper limb with refraction
+ * and the atmospheric pressure estimated from the elevation.
+ */
+final class MoshierRiseSet {
+
+    static final int RISE = 1;
+    static final int SET = 2;
+
+    // lapse rate of the atmosphere, K/m
+    private static final double LAPSE_RATE = 0.0065;
+    private static final double TWO_HOURS = 1.0 / 12.0;
+    // elevations the slow rise and set search and transits work for
+    private static final double GEOALT_MIN = -500.0;
+    private static final double GEOALT_MAX = 25000.0;
+
+    private final double geolon;
+    private final double geolat;
+    private final double geoalt;
+    // millibars
+    private final double atpress;
+    private final MoshierPosition position;
+
+    /**
+     * @param geopos array of longitude, latitude and elevation of the
+     *               observer
+     */
+    MoshierRiseSet(double[] geopos) {
+        geolon = geopos[0];
+        geolat = geopos[1];
+        geoalt = geopos[2];
+        atpress = 1013.25 * Math.pow(1 - 0.0065 * geoalt / 288, 5.255);
+        position = new MoshierPosition(geopos);
+    }
+
+    /**
+     * Converts a topocentric right ascension and declination to azimuth and
+     * altitude.
+     *
+     * @param tjdUt Jullian date in ut1
+     * @param xin   array of right ascension and declination in degrees
+     * @return array of azimuth from the south, true altitude and apparent
+     * altitude in degrees
+     */
+    double[] azalt(double tjdUt, double[] xin) {
+        double armc = degnorm(MoshierTime.sidtime(tjdUt) * 15 + geolon);
+        double mdd = degnorm(xin[0] - armc);
+        // azimuth from the east, counterclockwise
+        double[] x = MoshierFrames.cotrans(new double[]{degnorm(mdd - 90), xin[1], 1},
+                90 - geolat);
+        x[0] = degnorm(x[0] + 90);
+        return new double[]{360 - x[0], x[1], refraction(x[1])};
+    }
+
+    /**
+     * Returns the next rise or set of the upper limb of a body.
+     *
+     * @param tjdUt Jullian date in ut1 to start the search from
+     * @param ipl   planet number
+     * @param event RISE or SET
+     * @return Jullian date in ut1, 0 if the body does not rise or set
+     * @throws IllegalArgumentException if the date is outside the theory or
+     *                                  the elevation is out of range
+     */
+    double riseSet(double tjdUt, int ipl, int event) {
+        // the fast method misses events of circumpolar bodies
+        if (Math.abs(geolat) <= 60 || (ipl == MoshierPosition.SUN && Math.abs(geolat) <= 65)) {
+            return riseSetFast(tjdUt, ipl, event);
+        }
+        checkElevation();
+        return riseSetTrueHorizon(tjdUt, ipl, event);
+    }
+
+    /**
+     * Returns the next upper meridian transit of a body.
+     *
+     * @param tjdUt Jullian date in ut1 to start the search from
+     * @param ipl   planet number
+     * @return Jullian date in ut1
+     * @throws IllegalArgumentException if the date is outside the theory or
+     *                                  the elevation is out of range
+     */
+    double transit(double tjdUt, int ipl) {
+        checkElevation();
+        double ra = equatorial(tjdUt, ipl)[0];
+        double t = tjdUt;
+        double arxc = localSiderealTime(tjdUt);
+        for (int i = 0; i < 4; i++) {
+            double mdd = degnorm(ra - arxc);
+            if (i > 0 && mdd > 180) {
+                mdd -= 360;
+            }
+            t += mdd / 361;
+            arxc = localSiderealTime(t);
+            ra = equatorial(t, ipl)[0];
+        }
+        return t;
+    }
+
+    // local sidereal time in degrees
+    private double localSiderealTime(double tjdUt) {
+        double armc = MoshierTime.sidtime(tjdUt) + geolon / 15;
+        if (armc >= 24) {
+            armc -= 24;
+        }
+        if (armc < 0) {
+            armc += 24;
+        }
+        return armc * 15;
+    }
+
+    private void checkElevation() {
+        if (geoalt < GEOALT_MIN || geoalt > GEOALT_MAX) {
+            throw new IllegalArgumentException("elevation out of range: " + geoalt);
+        }
+    }
+
+    // topocentric right ascension, declination and distance
+    private double[] equatorial(double tjdUt, int ipl) {
+        double tjd = tjdUt + MoshierTime.deltaT(tjdUt, MoshierTime.TIDAL_MOSHIER);
+        double[] x = position.calc(tjd, ipl, MoshierPosition.TOPOCTR);
+        return new double[]{x[MoshierPosition.EQU_POLAR], x[MoshierPosition.EQU_POLAR + 1],
+                x[MoshierPosition.EQU_POLAR + 2]};
+    }
+
+    // rough time from the semi-diurnal arc, refined with the altitude
+    private double riseSetFast(double tjdUt, int ipl, int event) {
+        double tjdUt0 = tjdUt;
+        int nloop = ipl == MoshierPosition.MOON ? 4 : 2;
+        int facrise = event == SET ? -1 : 1;
+        // true altitude of a body seen on the horizon at sea level
+        double refr = astronomicalRefraction(0.000001);
+        boolean secondRun = false;
+        while (true) {
+            double[] xx = equatorial(tjdUt, ipl);
+            double sda = -Math.tan(geolat * DEGTORAD) * Math.tan(xx[1] * DEGTORAD);
+            if (sda >= 1) {
+                // 0 with some allowance for refraction
+                sda = 10;
+            } else if (sda <= -1) {
+                sda = 180;
+            } else {
+                sda = Math.acos(sda) * RADTODEG;
+            }
+            double armc = degnorm(MoshierTime.sidtime(tjdUt) * 15 + geolon);
+            double md = degnorm(xx[0] - armc);
+            double mdrise = degnorm(sda * facrise);
+            double dmd = degnorm(md - mdrise);
+            // avoid the event of the next day
+            if (dmd > 358) {
+                dmd -= 360;
+            }
+            double tr = tjdUt + dmd / 360;
+            for (int i = 0; i < nloop; i++) {
+                xx = equatorial(tr, ipl);
+                double rdi = Math.asin(MoshierPosition.DIAMETER[ipl] / 2.0 / AUNIT / xx[2])
+                        * RADTODEG + refr;
+                double[] xaz = azalt(tr, xx);
+                double[] xaz2 = azalt(tr + 0.001, xx);
+                double dt = (xaz[1] + rdi) / (xaz2[1] - xaz[1]) / 1000.0;
+                if (dt > 0.1) {
+                    dt = 0.1;
+                } else if (dt < -0.1) {
+                    dt = -0.1;
+                }
+                tr -= dt;
+            }
+            if (tr >= tjdUt0 || secondRun) {
+                return tr;
+            }
+            // the event found is before the start, search the next one
+            tjdUt += 0.5;
+            secondRun = true;
+        }
+    }
+
+    // altitude sampled every two hours with the culminations in between,
+    // then bisection of the first horizon crossing
+    private double riseSetTrueHorizon(double tjdUt, int ipl, int event) {
+        double[] tc = new double[20];
+        double[] h = new double[20];
+        double[][] xh = new double[20][];
+        double[] tculm = new double[4];
+        int nculm = -1;
+        int jmax = 14;
+        double t = tjdUt - TWO_HOURS;
+        for (int ii = 0; ii <= jmax; ii++, t += TWO_HOURS) {
+            tc[ii] = t;
+            xh[ii] = upperLimb(t, ipl);
+            h[ii] = xh[ii][2];
+            if (ii > 1) {
+                double[] dc = {xh[ii - 2][1], xh[ii - 1][1], xh[ii][1]};
+                if ((dc[1] > dc[0] && dc[1] > dc[2]) || (dc[1] < dc[0] && dc[1] < dc[2])) {
+                    double dt = TWO_HOURS;
+                    double tcu = t - dt;
+                    tcu += maximum(dc, dt) + dt;
+                    for (dt /= 3; dt > 0.0001; dt /= 3) {
+                        double tt = tcu - dt;
+                        for (int i = 0; i < 3; i++, tt += dt) {
+                            dc[i] = azalt(tt, equatorial(tt, ipl))[1];
+                        }
+                        tcu += maximum(dc, dt) + dt;
+                    }
+                    tculm[++nculm] = tcu;
+                }
+            }
+        }
+        for (int i = 0; i <= nculm; i++) {
+            for (int j = 1; j <= jmax; j++) {
+                if (tculm[i] < tc[j]) {
+                    for (int k = jmax; k >= j; k--) {
+                        tc[k + 1] = tc[k];
+                        h[k + 1] = h[k];
+                    }
+                    tc[j] = tculm[i];
+                    h[j] = upperLimb(tc[j], ipl)[2];
+                    jmax++;
+                    break;
+                }
+            }
+        }
+        for (int ii = 1; ii <= jmax; ii++) {
+            if (h[ii - 1] * h[ii] >= 0) {
+                continue;
+            }
+            if (h[ii - 1] < h[ii] && event != RISE) {
+                continue;
+            }
+            if (h[ii - 1] > h[ii] && event != SET) {
+                continue;
+            }
+            double h0 = h[ii - 1];
+            double t0 = tc[ii - 1];
+            double t1 = tc[ii];
+            for (int i = 0; i < 20; i++) {
+                t = (t0 + t1) / 2;
+                double aha = upperLimb(t, ipl)[2];
+                if (aha * h0 <= 0) {
+                    t1 = t;
+                } else {
+                    h0 = aha;
+                    t0 = t;
+                }
+            }
+            if (t > tjdUt) {
+                return t;
+            }
+        }
+        return 0;
+    }
+
+    // horizontal coordinates of the upper limb, the apparent altitude
+    // includes refraction
+    private double[] upperLimb(double tjdUt, int ipl) {
+        double[] xc = equatorial(tjdUt, ipl);
+        double rdi = Math.asin(MoshierPosition.DIAMETER[ipl] / 2 / AUNIT / xc[2]) * RADTODEG;
+        double[] xh = azalt(tjdUt, xc);
+        xh[1] += rdi;
+        return azalt(tjdUt, azaltRev(tjdUt, xh));
+    }
+
+    // azimuth and true altitude to right ascension and declination
+    private double[] azaltRev(double tjdUt, double[] xin) {
+        double armc = degnorm(MoshierTime.sidtime(tjdUt) * 15 + geolon);
+        double[] x = MoshierFrames.cotrans(new double[]{degnorm(360 - xin[0] - 90), xin[1], 1},
+                geolat - 90);
+        return new double[]{degnorm(x[0] + armc + 90), x[1]};
+    }
+
+    // offset of the extremum of a parabola through three points dx apart,
+    // from the middle point minus dx
+    private static double maximum(double[] y, double dx) {
+        double c = y[1];
+        double b = (y[2] - y[0]) / 2.0;
+        double a = (y[2] + y[0]) / 2.0 - c;
+        double x = -b / 2 / a;
+        return (x - 1) * dx;
+    }
+
+    // apparent altitude of a true altitude, by iteration
+    private double refraction(double inalt) {
+        if (inalt > 90) {
+            inalt = 180 - inalt;
+        }
+        if (inalt < -10) {
+            return inalt;
+        }
+        double y = inalt;
+        double d = 0.0;
+        double yy0 = 0;
+        double d0 = d;
+        for (int i = 0; i < 5; i++) {
+            d = astronomicalRefraction(y);
+            double n = y - yy0;
+            // denominator of the derivative
+            yy0 = d - d0 - n;
+            if (n != 0.0 && yy0 != 0.0) {
+                n = y - n * (inalt + d - y) / yy0;
+            } else {
+                n = inalt + d;
+            }
+            yy0 = y;
+            d0 = d;
+            y = n;
+        }
+        if (inalt + d < dip()) {
+            return inalt;
+        }
+        return inalt + d;
+    }
+
+    // refraction in degrees at an apparent altitude, Sinclair's formula
+    private double astronomicalRefraction(double inalt) {
+        double attemp = 0;
+        double r;
+        if (inalt > 17.904104638432) {
+            r = 0.97 / Math.tan(inalt * DEGTORAD);
+        } else {
+            r = (34.46 + 4.23 * inalt + 0.004 * inalt * inalt)
+                    / (1 + 0.505 * inalt + 0.0845 * inalt * inalt);
+        }
+        return ((atpress - 80) / 930 / (1 + 0.00008 * (r + 39) * (attemp - 10)) * r) / 60.0;
+    }
+
+    // dip of the horizon in degrees, Thom 1973
+    private double dip() {
+        double attemp = 0;
+        double krefr = (0.0342 + LAPSE_RATE) / (0.154 * 0.0238);
+        double d = 1 - 1.8480 * krefr * atpress / (273.16 + attemp) / (273.16 + attemp);
+        return -180.0 / Math.PI * Math.acos(1 / (1 + geoalt / MoshierPosition.EARTH_RADIUS))
+                * Math.sqrt(d);
+    }
+}
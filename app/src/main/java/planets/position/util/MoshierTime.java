@@ -0,0 +1,590 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import static planets.position.util.MoshierFrames.AUNIT;
+import static planets.position.util.MoshierFrames.CLIGHT;
+import static planets.position.util.MoshierFrames.DEGTORAD;
+import static planets.position.util.MoshierFrames.J2000;
+import static planets.position.util.MoshierFrames.RADTODEG;
+
+/**
+ * Time scales of the Moshier engine, ported from swedate.c and swephlib.c of
+ * the Swiss Ephemeris: calendar dates, UTC with leap seconds, Delta T and
+ * sidereal time. Julian dates are in days and Delta T is returned in days.
+ */
+final class MoshierTime {
+
+    /**
+     * Tidal acceleration of the Moon in arc seconds per century squared.
+     * The Swiss Ephemeris uses the DE431 value for Delta T requested without
+     * an ephemeris and the DE404 value together with the Moshier ephemeris.
+     */
+    static final double TIDAL_DEFAULT = -25.80;
+    static final double TIDAL_MOSHIER = -25.58;
+
+    private static final double TIDAL_26 = -26.0;
+    private static final double TIDAL_STEPHENSON_2016 = -25.85;
+
+    // first and last year of the Delta T table
+    private static final int TAB_START = 1620;
+    private static final int TAB_END = 2027;
+
+    // 1 Jan 1972, start of UTC with leap seconds, and the leap seconds then
+    private static final double J1972 = 2441317.5;
+    private static final int NLEAP_INIT = 10;
+
+    // the long term sidereal time is used before 1850 and after 2050
+    private static final double SIDT_LTERM_T0 = 2396758.5;
+    private static final double SIDT_LTERM_T1 = 2469807.5;
+    private static final double SIDT_LTERM_OFS0 = 0.000378172 / 15.0;
+    private static final double SIDT_LTERM_OFS1 = 0.001385646 / 15.0;
+
+    // UTC dates at the end of which a leap second was inserted
+    private static final int[] LEAP_SECONDS = {
+            19720630, 19721231, 19731231, 19741231, 19751231, 19761231,
+            19771231, 19781231, 19791231, 19810630, 19820630, 19830630,
+            19850630, 19871231, 19891231, 19901231, 19920630, 19930630,
+            19940630, 19951231, 19970630, 19981231, 20051231, 20081231,
+            20120630, 20150630, 20161231
+    };
+
+    // Delta T in seconds at the start of each year from 1620
+    private static final double[] DT = {
+            124.00, 119.00, 115.00, 110.00, 106.00, 102.00, 98.00, 95.00,
+            91.00, 88.00, 85.00, 82.00, 79.00, 77.00, 74.00, 72.00,
+            70.00, 67.00, 65.00, 63.00, 62.00, 60.00, 58.00, 57.00,
+            55.00, 54.00, 53.00, 51.00, 50.00, 49.00, 48.00, 47.00,
+            46.00, 45.00, 44.00, 43.00, 42.00, 41.00, 40.00, 38.00,
+            37.00, 36.00, 35.00, 34.00, 33.00, 32.00, 31.00, 30.00,
+            28.00, 27.00, 26.00, 25.00, 24.00, 23.00, 22.00, 21.00,
+            20.00, 19.00, 18.00, 17.00, 16.00, 15.00, 14.00, 14.00,
+            13.00, 12.00, 12.00, 11.00, 11.00, 10.00, 10.00, 10.00,
+            9.00, 9.00, 9.00, 9.00, 9.00, 9.00, 9.00, 9.00,
+            9.00, 9.00, 9.00, 9.00, 9.00, 9.00, 9.00, 9.00,
+            10.00, 10.00, 10.00, 10.00, 10.00, 10.00, 10.00, 10.00,
+            10.00, 11.00, 11.00, 11.00, 11.00, 11.00, 11.00, 11.00,
+            11.00, 11.00, 11.00, 11.00, 11.00, 11.00, 11.00, 11.00,
+            11.00, 11.00, 12.00, 12.00, 12.00, 12.00, 12.00, 12.00,
+            12.00, 12.00, 12.00, 12.00, 13.00, 13.00, 13.00, 13.00,
+            13.00, 13.00, 13.00, 14.00, 14.00, 14.00, 14.00, 14.00,
+            14.00, 14.00, 15.00, 15.00, 15.00, 15.00, 15.00, 15.00,
+            15.00, 16.00, 16.00, 16.00, 16.00, 16.00, 16.00, 16.00,
+            16.00, 16.00, 16.00, 17.00, 17.00, 17.00, 17.00, 17.00,
+            17.00, 17.00, 17.00, 17.00, 17.00, 17.00, 17.00, 17.00,
+            17.00, 17.00, 17.00, 17.00, 16.00, 16.00, 16.00, 16.00,
+            15.00, 15.00, 14.00, 14.00, 13.70, 13.40, 13.10, 12.90,
+            12.70, 12.60, 12.50, 12.50, 12.50, 12.50, 12.50, 12.50,
+            12.50, 12.50, 12.50, 12.50, 12.50, 12.40, 12.30, 12.20,
+            12.00, 11.70, 11.40, 11.10, 10.60, 10.20, 9.60, 9.10,
+            8.60, 8.00, 7.50, 7.00, 6.60, 6.30, 6.00, 5.80,
+            5.70, 5.60, 5.60, 5.60, 5.70, 5.80, 5.90, 6.10,
+            6.20, 6.30, 6.50, 6.60, 6.80, 6.90, 7.10, 7.20,
+            7.30, 7.40, 7.50, 7.60, 7.70, 7.70, 7.80, 7.80,
+            7.88, 7.82, 7.54, 6.97, 6.40, 6.02, 5.41, 4.10,
+            2.92, 1.82, 1.61, .10, -1.02, -1.28, -2.69, -3.24,
+            -3.64, -4.54, -4.71, -5.11, -5.40, -5.42, -5.20, -5.46,
+            -5.46, -5.79, -5.63, -5.64, -5.80, -5.66, -5.87, -6.01,
+            -6.19, -6.64, -6.44, -6.47, -6.09, -5.76, -4.66, -3.74,
+            -2.72, -1.54, -.02, 1.24, 2.64, 3.86, 5.37, 6.14,
+            7.75, 9.13, 10.46, 11.53, 13.36, 14.65, 16.01, 17.20,
+            18.24, 19.06, 20.25, 20.95, 21.16, 22.25, 22.41, 23.03,
+            23.49, 23.62, 23.86, 24.49, 24.34, 24.08, 24.02, 24.00,
+            23.87, 23.95, 23.86, 23.93, 23.73, 23.92, 23.96, 24.02,
+            24.33, 24.83, 25.30, 25.70, 26.24, 26.77, 27.28, 27.78,
+            28.25, 28.71, 29.15, 29.57, 29.97, 30.36, 30.72, 31.07,
+            31.35, 31.68, 32.18, 32.68, 33.15, 33.59, 34.00, 34.47,
+            35.03, 35.73, 36.54, 37.43, 38.29, 39.20, 40.18, 41.17,
+            42.23, 43.37, 44.4841, 45.4761, 46.4567, 47.5214, 48.5344, 49.5862,
+            50.5387, 51.3808, 52.1668, 52.9565, 53.7882, 54.3427, 54.8713, 55.3222,
+            55.8197, 56.3000, 56.8553, 57.5653, 58.3092, 59.1218, 59.9845, 60.7854,
+            61.6287, 62.2951, 62.9659, 63.4673, 63.8285, 64.0908, 64.2998, 64.4734,
+            64.5736, 64.6876, 64.8452, 65.1464, 65.4574, 65.7768, 66.0699, 66.3246,
+            66.6030, 66.9069, 67.2810, 67.6439, 68.1024, 68.5927, 68.9676, 69.2202,
+            69.4456, 70.00, 70.50, 71.00, 71.50, 72.00, 72.50, 73.00
+    };
+
+    // Stephenson, Morrison and Hohenkerk 2016 spline for 720 BC to AD 2015,
+    // start and end date of each segment and its four coefficients
+    private static final double[][] DTCF16 = {
+            {1458085.5, 1867156.5, 20550.593, -21268.478, 11863.418, -4541.129},
+            {1867156.5, 2086302.5, 6604.404, -5981.266, -505.093, 1349.609},
+            {2086302.5, 2268923.5, 1467.654, -2452.187, 2460.927, -1183.759},
+            {2268923.5, 2305447.5, 292.635, -216.322, -43.614, 56.681},
+            {2305447.5, 2323710.5, 89.380, -66.754, 31.607, -10.497},
+            {2323710.5, 2349276.5, 43.736, -49.043, 0.227, 15.811},
+            {2349276.5, 2378496.5, 10.730, -1.321, 62.250, -52.946},
+            {2378496.5, 2382148.5, 18.714, -4.457, -1.509, 2.507},
+            {2382148.5, 2385800.5, 15.255, 0.046, 6.012, -4.634},
+            {2385800.5, 2389453.5, 16.679, -1.831, -7.889, 3.799},
+            {2389453.5, 2393105.5, 10.758, -6.211, 3.509, -0.388},
+            {2393105.5, 2396758.5, 7.668, -0.357, 2.345, -0.338},
+            {2396758.5, 2398584.5, 9.317, 1.659, 0.332, -0.932},
+            {2398584.5, 2400410.5, 10.376, -0.472, -2.463, 1.596},
+            {2400410.5, 2402237.5, 9.038, -0.610, 2.325, -2.497},
+            {2402237.5, 2404063.5, 8.256, -3.450, -5.166, 2.729},
+            {2404063.5, 2405889.5, 2.369, -5.596, 3.020, -0.919},
+            {2405889.5, 2407715.5, -1.126, -2.312, 0.264, -0.037},
+            {2407715.5, 2409542.5, -3.211, -1.894, 0.154, 0.562},
+            {2409542.5, 2411368.5, -4.388, 0.101, 1.841, -1.438},
+            {2411368.5, 2413194.5, -3.884, -0.531, -2.473, 1.870},
+            {2413194.5, 2415020.5, -5.017, 0.134, 3.138, -0.232},
+            {2415020.5, 2416846.5, -1.977, 5.715, 2.443, -1.257},
+            {2416846.5, 2418672.5, 4.923, 6.828, -1.329, 0.720},
+            {2418672.5, 2420498.5, 11.142, 6.330, 0.831, -0.825},
+            {2420498.5, 2422324.5, 17.479, 5.518, -1.643, 0.262},
+            {2422324.5, 2424151.5, 21.617, 3.020, -0.856, 0.008},
+            {2424151.5, 2425977.5, 23.789, 1.333, -0.831, 0.127},
+            {2425977.5, 2427803.5, 24.418, 0.052, -0.449, 0.142},
+            {2427803.5, 2429629.5, 24.164, -0.419, -0.022, 0.702},
+            {2429629.5, 2431456.5, 24.426, 1.645, 2.086, -1.106},
+            {2431456.5, 2433282.5, 27.050, 2.499, -1.232, 0.614},
+            {2433282.5, 2434378.5, 28.932, 1.127, 0.220, -0.277},
+            {2434378.5, 2435473.5, 30.002, 0.737, -0.610, 0.631},
+            {2435473.5, 2436569.5, 30.760, 1.409, 1.282, -0.799},
+            {2436569.5, 2437665.5, 32.652, 1.577, -1.115, 0.507},
+            {2437665.5, 2438761.5, 33.621, 0.868, 0.406, 0.199},
+            {2438761.5, 2439856.5, 35.093, 2.275, 1.002, -0.414},
+            {2439856.5, 2440952.5, 37.956, 3.035, -0.242, 0.202},
+            {2440952.5, 2442048.5, 40.951, 3.157, 0.364, -0.229},
+            {2442048.5, 2443144.5, 44.244, 3.198, -0.323, 0.172},
+            {2443144.5, 2444239.5, 47.291, 3.069, 0.193, -0.192},
+            {2444239.5, 2445335.5, 50.361, 2.878, -0.384, 0.081},
+            {2445335.5, 2446431.5, 52.936, 2.354, -0.140, -0.166},
+            {2446431.5, 2447527.5, 54.984, 1.577, -0.637, 0.448},
+            {2447527.5, 2448622.5, 56.373, 1.649, 0.709, -0.277},
+            {2448622.5, 2449718.5, 58.453, 2.235, -0.122, 0.111},
+            {2449718.5, 2450814.5, 60.677, 2.324, 0.212, -0.315},
+            {2450814.5, 2451910.5, 62.899, 1.804, -0.732, 0.112},
+            {2451910.5, 2453005.5, 64.082, 0.675, -0.396, 0.193},
+            {2453005.5, 2454101.5, 64.555, 0.463, 0.184, -0.008},
+            {2454101.5, 2455197.5, 65.194, 0.809, 0.161, -0.101},
+            {2455197.5, 2456293.5, 66.063, 0.828, -0.142, 0.168},
+            {2456293.5, 2457388.5, 66.917, 1.046, 0.360, -0.282}
+    };
+
+    // non-polynomial part of sidereal time, IERS Conventions 2010, sine and
+    // cosine coefficients in micro arc seconds
+    private static final double[] STCF = {
+            2640.96, -0.39, 63.52, -0.02, 11.75, 0.01, 11.21, 0.01,
+            -4.55, 0.00, 2.02, 0.00, 1.98, 0.00, -1.72, 0.00,
+            -1.41, -0.01, -1.26, -0.01, -0.63, 0.00, -0.63, 0.00,
+            0.46, 0.00, 0.45, 0.00, 0.36, 0.00, -0.24, -0.12,
+            0.32, 0.00, 0.28, 0.00, 0.27, 0.00, 0.26, 0.00,
+            -0.21, 0.00, 0.19, 0.00, 0.18, 0.00, -0.10, 0.05,
+            0.15, 0.00, -0.14, 0.00, 0.14, 0.00, -0.14, 0.00,
+            0.14, 0.00, 0.13, 0.00, -0.11, 0.00, 0.11, 0.00,
+            0.11, 0.00
+    };
+
+    // multipliers of l, l', F, D, Om, the mean longitudes of Mercury through
+    // Neptune and the general precession for each term of STCF
+    private static final int[] STFARG = {
+            0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 2, -2, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 2, -2, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 2, -2, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 2, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 2, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 1, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 1, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 0, 0, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 1, 2, -2, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 1, 2, -2, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 4, -4, 4, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 1, -1, 1, 0, -8, 12, 0, 0, 0, 0, 0, 0,
+            0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 2, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 0, 2, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 0, 2, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 2, -2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 1, -2, 2, -3, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 1, -2, 2, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 8, -13, 0, 0, 0, 0, 0, -1,
+            0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            2, 0, -2, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 0, 0, -2, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 1, 2, -2, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 0, 0, -2, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 4, -2, 4, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 2, -2, 4, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 0, -2, 0, -3, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 0, -2, 0, -1, 0, 0, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    private MoshierTime() {
+    }
+
+    /**
+     * Returns the Julian date of a Gregorian calendar date.
+     */
+    static double julday(int year, int month, int day, double hour) {
+        double u = year;
+        if (month < 3) {
+            u -= 1;
+        }
+        double u0 = u + 4712.0;
+        double u1 = month + 1.0;
+        if (u1 < 4) {
+            u1 += 12.0;
+        }
+        double jd = Math.floor(u0 * 365.25) + Math.floor(30.6 * u1 + 0.000001) + day
+                + hour / 24.0 - 63.5;
+        double u2 = Math.floor(Math.abs(u) / 100) - Math.floor(Math.abs(u) / 400);
+        if (u < 0.0) {
+            u2 = -u2;
+        }
+        jd = jd - u2 + 2;
+        if (u < 0.0 && u / 100 == Math.floor(u / 100) && u / 400 != Math.floor(u / 400)) {
+            jd -= 1;
+        }
+        return jd;
+    }
+
+    /**
+     * Returns the Gregorian calendar date of a Julian date as year, month
+     * and day.
+     */
+    static int[] revjul(double jd) {
+        double u0 = jd + 32082.5;
+        double u1 = u0 + Math.floor(u0 / 36525.0) - Math.floor(u0 / 146100.0) - 38.0;
+        if (jd >= 1830691.5) {
+            u1 += 1;
+        }
+        u0 = u0 + Math.floor(u1 / 36525.0) - Math.floor(u1 / 146100.0) - 38.0;
+        double u2 = Math.floor(u0 + 123.0);
+        double u3 = Math.floor((u2 - 122.2) / 365.25);
+        double u4 = Math.floor((u2 - Math.floor(365.25 * u3)) / 30.6001);
+        int month = (int) (u4 - 1.0);
+        if (month > 12) {
+            month -= 12;
+        }
+        int day = (int) (u2 - Math.floor(365.25 * u3) - Math.floor(30.6001 * u4));
+        int year = (int) (u3 + Math.floor((u4 - 2.0) / 12.0) - 4800);
+        return new int[]{year, month, day};
+    }
+
+    /**
+     * Converts a Gregorian UTC date to Julian dates in ephemeris time and
+     * UT1. Dates before 1972 are taken as UT1.
+     *
+     * @return array of the Julian dates in TT and UT1, or null if the date or
+     * time is not valid
+     */
+    static double[] utcToJd(int year, int month, int day, int hour, int min, double sec) {
+        double tjdUt1 = julday(year, month, day, 0);
+        int[] date = revjul(tjdUt1);
+        if (year != date[0] || month != date[1] || day != date[2]) {
+            return null;
+        }
+        if (hour < 0 || hour > 23 || min < 0 || min > 59 || sec < 0 || sec >= 61
+                || (sec >= 60 && (min < 59 || hour < 23 || tjdUt1 < J1972))) {
+            return null;
+        }
+        double dhour = hour + min / 60.0 + sec / 3600.0;
+        // before 1972 the input is UT1
+        if (tjdUt1 < J1972) {
+            double ut1 = julday(year, month, day, dhour);
+            return new double[]{ut1 + deltaT(ut1, TIDAL_DEFAULT), ut1};
+        }
+        // leap seconds since 1972
+        int nleap = NLEAP_INIT;
+        int ndat = year * 10000 + month * 100 + day;
+        for (int leap : LEAP_SECONDS) {
+            if (ndat <= leap) {
+                break;
+            }
+            nleap++;
+        }
+        // past the end of the leap second table the input is taken as UT1
+        double d = deltaT(tjdUt1, TIDAL_DEFAULT) * 86400.0;
+        if (d - nleap - 32.184 >= 1.0) {
+            double ut1 = tjdUt1 + dhour / 24.0;
+            return new double[]{ut1 + deltaT(ut1, TIDAL_DEFAULT), ut1};
+        }
+        if (sec >= 60) {
+            boolean leapDay = false;
+            for (int leap : LEAP_SECONDS) {
+                if (ndat == leap) {
+                    leapDay = true;
+                    break;
+                }
+            }
+            if (!leapDay) {
+                return null;
+            }
+        }
+        // SI days since 1972, then TT and UT1
+        d = tjdUt1 - J1972;
+        d += hour / 24.0 + min / 1440.0 + sec / 86400.0;
+        double tjdEt1972 = J1972 + (32.184 + NLEAP_INIT) / 86400.0;
+        double tjdEt = tjdEt1972 + d + (nleap - NLEAP_INIT) / 86400.0;
+        d = deltaT(tjdEt, TIDAL_DEFAULT);
+        tjdUt1 = tjdEt - deltaT(tjdEt - d, TIDAL_DEFAULT);
+        tjdUt1 = tjdEt - deltaT(tjdUt1, TIDAL_DEFAULT);
+        return new double[]{tjdEt, tjdUt1};
+    }
+
+    /**
+     * Returns Delta T, TT - UT1, in days.
+     *
+     * @param tjd    Jullian date in UT
+     * @param tidAcc tidal acceleration of the Moon the result is adjusted to
+     */
+    static double deltaT(double tjd, double tidAcc) {
+        if (tjd < 2435108.5) {
+            double dt = deltaTStephenson2016(tjd, tidAcc);
+            // blend into the table over the 1000 days before 1955
+            if (tjd >= 2434108.5) {
+                dt += (1.0 - (2435108.5 - tjd) / 1000.0) * 0.6610218 / 86400.0;
+            }
+            return dt;
+        }
+        return deltaTTable(tjd, tidAcc);
+    }
+
+    // Astronomical Almanac and IERS values with Bessel's interpolation, and a
+    // polynomial after the end of the table
+    private static double deltaTTable(double tjd, double tidAcc) {
+        int tabsiz = DT.length;
+        double y = 2000.0 + (tjd - 2451544.5) / 365.25;
+        double ans;
+        if (y <= TAB_END) {
+            double p = Math.floor(y);
+            int iy = (int) (p - TAB_START);
+            ans = bessel(iy, y - p, tabsiz);
+            ans = adjustForTidacc(ans, y, tidAcc, TIDAL_26, false);
+            return ans / 86400.0;
+        }
+        double b = y - 2000;
+        double ans2 = 0;
+        if (y < 2500) {
+            ans = b * b * b * 121.0 / 30000000.0 + b * b / 1250.0 + b * 521.0 / 3000.0 + 64.0;
+            double b2 = TAB_END - 2000;
+            ans2 = b2 * b2 * b2 * 121.0 / 30000000.0 + b2 * b2 / 1250.0 + b2 * 521.0 / 3000.0
+                    + 64.0;
+        } else {
+            b = 0.01 * (y - 2000);
+            ans = b * b * 32.5 + 42.5;
+        }
+        // slow transition from the table within 100 years
+        if (y <= TAB_END + 100) {
+            ans += (ans2 - DT[tabsiz - 1]) * (y - (TAB_END + 100)) * 0.01;
+        }
+        return ans / 86400.0;
+    }
+
+    // interpolates the table at fraction p of year index iy, up to fourth
+    // differences where the table allows
+    private static double bessel(int iy, double p, int tabsiz) {
+        double ans = DT[iy];
+        int k = iy + 1;
+        if (k >= tabsiz) {
+            return ans;
+        }
+        ans += p * (DT[k] - DT[iy]);
+        if (iy - 1 < 0 || iy + 2 >= tabsiz) {
+            return ans;
+        }
+        double[] d = new double[5];
+        k = iy - 2;
+        for (int i = 0; i < 5; i++) {
+            if (k < 0 || k + 1 >= tabsiz) {
+                d[i] = 0;
+            } else {
+                d[i] = DT[k + 1] - DT[k];
+            }
+            k += 1;
+        }
+        for (int i = 0; i < 4; i++) {
+            d[i] = d[i + 1] - d[i];
+        }
+        double b = 0.25 * p * (p - 1.0);
+        ans += b * (d[1] + d[2]);
+        if (iy + 2 >= tabsiz) {
+            return ans;
+        }
+        for (int i = 0; i < 3; i++) {
+            d[i] = d[i + 1] - d[i];
+        }
+        b = 2.0 * b / 3.0;
+        ans += (p - 0.5) * b * d[1];
+        if (iy - 2 < 0 || iy + 3 > tabsiz) {
+            return ans;
+        }
+        for (int i = 0; i < 2; i++) {
+            d[i] = d[i + 1] - d[i];
+        }
+        b = 0.125 * b * (p + 1.0) * (p - 2.0);
+        ans += b * (d[0] + d[1]);
+        return ans;
+    }
+
+    private static double deltaTStephenson2016(double tjd, double tidAcc) {
+        double ygreg = 2000.0 + (tjd - J2000) / 365.2425;
+        double[] rec = null;
+        for (double[] r : DTCF16) {
+            if (tjd < r[0]) {
+                break;
+            }
+            if (tjd < r[1]) {
+                rec = r;
+                break;
+            }
+        }
+        double dt;
+        if (rec != null) {
+            double t = (tjd - rec[0]) / (rec[1] - rec[0]);
+            dt = rec[2] + rec[3] * t + rec[4] * t * t + rec[5] * t * t * t;
+        } else {
+            // long term parabola, offset to join the spline at either end
+            double t = (ygreg - 1825) / 100.0;
+            dt = -320 + 32.5 * t * t;
+            if (ygreg < -720) {
+                dt -= 179.7337208;
+            } else {
+                dt += 269.4790417;
+            }
+        }
+        dt = adjustForTidacc(dt, ygreg, tidAcc, TIDAL_STEPHENSON_2016, true);
+        return dt / 86400.0;
+    }
+
+    private static double adjustForTidacc(double ans, double y, double tidAcc, double tidAcc0,
+                                          boolean adjustAfter1955) {
+        if (y < 1955.0 || adjustAfter1955) {
+            double b = y - 1955.0;
+            ans += -0.000091 * (tidAcc - tidAcc0) * b * b;
+        }
+        return ans;
+    }
+
+    /**
+     * Returns the apparent sidereal time at Greenwich in hours.
+     *
+     * @param tjdUt Jullian date in UT
+     */
+    static double sidtime(double tjdUt) {
+        double tjde = tjdUt + deltaT(tjdUt, TIDAL_DEFAULT);
+        double eps = MoshierFrames.ldpPeps(tjde)[1] * RADTODEG;
+        double[] nutlo = MoshierFrames.nutation(tjde);
+        return sidtime0(tjdUt, eps + nutlo[1] * RADTODEG, nutlo[0] * RADTODEG);
+    }
+
+    /**
+     * Returns the sidereal time at Greenwich in hours for a given obliquity
+     * and nutation in longitude, both in degrees. A nutation of 0 gives mean
+     * sidereal time.
+     *
+     * @param tjd Jullian date in UT
+     */
+    static double sidtime0(double tjd, double eps, double nut) {
+        double gmst;
+        if (tjd <= SIDT_LTERM_T0 || tjd >= SIDT_LTERM_T1) {
+            gmst = sidtimeLongTerm(tjd, eps, nut);
+            if (tjd <= SIDT_LTERM_T0) {
+                gmst -= SIDT_LTERM_OFS0;
+            } else {
+                gmst -= SIDT_LTERM_OFS1;
+            }
+            if (gmst >= 24) {
+                gmst -= 24;
+            }
+            if (gmst < 0) {
+                gmst += 24;
+            }
+            return gmst;
+        }
+        // Greenwich sidereal time from the earth rotation angle, IAU 2006
+        double jdrel = tjd - J2000;
+        double tt = (tjd + deltaT(tjd, TIDAL_DEFAULT) - J2000) / 36525.0;
+        gmst = MoshierFrames.degnorm((0.7790572732640 + 1.00273781191135448 * jdrel) * 360);
+        gmst += (0.014506 + tt * (4612.156534 + tt * (1.3915817 + tt * (-0.00000044
+                + tt * (-0.000029956 + tt * -0.0000000368))))) / 3600.0;
+        gmst = MoshierFrames.degnorm(gmst + sidtimeNonPolynomialPart(tt));
+        gmst = gmst / 15.0 * 3600.0;
+        // equation of the equinoxes
+        gmst += 240.0 * nut * Math.cos(eps * DEGTORAD);
+        gmst -= 86400.0 * Math.floor(gmst / 86400.0);
+        return gmst / 3600;
+    }
+
+    private static double sidtimeNonPolynomialPart(double tt) {
+        double[] delm = {
+                MoshierFrames.radnorm(2.35555598 + 8328.6914269554 * tt),
+                MoshierFrames.radnorm(6.24006013 + 628.301955 * tt),
+                MoshierFrames.radnorm(1.627905234 + 8433.466158131 * tt),
+                MoshierFrames.radnorm(5.198466741 + 7771.3771468121 * tt),
+                MoshierFrames.radnorm(2.18243920 - 33.757045 * tt),
+                MoshierFrames.radnorm(4.402608842 + 2608.7903141574 * tt),
+                MoshierFrames.radnorm(3.176146697 + 1021.3285546211 * tt),
+                MoshierFrames.radnorm(1.753470314 + 628.3075849991 * tt),
+                MoshierFrames.radnorm(6.203480913 + 334.0612426700 * tt),
+                MoshierFrames.radnorm(0.599546497 + 52.9690962641 * tt),
+                MoshierFrames.radnorm(0.874016757 + 21.3299104960 * tt),
+                MoshierFrames.radnorm(5.481293871 + 7.4781598567 * tt),
+                MoshierFrames.radnorm(5.321159000 + 3.8127774000 * tt),
+                (0.02438175 + 0.00000538691 * tt) * tt
+        };
+        double dadd = -0.87 * Math.sin(delm[4]) * tt;
+        for (int i = 0; i < STCF.length / 2; i++) {
+            double darg = 0;
+            for (int j = 0; j < delm.length; j++) {
+                darg += STFARG[i * delm.length + j] * delm[j];
+            }
+            dadd += STCF[i * 2] * Math.sin(darg) + STCF[i * 2 + 1] * Math.cos(darg);
+        }
+        return dadd / (3600.0 * 1000000.0);
+    }
+
+    // sidereal time from the mean longitude of the Earth, Simon et al. 1994,
+    // for dates far from the present
+    private static double sidtimeLongTerm(double tjdUt, double eps, double nut) {
+        double tjdEt = tjdUt + deltaT(tjdUt, TIDAL_DEFAULT);
+        double t = (tjdEt - J2000) / 365250.0;
+        double t2 = t * t;
+        double t3 = t * t2;
+        // mean longitude of the Earth at J2000, less the light time from the Sun
+        double dlon = 100.46645683 + (1295977422.83429 * t - 2.04411 * t2 - 0.00523 * t3)
+                / 3600.0;
+        dlon = MoshierFrames.degnorm(dlon - AUNIT / CLIGHT / 86400.0 * 360.0 / 365.2425);
+        double[] xs = {dlon * DEGTORAD, 0, 1};
+        double obl = MoshierFrames.ldpPeps(J2000 + deltaT(J2000, TIDAL_DEFAULT))[1];
+        MoshierFrames.polcart(xs, xs);
+        MoshierFrames.coortrf(xs, -obl);
+        MoshierFrames.precess(xs, tjdEt, MoshierFrames.J2000_TO_J);
+        obl = MoshierFrames.ldpPeps(tjdEt)[1];
+        double[] nutlo = MoshierFrames.nutation(tjdEt);
+        MoshierFrames.coortrf(xs, obl);
+        MoshierFrames.cartpol(xs, xs);
+        double lon = xs[0] * RADTODEG;
+        double dhour = ((tjdUt - 0.5) % 1) * 360;
+        if (eps == 0) {
+            lon += nutlo[0] * RADTODEG * Math.cos(obl + nutlo[1]);
+        } else {
+            lon += nut * Math.cos(eps * DEGTORAD);
+        }
+        return MoshierFrames.degnorm(lon + dhour) / 15;
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Positions of the planets seen from one location, interpolated from
+ * Chebyshev polynomials instead of running the full ephemeris for every
+ * instant.
+ * <p>
+ * Time is cut into spans of SPAN days per planet. The first request inside a
+ * span samples the engine at the Chebyshev nodes of the span and keeps the
+ * coefficients of RA, Dec, distance, magnitude and the local sidereal angle
+ * in one double[] block:
+ * <pre>
+ * block    double start, double end, double[ORDER] per value
+ * </pre>
+ * Each fit is checked against the engine between the nodes. A span whose fit
+ * misses the tolerance is split in two halves that are fit on their own, down
+ * to MAX_LEVEL halvings, after which the engine is called directly.
+ * Azimuth and altitude are turned from the interpolated RA, Dec and sidereal
+ * angle the same way the Swiss Ephemeris does it, so they need no fit of
+ * their own.
+ * <p>
+ * Only the MAX_BLOCKS most recently used blocks are kept. The blocks are fit
+ * with the tt - ut1 of the first request in the span, it changes by well
+ * under a millisecond a day. A cache is not thread safe, use one per thread.
+ */
+public class PositionCache {
+
+    public static final int MAX_BLOCKS = 128;
+
+    // coefficients per value
+    private static final int ORDER = 16;
+    private static final int RA = 0, DEC = 1, DIST = 2, MAG = 3, ARMC = 4, VALUES = 5;
+    private static final int BLOCK_SIZE = 2 + VALUES * ORDER;
+    private static final int MAX_LEVEL = 6;
+    private static final int CHECKS = 8;
+
+    // marks a span whose fit missed the tolerance
+    private static final double[] SPLIT = new double[0];
+
+    // starting span of the planets Sun to Pluto, in days
+    private static final double[] SPAN = {2, 1, 1, 2, 4, 4, 8, 8, 8, 8};
+
+    // largest error allowed in RA and Dec (degrees), distance (AU) and
+    // magnitude, well below what is shown
+    private static final double ANGLE_TOLERANCE = 0.25 / 3600;
+    private static final double DIST_TOLERANCE = 1e-5;
+    private static final double MAG_TOLERANCE = 0.005;
+
+    // mean motion of the sidereal angle in degrees per day
+    private static final double SIDEREAL_RATE = 360.98564736629;
+
+    private final EphemerisEngine engine;
+    private final double[] g;
+    private final double sinCoLat, cosCoLat;
+    private final Map<Long, double[]> blocks;
+    private final double[] values = new double[VALUES];
+    private final double[] samples = new double[VALUES * ORDER];
+    private final double[] nodeTimes = new double[ORDER];
+
+    /**
+     * @param engine engine to fit to
+     * @param loc    location array, copied
+     */
+    public PositionCache(EphemerisEngine engine, double[] loc) {
+        this.engine = engine;
+        this.g = loc.clone();
+        sinCoLat = Math.sin(Math.toRadians(90 - g[1]));
+        cosCoLat = Math.cos(Math.toRadians(90 - g[1]));
+        blocks = new LinkedHashMap<Long, double[]>(MAX_BLOCKS * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest) {
+                return size() > MAX_BLOCKS;
+            }
+        };
+    }
+
+    /**
+     * Returns true if the cache is for the given location.
+     *
+     * @param loc location array
+     * @return true if the cached positions apply
+     */
+    public boolean matches(double[] loc) {
+        return Arrays.equals(g, loc);
+    }
+
+    /**
+     * Calculates the topocentric position of a planet, as
+     * {@link EphemerisEngine#planetData}.
+     *
+     * @param dET    Jullian date in ephemeris time
+     * @param dUT    Jullian date in ut1
+     * @param planet planet number
+     * @return array of RA, Dec, distance, azimuth, altitude and magnitude,
+     * or null on error
+     */
+    public double[] planetData(double dET, double dUT, int planet) {
+        double[] data = new double[6];
+        return planetData(dET, dUT, planet, data, 0) ? data : null;
+    }
+
+    /**
+     * Calculates the topocentric position of a planet into an array.
+     *
+     * @param dET    Jullian date in ephemeris time
+     * @param dUT    Jullian date in ut1
+     * @param planet planet number
+     * @param out    result array, RA, Dec, distance, azimuth, altitude and
+     *               magnitude are stored from offset on
+     * @param offset first index written
+     * @return false on error
+     */
+    public boolean planetData(double dET, double dUT, int planet, double[] out, int offset) {
+        if (planet < 0 || planet >= SPAN.length)
+            return direct(dET, dUT, planet, out, offset);
+
+        double[] block = block(dET - dUT, dUT, planet);
+        if (block == null)
+            return direct(dET, dUT, planet, out, offset);
+        evaluate(block, dUT, values);
+        out[offset] = degnorm(values[RA]);
+        out[offset + 1] = values[DEC];
+        out[offset + 2] = values[DIST];
+        out[offset + 5] = values[MAG];
+        horizontal(values[RA], values[DEC], values[ARMC], out, offset + 3);
+        return true;
+    }
+
+    private boolean direct(double dET, double dUT, int planet, double[] out, int offset) {
+        double[] data = engine.planetData(dET, dUT, planet, g);
+        if (data == null)
+            return false;
+        System.arraycopy(data, 0, out, offset, 6);
+        return true;
+    }
+
+    /**
+     * Finds or fits the block of a planet holding a time. A span whose fit
+     * is not good enough is marked SPLIT and its halves are tried instead.
+     *
+     * @return the block, or null if the engine failed or no span was short
+     * enough
+     */
+    private double[] block(double deltaT, double dUT, int planet) {
+        for (int level = 0; level <= MAX_LEVEL; level++) {
+            double span = SPAN[planet] / (1 << level);
+            long index = (long) Math.floor(dUT / span);
+            Long key = (index << 8) | (level << 4) | planet;
+            double[] block = blocks.get(key);
+            if (block == SPLIT)
+                continue;
+            if (block != null)
+                return block;
+
+            block = fit(deltaT, index * span, (index + 1) * span, planet);
+            if (block == null)
+                return null;
+            if (check(block, deltaT, planet)) {
+                blocks.put(key, block);
+                return block;
+            }
+            blocks.put(key, SPLIT);
+        }
+        return null;
+    }
+
+    /**
+     * Samples the engine at the Chebyshev nodes of a span and turns the
+     * samples into coefficients.
+     */
+    private double[] fit(double deltaT, double start, double end, int planet) {
+        double mid = (start + end) / 2, half = (end - start) / 2;
+        // nodes in time order, so the angles can be unwrapped one after the
+        // other
+        for (int k = 0; k < ORDER; k++) {
+            double t = mid - half * Math.cos(Math.PI * (k + 0.5) / ORDER);
+            double[] data = engine.planetData(t + deltaT, t, planet, g);
+            if (data == null)
+                return null;
+            double armc = engine.siderealTime(t) * 15 + g[0];
+            if (k > 0) {
+                double ra = samples[RA * ORDER + k - 1];
+                data[0] = ra + wrap(data[0] - ra);
+                double expected = samples[ARMC * ORDER + k - 1]
+                        + SIDEREAL_RATE * (t - nodeTimes[k - 1]);
+                armc = expected + wrap(armc - expected);
+            }
+            nodeTimes[k] = t;
+            samples[RA * ORDER + k] = data[0];
+            samples[DEC * ORDER + k] = data[1];
+            samples[DIST * ORDER + k] = data[2];
+            samples[MAG * ORDER + k] = data[5];
+            samples[ARMC * ORDER + k] = armc;
+        }
+
+        double[] block = new double[BLOCK_SIZE];
+        block[0] = start;
+        block[1] = end;
+        for (int v = 0; v < VALUES; v++) {
+            for (int j = 0; j < ORDER; j++) {
+                double sum = 0;
+                for (int k = 0; k < ORDER; k++) {
+                    // node k was stored in time order, the cosine runs the
+                    // other way
+                    sum += samples[v * ORDER + k]
+                            * Math.cos(Math.PI * j * (ORDER - k - 0.5) / ORDER);
+                }
+                block[2 + v * ORDER + j] = sum * (j == 0 ? 1.0 : 2.0) / ORDER;
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Compares a fit with the engine half way between nodes, where the error
+     * of a Chebyshev fit is largest.
+     */
+    private boolean check(double[] block, double deltaT, int planet) {
+        double[] data = new double[6];
+        for (int i = 0; i < CHECKS; i++) {
+            double x = Math.cos(Math.PI * (i * ORDER / CHECKS + 1) / ORDER);
+            double t = (block[0] + block[1]) / 2 + x * (block[1] - block[0]) / 2;
+            double[] expected = engine.planetData(t + deltaT, t, planet, g);
+            if (expected == null)
+                return false;
+            evaluate(block, t, values);
+            data[0] = values[RA];
+            data[1] = values[DEC];
+            horizontal(values[RA], values[DEC], values[ARMC], data, 3);
+            double cosDec = Math.cos(Math.toRadians(expected[1]));
+            double cosAlt = Math.cos(Math.toRadians(expected[4]));
+            if (Math.abs(wrap(data[0] - expected[0])) * cosDec > ANGLE_TOLERANCE
+                    || Math.abs(data[1] - expected[1]) > ANGLE_TOLERANCE
+                    || Math.abs(wrap(data[3] - expected[3])) * cosAlt > ANGLE_TOLERANCE
+                    || Math.abs(data[4] - expected[4]) > ANGLE_TOLERANCE
+                    || Math.abs(values[DIST] - expected[2]) > DIST_TOLERANCE
+                    || Math.abs(values[MAG] - expected[5]) > MAG_TOLERANCE)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sums the Chebyshev series of every value with Clenshaw's recurrence.
+     */
+    private static void evaluate(double[] block, double t, double[] out) {
+        double x = (2 * t - block[0] - block[1]) / (block[1] - block[0]);
+        double x2 = 2 * x;
+        for (int v = 0; v < VALUES; v++) {
+            int base = 2 + v * ORDER;
+            double b1 = 0, b2 = 0;
+            for (int j = ORDER - 1; j > 0; j--) {
+                double b = x2 * b1 - b2 + block[base + j];
+                b2 = b1;
+                b1 = b;
+            }
+            out[v] = x * b1 - b2 + block[base];
+        }
+    }
+
+    /**
+     * Turns RA and Dec into azimuth from north and true altitude, following
+     * swe_azalt.
+     */
+    private void horizontal(double ra, double dec, double armc, double[] out, int offset) {
+        double lon = Math.toRadians(degnorm(degnorm(ra - armc) - 90));
+        double lat = Math.toRadians(dec);
+        double x = Math.cos(lat) * Math.cos(lon);
+        double y = Math.cos(lat) * Math.sin(lon);
+        double z = Math.sin(lat);
+        // rotate by 90 - latitude
+        double y1 = y * cosCoLat + z * sinCoLat;
+        double z1 = -y * sinCoLat + z * cosCoLat;
+        double az = (x == 0 && y1 == 0) ? 0 : Math.toDegrees(Math.atan2(y1, x));
+        az = 360 - degnorm(az + 90) + 180;
+        if (az > 360)
+            az -= 360;
+        out[offset] = az;
+        out[offset + 1] = Math.toDegrees(Math.atan(z1 / Math.sqrt(x * x + y1 * y1)));
+    }
+
+    // angle in [-180, 180)
+    private static double wrap(double a) {
+        return a - 360 * Math.floor((a + 180) / 360);
+    }
+
+    private static double degnorm(double a) {
+        double y = a % 360;
+        if (Math.abs(y) < 1e-13)
+            y = 0;
+        if (y < 0)
+            y += 360;
+        return y;
+    }
+}
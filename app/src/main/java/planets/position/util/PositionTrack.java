@@ -0,0 +1,230 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import java.util.Arrays;
+
+/**
+ * Positions of one planet at evenly spaced times around a playhead, for
+ * animating the sky. A worker thread fills a ring buffer with samples from a
+ * PositionCache, first up to AHEAD samples after the playhead and then up to
+ * BEHIND samples before it, and waits whenever both are full. Readers get
+ * positions interpolated between two samples without ever calling the
+ * engine, so the playhead can be moved from the UI thread every frame.
+ * <p>
+ * Sample n is at time origin + n * step. The samples held are always the
+ * run [lo, hi), moving the playhead drops the ones too far from it and all of
+ * them when it leaves the run.
+ */
+public class PositionTrack {
+
+    /**
+     * Number of values of a position, as returned by
+     * {@link EphemerisEngine#planetData}.
+     */
+    public static final int VALUES = 6;
+
+    private static final int AHEAD = 1536;
+    private static final int BEHIND = 512;
+    private static final int CAPACITY = AHEAD + BEHIND;
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final PositionCache positions;
+    private final double[] loc;
+    private final int planet;
+    private final double origin, step, deltaT;
+    private final double[] ring = new double[CAPACITY * VALUES];
+    private final Thread worker;
+    private long lo, hi, play;
+    private boolean stopped, failed;
+
+    /**
+     * @param engine engine the positions are fit to
+     * @param loc    location array, copied
+     * @param planet planet number
+     * @param origin Jullian date in ut1 of sample 0
+     * @param deltaT tt - ut1 in days
+     * @param step   time between samples in days
+     */
+    public PositionTrack(EphemerisEngine engine, double[] loc, int planet, double origin,
+                         double deltaT, double step) {
+        this.positions = new PositionCache(engine, loc);
+        this.loc = loc.clone();
+        this.planet = planet;
+        this.origin = origin;
+        this.deltaT = deltaT;
+        this.step = step;
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                fill();
+            }
+        }, "PositionTrack");
+    }
+
+    /**
+     * Starts filling the buffer around the playhead.
+     */
+    public void start() {
+        worker.start();
+    }
+
+    /**
+     * Stops the worker thread, the samples already made stay readable.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    /**
+     * Returns true if the track is for the given planet and location and the
+     * given time is close enough to its origin to share its tt - ut1.
+     *
+     * @param planet planet number
+     * @param loc    location array
+     * @param dUT    Jullian date in ut1
+     * @return true if the track can be used
+     */
+    public boolean matches(int planet, double[] loc, double dUT) {
+        return this.planet == planet && Arrays.equals(this.loc, loc)
+                && Math.abs(dUT - origin) < 30;
+    }
+
+    /**
+     * Returns true if the engine failed, no more samples will be made.
+     *
+     * @return true after an error
+     */
+    public synchronized boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Moves the playhead, the worker starts filling the buffer around it.
+     *
+     * @param dUT Jullian date in ut1
+     */
+    public synchronized void setPlayhead(double dUT) {
+        play = (long) Math.floor((dUT - origin) / step);
+        if (play < lo || play > hi) {
+            // left the run, start a new one at the playhead so the samples
+            // are made outward from it, ahead first
+            lo = hi = play;
+        } else {
+            lo = Math.max(lo, play - BEHIND);
+            hi = Math.min(hi, play + AHEAD);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns the position at a time if the samples on both sides of it have
+     * been made.
+     *
+     * @param dUT Jullian date in ut1
+     * @param out result array of RA, Dec, distance, azimuth, altitude and
+     *            magnitude
+     * @return false if the position is not in the buffer yet
+     */
+    public synchronized boolean get(double dUT, double[] out) {
+        double x = (dUT - origin) / step;
+        long n = (long) Math.floor(x);
+        if (n < lo || n + 1 >= hi)
+            return false;
+        double f = x - n;
+        int a = slot(n), b = slot(n + 1);
+        for (int v = 0; v < VALUES; v++) {
+            double y0 = ring[a + v], y1 = ring[b + v];
+            if (v == 0 || v == 3) {
+                // RA and azimuth wrap at 360
+                y1 = y0 + wrap(y1 - y0);
+                double y = y0 + f * (y1 - y0);
+                out[v] = (y < 0) ? y + 360 : (y >= 360) ? y - 360 : y;
+            } else {
+                out[v] = y0 + f * (y1 - y0);
+            }
+        }
+        return true;
+    }
+
+    private void fill() {
+        EphemerisSession session = EphemerisSession.open();
+        try {
+            double[] sample = new double[VALUES];
+            while (true) {
+                long n;
+                synchronized (this) {
+                    n = next();
+                    while (!stopped && n == NONE) {
+                        wait();
+                        n = next();
+                    }
+                    if (stopped)
+                        return;
+                }
+                double t = origin + n * step;
+                boolean ok = positions.planetData(t + deltaT, t, planet, sample, 0);
+                synchronized (this) {
+                    if (!ok) {
+                        failed = stopped = true;
+                        return;
+                    }
+                    store(n, sample);
+                }
+            }
+        } catch (InterruptedException e) {
+            // stop
+        } finally {
+            session.close();
+        }
+    }
+
+    // the next sample to make, ahead of the playhead first
+    private long next() {
+        if (hi < play + AHEAD)
+            return hi;
+        if (lo > play - BEHIND)
+            return lo - 1;
+        return NONE;
+    }
+
+    // keeps a sample if the playhead has not moved away from it meanwhile
+    private void store(long n, double[] sample) {
+        if (n != next())
+            return;
+        if (n == hi)
+            hi++;
+        else
+            lo--;
+        System.arraycopy(sample, 0, ring, slot(n), VALUES);
+    }
+
+    private int slot(long n) {
+        long s = n % CAPACITY;
+        return (int) (s < 0 ? s + CAPACITY : s) * VALUES;
+    }
+
+    // angle in [-180, 180)
+    private static double wrap(double a) {
+        return a - 360 * Math.floor((a + 180) / 360);
+    }
+}
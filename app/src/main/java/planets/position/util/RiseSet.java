@@ -41,14 +41,14 @@ public class RiseSet {
     }
 
     public double getRise(double jdate, int planet) {
-        return planetRise(jdate, planet, g);
+        return Ephemeris.getEngine().rise(jdate, planet, g);
     }
 
     public double getSet(double jdate, int planet) {
-        return planetSet(jdate, planet, g);
+        return Ephemeris.getEngine().set(jdate, planet, g);
     }
 
     public double getTransit(double jdate, int planet) {
-        return planetTransit(jdate, planet, g);
+        return Ephemeris.getEngine().transit(jdate, planet, g);
     }
 }
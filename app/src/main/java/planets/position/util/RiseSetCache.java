@@ -0,0 +1,106 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the next set, rise and transit of one planet seen from one
+ * location. The engine returns the first event after the given time, so an
+ * event stays the answer until that time has passed and only then is it
+ * searched for again. When there is no event, for a planet that does not
+ * rise or set, the search is repeated after RECHECK.
+ */
+public class RiseSetCache {
+
+    public static final int SET = 0;
+    public static final int RISE = 1;
+    public static final int TRANSIT = 2;
+
+    private static final double RECHECK = 5.0 / 1440.0; // days
+
+    private final double[] g;
+    private final int planet;
+    private final RiseSet riseSet;
+    private final double[] times = new double[3];
+    private final double[] validUntil = new double[3];
+
+    /**
+     * @param loc    location array, copied
+     * @param planet planet number
+     */
+    public RiseSetCache(double[] loc, int planet) {
+        this.g = loc.clone();
+        this.planet = planet;
+        riseSet = new RiseSet(g);
+        Arrays.fill(validUntil, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Returns true if the cache is for the given planet and location.
+     *
+     * @param loc    location array
+     * @param planet planet number
+     * @return true if the cached events apply
+     */
+    public boolean matches(double[] loc, int planet) {
+        return this.planet == planet && Arrays.equals(g, loc);
+    }
+
+    /**
+     * Brings the events up to date, searching only for the ones that have
+     * passed.
+     *
+     * @param dUT Jullian date in ut1
+     * @return the event that failed (SET, RISE or TRANSIT), or -1 if all are
+     * up to date
+     */
+    public int update(double dUT) {
+        for (int i = 0; i < 3; i++) {
+            if (dUT < validUntil[i])
+                continue;
+            double t;
+            if (i == SET)
+                t = riseSet.getSet(dUT, planet);
+            else if (i == RISE)
+                t = riseSet.getRise(dUT, planet);
+            else
+                t = riseSet.getTransit(dUT, planet);
+            if (t < 0)
+                return i;
+            times[i] = t;
+            validUntil[i] = (t > dUT) ? t : dUT + RECHECK;
+        }
+        return -1;
+    }
+
+    public double getSet() {
+        return times[SET];
+    }
+
+    public double getRise() {
+        return times[RISE];
+    }
+
+    public double getTransit() {
+        return times[TRANSIT];
+    }
+}
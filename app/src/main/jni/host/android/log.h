@@ -0,0 +1,37 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Replacement for the NDK logging header when planets_swiss is built for the
+ * host (benchmarks and tools).  Log messages are written to stderr.
+ */
+
+#ifndef PLANETS_HOST_ANDROID_LOG_H
+#define PLANETS_HOST_ANDROID_LOG_H
+
+#include <stdio.h>
+
+#define ANDROID_LOG_INFO 4
+#define ANDROID_LOG_ERROR 6
+
+#define __android_log_print(prio, tag, ...) \
+    (fprintf(stderr, "%s: ", tag), fprintf(stderr, __VA_ARGS__), fprintf(stderr, "\n"))
+
+#endif
@@ -19,10 +19,116 @@
  */
 
 #include <jni.h>
+#include <math.h>
 #include <stdio.h>
 #include <android/log.h>
 #include "swiss/swephexp.h"
 
+/*
+ * Swiss Ephemeris keeps all of its state, including the topocentric location
+ * set by swe_set_topo, in thread local storage, so every thread works in its
+ * own context and calls from different threads never see each other's setup.
+ * sweodef.h turns thread local storage off for some platforms (TLSOFF, Apple,
+ * Windows).  Those builds share one context, so every call into the
+ * ephemeris is serialized with a process wide lock instead.
+ */
+#if defined(TLSOFF) || defined(__APPLE__) || defined(WIN32) || defined(DOS32)
+#if defined(_WIN32)
+#include <windows.h>
+
+static SRWLOCK context_mutex = SRWLOCK_INIT;
+
+#define context_lock() AcquireSRWLockExclusive(&context_mutex)
+#define context_unlock() ReleaseSRWLockExclusive(&context_mutex)
+#elif defined(DOS32)
+/* DOS runs a single thread, there is nothing to serialize */
+#define context_lock()
+#define context_unlock()
+#else
+#include <pthread.h>
+
+static pthread_mutex_t context_mutex = PTHREAD_MUTEX_INITIALIZER;
+
+#define context_lock() pthread_mutex_lock(&context_mutex)
+#define context_unlock() pthread_mutex_unlock(&context_mutex)
+#endif
+#else
+#define context_lock()
+#define context_unlock()
+#endif
+
+/*
+ * Number of ephemeris sessions open on the calling thread.  Swiss Ephemeris
+ * keeps its state in thread local storage, so an open session keeps the
+ * nutation, obliquity and planet caches warm for every call made from the
+ * thread that opened it.
+ */
+static TLS int session_count = 0;
+
+/*
+ * Prepare Swiss Ephemeris for a calculation.  The ephemeris is only reset
+ * when no session is open on this thread.
+ */
+static void session_begin(void) {
+    context_lock();
+    if (session_count == 0)
+        swe_set_ephe_path(NULL);
+}
+
+/*
+ * Release Swiss Ephemeris after a calculation.  The cached state is only
+ * thrown away when no session is open on this thread.
+ */
+static void session_end(void) {
+    if (session_count == 0)
+        swe_close();
+    context_unlock();
+}
+
+/*
+ * Open an ephemeris session on the calling thread.  Sessions nest, only the
+ * first one initializes the ephemeris.
+ * Swiss Ephemeris function called:
+ * 		swe_set_ephe_path
+ * Output: number of sessions open on this thread
+ */
+jint Java_planets_position_util_EphemerisSession_sessionOpen(JNIEnv *env, jclass type) {
+
+    int count;
+
+    context_lock();
+    if (session_count == 0)
+        swe_set_ephe_path(NULL);
+    count = ++session_count;
+    context_unlock();
+    return count;
+}
+
+/*
+ * Close an ephemeris session on the calling thread.  The last session to
+ * close releases the ephemeris.
+ * Swiss Ephemeris function called:
+ * 		swe_close
+ * Output: number of sessions still open on this thread
+ */
+jint Java_planets_position_util_EphemerisSession_sessionClose(JNIEnv *env, jclass type) {
+
+    int count;
+
+    context_lock();
+    if (session_count == 0) {
+        context_unlock();
+        __android_log_print(ANDROID_LOG_ERROR, "sessionClose",
+                            "JNI ERROR no ephemeris session open on this thread");
+        return 0;
+    }
+    count = --session_count;
+    if (count == 0)
+        swe_close();
+    context_unlock();
+    return count;
+}
+
 /*
  * Convert a calendar date ( year, month, day, hour, min, sec) to a Julian date.
  * Swiss Ephemeris function called:
@@ -45,7 +151,9 @@ Java_planets_position_util_JDUTC_utc2jd(JNIEnv *env, jclass type, jint m, jint d
         return NULL; /* out of memory error thrown */
     }
 
+    context_lock();
     retval = swe_utc_to_jd(y, m, d, hr, min, sec, SE_GREG_CAL, dret, serr);
+    context_unlock();
     if (retval == ERR) {
         __android_log_print(ANDROID_LOG_ERROR, "Position_utc2jd",
                             "JNI ERROR swe_utc_to_jd: %-256s", serr);
@@ -58,23 +166,22 @@ Java_planets_position_util_JDUTC_utc2jd(JNIEnv *env, jclass type, jint m, jint d
 }
 
 /*
- * Covert a given Julian date to a calendar date in utc.
+ * Return the apparent sidereal time at Greenwich.
  * Swiss Ephemeris function called:
- * 		swe_jdut1_to_utc
- * Input: Julian date
- * Output: String containing a calendar date
+ * 		swe_sidtime
+ * Input: Julian date in ut1
+ * Output: sidereal time in hours
  */
-jstring Java_planets_position_util_JDUTC_jd2utc(JNIEnv *env, jclass type, jdouble juldate) {
-
-    char *outFormat = "_%i_%i_%i_%i_%i_%2.1f_";
-    char output[30];
-    int y, mo, d, h, mi;
-    double s;
+jdouble
+Java_planets_position_util_JniEphemerisEngine_calcSidTime(JNIEnv *env, jclass type,
+                                                          jdouble d_ut) {
 
-    swe_jdut1_to_utc(juldate, SE_GREG_CAL, &y, &mo, &d, &h, &mi, &s);
+    double st;
 
-    sprintf(output, outFormat, y, mo, d, h, mi, s);
-    return (*env)->NewStringUTF(env, output);
+    session_begin();
+    st = swe_sidtime(d_ut);
+    session_end();
+    return st;
 }
 
 /*
@@ -96,16 +203,16 @@ Java_planets_position_util_RiseSet_planetRise(JNIEnv *env, jclass type, jdouble
 
     (*env)->GetDoubleArrayRegion(env, loc, 0, 3, g);
 
-    swe_set_ephe_path(NULL);
+    session_begin();
 
     i = swe_rise_trans(d_ut, p, "", SEFLG_MOSEPH, SE_CALC_RISE, g, 0.0, 0.0, &riseT, serr);
     if (i == ERR) {
         __android_log_print(ANDROID_LOG_ERROR, "planetRise", "JNI ERROR swe_rise_trans: %-256s",
                             serr);
-        swe_close();
+        session_end();
         return -1.0;
     }
-    swe_close();
+    session_end();
 
     return riseT;
 }
@@ -129,16 +236,16 @@ Java_planets_position_util_RiseSet_planetSet(JNIEnv *env, jclass type, jdouble d
 
     (*env)->GetDoubleArrayRegion(env, loc, 0, 3, g);
 
-    swe_set_ephe_path(NULL);
+    session_begin();
 
     i = swe_rise_trans(d_ut, p, "", SEFLG_MOSEPH, SE_CALC_SET, g, 0.0, 0.0, &setT, serr);
     if (i == ERR) {
         __android_log_print(ANDROID_LOG_ERROR, "planetSet", "JNI ERROR swe_rise_trans: %-256s",
                             serr);
-        swe_close();
+        session_end();
         return -1.0;
     }
-    swe_close();
+    session_end();
 
     return setT;
 }
@@ -162,85 +269,61 @@ Java_planets_position_util_RiseSet_planetTransit(JNIEnv *env, jclass type, jdoub
 
     (*env)->GetDoubleArrayRegion(env, loc, 0, 3, g);
 
-    swe_set_ephe_path(NULL);
+    session_begin();
 
     i = swe_rise_trans(d_ut, p, "", SEFLG_MOSEPH, SE_CALC_MTRANSIT, g, 0.0, 0.0, &transitT,
                        serr);
     if (i == ERR) {
         __android_log_print(ANDROID_LOG_ERROR, "planetTransit", "JNI ERROR swe_rise_trans: %-256s",
                             serr);
-        swe_close();
+        session_end();
         return -1.0;
     }
-    swe_close();
+    session_end();
 
     return transitT;
 }
 
 /*
- * Calculate the position of a given planet in the sky.
+ * Number of values stored for each planet by calcPlanets.
+ */
+#define UP_STRIDE 9
+
+/*
+ * Calculate the topocentric position of a planet.  swe_set_topo must already
+ * have been called for the location g.
  * Swiss Ephemeris functions called:
- * 		swe_set_ephe_path
- * 		swe_set_topo
  * 		swe_calc
  * 		swe_azalt
  * 		swe_pheno_ut
- * 		swe_close
  * Input: Julian date in ephemeris time, Julian date in ut1, planet number,
- * 		location array, atmospheric pressure and temperature.
- * Output: Double array containing RA, Dec, distance, azimuth, altitude,
- * 		magnitude, set time, and rise time of planet.
+ * 		location array, output array.
+ * Output: OK or ERR.  Stores RA, Dec, distance, azimuth, altitude and
+ * 		magnitude in r[0..5].
  */
-jdoubleArray
-Java_planets_position_SkyPosition_planetPosData(JNIEnv *env, jobject this, jdouble d_et,
-                                                jdouble d_ut, jint p, jdoubleArray loc) {
-
-    char serr[256];
-    double x2[3], az[3], g[3], attr[20];
-    int i, iflag = SEFLG_MOSEPH | SEFLG_EQUATORIAL | SEFLG_TOPOCTR;
-    jdoubleArray result;
+static int calc_position(double d_et, double d_ut, int p, double *g, double *r, char *serr) {
 
-    result = (*env)->NewDoubleArray(env, 8);
-    if (result == NULL) {
-        __android_log_print(ANDROID_LOG_ERROR, "planetPosData",
-                            "JNI ERROR NewDoubleArray: out of memory error");
-        return NULL; /* out of memory error thrown */
-    }
-
-    (*env)->GetDoubleArrayRegion(env, loc, 0, 3, g);
-
-    swe_set_ephe_path(NULL);
-
-    swe_set_topo(g[0], g[1], g[2]);
-    i = swe_calc(d_et, p, iflag, x2, serr);
-    if (i == ERR) {
-        __android_log_print(ANDROID_LOG_ERROR, "planetPosData",
-                            "JNI ERROR swe_calc: %-256s", serr);
-        swe_close();
-        return NULL;
-    } else {
-        swe_azalt(d_ut, SE_EQU2HOR, g, 0.0, 0.0, x2, az);
-        i = swe_pheno_ut(d_ut, p, SEFLG_MOSEPH, attr, serr);
-        if (i == ERR) {
-            __android_log_print(ANDROID_LOG_ERROR, "planetPosData",
-                                "JNI ERROR swe_pheno_ut: %-256s", serr);
-            swe_close();
-            return NULL;
-        }
-        swe_close();
-
-        /*rotates azimuth origin to north*/
-        az[0] += 180;
-        if (az[0] > 360)
-            az[0] -= 360;
-
-        // move from the temp structure to the java structure
-        (*env)->SetDoubleArrayRegion(env, result, 0, 3, x2);
-        (*env)->SetDoubleArrayRegion(env, result, 3, 2, az);
-        (*env)->SetDoubleArrayRegion(env, result, 5, 1, &attr[4]);
+    double x2[6], az[3], attr[20];
+    int iflag = SEFLG_MOSEPH | SEFLG_EQUATORIAL | SEFLG_TOPOCTR;
 
-        return result;
-    }
+    if (swe_calc(d_et, p, iflag, x2, serr) == ERR)
+        return ERR;
+    swe_azalt(d_ut, SE_EQU2HOR, g, 0.0, 0.0, x2, az);
+    if (swe_pheno_ut(d_ut, p, SEFLG_MOSEPH, attr, serr) == ERR)
+        return ERR;
+
+    /*rotates azimuth origin to north*/
+    az[0] += 180;
+    if (az[0] > 360)
+        az[0] -= 360;
+
+    r[0] = x2[0];
+    r[1] = x2[1];
+    r[2] = x2[2];
+    r[3] = az[0];
+    r[4] = az[1];
+    r[5] = attr[4];
+    return OK;
 }
 
 /*
@@ -248,131 +331,116 @@ Java_planets_position_SkyPosition_planetPosData(JNIEnv *env, jobject this, jdoub
  * Swiss Ephemeris functions called:
  * 		swe_set_ephe_path
  * 		swe_set_topo
- * 		swe_calc_ut
+ * 		swe_calc
  * 		swe_azalt
  * 		swe_pheno_ut
  * 		swe_close
  * Input: Julian date in ephemeris time, Julian date in ut1, planet number,
- * 		location array, atmospheric pressure and temperature.
- * Output: Double array containing RA, Dec, distance, azimuth, altitude,
- * 		magnitude, set time, and rise time of planet.
+ * 		location array.
+ * Output: Double array containing RA, Dec, distance, azimuth, altitude and
+ * 		magnitude of planet.
  */
 jdoubleArray
-Java_planets_position_LivePositionService_planetLiveData(JNIEnv *env, jclass type, jdouble d_ut,
-                                                         jint p, jdoubleArray loc) {
+Java_planets_position_util_JniEphemerisEngine_calcPlanet(JNIEnv *env, jclass type, jdouble d_et,
+                                                         jdouble d_ut, jint p, jdoubleArray loc) {
 
     char serr[256];
-    double x2[6], az[3], g[3], attr[20];
-    int i, iflag = SEFLG_MOSEPH | SEFLG_EQUATORIAL | SEFLG_TOPOCTR;
+    double g[3], r[6];
     jdoubleArray result;
 
-    result = (*env)->NewDoubleArray(env, 8);
+    result = (*env)->NewDoubleArray(env, 6);
     if (result == NULL) {
-        __android_log_print(ANDROID_LOG_ERROR, "planetLiveData",
+        __android_log_print(ANDROID_LOG_ERROR, "calcPlanet",
                             "JNI ERROR NewDoubleArray: out of memory error");
         return NULL; /* out of memory error thrown */
     }
 
     (*env)->GetDoubleArrayRegion(env, loc, 0, 3, g);
 
-    swe_set_ephe_path(NULL);
+    session_begin();
 
     swe_set_topo(g[0], g[1], g[2]);
-    i = swe_calc_ut(d_ut, p, iflag, x2, serr);
-    if (i == ERR) {
-        __android_log_print(ANDROID_LOG_ERROR, "planetLiveData",
-                            "JNI ERROR swe_calc: %-256s", serr);
-        swe_close();
+    if (calc_position(d_et, d_ut, p, g, r, serr) == ERR) {
+        __android_log_print(ANDROID_LOG_ERROR, "calcPlanet",
+                            "JNI ERROR calc_position: %-256s", serr);
+        session_end();
         return NULL;
-    } else {
-        swe_azalt(d_ut, SE_EQU2HOR, g, 0.0, 0.0, x2, az);
-        i = swe_pheno_ut(d_ut, p, SEFLG_MOSEPH, attr, serr);
-        if (i == ERR) {
-            __android_log_print(ANDROID_LOG_ERROR, "planetLiveData",
-                                "JNI ERROR swe_pheno_ut: %-256s", serr);
-            swe_close();
-            return NULL;
-        }
-        swe_close();
-
-        /*rotates azimuth origin to north*/
-        az[0] += 180;
-        if (az[0] > 360)
-            az[0] -= 360;
+    }
+    session_end();
 
-        // move from the temp structure to the java structure
-        (*env)->SetDoubleArrayRegion(env, result, 0, 3, x2);
-        (*env)->SetDoubleArrayRegion(env, result, 3, 2, az);
-        (*env)->SetDoubleArrayRegion(env, result, 5, 1, &attr[4]);
+    // move from the temp structure to the java structure
+    (*env)->SetDoubleArrayRegion(env, result, 0, 6, r);
 
-        return result;
-    }
+    return result;
 }
 
 /*
- * Calculate the position of a given planet in the sky.
+ * Calculate the position, rise, set and transit times of several planets in
+ * one call.
  * Swiss Ephemeris functions called:
  * 		swe_set_ephe_path
  * 		swe_set_topo
  * 		swe_calc
  * 		swe_azalt
  * 		swe_pheno_ut
+ * 		swe_rise_trans
  * 		swe_close
- * Input: Julian date in ephemeris time, Julian date in ut1, planet number,
- * 		location array, atmospheric pressure and temperature.
- * Output: Double array containing RA, Dec, distance, azimuth, altitude,
- * 		magnitude, and set time of planet.
+ * Input: Julian date in ephemeris time, Julian date in ut1, bit mask of planet
+ * 		numbers (bit n = planet n), location array, result array.
+ * Output: Number of planets calculated or -1 on error.  For planet n the result
+ * 		array holds RA, Dec, distance, azimuth, altitude, magnitude, set time,
+ * 		rise time and transit time starting at index n * UP_STRIDE.  A set,
+ * 		rise or transit time that swe_rise_trans fails to find is stored as
+ * 		NAN, the other planets are still calculated.  Only the rows of the
+ * 		requested planets are written, so threads may fill disjoint rows of
+ * 		the same array concurrently.
  */
-jdoubleArray Java_planets_position_WhatsUpTask_planetUpData(JNIEnv *env, jobject this, jdouble d_et,
-                                                            jdouble d_ut, jint p,
-                                                            jdoubleArray loc) {
+jint Java_planets_position_util_JniEphemerisEngine_calcPlanets(JNIEnv *env, jclass type,
+                                                               jdouble d_et, jdouble d_ut,
+                                                               jint mask, jdoubleArray loc,
+                                                               jdoubleArray out) {
 
+    static const int32 events[3] = {SE_CALC_SET, SE_CALC_RISE, SE_CALC_MTRANSIT};
     char serr[256];
-    double x2[3], az[3], g[3], attr[20];
-    int i, iflag = SEFLG_MOSEPH | SEFLG_EQUATORIAL | SEFLG_TOPOCTR;
-    jdoubleArray result;
+    double g[3], r[UP_STRIDE];
+    int p, e, count = 0;
 
-    result = (*env)->NewDoubleArray(env, 7);
-    if (result == NULL) {
-        __android_log_print(ANDROID_LOG_ERROR, "planetUpData",
-                            "JNI ERROR NewDoubleArray: out of memory error");
-        return NULL; /* out of memory error thrown */
+    if ((*env)->GetArrayLength(env, out) < 10 * UP_STRIDE) {
+        __android_log_print(ANDROID_LOG_ERROR, "calcPlanets",
+                            "JNI ERROR result array too small");
+        return -1;
     }
 
     (*env)->GetDoubleArrayRegion(env, loc, 0, 3, g);
 
-    swe_set_ephe_path(NULL);
+    session_begin();
 
     swe_set_topo(g[0], g[1], g[2]);
-    i = swe_calc(d_et, p, iflag, x2, serr);
-    if (i == ERR) {
-        __android_log_print(ANDROID_LOG_ERROR, "planetUpData",
-                            "JNI ERROR swe_calc: %-256s", serr);
-        swe_close();
-        return NULL;
-    } else {
-        swe_azalt(d_ut, SE_EQU2HOR, g, 0.0, 0.0, x2, az);
-        i = swe_pheno_ut(d_ut, p, SEFLG_MOSEPH, attr, serr);
-        if (i == ERR) {
-            __android_log_print(ANDROID_LOG_ERROR, "planetUpData",
-                                "JNI ERROR swe_pheno_ut: %-256s", serr);
-            swe_close();
-            return NULL;
+    for (p = 0; p < 10; p++) {
+        if ((mask & (1 << p)) == 0)
+            continue;
+
+        if (calc_position(d_et, d_ut, p, g, r, serr) == ERR) {
+            __android_log_print(ANDROID_LOG_ERROR, "calcPlanets",
+                                "JNI ERROR calc_position planet %d: %-256s", p, serr);
+            session_end();
+            return -1;
         }
-        swe_close();
-
-        /*rotates azimuth origin to north*/
-        az[0] += 180;
-        if (az[0] > 360)
-            az[0] -= 360;
-
-        // move from the temp structure to the java structure
-        (*env)->SetDoubleArrayRegion(env, result, 0, 3, x2);
-        (*env)->SetDoubleArrayRegion(env, result, 3, 2, az);
-        (*env)->SetDoubleArrayRegion(env, result, 5, 1, &attr[4]);
-
-        return result;
+        for (e = 0; e < 3; e++) {
+            if (swe_rise_trans(d_ut, p, "", SEFLG_MOSEPH, events[e], g, 0.0, 0.0, &r[6 + e],
+                               serr) == ERR) {
+                __android_log_print(ANDROID_LOG_ERROR, "calcPlanets",
+                                    "JNI ERROR swe_rise_trans planet %d: %-256s", p, serr);
+                r[6 + e] = NAN;
+            }
+        }
+        // move this planet's row to the java structure
+        (*env)->SetDoubleArrayRegion(env, out, p * UP_STRIDE, UP_STRIDE, r);
+        count++;
     }
+    session_end();
+
+    return count;
 }
 
 /*
@@ -384,8 +452,9 @@ jdoubleArray Java_planets_position_WhatsUpTask_planetUpData(JNIEnv *env, jobject
  * Input: Julian date in ut1, search direction(0=forward|1=back).
  * Output: Double array containing eclipse type and eclipse event times.
  */
-jdoubleArray Java_planets_position_solar_SolarEclipseTask_solarDataGlobal(JNIEnv *env, jobject this,
-                                                                          jdouble d_ut, jint back) {
+jdoubleArray
+Java_planets_position_util_JniEphemerisEngine_solarDataGlobal(JNIEnv *env, jclass type,
+                                                              jdouble d_ut, jint back) {
 
     char serr[256];
     double tret[10], rval;
@@ -399,18 +468,18 @@ jdoubleArray Java_planets_position_solar_SolarEclipseTask_solarDataGlobal(JNIEnv
         return NULL; /* out of memory error thrown */
     }
 
-    swe_set_ephe_path(NULL);
+    session_begin();
 
     retval = swe_sol_eclipse_when_glob(d_ut, SEFLG_MOSEPH, 0, tret, back, serr);
     if (retval == ERR) {
         __android_log_print(ANDROID_LOG_ERROR, "solarDataGlobal",
                             "JNI ERROR swe_sol_eclipse_when_glob: %-256s", serr);
-        swe_close();
+        session_end();
         return NULL;
     }
 
     rval = retval * 1.0;
-    swe_close();
+    session_end();
 
     // move from the temp structure to the java structure
     (*env)->SetDoubleArrayRegion(env, result, 0, 1, &rval);
@@ -433,8 +502,8 @@ jdoubleArray Java_planets_position_solar_SolarEclipseTask_solarDataGlobal(JNIEnv
  * 			eclipse attributes, and moon position
  */
 jdoubleArray
-Java_planets_position_solar_SolarEclipseTask_solarDataLocal(JNIEnv *env, jobject this, jdouble d_ut,
-                                                            jdoubleArray loc, jint back) {
+Java_planets_position_util_JniEphemerisEngine_solarDataLocal(JNIEnv *env, jclass type, jdouble d_ut,
+                                                             jdoubleArray loc, jint back) {
 
     char serr[256];
     double g[3], attr[20], tret[10], az[6], x2[6], rval;
@@ -449,7 +518,7 @@ Java_planets_position_solar_SolarEclipseTask_solarDataLocal(JNIEnv *env, jobject
         return NULL; /* out of memory error thrown */
     }
 
-    swe_set_ephe_path(NULL);
+    session_begin();
 
     (*env)->GetDoubleArrayRegion(env, loc, 0, 3, g);
     swe_set_topo(g[0], g[1], g[2]);
@@ -459,7 +528,7 @@ Java_planets_position_solar_SolarEclipseTask_solarDataLocal(JNIEnv *env, jobject
     if (retval == ERR) {
         __android_log_print(ANDROID_LOG_ERROR, "solarDataLocal",
                             "JNI ERROR swe_sol_eclipse_when_loc: %-256s", serr);
-        swe_close();
+        session_end();
         return NULL;
     } else {
         // rotate azimuth of sun 180 degrees
@@ -471,7 +540,7 @@ Java_planets_position_solar_SolarEclipseTask_solarDataLocal(JNIEnv *env, jobject
         if (i == ERR) {
             __android_log_print(ANDROID_LOG_ERROR, "solarDataLocal",
                                 "JNI ERROR swe_calc_ut: %-256s", serr);
-            swe_close();
+            session_end();
             return NULL;
         }
         swe_azalt(tret[0], SE_EQU2HOR, g, 0, 0, x2, az);
@@ -481,7 +550,7 @@ Java_planets_position_solar_SolarEclipseTask_solarDataLocal(JNIEnv *env, jobject
             az[0] -= 360;
 
         rval = retval * 1.0;
-        swe_close();
+        session_end();
 
         // move from the temp structure to the java structure
         (*env)->SetDoubleArrayRegion(env, result, 0, 1, &rval);
@@ -517,10 +586,10 @@ Java_planets_position_solar_SolarEclipseMap_solarMapPos(JNIEnv *env, jobject thi
         return NULL; /* out of memory error thrown */
     }
 
-    swe_set_ephe_path(NULL);
+    session_begin();
 
     swe_sol_eclipse_where(d_ut, SEFLG_MOSEPH, g, attr, serr);
-    swe_close();
+    session_end();
 
     // move from the temp structure to the java structure
     (*env)->SetDoubleArrayRegion(env, result, 0, 2, g);
@@ -537,8 +606,9 @@ Java_planets_position_solar_SolarEclipseMap_solarMapPos(JNIEnv *env, jobject thi
  * Input: Julian date in ut1, search direction(0=forward|1=back).
  * Output: Double array containing eclipse type and eclipse event times.
  */
-jdoubleArray Java_planets_position_lunar_LunarEclipseTask_lunarDataGlobal(JNIEnv *env, jobject this,
-                                                                          jdouble d_ut, jint back) {
+jdoubleArray
+Java_planets_position_util_JniEphemerisEngine_lunarDataGlobal(JNIEnv *env, jclass type,
+                                                              jdouble d_ut, jint back) {
 
     char serr[256];
     double tret[10], rval;
@@ -552,18 +622,18 @@ jdoubleArray Java_planets_position_lunar_LunarEclipseTask_lunarDataGlobal(JNIEnv
         return NULL; /* out of memory error thrown */
     }
 
-    swe_set_ephe_path(NULL);
+    session_begin();
 
     retval = swe_lun_eclipse_when(d_ut, SEFLG_MOSEPH, 0, tret, back, serr);
     if (retval == ERR) {
         __android_log_print(ANDROID_LOG_ERROR, "lunarDataGlobal",
                             "JNI ERROR swe_lun_eclipse_when: %-256s", serr);
-        swe_close();
+        session_end();
         return NULL;
     }
 
     rval = retval * 1.0;
-    swe_close();
+    session_end();
 
     // move from the temp structure to the java structure
     (*env)->SetDoubleArrayRegion(env, result, 0, 1, &rval);
@@ -583,8 +653,8 @@ jdoubleArray Java_planets_position_lunar_LunarEclipseTask_lunarDataGlobal(JNIEnv
  * 			and eclipse attributes
  */
 jdoubleArray
-Java_planets_position_lunar_LunarEclipseTask_lunarDataLocal(JNIEnv *env, jobject this, jdouble d_ut,
-                                                            jdoubleArray loc, jint back) {
+Java_planets_position_util_JniEphemerisEngine_lunarDataLocal(JNIEnv *env, jclass type, jdouble d_ut,
+                                                             jdoubleArray loc, jint back) {
 
     char serr[256];
     double g[3], tret[10], attr[20], rval;
@@ -600,14 +670,14 @@ Java_planets_position_lunar_LunarEclipseTask_lunarDataLocal(JNIEnv *env, jobject
 
     (*env)->GetDoubleArrayRegion(env, loc, 0, 3, g);
 
-    swe_set_ephe_path(NULL);
+    session_begin();
 
     retval = swe_lun_eclipse_when_loc(d_ut, SEFLG_MOSEPH, g, tret, attr, back,
                                       serr);
     if (retval == ERR) {
         __android_log_print(ANDROID_LOG_ERROR, "lunarDataLocal",
                             "JNI ERROR swe_lun_eclipse_when_loc: %-256s", serr);
-        swe_close();
+        session_end();
         return NULL;
     }
     // rotate azimuth of moon 180 degrees
@@ -616,7 +686,7 @@ Java_planets_position_lunar_LunarEclipseTask_lunarDataLocal(JNIEnv *env, jobject
         attr[4] -= 360;
 
     rval = retval * 1.0;
-    swe_close();
+    session_end();
 
     // move from the temp structure to the java structure
     (*env)->SetDoubleArrayRegion(env, result, 0, 1, &rval);
@@ -637,8 +707,8 @@ Java_planets_position_lunar_LunarEclipseTask_lunarDataLocal(JNIEnv *env, jobject
  * Output: Double array containing occultation type and event times.
  */
 jdoubleArray
-Java_planets_position_lunar_LunarOccultTask_lunarOccultGlobal(JNIEnv *env, jobject this,
-                                                              jdouble d_ut, jint p, jint back) {
+Java_planets_position_util_JniEphemerisEngine_lunarOccultGlobal(JNIEnv *env, jclass type,
+                                                                jdouble d_ut, jint p, jint back) {
 
     char serr[256];
     double tret[10], rval;
@@ -652,19 +722,19 @@ Java_planets_position_lunar_LunarOccultTask_lunarOccultGlobal(JNIEnv *env, jobje
                             "JNI ERROR NewDoubleArray: out of memory error");
         return NULL; /* out of memory error thrown */
     }
-    swe_set_ephe_path(NULL);
+    session_begin();
 
     retval = swe_lun_occult_when_glob(d_ut, p, NULL, iflag, 0, tret, back,
                                       serr);
     if (retval == ERR) {
         __android_log_print(ANDROID_LOG_ERROR, "lunarOccultGlobal",
                             "JNI ERROR swe_lun_occult_when_glob: %-256s", serr);
-        swe_close();
+        session_end();
         return NULL;
     }
 
     rval = retval * 1.0;
-    swe_close();
+    session_end();
 
     // move from the temp structure to the java structure
     (*env)->SetDoubleArrayRegion(env, result, 0, 1, &rval);
@@ -686,10 +756,10 @@ Java_planets_position_lunar_LunarOccultTask_lunarOccultGlobal(JNIEnv *env, jobje
  * Output: Double array containing local occultation type ,local event times,
  * 			and start and end positions of the moon.
  */
-jdoubleArray Java_planets_position_lunar_LunarOccultTask_lunarOccultLocal(JNIEnv *env, jobject this,
-                                                                          jdouble d_ut,
-                                                                          jdoubleArray loc, jint p,
-                                                                          jint back) {
+jdoubleArray
+Java_planets_position_util_JniEphemerisEngine_lunarOccultLocal(JNIEnv *env, jclass type,
+                                                               jdouble d_ut, jdoubleArray loc,
+                                                               jint p, jint back) {
 
     char serr[256];
     double g[3], tret[10], attr[20], az1[6], az2[6], x2[6], rval;
@@ -706,14 +776,14 @@ jdoubleArray Java_planets_position_lunar_LunarOccultTask_lunarOccultLocal(JNIEnv
 
     (*env)->GetDoubleArrayRegion(env, loc, 0, 3, g);
 
-    swe_set_ephe_path(NULL);
+    session_begin();
 
     retval = swe_lun_occult_when_loc(d_ut, p, NULL, iflag, g, tret, attr, back,
                                      serr);
     if (retval == ERR) {
         __android_log_print(ANDROID_LOG_ERROR, "lunarOccultLocal",
                             "JNI ERROR swe_lun_occult_when_loc: %-256s", serr);
-        swe_close();
+        session_end();
         return NULL;
     } else {
         // calculate moon position at start
@@ -721,7 +791,7 @@ jdoubleArray Java_planets_position_lunar_LunarOccultTask_lunarOccultLocal(JNIEnv
         if (i == ERR) {
             __android_log_print(ANDROID_LOG_ERROR, "lunarOccultLocal",
                                 "JNI ERROR swe_calc_ut start: %-256s", serr);
-            swe_close();
+            session_end();
             return NULL;
         }
         swe_azalt(tret[1], SE_EQU2HOR, g, 0, 0, x2, az1);
@@ -735,7 +805,7 @@ jdoubleArray Java_planets_position_lunar_LunarOccultTask_lunarOccultLocal(JNIEnv
         if (i == ERR) {
             __android_log_print(ANDROID_LOG_ERROR, "lunarOccultLocal",
                                 "JNI ERROR swe_calc_ut end: %-256s", serr);
-            swe_close();
+            session_end();
             return NULL;
         }
         swe_azalt(tret[4], SE_EQU2HOR, g, 0, 0, x2, az2);
@@ -745,7 +815,7 @@ jdoubleArray Java_planets_position_lunar_LunarOccultTask_lunarOccultLocal(JNIEnv
             az2[0] -= 360;
 
         rval = retval * 1.0;
-        swe_close();
+        session_end();
     }
 
     // move from the temp structure to the java structure
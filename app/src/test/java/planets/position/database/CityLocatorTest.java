@@ -0,0 +1,107 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.database;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the tree against a scan of every city in the time zone data file.
+ */
+public class CityLocatorTest {
+
+    private static RandomAccessFile file;
+    private static TimeZoneData data;
+    private static CityLocator locator;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        file = new RandomAccessFile(System.getProperty("timezone.data"), "r");
+        data = TimeZoneData.map(file.getChannel(), 0, file.length());
+        locator = new CityLocator(data);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        file.close();
+    }
+
+    @Test
+    public void matchesScan() {
+        Random random = new Random(15);
+        for (int i = 0; i < 1000; i++) {
+            // uniform over the sphere
+            double lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            double lng = 360 * random.nextDouble() - 180;
+            check(lat, lng);
+        }
+    }
+
+    @Test
+    public void matchesScanAtCities() {
+        for (int row = 0; row < data.getCityCount(); row += 7) {
+            double lat = data.getCityLatitude(row), lng = data.getCityLongitude(row);
+            assertEquals(0, locator.distance(locator.nearest(lat, lng), lat, lng), 1e-6);
+            check(lat + 0.01, lng - 0.01);
+        }
+    }
+
+    @Test
+    public void matchesScanAtEdges() {
+        double[] lats = {-90, -89.999, -45, 0, 45, 89.999, 90};
+        double[] lngs = {-180, -179.999, -90, 0, 90, 179.999, 180};
+        for (double lat : lats) {
+            for (double lng : lngs)
+                check(lat, lng);
+        }
+    }
+
+    @Test
+    public void scanFindsClosest() {
+        Random random = new Random(16);
+        for (int i = 0; i < 200; i++) {
+            double lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            double lng = 360 * random.nextDouble() - 180;
+            double best = Double.MAX_VALUE;
+            for (int row = 0; row < data.getCityCount(); row++)
+                best = Math.min(best, CityLocator.distance(data, row, lat, lng));
+            assertEquals(best, CityLocator.distance(data,
+                    CityLocator.scan(data, lat, lng), lat, lng), 1e-6);
+        }
+    }
+
+    // cities at the same distance may come back in either order
+    private static void check(double lat, double lng) {
+        int row = locator.nearest(lat, lng);
+        int expected = CityLocator.scan(data, lat, lng);
+        assertTrue(row >= 0);
+        assertEquals(lat + ", " + lng, CityLocator.distance(data, expected, lat, lng),
+                locator.distance(row, lat, lng), 1e-9);
+    }
+}
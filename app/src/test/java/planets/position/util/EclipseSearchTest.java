@@ -0,0 +1,146 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks that the segmented search finds the same eclipses, in the same
+ * order, as the serial chain of searches the eclipse tasks used to run.
+ */
+public class EclipseSearchTest {
+
+    // Denver, CO [longitude, latitude, elevation]
+    static final double[] LOCATION = {-104.9903, 39.7392, 1609.0};
+
+    // 2020-06-01 03:00 UTC
+    static final double JD_UT = 2459001.6249945476;
+
+    private static final int COUNT = 25;
+    private static final double SECOND = 1.0 / 86400;
+
+    private EphemerisEngine engine;
+    private EphemerisSession session;
+
+    @Before
+    public void setUp() {
+        engine = Ephemeris.getEngine();
+        session = EphemerisSession.open();
+    }
+
+    @After
+    public void tearDown() {
+        session.close();
+    }
+
+    @Test
+    public void solarForward() throws InterruptedException {
+        check(EclipseSearch.SOLAR, 0);
+    }
+
+    @Test
+    public void solarBack() throws InterruptedException {
+        check(EclipseSearch.SOLAR, 1);
+    }
+
+    @Test
+    public void lunarForward() throws InterruptedException {
+        check(EclipseSearch.LUNAR, 0);
+    }
+
+    @Test
+    public void lunarBack() throws InterruptedException {
+        check(EclipseSearch.LUNAR, 1);
+    }
+
+    private void check(int type, int back) throws InterruptedException {
+        List<EclipseSearch.Eclipse> expected = serial(type, back);
+        final List<EclipseSearch.Eclipse> streamed = new ArrayList<>();
+        List<EclipseSearch.Eclipse> found = EclipseSearch.search(engine, type, JD_UT,
+                LOCATION, back, COUNT, new EclipseSearch.Listener() {
+                    @Override
+                    public void onEclipse(int index, EclipseSearch.Eclipse eclipse) {
+                        assertEquals(streamed.size(), index);
+                        streamed.add(eclipse);
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return false;
+                    }
+                });
+        assertNotNull(found);
+        assertEquals(COUNT, found.size());
+        // every eclipse is reported once, in search order
+        assertEquals(found, streamed);
+        for (int i = 0; i < COUNT; i++) {
+            EclipseSearch.Eclipse e = expected.get(i), f = found.get(i);
+            String msg = "eclipse " + i;
+            assertEquals(msg, e.global[0], f.global[0], 0.0);
+            assertEquals(msg, e.global[1], f.global[1], SECOND);
+            assertEquals(msg, e.local != null, f.local != null);
+            if (e.local != null)
+                assertEquals(msg, e.local[1], f.local[1], SECOND);
+        }
+    }
+
+    // each search starts where the last eclipse ended, the local search
+    // scans ahead until it finds an eclipse visible from the location
+    private List<EclipseSearch.Eclipse> serial(int type, int back) {
+        List<EclipseSearch.Eclipse> list = new ArrayList<>(COUNT);
+        double start = JD_UT, localStart = JD_UT;
+        double[] global, local = null;
+        while (list.size() < COUNT) {
+            if (type == EclipseSearch.SOLAR) {
+                global = engine.solarEclipseGlobal(start, back);
+                assertNotNull(global);
+                start = (back == 0) ? global[4] : global[3];
+            } else {
+                global = engine.lunarEclipseGlobal(start, back);
+                assertNotNull(global);
+                start = (back == 0) ? global[8] : global[7];
+            }
+            if (local == null) {
+                if (type == EclipseSearch.SOLAR)
+                    local = engine.solarEclipseLocal(localStart, LOCATION, back);
+                else
+                    local = engine.lunarEclipseLocal(localStart, LOCATION, back);
+                assertNotNull(local);
+            }
+            if (Math.abs(local[1] - global[1]) <= 1.0) {
+                list.add(new EclipseSearch.Eclipse(global, local));
+                local = null;
+                localStart = start;
+            } else {
+                list.add(new EclipseSearch.Eclipse(global, null));
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the pure Java Moshier engine against the Swiss Ephemeris JNI engine
+ * it was ported from.
+ */
+public class MoshierEphemerisEngineTest {
+
+    // Denver, CO [longitude, latitude, elevation]
+    static final double[] LOCATION = {-104.9903, 39.7392, 1609.0};
+
+    // Tromso, Sydney and Longyearbyen, the first and last use the slow rise
+    // and set search for latitudes above 60 degrees
+    private static final double[][] LOCATIONS = {
+            LOCATION, {18.9553, 69.6492, 10.0}, {151.2093, -33.8688, 58.0},
+            {15.6267, 78.2232, 20.0}
+    };
+
+    // 2020-06-01 03:00 UTC
+    static final double JD_UT = 2459001.6249945476;
+
+    // month, day, year, hour, minute
+    private static final int[][] DATES = {
+            {6, 1, 2020, 3, 0}, {1, 1, 2000, 12, 0}, {3, 20, 1985, 18, 30},
+            {2, 29, 1960, 6, 0}, {7, 4, 2045, 0, 5}, {12, 21, 2023, 0, 0}
+    };
+
+    private static final double MAS = 1.0 / 3600000;
+    private static final double SECOND = 1.0 / 86400;
+
+    private EphemerisEngine jni;
+    private EphemerisEngine moshier;
+    private EphemerisSession session;
+
+    @Before
+    public void setUp() {
+        jni = new JniEphemerisEngine();
+        moshier = new MoshierEphemerisEngine(jni);
+        session = EphemerisSession.open();
+    }
+
+    @After
+    public void tearDown() {
+        session.close();
+    }
+
+    @Test
+    public void utcToJd() {
+        for (int[] d : DATES) {
+            double[] expected = jni.utcToJd(d[0], d[1], d[2], d[3], d[4], 0);
+            double[] jd = moshier.utcToJd(d[0], d[1], d[2], d[3], d[4], 0);
+            assertEquals(expected[0], jd[0], 1e-9 * SECOND);
+            assertEquals(expected[1], jd[1], 1e-9 * SECOND);
+        }
+        // leap second at the end of 2016
+        double[] expected = jni.utcToJd(12, 31, 2016, 23, 59, 60.5);
+        assertArrayEquals(new double[]{expected[0], expected[1]},
+                moshier.utcToJd(12, 31, 2016, 23, 59, 60.5), 1e-9 * SECOND);
+        assertNull(moshier.utcToJd(2, 30, 2021, 0, 0, 0));
+    }
+
+    @Test
+    public void siderealTime() {
+        for (int i = 0; i < 100; i++) {
+            double jd = JD_UT - 36525 + i * 733.37;
+            assertEquals(jni.siderealTime(jd), moshier.siderealTime(jd), 1e-9);
+        }
+    }
+
+    @Test
+    public void planetsData() {
+        for (int[] d : DATES) {
+            double[] jd = jni.utcToJd(d[0], d[1], d[2], d[3], d[4], 0);
+            for (double[] loc : LOCATIONS) {
+                double[] expected = new double[10 * EphemerisEngine.STRIDE];
+                double[] out = new double[10 * EphemerisEngine.STRIDE];
+                assertEquals(10, jni.planetsData(jd[0], jd[1], EphemerisEngine.ALL_PLANETS,
+                        loc, expected));
+                assertEquals(10, moshier.planetsData(jd[0], jd[1],
+                        EphemerisEngine.ALL_PLANETS, loc, out));
+                for (int p = 0; p < 10; p++) {
+                    String msg = "planet " + p + " at " + jd[1] + " latitude " + loc[1];
+                    int i = p * EphemerisEngine.STRIDE;
+                    checkPosition(msg, expected, out, i);
+                    for (int e = 6; e < 9; e++) {
+                        // 0 when the planet does not rise or set
+                        assertEquals(msg, expected[i + e] == 0, out[i + e] == 0);
+                        assertEquals(msg, expected[i + e], out[i + e], SECOND);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void planetData() {
+        for (int p = 0; p < 10; p++) {
+            double[] jd = jni.utcToJd(6, 1, 2020, 3, 0, 0);
+            checkPosition("planet " + p, jni.planetData(jd[0], jd[1], p, LOCATION),
+                    moshier.planetData(jd[0], jd[1], p, LOCATION), 0);
+        }
+    }
+
+    @Test
+    public void riseSetTransit() {
+        for (double[] loc : LOCATIONS) {
+            for (int p = 0; p < 10; p++) {
+                String msg = "planet " + p + " latitude " + loc[1];
+                assertEquals(msg, jni.rise(JD_UT, p, loc), moshier.rise(JD_UT, p, loc), SECOND);
+                assertEquals(msg, jni.set(JD_UT, p, loc), moshier.set(JD_UT, p, loc), SECOND);
+                assertEquals(msg, jni.transit(JD_UT, p, loc), moshier.transit(JD_UT, p, loc),
+                        SECOND);
+            }
+        }
+    }
+
+    @Test
+    public void outsideEphemeris() {
+        double jd = 100000.5;
+        assertNull(moshier.planetData(jd, jd, 0, LOCATION));
+        assertEquals(-1, moshier.planetsData(jd, jd, EphemerisEngine.ALL_PLANETS, LOCATION,
+                new double[10 * EphemerisEngine.STRIDE]));
+        assertEquals(-1.0, moshier.rise(jd, 1, LOCATION), 0.0);
+        assertEquals(-1.0, moshier.transit(jd, 5, LOCATION), 0.0);
+    }
+
+    // RA, Dec, distance, azimuth, altitude and magnitude at offset i
+    private static void checkPosition(String msg, double[] expected, double[] out, int i) {
+        assertEquals(msg, 0, Math.IEEEremainder(expected[i] - out[i], 360), MAS);
+        assertEquals(msg, expected[i + 1], out[i + 1], MAS);
+        assertEquals(msg, expected[i + 2], out[i + 2], expected[i + 2] * 1e-9);
+        assertEquals(msg, 0, Math.IEEEremainder(expected[i + 3] - out[i + 3], 360), MAS);
+        assertEquals(msg, expected[i + 4], out[i + 4], MAS);
+        assertEquals(msg, expected[i + 5], out[i + 5], 1e-6);
+    }
+}
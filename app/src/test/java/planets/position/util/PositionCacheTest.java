@@ -0,0 +1,114 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the interpolated positions against the engine at random times.
+ */
+public class PositionCacheTest {
+
+    // Denver, CO [longitude, latitude, elevation]
+    static final double[] LOCATION = {-104.9903, 39.7392, 1609.0};
+
+    // 2020-06-01 03:00 UTC
+    static final double JD_UT = 2459001.6249945476;
+    static final double DELTA_T = 2459001.625800741 - JD_UT;
+
+    // the cache tolerances, the fits are only checked between the nodes
+    private static final double ANGLE = 0.5 / 3600;
+    private static final double DIST = 2e-5;
+    private static final double MAG = 0.01;
+
+    private EphemerisEngine engine;
+    private EphemerisSession session;
+
+    @Before
+    public void setUp() {
+        engine = Ephemeris.getEngine();
+        session = EphemerisSession.open();
+    }
+
+    @After
+    public void tearDown() {
+        session.close();
+    }
+
+    @Test
+    public void matchesEngine() {
+        PositionCache cache = new PositionCache(engine, LOCATION);
+        Random random = new Random(17);
+        double[] out = new double[6];
+        for (int i = 0; i < 2000; i++) {
+            int planet = random.nextInt(10);
+            double dUT = JD_UT + random.nextDouble() * 730;
+            double dET = dUT + DELTA_T;
+            assertTrue(cache.planetData(dET, dUT, planet, out, 0));
+            assertPosition(engine.planetData(dET, dUT, planet, LOCATION), out, 0);
+        }
+    }
+
+    @Test
+    public void storesAtOffset() {
+        PositionCache cache = new PositionCache(engine, LOCATION);
+        double[] out = new double[9];
+        assertTrue(cache.planetData(JD_UT + DELTA_T, JD_UT, 1, out, 3));
+        assertArrayEquals(cache.planetData(JD_UT + DELTA_T, JD_UT, 1),
+                Arrays.copyOfRange(out, 3, 9), 0.0);
+        assertPosition(engine.planetData(JD_UT + DELTA_T, JD_UT, 1, LOCATION), out, 3);
+    }
+
+    @Test
+    public void matchesLocation() {
+        PositionCache cache = new PositionCache(engine, LOCATION);
+        assertTrue(cache.matches(LOCATION.clone()));
+        assertFalse(cache.matches(new double[]{LOCATION[0], LOCATION[1], 0}));
+    }
+
+    static void assertPosition(double[] expected, double[] actual, int offset) {
+        String msg = "planet position " + Arrays.toString(expected);
+        assertEquals(msg, 0, wrap(actual[offset] - expected[0])
+                * Math.cos(Math.toRadians(expected[1])), ANGLE);
+        assertEquals(msg, expected[1], actual[offset + 1], ANGLE);
+        assertEquals(msg, expected[2], actual[offset + 2], DIST);
+        // the azimuth moves fast near the zenith, compare it as an arc
+        assertEquals(msg, 0, wrap(actual[offset + 3] - expected[3])
+                * Math.cos(Math.toRadians(expected[4])), 2 * ANGLE);
+        assertEquals(msg, expected[4], actual[offset + 4], 2 * ANGLE);
+        assertEquals(msg, expected[5], actual[offset + 5], MAG);
+    }
+
+    // angle in [-180, 180)
+    static double wrap(double a) {
+        return a - 360 * Math.floor((a + 180) / 360);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static planets.position.util.PositionCacheTest.DELTA_T;
+import static planets.position.util.PositionCacheTest.JD_UT;
+import static planets.position.util.PositionCacheTest.LOCATION;
+import static planets.position.util.PositionCacheTest.wrap;
+
+/**
+ * Checks the track against the cache it samples and the playhead moves.
+ */
+public class PositionTrackTest {
+
+    private static final double STEP = 1.0 / 1440; // one minute
+    private static final long TIMEOUT = 10000; // ms
+
+    // linear interpolation over a minute, the Moon moves the fastest
+    private static final double ANGLE = 2.0 / 3600;
+    private static final double DIST = 1e-8;
+    private static final double MAG = 1e-4;
+
+    private EphemerisEngine engine;
+    private EphemerisSession session;
+    private PositionTrack track;
+
+    @Before
+    public void setUp() {
+        engine = Ephemeris.getEngine();
+        session = EphemerisSession.open();
+        track = new PositionTrack(engine, LOCATION, 1, JD_UT, DELTA_T, STEP);
+        track.start();
+    }
+
+    @After
+    public void tearDown() {
+        track.stop();
+        session.close();
+    }
+
+    @Test
+    public void interpolatesCache() throws InterruptedException {
+        PositionCache cache = new PositionCache(engine, LOCATION);
+        track.setPlayhead(JD_UT);
+        double[] out = new double[PositionTrack.VALUES];
+        for (int i = 0; i < 1000; i++) {
+            double dUT = JD_UT + (i + 0.37) * STEP;
+            await(dUT, out);
+            assertClose(cache.planetData(dUT + DELTA_T, dUT, 1), out);
+        }
+    }
+
+    @Test
+    public void refillsFromPlayhead() throws InterruptedException {
+        double[] out = new double[PositionTrack.VALUES];
+        double later = JD_UT + 10, earlier = JD_UT + 5;
+        track.setPlayhead(later);
+        await(later, out);
+
+        // a jump back out of the run drops it and fills around the new playhead
+        track.setPlayhead(earlier);
+        assertFalse(track.get(later, out));
+        await(earlier, out);
+        await(earlier - 100 * STEP, out);
+        assertFalse(track.get(later, out));
+        assertFalse(track.isFailed());
+    }
+
+    @Test
+    public void keepsRunNearPlayhead() throws InterruptedException {
+        double[] out = new double[PositionTrack.VALUES];
+        track.setPlayhead(JD_UT);
+        await(JD_UT + 1000 * STEP, out);
+
+        // moving inside the run keeps the samples still close enough
+        track.setPlayhead(JD_UT + 200 * STEP);
+        assertTrue(track.get(JD_UT + 150 * STEP, out));
+        assertTrue(track.get(JD_UT + 1000 * STEP, out));
+    }
+
+    @Test
+    public void matchesPlanetAndLocation() {
+        assertTrue(track.matches(1, LOCATION.clone(), JD_UT + 1));
+        assertFalse(track.matches(0, LOCATION, JD_UT));
+        assertFalse(track.matches(1, new double[]{LOCATION[0], LOCATION[1] + 1,
+                LOCATION[2]}, JD_UT));
+        assertFalse(track.matches(1, LOCATION, JD_UT + 31));
+    }
+
+    // waits for the worker to make the samples around a time
+    private void await(double dUT, double[] out) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (!track.get(dUT, out)) {
+            assertFalse(track.isFailed());
+            assertTrue("timed out at " + dUT, System.currentTimeMillis() < end);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void assertClose(double[] expected, double[] actual) {
+        assertEquals(0, wrap(actual[0] - expected[0]), ANGLE);
+        assertEquals(expected[1], actual[1], ANGLE);
+        assertEquals(expected[2], actual[2], DIST);
+        assertEquals(0, wrap(actual[3] - expected[3])
+                * Math.cos(Math.toRadians(expected[4])), ANGLE);
+        assertEquals(expected[4], actual[4], ANGLE);
+        assertEquals(expected[5], actual[5], MAG);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.benchmark;
+
+/**
+ * Common inputs for the benchmarks.
+ */
+final class BenchmarkData {
+
+    // Denver, CO [longitude, latitude, elevation]
+    static final double[] LOCATION = {-104.9903, 39.7392, 1609.0};
+
+    // 2020-06-01 03:00 UTC
+    static final double JD_UT = 2459001.6249945476;
+    static final double JD_TT = 2459001.625800741;
+
+    private BenchmarkData() {
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import planets.position.util.EclipseSearch;
+import planets.position.util.Ephemeris;
+import planets.position.util.EphemerisEngine;
+import planets.position.util.EphemerisSession;
+
+/**
+ * The search loops of the eclipse and occultation tasks: ten events chained
+ * from a start date, each search starting where the last event ended.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EclipseBenchmark {
+
+    private static final int COUNT = 10;
+
+    private static final EclipseSearch.Listener LISTENER = new EclipseSearch.Listener() {
+        @Override
+        public void onEclipse(int index, EclipseSearch.Eclipse eclipse) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    private EphemerisEngine engine;
+    private EphemerisSession session;
+
+    @Setup
+    public void setUp() {
+        engine = Ephemeris.getEngine();
+        session = EphemerisSession.open();
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.close();
+    }
+
+    @Benchmark
+    public double solarGlobal() {
+        double start = BenchmarkData.JD_UT;
+        for (int i = 0; i < COUNT; i++) {
+            start = engine.solarEclipseGlobal(start, 0)[4];
+        }
+        return start;
+    }
+
+    @Benchmark
+    public double solarLocal() {
+        double start = BenchmarkData.JD_UT;
+        for (int i = 0; i < COUNT; i++) {
+            start = engine.solarEclipseLocal(start, BenchmarkData.LOCATION, 0)[5];
+        }
+        return start;
+    }
+
+    @Benchmark
+    public double lunarGlobal() {
+        double start = BenchmarkData.JD_UT;
+        for (int i = 0; i < COUNT; i++) {
+            start = engine.lunarEclipseGlobal(start, 0)[8];
+        }
+        return start;
+    }
+
+    @Benchmark
+    public double lunarLocal() {
+        double start = BenchmarkData.JD_UT;
+        for (int i = 0; i < COUNT; i++) {
+            start = engine.lunarEclipseLocal(start, BenchmarkData.LOCATION, 0)[1] + 1.0;
+        }
+        return start;
+    }
+
+    /**
+     * Occultations of Venus, as in LunarOccultTask.
+     */
+    @Benchmark
+    public double occultGlobal() {
+        double start = BenchmarkData.JD_UT;
+        for (int i = 0; i < COUNT; i++) {
+            start = engine.occultationGlobal(start, 3, 0)[1] + 2.0;
+        }
+        return start;
+    }
+
+    /**
+     * The full solar eclipse task search, global and local, on the workers.
+     */
+    @Benchmark
+    public List<EclipseSearch.Eclipse> solarSearch() throws InterruptedException {
+        return EclipseSearch.search(engine, EclipseSearch.SOLAR, BenchmarkData.JD_UT,
+                BenchmarkData.LOCATION, 0, COUNT, LISTENER);
+    }
+
+    /**
+     * The full lunar eclipse task search, global and local, on the workers.
+     */
+    @Benchmark
+    public List<EclipseSearch.Eclipse> lunarSearch() throws InterruptedException {
+        return EclipseSearch.search(engine, EclipseSearch.LUNAR, BenchmarkData.JD_UT,
+                BenchmarkData.LOCATION, 0, COUNT, LISTENER);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import planets.position.util.JDUTC;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JDUTCBenchmark {
+
+    private final JDUTC jdUTC = new JDUTC();
+    private final double[] dates = new double[30];
+
+    @Benchmark
+    public double[] utcjd() {
+        return jdUTC.utcjd(6, 1, 2020, 3, 0, 0);
+    }
+
+    @Benchmark
+    public long jdmills() {
+        return jdUTC.jdmills(BenchmarkData.JD_UT);
+    }
+
+    @Benchmark
+    public long jdmillsOffset() {
+        return jdUTC.jdmills(BenchmarkData.JD_UT, -360.0);
+    }
+
+    /**
+     * Thirty rise/set/transit times, one What's Up refresh.
+     */
+    @Benchmark
+    public double[] jdmillsBulk() {
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = BenchmarkData.JD_UT + i * 0.1;
+        }
+        jdUTC.jdmills(dates, -360.0);
+        return dates;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import planets.position.util.Ephemeris;
+import planets.position.util.EphemerisEngine;
+import planets.position.util.EphemerisPool;
+import planets.position.util.EphemerisSession;
+import planets.position.util.PositionCache;
+
+/**
+ * Planet position calculations, as used by Sky Position, Live Position and
+ * What's Up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PositionBenchmark {
+
+    @Param({"false", "true"})
+    public boolean session;
+
+    private EphemerisEngine engine;
+    private EphemerisSession ephemerisSession;
+    private PositionCache positions;
+    private double step;
+    private final double[] out = new double[10 * EphemerisEngine.STRIDE];
+
+    private static final EphemerisPool.Listener LISTENER = new EphemerisPool.Listener() {
+        @Override
+        public void onPlanet(int planet) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        engine = Ephemeris.getEngine();
+        positions = new PositionCache(engine, BenchmarkData.LOCATION);
+        if (session)
+            ephemerisSession = EphemerisSession.open();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (ephemerisSession != null)
+            ephemerisSession.close();
+    }
+
+    @Benchmark
+    public double[] planetData() {
+        return engine.planetData(BenchmarkData.JD_TT, BenchmarkData.JD_UT, 5,
+                BenchmarkData.LOCATION);
+    }
+
+    /**
+     * One planet a minute further on every call, Live Position and sky
+     * animation.
+     */
+    @Benchmark
+    public double[] planetDataCached() {
+        step = (step + 1.0 / 1440) % 30;
+        return positions.planetData(BenchmarkData.JD_TT + step, BenchmarkData.JD_UT + step, 5);
+    }
+
+    /**
+     * All ten planets with rise, set and transit in one call, What's Up.
+     */
+    @Benchmark
+    public double[] planetsData() {
+        engine.planetsData(BenchmarkData.JD_TT, BenchmarkData.JD_UT,
+                EphemerisEngine.ALL_PLANETS, BenchmarkData.LOCATION, out);
+        return out;
+    }
+
+    /**
+     * All ten planets with rise, set and transit, one planet per worker.
+     */
+    @Benchmark
+    public double[] planetsParallel() throws InterruptedException {
+        EphemerisPool.planetsData(engine, BenchmarkData.JD_TT, BenchmarkData.JD_UT,
+                EphemerisEngine.ALL_PLANETS, BenchmarkData.LOCATION, out, LISTENER);
+        return out;
+    }
+
+    /**
+     * All ten planets with rise, set and transit as 40 separate calls.
+     */
+    @Benchmark
+    public double planetsSeparate() {
+        double sum = 0;
+        for (int i = 0; i < 10; i++) {
+            sum += engine.planetData(BenchmarkData.JD_TT, BenchmarkData.JD_UT, i,
+                    BenchmarkData.LOCATION)[0];
+            sum += engine.set(BenchmarkData.JD_UT, i, BenchmarkData.LOCATION);
+            sum += engine.rise(BenchmarkData.JD_UT, i, BenchmarkData.LOCATION);
+            sum += engine.transit(BenchmarkData.JD_UT, i, BenchmarkData.LOCATION);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import planets.position.util.CoordinateFormat;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PositionFormatBenchmark {
+
+    @Param({"0", "1", "2"})
+    public int format;
+
+    @Benchmark
+    public String formatRA() {
+        return CoordinateFormat.formatRA(5.458967510328336, format);
+    }
+
+    @Benchmark
+    public String formatDec() {
+        return CoordinateFormat.formatDec(23.2260666095222, format);
+    }
+
+    @Benchmark
+    public String formatAZ() {
+        return CoordinateFormat.formatAZ(298.3351453874998, format);
+    }
+
+    @Benchmark
+    public String formatALT() {
+        return CoordinateFormat.formatALT(33.81055373204086, format);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import planets.position.util.EphemerisSession;
+import planets.position.util.RiseSet;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RiseSetBenchmark {
+
+    @Param({"0", "1", "5"})
+    public int planet;
+
+    @Param({"false", "true"})
+    public boolean session;
+
+    private RiseSet riseSet;
+    private EphemerisSession ephemerisSession;
+
+    @Setup
+    public void setUp() {
+        riseSet = new RiseSet(BenchmarkData.LOCATION);
+        if (session)
+            ephemerisSession = EphemerisSession.open();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (ephemerisSession != null)
+            ephemerisSession.close();
+    }
+
+    @Benchmark
+    public double rise() {
+        return riseSet.getRise(BenchmarkData.JD_UT, planet);
+    }
+
+    @Benchmark
+    public double set() {
+        return riseSet.getSet(BenchmarkData.JD_UT, planet);
+    }
+
+    @Benchmark
+    public double transit() {
+        return riseSet.getTransit(BenchmarkData.JD_UT, planet);
+    }
+}
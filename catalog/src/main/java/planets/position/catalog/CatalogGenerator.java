@@ -0,0 +1,283 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.catalog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import planets.position.util.EclipseCatalog;
+import planets.position.util.EphemerisEngine;
+import planets.position.util.EphemerisSession;
+import planets.position.util.JniEphemerisEngine;
+
+/**
+ * Writes the eclipse catalog read by EclipseCatalog. Every solar eclipse,
+ * lunar eclipse and lunar occultation of Mercury to Pluto with its maximum
+ * in the requested years is found with the same Swiss Ephemeris searches the
+ * app uses. The years are cut into chunks that are searched in parallel.
+ * <pre>
+ * CatalogGenerator [--from year] [--to year] [--threads n] [--out file]
+ * </pre>
+ */
+public class CatalogGenerator {
+
+    private static final double CHUNK = 25 * 365.25; // days
+    // Swiss Ephemeris only returns events more than this after the start
+    private static final double EPSILON = 0.0001;
+
+    private final EphemerisEngine engine = new JniEphemerisEngine();
+    private final double first, last;
+    private final int threads;
+
+    private CatalogGenerator(double first, double last, int threads) {
+        this.first = first;
+        this.last = last;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int from = -2000, to = 3000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File out = new File("eclipses.bin");
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 == args.length)
+                usage("missing value for " + arg);
+            String value = args[++i];
+            switch (arg) {
+                case "--from":
+                    from = Integer.parseInt(value);
+                    break;
+                case "--to":
+                    to = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--out":
+                    out = new File(value);
+                    break;
+                default:
+                    usage("unknown option " + arg);
+            }
+        }
+        if (from >= to)
+            usage("--from must be before --to");
+
+        double[] jdFrom = new JniEphemerisEngine().utcToJd(1, 1, from, 0, 0, 0);
+        double[] jdTo = new JniEphemerisEngine().utcToJd(1, 1, to, 0, 0, 0);
+        if (jdFrom == null || jdTo == null)
+            usage("years outside the ephemeris range");
+
+        System.out.printf("Eclipse catalog %d to %d, %d threads%n", from, to, threads);
+        new CatalogGenerator(jdFrom[1], jdTo[1], threads).write(out);
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("usage: CatalogGenerator [--from year] [--to year] [--threads n]"
+                + " [--out file]");
+        System.exit(1);
+    }
+
+    private void write(File out) throws Exception {
+        int[] kinds = new int[10];
+        kinds[0] = EclipseCatalog.SOLAR;
+        kinds[1] = EclipseCatalog.LUNAR;
+        for (int p = 2; p < 10; p++)
+            kinds[p] = EclipseCatalog.OCCULTATION + p;
+
+        long start = System.nanoTime();
+        List<List<double[]>> sections = enumerate(kinds);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int total = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            System.out.printf("  kind %2d: %6d events%n", kinds[i], sections.get(i).size());
+            total += sections.get(i).size();
+        }
+        System.out.printf("%d events in %.1f s, %.0f events/s%n", total, seconds,
+                total / seconds);
+
+        ByteBuffer buffer = build(kinds, sections);
+
+        // write next to the target and rename, so a failed run never leaves
+        // a partial catalog behind
+        File tmp = new File(out.getPath() + ".tmp");
+        File dir = out.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Can not create " + dir);
+        try (FileOutputStream os = new FileOutputStream(tmp)) {
+            os.write(buffer.array());
+        }
+        try (RandomAccessFile f = new RandomAccessFile(tmp, "r")) {
+            verify(EclipseCatalog.map(f.getChannel(), 0, f.length()), kinds, sections);
+        }
+        Files.move(tmp.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("Wrote %s, %d bytes, crc %08x%n", out, buffer.capacity(),
+                buffer.getInt(8));
+    }
+
+    /**
+     * Searches every chunk of every kind on a fixed thread pool and returns
+     * the events of each kind in order.
+     */
+    private List<List<double[]>> enumerate(int[] kinds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<List<Future<List<double[]>>>> futures = new ArrayList<>();
+            for (int kind : kinds) {
+                List<Future<List<double[]>>> chunks = new ArrayList<>();
+                for (double a = first; a < last; a += CHUNK)
+                    chunks.add(executor.submit(new Chunk(kind, a, Math.min(a + CHUNK, last))));
+                futures.add(chunks);
+            }
+
+            List<List<double[]>> sections = new ArrayList<>();
+            for (List<Future<List<double[]>>> chunks : futures) {
+                List<double[]> events = new ArrayList<>();
+                for (Future<List<double[]>> f : chunks)
+                    events.addAll(f.get());
+                sections.add(events);
+            }
+            return sections;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ByteBuffer build(int[] kinds, List<List<double[]>> sections) {
+        int size = EclipseCatalog.HEADER_SIZE + kinds.length * EclipseCatalog.SECTION_SIZE;
+        for (List<double[]> events : sections)
+            size += events.size() * EclipseCatalog.RECORD_SIZE;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(EclipseCatalog.MAGIC);
+        buffer.putInt(EclipseCatalog.VERSION);
+        buffer.putInt(0); // checksum
+        buffer.putInt(kinds.length);
+        buffer.putDouble(first);
+        buffer.putDouble(last);
+
+        int offset = EclipseCatalog.HEADER_SIZE + kinds.length * EclipseCatalog.SECTION_SIZE;
+        for (int i = 0; i < kinds.length; i++) {
+            buffer.putInt(kinds[i]);
+            buffer.putInt(sections.get(i).size());
+            buffer.putInt(offset);
+            offset += sections.get(i).size() * EclipseCatalog.RECORD_SIZE;
+        }
+        for (List<double[]> events : sections) {
+            for (double[] data : events) {
+                buffer.putDouble(data[1]);
+                buffer.putInt((int) data[0]);
+                for (int t = 0; t < EclipseCatalog.TIMES; t++) {
+                    double time = data[2 + t];
+                    buffer.putFloat(time == 0 ? Float.NaN : (float) (time - data[1]));
+                }
+            }
+        }
+        buffer.putInt(8, EclipseCatalog.checksum(buffer));
+        return buffer;
+    }
+
+    /**
+     * Reads the written file back and checks that every record matches.
+     */
+    private void verify(EclipseCatalog catalog, int[] kinds, List<List<double[]>> sections)
+            throws IOException {
+        for (int i = 0; i < kinds.length; i++) {
+            List<double[]> events = sections.get(i);
+            if (catalog.getCount(kinds[i]) != events.size())
+                throw new IOException("Record count mismatch for kind " + kinds[i]);
+            for (int j = 0; j < events.size(); j++) {
+                double[] expected = events.get(j);
+                double[] actual = catalog.get(kinds[i], j);
+                for (int k = 0; k < expected.length; k++) {
+                    // float offsets keep the times to well under a second
+                    if (Math.abs(expected[k] - actual[k]) > 1e-5)
+                        throw new IOException("Record " + j + " of kind " + kinds[i]
+                                + " does not match");
+                }
+            }
+        }
+    }
+
+    /**
+     * Chains global searches through one chunk and keeps the events with
+     * their maximum in [from, to), or [from, to] for the last chunk.
+     */
+    private class Chunk implements Callable<List<double[]>> {
+        private final int kind;
+        private final double from, to;
+
+        Chunk(int kind, double from, double to) {
+            this.kind = kind;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public List<double[]> call() throws IOException {
+            List<double[]> events = new ArrayList<>();
+            EphemerisSession session = EphemerisSession.open();
+            try {
+                double t = from - 2 * EPSILON;
+                while (true) {
+                    double[] data = search(t);
+                    // near the end of the ephemeris the next event may lie
+                    // past its range, there is nothing more to catalog
+                    if (data == null && to == last)
+                        break;
+                    if (data == null)
+                        throw new IOException("Search failed for kind " + kind + " at " + t);
+                    if (data[1] > to || (data[1] == to && to != last))
+                        break;
+                    if (data[1] >= from)
+                        events.add(data);
+                    t = data[1];
+                }
+            } finally {
+                session.close();
+            }
+            return events;
+        }
+
+        private double[] search(double t) {
+            if (kind == EclipseCatalog.SOLAR)
+                return engine.solarEclipseGlobal(t, 0);
+            if (kind == EclipseCatalog.LUNAR)
+                return engine.lunarEclipseGlobal(t, 0);
+            return engine.occultationGlobal(t, kind - EclipseCatalog.OCCULTATION, 0);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ * Planet's Position
+ * A program to calculate the position of the planets in the night sky based
+ * on a given location on Earth.
+ * Copyright (c) 2020 Tim Gaddis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package planets.position.catalog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import planets.position.database.TimeZoneData;
+
+/**
+ * Converts timezone.db into the time zone data file read by TimeZoneData.
+ * <pre>
+ * TimeZoneDataGenerator --db timezone.db [--out timezone.bin]
+ * </pre>
+ */
+public class TimeZoneDataGenerator {
+
+    static final class Zone {
+        int id;
+        String name, countryCode;
+        long[] starts;
+        int[] offsets;
+    }
+
+    static final class State {
+        int id;
+        String country, state;
+    }
+
+    static final class City {
+        int id;
+        String city, country, state, zone;
+        double lat, lng, alt;
+    }
+
+    // strings sort by their UTF-8 bytes, the way SQLite compares them
+    private static final Comparator<String> UTF8_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            byte[] x = a.getBytes(StandardCharsets.UTF_8);
+            byte[] y = b.getBytes(StandardCharsets.UTF_8);
+            int n = Math.min(x.length, y.length);
+            for (int i = 0; i < n; i++) {
+                int cmp = (x[i] & 0xff) - (y[i] & 0xff);
+                if (cmp != 0)
+                    return cmp;
+            }
+            return x.length - y.length;
+        }
+    };
+
+    final List<Zone> zones = new ArrayList<>();
+    final List<State> states = new ArrayList<>();
+    final List<City> cities = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        File db = null;
+        File out = new File("timezone.bin");
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 == args.length)
+                usage("missing value for " + arg);
+            String value = args[++i];
+            switch (arg) {
+                case "--db":
+                    db = new File(value);
+                    break;
+                case "--out":
+                    out = new File(value);
+                    break;
+                default:
+                    usage("unknown option " + arg);
+            }
+        }
+        if (db == null || !db.isFile())
+            usage("--db must name the time zone database");
+
+        TimeZoneDataGenerator generator = new TimeZoneDataGenerator();
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + db.getPath())) {
+            generator.load(c);
+        }
+        generator.write(out);
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("usage: TimeZoneDataGenerator --db file [--out file]");
+        System.exit(1);
+    }
+
+    private void load(Connection c) throws SQLException {
+        try (Statement s = c.createStatement()) {
+            Map<Integer, List<long[]>> transitions = new HashMap<>();
+            try (ResultSet r = s.executeQuery("SELECT zone_id, time_start, gmt_offset"
+                    + " FROM timezone ORDER BY zone_id, time_start")) {
+                while (r.next()) {
+                    List<long[]> list = transitions.get(r.getInt(1));
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        transitions.put(r.getInt(1), list);
+                    }
+                    list.add(new long[]{r.getLong(2), r.getInt(3)});
+                }
+            }
+            try (ResultSet r = s.executeQuery("SELECT _id, zone_name, country_code"
+                    + " FROM zone ORDER BY _id")) {
+                while (r.next()) {
+                    Zone z = new Zone();
+                    z.id = r.getInt(1);
+                    z.name = r.getString(2);
+                    z.countryCode = r.getString(3);
+                    List<long[]> list = transitions.get(z.id);
+                    int n = (list == null) ? 0 : list.size();
+                    z.starts = new long[n];
+                    z.offsets = new int[n];
+                    for (int i = 0; i < n; i++) {
+                        z.starts[i] = list.get(i)[0];
+                        z.offsets[i] = (int) list.get(i)[1];
+                    }
+                    zones.add(z);
+                }
+            }
+            try (ResultSet r = s.executeQuery("SELECT _id, country, state FROM states")) {
+                while (r.next()) {
+                    State st = new State();
+                    st.id = r.getInt(1);
+                    st.country = r.getString(2);
+                    st.state = r.getString(3);
+                    states.add(st);
+                }
+            }
+            try (ResultSet r = s.executeQuery("SELECT _id, city, country, state, timezone,"
+                    + " lat, lng, altitude FROM worldcities ORDER BY _id")) {
+                while (r.next()) {
+                    City ct = new City();
+                    ct.id = r.getInt(1);
+                    ct.city = r.getString(2);
+                    ct.country = r.getString(3);
+                    ct.state = r.getString(4);
+                    ct.zone = r.getString(5);
+                    ct.lat = r.getDouble(6);
+                    ct.lng = r.getDouble(7);
+                    ct.alt = r.getDouble(8);
+                    cities.add(ct);
+                }
+            }
+        }
+    }
+
+    void write(File out) throws IOException {
+        ByteBuffer buffer = build();
+
+        // write next to the target and rename, so a failed run never leaves
+        // a partial file behind
+        File tmp = new File(out.getPath() + ".tmp");
+        File dir = out.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Can not create " + dir);
+        try (FileOutputStream os = new FileOutputStream(tmp)) {
+            os.write(buffer.array());
+        }
+        try (RandomAccessFile f = new RandomAccessFile(tmp, "r")) {
+            verify(TimeZoneData.map(f.getChannel(), 0, f.length()));
+        }
+        Files.move(tmp.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("Wrote %s: %d zones, %d states, %d cities, %d bytes, crc %08x%n",
+                out, zones.size(), states.size(), cities.size(), buffer.capacity(),
+                buffer.getInt(8));
+    }
+
+    ByteBuffer build() {
+        // string table
+        TreeSet<String> set = new TreeSet<>(UTF8_ORDER);
+        for (Zone z : zones) {
+            set.add(z.name);
+            set.add(z.countryCode);
+        }
+        for (State s : states) {
+            set.add(s.country);
+            set.add(s.state);
+        }
+        for (City c : cities) {
+            set.add(c.city);
+            set.add(c.country);
+            set.add(c.state);
+            set.add(c.zone);
+        }
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+        for (String s : set)
+            strings.put(s, strings.size());
+
+        final List<Zone> zoneRows = new ArrayList<>(zones);
+        zoneRows.sort(Comparator.comparingInt(z -> z.id));
+        Integer[] zoneNames = new Integer[zoneRows.size()];
+        for (int i = 0; i < zoneNames.length; i++)
+            zoneNames[i] = i;
+        Arrays.sort(zoneNames, Comparator.comparingInt(i -> strings.get(zoneRows.get(i).name)));
+
+        List<State> stateRows = new ArrayList<>(states);
+        stateRows.sort(Comparator.<State>comparingInt(s -> strings.get(s.country))
+                .thenComparingInt(s -> strings.get(s.state))
+                .thenComparingInt(s -> s.id));
+
+        final List<City> cityRows = new ArrayList<>(cities);
+        cityRows.sort(Comparator.comparingInt(c -> c.id));
+        Integer[] cityList = new Integer[cityRows.size()];
+        for (int i = 0; i < cityList.length; i++)
+            cityList[i] = i;
+        Arrays.sort(cityList, Comparator.<Integer>comparingInt(i -> strings.get(cityRows.get(i).country))
+                .thenComparingInt(i -> strings.get(cityRows.get(i).state))
+                .thenComparingInt(i -> strings.get(cityRows.get(i).city))
+                .thenComparingInt(i -> i));
+
+        int transitions = 0;
+        for (Zone z : zoneRows)
+            transitions += z.starts.length;
+        List<byte[]> utf8 = new ArrayList<>(strings.size());
+        int byteCount = 0;
+        for (String s : strings.keySet()) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            utf8.add(b);
+            byteCount += b.length;
+        }
+
+        // section offsets
+        int pos = TimeZoneData.HEADER_SIZE;
+        int zoneOffset = pos;
+        pos += zoneRows.size() * TimeZoneData.ZONE_SIZE;
+        int zoneNameOffset = pos;
+        pos += zoneRows.size() * 4;
+        int startOffset = pos;
+        pos += transitions * 8;
+        int gmtOffset = pos;
+        pos += transitions * 4;
+        int stateOffset = pos;
+        pos += stateRows.size() * TimeZoneData.STATE_SIZE;
+        int cityOffset = pos;
+        pos += cityRows.size() * TimeZoneData.CITY_SIZE;
+        int cityListOffset = pos;
+        pos += cityRows.size() * 4;
+        int stringOffset = pos;
+        pos += (utf8.size() + 1) * 4;
+        int byteOffset = pos;
+        pos += byteCount;
+
+        ByteBuffer buffer = ByteBuffer.allocate(pos);
+        buffer.putInt(TimeZoneData.MAGIC);
+        buffer.putInt(TimeZoneData.VERSION);
+        buffer.putInt(0); // checksum
+        buffer.putInt(zoneRows.size());
+        buffer.putInt(transitions);
+        buffer.putInt(stateRows.size());
+        buffer.putInt(cityRows.size());
+        buffer.putInt(utf8.size());
+        buffer.putInt(zoneOffset);
+        buffer.putInt(zoneNameOffset);
+        buffer.putInt(startOffset);
+        buffer.putInt(gmtOffset);
+        buffer.putInt(stateOffset);
+        buffer.putInt(cityOffset);
+        buffer.putInt(cityListOffset);
+        buffer.putInt(stringOffset);
+        buffer.putInt(byteOffset);
+
+        int first = 0;
+        for (Zone z : zoneRows) {
+            buffer.putInt(z.id);
+            buffer.putInt(strings.get(z.name));
+            buffer.putInt(strings.get(z.countryCode));
+            buffer.putInt(first);
+            buffer.putInt(z.starts.length);
+            first += z.starts.length;
+        }
+        for (int row : zoneNames)
+            buffer.putInt(row);
+        for (Zone z : zoneRows) {
+            for (long start : z.starts)
+                buffer.putLong(start);
+        }
+        for (Zone z : zoneRows) {
+            for (int offset : z.offsets)
+                buffer.putInt(offset);
+        }
+        for (State s : stateRows) {
+            buffer.putInt(s.id);
+            buffer.putInt(strings.get(s.country));
+            buffer.putInt(strings.get(s.state));
+        }
+        for (City c : cityRows) {
+            buffer.putInt(c.id);
+            buffer.putInt(strings.get(c.city));
+            buffer.putInt(strings.get(c.country));
+            buffer.putInt(strings.get(c.state));
+            buffer.putInt(strings.get(c.zone));
+            buffer.putDouble(c.lat);
+            buffer.putDouble(c.lng);
+            buffer.putDouble(c.alt);
+        }
+        for (int row : cityList)
+            buffer.putInt(row);
+        int offset = 0;
+        for (byte[] b : utf8) {
+            buffer.putInt(offset);
+            offset += b.length;
+        }
+        buffer.putInt(offset);
+        for (byte[] b : utf8)
+            buffer.put(b);
+        buffer.putInt(8, TimeZoneData.checksum(buffer));
+        return buffer;
+    }
+
+    /**
+     * Runs every query of the app against the written file and checks the
+     * answers against the database.
+     */
+    private void verify(TimeZoneData data) throws IOException {
+        // zone list, ids and offsets
+        List<String> names = new ArrayList<>();
+        for (Zone z : zones)
+            names.add(z.name);
+        names.sort(UTF8_ORDER);
+        int[] list = data.getZoneList();
+        if (list.length != names.size())
+            throw new IOException("Zone count mismatch");
+        for (int i = 0; i < list.length; i++) {
+            if (!data.getZoneName(list[i]).equals(names.get(i)))
+                throw new IOException("Zone list out of order at " + i);
+        }
+        for (Zone z : zones) {
+            if (data.getZoneID(z.name) != z.id)
+                throw new IOException("Wrong id for zone " + z.name);
+            for (int i = 0; i < z.starts.length; i++) {
+                int before = (i == 0) ? -1 : z.offsets[i - 1];
+                if (data.getZoneOffset(z.id, z.starts[i]) != z.offsets[i]
+                        || data.getZoneOffset(z.id, z.starts[i] - 1) != before)
+                    throw new IOException("Wrong offset for zone " + z.name + " at "
+                            + z.starts[i]);
+            }
+        }
+
+        // state and city lists
+        Map<String, List<State>> byCountry = new HashMap<>();
+        for (State s : states)
+            byCountry.computeIfAbsent(s.country, k -> new ArrayList<>()).add(s);
+        for (Map.Entry<String, List<State>> e : byCountry.entrySet()) {
+            List<State> expected = e.getValue();
+            expected.sort(Comparator.comparing((State s) -> s.state, UTF8_ORDER));
+            int[] rows = data.getStateList(e.getKey());
+            if (rows.length != expected.size())
+                throw new IOException("State count mismatch for " + e.getKey());
+            for (int i = 0; i < rows.length; i++) {
+                if (data.getStateId(rows[i]) != expected.get(i).id)
+                    throw new IOException("State list mismatch for " + e.getKey());
+            }
+        }
+        Map<String, List<City>> byState = new HashMap<>();
+        for (City c : cities)
+            byState.computeIfAbsent(c.country + '\0' + c.state, k -> new ArrayList<>()).add(c);
+        for (List<City> expected : byState.values()) {
+            expected.sort(Comparator.comparing((City c) -> c.city, UTF8_ORDER)
+                    .thenComparingInt(c -> c.id));
+            City first = expected.get(0);
+            int[] rows = data.getCityList(first.country, first.state);
+            if (rows.length != expected.size())
+                throw new IOException("City count mismatch for " + first.state);
+            for (int i = 0; i < rows.length; i++) {
+                if (data.getCityId(rows[i]) != expected.get(i).id)
+                    throw new IOException("City list mismatch for " + first.state);
+            }
+        }
+
+        // city data
+        for (City c : cities) {
+            int row = data.getCityRow(c.id);
+            if (row < 0 || !data.getCityName(row).equals(c.city)
+                    || !data.getCityCountry(row).equals(c.country)
+                    || !data.getCityState(row).equals(c.state)
+                    || !data.getCityZone(row).equals(c.zone)
+                    || data.getCityLatitude(row) != c.lat
+                    || data.getCityLongitude(row) != c.lng
+                    || data.getCityAltitude(row) != c.alt)
+                throw new IOException("City " + c.id + " does not match");
+        }
+    }
+}